@@ -0,0 +1,91 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Inputs for the JMH benchmarks.
+ *
+ * <p>The benchmarks run on the jars of the examples in src/test/examples, which are built by the
+ * buildExampleJars gradle task. Benchmarks that need dex input compile the example jars with D8
+ * once during setup.
+ */
+class BenchmarkInputs {
+
+  static final String EXAMPLES_BUILD_DIR = "build/test/examples/";
+
+  static Path exampleJar(String example) {
+    return Paths.get(EXAMPLES_BUILD_DIR, example + ".jar");
+  }
+
+  static List<byte[]> compileToDex(Path jar) throws CompilationFailedException {
+    SortedMap<Integer, byte[]> files = new TreeMap<>();
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(jar)
+            .setDisableDesugaring(true)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    files.put(fileIndex, data.copyByteData());
+                  }
+                })
+            .build());
+    return new ArrayList<>(files.values());
+  }
+
+  static AndroidApp dexApp(List<byte[]> dexFiles) {
+    AndroidApp.Builder builder = AndroidApp.builder();
+    for (byte[] dexFile : dexFiles) {
+      builder.addDexProgramData(dexFile, Origin.unknown());
+    }
+    return builder.build();
+  }
+
+  static DirectMappedDexApplication read(AndroidApp app, InternalOptions options)
+      throws IOException, ExecutionException {
+    return new ApplicationReader(app, options, new Timing("benchmark")).read().toDirect();
+  }
+
+  static List<DexEncodedMethod> methodsWithCode(DirectMappedDexApplication application) {
+    List<DexEncodedMethod> methods = new ArrayList<>();
+    for (DexProgramClass clazz : application.classes()) {
+      clazz.forEachMethod(
+          method -> {
+            if (method.getCode() != null) {
+              methods.add(method);
+            }
+          });
+    }
+    return methods;
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ir.code.IRCode;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Measures the CodeRewriter passes that are run on all methods when compiling with D8, in the
+ * order used by IRConverter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodeRewriterBenchmark extends IRBenchmarkBase {
+
+  private List<IRCode> allCode;
+
+  @Setup(Level.Invocation)
+  public void setupCode() {
+    allCode = buildIR();
+  }
+
+  @Benchmark
+  public List<IRCode> rewriteAll() {
+    for (IRCode code : allCode) {
+      codeRewriter.removeTrivialCheckCastAndInstanceOfInstructions(code, false);
+      codeRewriter.rewriteLongCompareAndRequireNonNull(code, options);
+      codeRewriter.commonSubexpressionElimination(code);
+      codeRewriter.simplifyArrayConstruction(code);
+      codeRewriter.rewriteMoveResult(code);
+      codeRewriter.splitRangeInvokeConstants(code);
+      codeRewriter.rewriteSwitch(code);
+      codeRewriter.processMethodsNeverReturningNormally(code);
+      codeRewriter.simplifyIf(code);
+      codeRewriter.useDedicatedConstantForLitInstruction(code);
+      codeRewriter.shortenLiveRanges(code);
+    }
+    return allCode;
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.conversion.DexBuilder;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/** Measures building dex code for all methods with DexBuilder after register allocation. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DexBuilderBenchmark extends IRBenchmarkBase {
+
+  private List<IRCode> allCode;
+  private List<LinearScanRegisterAllocator> allocators;
+
+  @Setup(Level.Invocation)
+  public void setupCode() {
+    allCode = buildIR();
+    allocators = new ArrayList<>(allCode.size());
+    for (IRCode code : allCode) {
+      deadCodeRemover.run(code);
+      LinearScanRegisterAllocator allocator =
+          new LinearScanRegisterAllocator(appInfo, code, options);
+      allocator.allocateRegisters();
+      allocators.add(allocator);
+    }
+  }
+
+  @Benchmark
+  public List<DexCode> buildAll() {
+    List<DexCode> result = new ArrayList<>(allCode.size());
+    for (int i = 0; i < allCode.size(); i++) {
+      result.add(new DexBuilder(allCode.get(i), allocators.get(i), options).build());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.graph.AppInfoWithSubtyping;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.shaking.Enqueuer;
+import com.android.tools.r8.shaking.Enqueuer.AppInfoWithLiveness;
+import com.android.tools.r8.shaking.ProguardConfiguration;
+import com.android.tools.r8.shaking.ProguardConfigurationParser;
+import com.android.tools.r8.shaking.ProguardConfigurationSourceStrings;
+import com.android.tools.r8.shaking.RootSetBuilder;
+import com.android.tools.r8.shaking.RootSetBuilder.RootSet;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures computing the root set with RootSetBuilder and tracing with the Enqueuer. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EnqueuerBenchmark {
+
+  private static final ImmutableList<String> KEEP_RULES =
+      ImmutableList.of(
+          "-keep class * { public static void main(java.lang.String[]); }", "-dontwarn **");
+
+  @Param({"inlining", "regalloc", "jumbostring"})
+  public String example;
+
+  @Param({"third_party/android_jar/lib-v28/android.jar"})
+  public String library;
+
+  private InternalOptions options;
+  private DirectMappedDexApplication application;
+  private AppView<AppInfoWithSubtyping> appView;
+  private RootSet rootSet;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    Reporter reporter = new Reporter();
+    ProguardConfigurationParser parser = new ProguardConfigurationParser(factory, reporter);
+    parser.parse(
+        new ProguardConfigurationSourceStrings(KEEP_RULES, Paths.get("."), Origin.unknown()));
+    ProguardConfiguration configuration = parser.getConfig();
+    options = new InternalOptions(configuration, reporter);
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    application =
+        BenchmarkInputs.read(
+            AndroidApp.builder()
+                .addProgramFiles(BenchmarkInputs.exampleJar(example))
+                .addLibraryFiles(Paths.get(library))
+                .build(),
+            options);
+    appView =
+        new AppView<>(
+            new AppInfoWithSubtyping(application), GraphLense.getIdentityLense(), options);
+    executor = Executors.newSingleThreadExecutor();
+    rootSet = computeRootSet();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public RootSet computeRootSet() throws Exception {
+    return new RootSetBuilder(
+            appView, application, options.getProguardConfiguration().getRules(), options)
+        .run(executor);
+  }
+
+  @Benchmark
+  public AppInfoWithLiveness traceApplication() throws Exception {
+    return new Enqueuer(appView, options, null)
+        .traceApplication(
+            rootSet,
+            options.getProguardConfiguration().getDontWarnPatterns(),
+            executor,
+            new Timing("benchmark"));
+  }
+}
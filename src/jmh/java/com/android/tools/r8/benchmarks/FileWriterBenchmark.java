@@ -0,0 +1,78 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing an application that has already been compiled to dex. Besides the FileWriter
+ * this includes distributing the classes into dex files and computing the index mappings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FileWriterBenchmark {
+
+  @Param({"inlining", "regalloc", "jumbostring"})
+  public String example;
+
+  private InternalOptions options;
+  private DirectMappedDexApplication application;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws Exception {
+    options = new InternalOptions();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    application =
+        BenchmarkInputs.read(
+            BenchmarkInputs.dexApp(
+                BenchmarkInputs.compileToDex(BenchmarkInputs.exampleJar(example))),
+            options);
+    // Write the dex files sequentially to not measure the scheduling of the executor.
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public void writeAll() throws Exception {
+    new ApplicationWriter(
+            application,
+            options,
+            null,
+            null,
+            GraphLense.getIdentityLense(),
+            NamingLens.getIdentityLens(),
+            null,
+            null)
+        .write(executor);
+  }
+}
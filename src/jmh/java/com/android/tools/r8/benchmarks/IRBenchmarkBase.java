@@ -0,0 +1,65 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.conversion.IRConverter;
+import com.android.tools.r8.ir.optimize.CodeRewriter;
+import com.android.tools.r8.ir.optimize.DeadCodeRemover;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base class for benchmarks of the IR passes. The application is read from dex once per trial, and
+ * each benchmark invocation processes all methods of the application.
+ */
+@State(Scope.Benchmark)
+public abstract class IRBenchmarkBase {
+
+  @Param({"inlining", "regalloc", "jumbostring"})
+  public String example;
+
+  InternalOptions options;
+  AppInfo appInfo;
+  List<DexEncodedMethod> methods;
+  CodeRewriter codeRewriter;
+  DeadCodeRemover deadCodeRemover;
+
+  @Setup
+  public void setupApplication() throws Exception {
+    options = new InternalOptions();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    DirectMappedDexApplication application =
+        BenchmarkInputs.read(
+            BenchmarkInputs.dexApp(
+                BenchmarkInputs.compileToDex(BenchmarkInputs.exampleJar(example))),
+            options);
+    appInfo = new AppInfo(application);
+    methods = BenchmarkInputs.methodsWithCode(application);
+    codeRewriter = new CodeRewriter(new IRConverter(appInfo, options), ImmutableSet.of(), options);
+    deadCodeRemover =
+        new DeadCodeRemover(appInfo, codeRewriter, GraphLense.getIdentityLense(), options, false);
+  }
+
+  List<IRCode> buildIR() {
+    List<IRCode> result = new ArrayList<>(methods.size());
+    for (DexEncodedMethod method : methods) {
+      result.add(
+          method.buildIR(appInfo, GraphLense.getIdentityLense(), options, Origin.unknown()));
+    }
+    return result;
+  }
+}
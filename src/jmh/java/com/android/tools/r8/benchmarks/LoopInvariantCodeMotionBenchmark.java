@@ -0,0 +1,166 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.CompilerBenchmarkHelper;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loops with invariant computations compiled by R8 with and without loop-invariant code
+ * motion. The loops are compiled to class files and run on the host JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoopInvariantCodeMotionBenchmark {
+
+  /** The input of R8, which is loaded from the class file of the benchmark. */
+  public static class Loops {
+
+    private final int[] values;
+    private final int scale;
+
+    public Loops(int[] values, int scale) {
+      this.values = values;
+      this.scale = scale;
+    }
+
+    // The arithmetic on x and the length of the array are invariant.
+    public static int sum(int[] array, int x) {
+      int sum = 0;
+      for (int i = 0; i < array.length; i++) {
+        sum += array[i] * (x * 3 + 7);
+      }
+      return sum;
+    }
+
+    // The loads of the final fields and the length of the array are invariant.
+    public int scaledSum() {
+      int sum = 0;
+      for (int i = 0; i < values.length; i++) {
+        sum += values[i] * scale;
+      }
+      return sum;
+    }
+  }
+
+  @Param({"true", "false"})
+  public boolean enableLoopInvariantCodeMotion;
+
+  @Param({"third_party/android_jar/lib-v28/android.jar"})
+  public String library;
+
+  @Param({"10000"})
+  public int size;
+
+  private int[] values;
+  private MethodHandle sum;
+  private MethodHandle scaledSum;
+
+  @Setup
+  public void setup() throws Throwable {
+    Map<String, byte[]> classes = new HashMap<>();
+    R8Command command =
+        R8Command.builder()
+            .addClassProgramData(classFile(Loops.class), Origin.unknown())
+            .addLibraryFiles(Paths.get(library))
+            .addProguardConfiguration(
+                ImmutableList.of(
+                    "-keep class " + Loops.class.getTypeName() + " {",
+                    "  public <init>(int[], int);",
+                    "  public static int sum(int[], int);",
+                    "  public int scaledSum();",
+                    "}"),
+                Origin.unknown())
+            .setProgramConsumer(
+                new ClassFileConsumer() {
+                  @Override
+                  public synchronized void accept(
+                      ByteDataView data, String descriptor, DiagnosticsHandler handler) {
+                    classes.put(
+                        DescriptorUtils.descriptorToJavaType(descriptor), data.copyByteData());
+                  }
+
+                  @Override
+                  public void finished(DiagnosticsHandler handler) {}
+                })
+            .build();
+    CompilerBenchmarkHelper.runR8(
+        command,
+        options -> options.enableLoopInvariantCodeMotion = enableLoopInvariantCodeMotion);
+
+    // Load the output without delegating to the class loader of the benchmark, which has the
+    // input class with the same name.
+    ClassLoader loader =
+        new ClassLoader(null) {
+          @Override
+          protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+              throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+          }
+        };
+    Class<?> clazz = loader.loadClass(Loops.class.getTypeName());
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = i;
+    }
+    Object loops =
+        lookup
+            .findConstructor(clazz, MethodType.methodType(void.class, int[].class, int.class))
+            .invoke(values, 3);
+    sum = lookup.findStatic(clazz, "sum", MethodType.methodType(int.class, int[].class, int.class));
+    scaledSum =
+        lookup.findVirtual(clazz, "scaledSum", MethodType.methodType(int.class)).bindTo(loops);
+  }
+
+  private static byte[] classFile(Class<?> clazz) throws Exception {
+    String name = "/" + clazz.getTypeName().replace('.', '/') + ".class";
+    try (InputStream in = clazz.getResourceAsStream(name)) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+
+  @Benchmark
+  public int sum() throws Throwable {
+    return (int) sum.invokeExact(values, size);
+  }
+
+  @Benchmark
+  public int scaledSum() throws Throwable {
+    return (int) scaledSum.invokeExact();
+  }
+}
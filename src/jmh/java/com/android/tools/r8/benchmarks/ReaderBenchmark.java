@@ -0,0 +1,59 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.graph.DirectMappedDexApplication;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading class files with JarClassFileReader and dex files with DexParser.
+ *
+ * <p>The code of methods in class files is only parsed when building IR, so reading class files
+ * only covers the class structure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReaderBenchmark {
+
+  @Param({"inlining", "regalloc", "jumbostring"})
+  public String example;
+
+  private AndroidApp classFileApp;
+  private AndroidApp dexApp;
+
+  @Setup
+  public void setup() throws Exception {
+    Path jar = BenchmarkInputs.exampleJar(example);
+    classFileApp = AndroidApp.builder().addProgramFiles(jar).build();
+    dexApp = BenchmarkInputs.dexApp(BenchmarkInputs.compileToDex(jar));
+  }
+
+  @Benchmark
+  public DirectMappedDexApplication readClassFiles() throws Exception {
+    return BenchmarkInputs.read(classFileApp, new InternalOptions());
+  }
+
+  @Benchmark
+  public DirectMappedDexApplication readDexFiles() throws Exception {
+    return BenchmarkInputs.read(dexApp, new InternalOptions());
+  }
+}
@@ -0,0 +1,48 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/** Measures register allocation for all methods with LinearScanRegisterAllocator. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RegisterAllocatorBenchmark extends IRBenchmarkBase {
+
+  private List<IRCode> allCode;
+
+  @Setup(Level.Invocation)
+  public void setupCode() {
+    allCode = buildIR();
+    // The register allocator does not allow dead code.
+    allCode.forEach(deadCodeRemover::run);
+  }
+
+  @Benchmark
+  public int allocateAll() {
+    int registers = 0;
+    for (IRCode code : allCode) {
+      LinearScanRegisterAllocator allocator =
+          new LinearScanRegisterAllocator(appInfo, code, options);
+      allocator.allocateRegisters();
+      registers += allocator.registersUsed();
+    }
+    return registers;
+  }
+}
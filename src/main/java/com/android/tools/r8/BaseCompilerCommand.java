@@ -4,13 +4,21 @@
 package com.android.tools.r8;
 
 import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.Timing;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Base class for commands and command builders for compiler applications/tools which besides an
@@ -31,6 +39,9 @@ public abstract class BaseCompilerCommand extends BaseCommand {
   private final boolean enableDesugaring;
   private final boolean optimizeMultidexForLinearAlloc;
 
+  // Receives the timing of the compilation phases. Only set by CompilerBenchmarkHelper.
+  private final Consumer<Timing> timingConsumer;
+
   BaseCompilerCommand(boolean printHelp, boolean printVersion) {
     super(printHelp, printVersion);
     programConsumer = null;
@@ -40,6 +51,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     reporter = new Reporter();
     enableDesugaring = true;
     optimizeMultidexForLinearAlloc = false;
+    timingConsumer = null;
   }
 
   BaseCompilerCommand(
@@ -50,7 +62,8 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       int minApiLevel,
       Reporter reporter,
       boolean enableDesugaring,
-      boolean optimizeMultidexForLinearAlloc) {
+      boolean optimizeMultidexForLinearAlloc,
+      Consumer<Timing> timingConsumer) {
     super(app);
     assert minApiLevel > 0;
     assert mode != null;
@@ -61,6 +74,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     this.reporter = reporter;
     this.enableDesugaring = enableDesugaring;
     this.optimizeMultidexForLinearAlloc = optimizeMultidexForLinearAlloc;
+    this.timingConsumer = timingConsumer;
   }
 
   /**
@@ -108,6 +122,11 @@ public abstract class BaseCompilerCommand extends BaseCommand {
   Reporter getReporter() {
     return reporter;
   }
+
+  Consumer<Timing> getTimingConsumer() {
+    return timingConsumer;
+  }
+
   /**
    * Base builder for compilation commands.
    *
@@ -124,11 +143,14 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     private Path outputPath = null;
     // TODO(b/70656566): Remove default output mode when deprecated API is removed.
     private OutputMode outputMode = OutputMode.DexIndexed;
+    private boolean outputIncludesDataResources = false;
+    private boolean storeDexFilesUncompressed = false;
 
     private CompilationMode mode;
     private int minApiLevel = 0;
     private boolean disableDesugaring = false;
     private boolean optimizeMultidexForLinearAlloc = false;
+    private Consumer<Timing> timingConsumer = null;
 
     abstract CompilationMode defaultCompilationMode();
 
@@ -225,6 +247,36 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       return optimizeMultidexForLinearAlloc;
     }
 
+    // Only used by CompilerBenchmarkHelper to report the timing of the compilation phases.
+    B setTimingConsumer(Consumer<Timing> timingConsumer) {
+      this.timingConsumer = timingConsumer;
+      return self();
+    }
+
+    Consumer<Timing> getTimingConsumer() {
+      return timingConsumer;
+    }
+
+    /**
+     * If set to true, the dex files are stored without compression, and aligned on a 4-byte
+     * boundary, when the output path-and-mode is an archive in {@link OutputMode#DexIndexed}, as in
+     * an APK. This allows the dex files to be memory-mapped directly from the archive. Has no
+     * effect when an explicit program consumer is set.
+     */
+    public B setStoreDexFilesUncompressed(boolean storeDexFilesUncompressed) {
+      this.storeDexFilesUncompressed = storeDexFilesUncompressed;
+      if (outputPath != null) {
+        programConsumer =
+            createProgramOutputConsumer(outputPath, outputMode, outputIncludesDataResources);
+      }
+      return self();
+    }
+
+    /** If true, the dex files in an output archive are stored without compression. */
+    public boolean isStoreDexFilesUncompressed() {
+      return storeDexFilesUncompressed;
+    }
+
     /**
      * Set the program consumer.
      *
@@ -269,6 +321,40 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       return self();
     }
 
+    /**
+     * Add startup profile files.
+     *
+     * <p>Each line in each of the files specifies a class or a method that is used during
+     * application startup, in the human readable ART profile format, for example
+     * "Lcom/example/MyClass;" or "Lcom/example/MyClass;->onCreate(Landroid/os/Bundle;)V". The
+     * startup classes are placed first in the primary dex file and the code of the startup methods
+     * is kept together, which reduces the number of pages read during startup.
+     */
+    public B addStartupProfileFiles(Path... files) {
+      return addStartupProfileFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Add startup profile files.
+     *
+     * @see #addStartupProfileFiles(Path...)
+     */
+    public B addStartupProfileFiles(Collection<Path> files) {
+      guard(
+          () -> {
+            try {
+              getAppBuilder().addStartupProfileFiles(files);
+            } catch (NoSuchFileException e) {
+              getReporter()
+                  .error(
+                      new StringDiagnostic(
+                          "Startup profile file does not exist",
+                          new PathOrigin(Paths.get(e.getFile()))));
+            }
+          });
+      return self();
+    }
+
     /**
      * Set the output path-and-mode.
      *
@@ -289,6 +375,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       assert outputMode != null;
       this.outputPath = outputPath;
       this.outputMode = outputMode;
+      this.outputIncludesDataResources = includeDataResources;
       programConsumer = createProgramOutputConsumer(outputPath, outputMode, includeDataResources);
       return self();
     }
@@ -299,7 +386,8 @@ public abstract class BaseCompilerCommand extends BaseCommand {
         boolean consumeDataResources) {
       if (mode == OutputMode.DexIndexed) {
         return FileUtils.isArchive(path)
-            ? new DexIndexedConsumer.ArchiveConsumer(path, consumeDataResources)
+            ? new DexIndexedConsumer.ArchiveConsumer(
+                path, null, consumeDataResources, storeDexFilesUncompressed)
             : new DexIndexedConsumer.DirectoryConsumer(path, consumeDataResources);
       }
       if (mode == OutputMode.DexFilePerClass) {
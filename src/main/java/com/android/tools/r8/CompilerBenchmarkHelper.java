@@ -0,0 +1,33 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/** Runs R8 and D8 for benchmarking and reports the timings of the compilation phases. */
+public class CompilerBenchmarkHelper {
+
+  public static void runR8(
+      R8Command.Builder builder, ExecutorService executor, Consumer<Timing> timingConsumer)
+      throws CompilationFailedException {
+    R8.run(builder.setTimingConsumer(timingConsumer).build(), executor);
+  }
+
+  public static void runD8(
+      D8Command.Builder builder, ExecutorService executor, Consumer<Timing> timingConsumer)
+      throws CompilationFailedException {
+    D8.run(builder.setTimingConsumer(timingConsumer).build(), executor);
+  }
+
+  /** Runs R8 with the internal options of the command modified by the given consumer. */
+  public static void runR8(R8Command command, Consumer<InternalOptions> optionsConsumer)
+      throws CompilationFailedException {
+    InternalOptions options = command.getInternalOptions();
+    optionsConsumer.accept(options);
+    R8.runForTesting(command.getInputApp(), options);
+  }
+}
@@ -0,0 +1,38 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import com.android.tools.r8.naming.BinaryProguardMap;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Convert a Proguard mapping file between the text format and the binary format of {@link
+ * BinaryProguardMap}. The format of the input is detected, and the output is in the other format.
+ */
+public class ConvertProguardMap {
+
+  private static final String USAGE_MESSAGE = "Usage: convertproguardmap <input> <output>";
+
+  public static void convert(Path input, Path output) throws IOException {
+    if (BinaryProguardMap.isBinaryProguardMap(input)) {
+      try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        BinaryProguardMap.mapFromFile(input).writeText(writer);
+      }
+    } else {
+      BinaryProguardMap.fromTextFile(input).write(output);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new RuntimeException(USAGE_MESSAGE);
+    }
+    convert(Paths.get(args[0]), Paths.get(args[1]));
+  }
+}
@@ -11,7 +11,9 @@ import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.graph.AppInfo;
 import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.GraphLense;
 import com.android.tools.r8.ir.conversion.IRConverter;
 import com.android.tools.r8.naming.NamingLens;
@@ -24,11 +26,14 @@ import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.VersionProperties;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -176,6 +181,11 @@ public final class D8 {
 
       DexApplication app = new ApplicationReader(inputApp, options, timing).read(executor);
       AppInfo appInfo = new AppInfo(app);
+      if (options.streamingWindowSize > 0) {
+        compileAndWriteInWindows(inputApp, app, appInfo, options, timing, executor);
+        options.printWarnings();
+        return;
+      }
       app = optimize(app, appInfo, options, timing, executor);
 
       // Close any internal archive providers now the application is fully processed.
@@ -187,25 +197,10 @@ public final class D8 {
         options.methodsFilter.forEach((m) -> System.out.println("  - " + m));
       }
 
-      // Preserve markers from input dex code and add a marker with the current version
-      // if there were class file inputs.
-      boolean hasClassResources = false;
-      for (DexProgramClass dexProgramClass : app.classes()) {
-        if (dexProgramClass.originatesFromClassResource()) {
-          hasClassResources = true;
-          break;
-        }
-      }
-      Marker marker = getMarker(options);
-      Set<Marker> markers = new HashSet<>(app.dexItemFactory.extractMarkers());
-      if (marker != null && hasClassResources) {
-        markers.add(marker);
-      }
-
       new ApplicationWriter(
               app,
               options,
-              marker == null ? null : ImmutableList.copyOf(markers),
+              getMarkers(app, options),
               null,
               GraphLense.getIdentityLense(),
               NamingLens.getIdentityLens(),
@@ -221,7 +216,93 @@ public final class D8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.timingConsumer != null) {
+        options.timingConsumer.accept(timing);
+      }
+      if (options.itemFactory.getInterningStatistics() != null) {
+        options.itemFactory.getInterningStatistics().print(System.out);
+      }
+    }
+  }
+
+  private static ImmutableList<Marker> getMarkers(DexApplication app, InternalOptions options) {
+    // Preserve markers from input dex code and add a marker with the current version
+    // if there were class file inputs.
+    boolean hasClassResources = false;
+    for (DexProgramClass dexProgramClass : app.classes()) {
+      if (dexProgramClass.originatesFromClassResource()) {
+        hasClassResources = true;
+        break;
+      }
+    }
+    Marker marker = getMarker(options);
+    Set<Marker> markers = new HashSet<>(app.dexItemFactory.extractMarkers());
+    if (marker != null && hasClassResources) {
+      markers.add(marker);
+    }
+    return marker == null ? null : ImmutableList.copyOf(markers);
+  }
+
+  // Compiles the program classes in windows of options.streamingWindowSize classes, and writes the
+  // dex files of each window before compiling the next. The code of the classes of a window is
+  // released once they are written, such that only the code of one window is held at a time.
+  private static void compileAndWriteInWindows(
+      AndroidApp inputApp,
+      DexApplication app,
+      AppInfo appInfo,
+      InternalOptions options,
+      Timing timing,
+      ExecutorService executor)
+      throws IOException, ExecutionException {
+    assert options.getDexFilePerClassFileConsumer() != null;
+    ImmutableList<Marker> markers = getMarkers(app, options);
+    IRConverter converter = new IRConverter(appInfo, options, timing, null);
+    // The data resources are supplied once for the whole application after the last window.
+    DexApplication windowBase = app.builder().clearProgramResourceProviders().build();
+    boolean combineSyntheticClasses =
+        options.getDexFilePerClassFileConsumer().combineSyntheticClassesWithPrimaryClass();
+    Set<DexType> writtenSynthesizedClasses = Sets.newIdentityHashSet();
+    for (List<DexProgramClass> window :
+        converter.computeDexConversionWindows(app, options.streamingWindowSize)) {
+      DexApplication windowApp = converter.convertWindowToDex(windowBase, window, executor);
+      if (!combineSyntheticClasses) {
+        // Classes synthesized in several windows, such as the utility classes, get a file of their
+        // own and are only written once.
+        Set<DexProgramClass> windowClasses = Sets.newIdentityHashSet();
+        windowClasses.addAll(window);
+        List<DexProgramClass> classes = new ArrayList<>();
+        for (DexProgramClass clazz : windowApp.classes()) {
+          if (windowClasses.contains(clazz) || writtenSynthesizedClasses.add(clazz.type)) {
+            classes.add(clazz);
+          }
+        }
+        windowApp = windowApp.builder().replaceProgramClasses(classes).build();
+      }
+      new ApplicationWriter(
+              windowApp,
+              options,
+              markers,
+              null,
+              GraphLense.getIdentityLense(),
+              NamingLens.getIdentityLens(),
+              null,
+              null)
+          .write(executor);
+      for (DexProgramClass clazz : window) {
+        clazz.forEachMethod(DexEncodedMethod::removeCode);
+      }
+      // Items are created when compiling the next window, so they must be sorted again.
+      options.itemFactory.resetSortedIndices();
     }
+    inputApp.closeInternalArchiveProviders();
+    ApplicationWriter.supplyAdditionalConsumers(
+        app,
+        GraphLense.getIdentityLense(),
+        NamingLens.getIdentityLens(),
+        options,
+        null,
+        null,
+        null);
   }
 
   static DexApplication optimize(
@@ -11,9 +11,11 @@ import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.Timing;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 /**
  * Immutable command structure for an invocation of the {@link D8} compiler.
@@ -64,6 +66,7 @@ public final class D8Command extends BaseCompilerCommand {
   public static class Builder extends BaseCompilerCommand.Builder<D8Command, Builder> {
 
     private boolean intermediate = false;
+    private int streamingWindowSize = 0;
 
     private Builder() {
       this(new DefaultD8DiagnosticsHandler());
@@ -115,6 +118,20 @@ public final class D8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set the number of classes that are compiled at a time when compiling to a dex file per class.
+     *
+     * <p>The program classes are compiled in windows of at most this many classes. The dex files of
+     * a window are written before the next window is compiled, after which the code of its classes
+     * is released. This bounds the memory used for the compiled code, at the cost of compiling
+     * classes that are synthesized for several classes, such as utility classes, once per window.
+     * A value of zero, which is the default, compiles all classes before writing any dex file.
+     */
+    public Builder setStreamingWindowSize(int classes) {
+      this.streamingWindowSize = classes;
+      return self();
+    }
+
     @Override
     Builder self() {
       return this;
@@ -141,6 +158,12 @@ public final class D8Command extends BaseCompilerCommand {
       } else if (getMainDexListConsumer() != null) {
         reporter.error("Option --main-dex-list-output require --main-dex-list");
       }
+      if (streamingWindowSize < 0) {
+        reporter.error("Option --streaming-window requires a non-negative number of classes");
+      } else if (streamingWindowSize > 0
+          && !(getProgramConsumer() instanceof DexFilePerClassFileConsumer)) {
+        reporter.error("Option --streaming-window requires --file-per-class");
+      }
       if (getMinApiLevel() >= AndroidApiLevel.L.getLevel()) {
         if (getMainDexListConsumer() != null || getAppBuilder().hasMainDexList()) {
           reporter.error(
@@ -169,13 +192,16 @@ public final class D8Command extends BaseCompilerCommand {
           getReporter(),
           !getDisableDesugaring(),
           intermediate,
-          isOptimizeMultidexForLinearAlloc());
+          streamingWindowSize,
+          isOptimizeMultidexForLinearAlloc(),
+          getTimingConsumer());
     }
   }
 
   static final String USAGE_MESSAGE = D8CommandParser.USAGE_MESSAGE;
 
   private boolean intermediate = false;
+  private int streamingWindowSize = 0;
 
   public static Builder builder() {
     return new Builder();
@@ -226,7 +252,9 @@ public final class D8Command extends BaseCompilerCommand {
       Reporter diagnosticsHandler,
       boolean enableDesugaring,
       boolean intermediate,
-      boolean optimizeMultidexForLinearAlloc) {
+      int streamingWindowSize,
+      boolean optimizeMultidexForLinearAlloc,
+      Consumer<Timing> timingConsumer) {
     super(
         inputApp,
         mode,
@@ -235,8 +263,10 @@ public final class D8Command extends BaseCompilerCommand {
         minApiLevel,
         diagnosticsHandler,
         enableDesugaring,
-        optimizeMultidexForLinearAlloc);
+        optimizeMultidexForLinearAlloc,
+        timingConsumer);
     this.intermediate = intermediate;
+    this.streamingWindowSize = streamingWindowSize;
   }
 
   private D8Command(boolean printHelp, boolean printVersion) {
@@ -249,10 +279,12 @@ public final class D8Command extends BaseCompilerCommand {
     assert !internal.debug;
     internal.debug = getMode() == CompilationMode.DEBUG;
     internal.programConsumer = getProgramConsumer();
+    internal.timingConsumer = getTimingConsumer();
     internal.mainDexListConsumer = getMainDexListConsumer();
     internal.minimalMainDex = internal.debug;
     internal.minApiLevel = getMinApiLevel();
     internal.intermediate = intermediate;
+    internal.streamingWindowSize = streamingWindowSize;
     // Assert and fixup defaults.
     assert internal.enableMinification;
     internal.enableMinification = false;
@@ -110,9 +110,13 @@ public class D8CommandParser extends BaseCompilerCommandParser {
               "  --intermediate          # Compile an intermediate result intended for later",
               "                          # merging.",
               "  --file-per-class        # Produce a separate dex file per input class",
+              "  --streaming-window <n>  # With --file-per-class, compile and write <n> classes",
+              "                          # at a time to bound the memory use.",
               "  --no-desugaring         # Force disable desugaring.",
               "  --main-dex-list <file>  # List of classes to place in the primary dex file.",
               "  --main-dex-list-output <file> # Output resulting main dex list in <file>.",
+              "  --startup-profile <file> # Classes and methods used at startup, to place",
+              "                          # first in the primary dex file.",
               "  --version               # Print the version of d8.",
               "  --help                  # Print this message."));
 
@@ -209,6 +213,8 @@ public class D8CommandParser extends BaseCompilerCommandParser {
         builder.addMainDexListFiles(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--main-dex-list-output")) {
         builder.setMainDexListOutputPath(Paths.get(expandedArgs[++i]));
+      } else if (arg.equals("--startup-profile")) {
+        builder.addStartupProfileFiles(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--optimize-multidex-for-linearalloc")) {
         builder.setOptimizeMultidexForLinearAlloc(true);
       } else if (arg.equals("--min-api")) {
@@ -219,6 +225,15 @@ public class D8CommandParser extends BaseCompilerCommandParser {
           parseMinApi(builder, minApiString, origin);
           hasDefinedApiLevel = true;
         }
+      } else if (arg.equals("--streaming-window")) {
+        String windowSize = expandedArgs[++i];
+        try {
+          builder.setStreamingWindowSize(Integer.parseInt(windowSize));
+        } catch (NumberFormatException e) {
+          builder.error(
+              new StringDiagnostic(
+                  "Invalid argument to --streaming-window: " + windowSize, origin));
+        }
       } else if (arg.equals("--intermediate")) {
         builder.setIntermediate(true);
       } else if (arg.equals("--no-desugaring")) {
@@ -75,6 +75,9 @@ public class DexFileMergerHelper {
     options.enableMinification = false;
     options.enableInlining = false;
     options.outline.enabled = false;
+    // The code items of the inputs are copied without building IR, remapping only the indices of
+    // the referenced items and widening const-string instructions to jumbo strings when needed.
+    assert options.passthroughDexCode;
 
     ExecutorService executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
     try {
@@ -138,8 +138,21 @@ public interface DexIndexedConsumer extends ProgramConsumer, ByteBufferProvider
     }
 
     public ArchiveConsumer(Path archive, DexIndexedConsumer consumer, boolean consumeDataResouces) {
+      this(archive, consumer, consumeDataResouces, false);
+    }
+
+    /**
+     * Creates a consumer that writes to the given archive. If {@code storeDexFilesUncompressed} is
+     * true, the dex files are stored in the archive without compression and aligned on a 4-byte
+     * boundary, as in an APK.
+     */
+    public ArchiveConsumer(
+        Path archive,
+        DexIndexedConsumer consumer,
+        boolean consumeDataResouces,
+        boolean storeDexFilesUncompressed) {
       super(consumer);
-      this.outputBuilder = new ArchiveBuilder(archive);
+      this.outputBuilder = new ArchiveBuilder(archive, storeDexFilesUncompressed);
       this.consumeDataResources = consumeDataResouces;
       this.outputBuilder.open();
       if (getDataResourceConsumer() != null) {
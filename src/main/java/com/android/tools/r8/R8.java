@@ -24,6 +24,7 @@ import com.android.tools.r8.graph.GraphLense;
 import com.android.tools.r8.ir.conversion.IRConverter;
 import com.android.tools.r8.ir.optimize.EnumOrdinalMapCollector;
 import com.android.tools.r8.ir.optimize.MethodPoolCollection;
+import com.android.tools.r8.ir.optimize.ReturnValueUnboxing;
 import com.android.tools.r8.ir.optimize.SwitchMapCollector;
 import com.android.tools.r8.ir.optimize.UninstantiatedTypeOptimization;
 import com.android.tools.r8.ir.optimize.UnusedArgumentsCollector;
@@ -474,6 +475,16 @@ public class R8 {
                     .rewrittenWithLense(application.asDirect(), appView.graphLense()));
           }
         }
+        if (options.enableReturnValueUnboxing) {
+          timing.begin("ReturnValueUnboxing");
+          appView.setGraphLense(new ReturnValueUnboxing(appViewWithLiveness).run(executorService));
+          application = application.asDirect().rewrittenWithLense(appView.graphLense());
+          timing.end();
+          appViewWithLiveness.setAppInfo(
+              appViewWithLiveness
+                  .appInfo()
+                  .rewrittenWithLense(application.asDirect(), appView.graphLense()));
+        }
 
         // Collect switch maps and ordinals maps.
         appViewWithLiveness.setAppInfo(new SwitchMapCollector(appViewWithLiveness, options).run());
@@ -683,6 +694,12 @@ public class R8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.timingConsumer != null) {
+        options.timingConsumer.accept(timing);
+      }
+      if (options.itemFactory.getInterningStatistics() != null) {
+        options.itemFactory.getInterningStatistics().print(System.out);
+      }
     }
   }
 
@@ -7,6 +7,7 @@ import com.android.tools.r8.ProgramResource.Kind;
 import com.android.tools.r8.errors.DexFileOverflowDiagnostic;
 import com.android.tools.r8.experimental.graphinfo.GraphConsumer;
 import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.naming.BinaryProguardMap;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.origin.StandardOutOrigin;
@@ -25,11 +26,14 @@ import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.InternalOptions.LineNumberOptimization;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -86,6 +90,7 @@ public final class R8Command extends BaseCompilerCommand {
     private boolean disableVerticalClassMerging = false;
     private boolean forceProguardCompatibility = false;
     private StringConsumer proguardMapConsumer = null;
+    private Path proguardMapBinaryOutput = null;
     private GraphConsumer keptGraphConsumer = null;
     private GraphConsumer mainDexKeptGraphConsumer = null;
 
@@ -154,6 +159,39 @@ public final class R8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Add method profile files.
+     *
+     * <p>Each line in each of the files specifies a method in the human readable ART profile
+     * format, for example "HLcom/example/MyClass;->onDraw(Landroid/graphics/Canvas;)V". Methods
+     * with the H flag or without flags are hot. Hot methods get a larger inlining budget, and are
+     * only outlined in their cold blocks, such as blocks that throw.
+     */
+    public Builder addMethodProfileFiles(Path... files) {
+      return addMethodProfileFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Add method profile files.
+     *
+     * @see #addMethodProfileFiles(Path...)
+     */
+    public Builder addMethodProfileFiles(Collection<Path> files) {
+      guard(
+          () -> {
+            try {
+              getAppBuilder().addMethodProfileFiles(files);
+            } catch (NoSuchFileException e) {
+              getReporter()
+                  .error(
+                      new StringDiagnostic(
+                          "Method profile file does not exist",
+                          new PathOrigin(Paths.get(e.getFile()))));
+            }
+          });
+      return self();
+    }
+
     /** Add proguard configuration files with rules for automatic main-dex-list calculation. */
     public Builder addMainDexRulesFiles(Path... paths) {
       guard(() -> {
@@ -236,6 +274,20 @@ public final class R8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set an output destination to which the proguard-map should be written in the binary format
+     * of {@link BinaryProguardMap}.
+     *
+     * <p>The binary map is written in addition to the proguard-map content that is passed to the
+     * consumer set by {@link #setProguardMapConsumer} or {@link #setProguardMapOutputPath}.
+     *
+     * @param proguardMapBinaryOutput File-system path to write output at.
+     */
+    public Builder setProguardMapBinaryOutputPath(Path proguardMapBinaryOutput) {
+      this.proguardMapBinaryOutput = proguardMapBinaryOutput;
+      return self();
+    }
+
     /**
      * Set a consumer for receiving kept-graph events.
      *
@@ -438,6 +490,12 @@ public final class R8Command extends BaseCompilerCommand {
       boolean desugaring =
           (getProgramConsumer() instanceof ClassFileConsumer) ? false : !getDisableDesugaring();
 
+      StringConsumer proguardMapConsumer =
+          proguardMapBinaryOutput == null
+              ? this.proguardMapConsumer
+              : new BinaryProguardMap.FileConsumer(
+                  proguardMapBinaryOutput, this.proguardMapConsumer);
+
       R8Command command =
           new R8Command(
               getAppBuilder().build(),
@@ -458,7 +516,8 @@ public final class R8Command extends BaseCompilerCommand {
               keptGraphConsumer,
               mainDexKeptGraphConsumer,
               syntheticProguardRulesConsumer,
-              isOptimizeMultidexForLinearAlloc());
+              isOptimizeMultidexForLinearAlloc(),
+              getTimingConsumer());
 
       return command;
     }
@@ -602,9 +661,10 @@ public final class R8Command extends BaseCompilerCommand {
       GraphConsumer keptGraphConsumer,
       GraphConsumer mainDexKeptGraphConsumer,
       Consumer<List<ProguardConfigurationRule>> syntheticProguardRulesConsumer,
-      boolean optimizeMultidexForLinearAlloc) {
+      boolean optimizeMultidexForLinearAlloc,
+      Consumer<Timing> timingConsumer) {
     super(inputApp, mode, programConsumer, mainDexListConsumer, minApiLevel, reporter,
-        enableDesugaring, optimizeMultidexForLinearAlloc);
+        enableDesugaring, optimizeMultidexForLinearAlloc, timingConsumer);
     assert proguardConfiguration != null;
     assert mainDexKeepRules != null;
     this.mainDexKeepRules = mainDexKeepRules;
@@ -651,6 +711,7 @@ public final class R8Command extends BaseCompilerCommand {
     assert !internal.debug;
     internal.debug = getMode() == CompilationMode.DEBUG;
     internal.programConsumer = getProgramConsumer();
+    internal.timingConsumer = getTimingConsumer();
     internal.minApiLevel = getMinApiLevel();
     internal.enableDesugaring = getEnableDesugaring();
     assert internal.enableMinification;
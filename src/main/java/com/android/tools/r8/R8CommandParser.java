@@ -48,6 +48,9 @@ public class R8CommandParser extends BaseCompilerCommandParser {
               "  --min-api                # Minimum Android API level compatibility.",
               "  --pg-conf <file>         # Proguard configuration <file>.",
               "  --pg-map-output <file>   # Output the resulting name and line mapping to <file>.",
+              "  --pg-map-binary-output <file>",
+              "                           # Output the name and line mapping to <file> in",
+              "                           # the binary format.",
               "  --no-tree-shaking        # Force disable tree shaking of unreachable classes.",
               "  --no-minification        # Force disable minification of names.",
               "  --no-data-resources      # Ignore all data resources.",
@@ -56,6 +59,9 @@ public class R8CommandParser extends BaseCompilerCommandParser {
               "                           # primary dex file.",
               "  --main-dex-list <file>   # List of classes to place in the primary dex file.",
               "  --main-dex-list-output <file>  # Output the full main-dex list in <file>.",
+              "  --startup-profile <file> # Classes and methods used at startup, to place",
+              "                           # first in the primary dex file.",
+              "  --method-profile <file>  # Hot methods, to optimize for speed over size.",
               "  --version                # Print the version of r8.",
               "  --help                   # Print this message."));
   /**
@@ -171,12 +177,18 @@ public class R8CommandParser extends BaseCompilerCommandParser {
         builder.addMainDexListFiles(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--main-dex-list-output")) {
         builder.setMainDexListOutputPath(Paths.get(expandedArgs[++i]));
+      } else if (arg.equals("--startup-profile")) {
+        builder.addStartupProfileFiles(Paths.get(expandedArgs[++i]));
+      } else if (arg.equals("--method-profile")) {
+        builder.addMethodProfileFiles(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--optimize-multidex-for-linearalloc")) {
         builder.setOptimizeMultidexForLinearAlloc(true);
       } else if (arg.equals("--pg-conf")) {
         builder.addProguardConfigurationFiles(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--pg-map-output")) {
         builder.setProguardMapOutputPath(Paths.get(expandedArgs[++i]));
+      } else if (arg.equals("--pg-map-binary-output")) {
+        builder.setProguardMapBinaryOutputPath(Paths.get(expandedArgs[++i]));
       } else if (arg.equals("--no-data-resources")) {
         state.includeDataResources = false;
       } else {
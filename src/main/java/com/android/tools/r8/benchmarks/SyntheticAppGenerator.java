@@ -0,0 +1,589 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARRAYLENGTH;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.F_APPEND;
+import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IADD;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.IFLE;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IMUL;
+import static org.objectweb.asm.Opcodes.INTEGER;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.ISTORE;
+import static org.objectweb.asm.Opcodes.ISUB;
+import static org.objectweb.asm.Opcodes.NEW;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.DescriptorUtils;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates synthetic applications of configurable size and shape for benchmarking and scaling
+ * tests.
+ *
+ * <p>The application consists of the classes {@code synthetic.C0} to {@code synthetic.C<n-1>},
+ * which form class hierarchies of the configured depth. Each class declares the same virtual
+ * methods, which override the methods of the superclass. Method {@code m<j>} of class {@code C<i>}
+ * calls method {@code m<j>} of class {@code C<i+1>}, such that all classes are reachable from
+ * {@code synthetic.Main.main}. The shape of the application is controlled by the following knobs:
+ *
+ * <ul>
+ *   <li>the fan-out is the number of classes whose method {@code m<j>} is called by each method
+ *       {@code m<j>}. The additional callees are chosen at random among the subsequent classes.
+ *   <li>the recursion density is the fraction of the methods that also call method {@code m<j>}
+ *       of a preceding class (or of the class itself), which introduces cycles in the call graph.
+ *   <li>the interface density is the number of interfaces {@code synthetic.I<k>} relative to the
+ *       number of classes. Each class implements one of the interfaces, and calls to classes that
+ *       implement an interface are made through the interface.
+ *   <li>the lambda density is the fraction of the methods that create and call a lambda.
+ *   <li>the rule count is the number of keep rules in addition to the rule for the main class.
+ * </ul>
+ *
+ * <p>All calls except the call to {@code C<i+1>} are only executed if the argument is positive, and
+ * they pass the decremented argument. The running time of {@code main} is therefore linear in the
+ * number of classes when it is run without arguments.
+ *
+ * <p>The generated application is deterministic for a given configuration and seed.
+ */
+public class SyntheticAppGenerator {
+
+  public static final String PACKAGE = "synthetic";
+  public static final String MAIN_CLASS = PACKAGE + ".Main";
+  public static final String KEEP_MAIN_RULE =
+      "-keep class " + MAIN_CLASS + " { public static void main(java.lang.String[]); }";
+
+  public static final String OPTIONS_USAGE =
+      "    [--classes <number>]              (default: 1000)\n"
+          + "    [--methods <methods per class>]   (default: 10)\n"
+          + "    [--depth <hierarchy depth>]       (default: 3)\n"
+          + "    [--fan-out <callees per method>]  (default: 1)\n"
+          + "    [--recursion <density>]           (default: 0)\n"
+          + "    [--interfaces <density>]          (default: 0)\n"
+          + "    [--lambdas <density>]             (default: 0.1)\n"
+          + "    [--rules <number>]                (default: 0)\n"
+          + "    [--seed <seed>]                   (default: 0)\n";
+
+  private static final String USAGE =
+      "Arguments:\n"
+          + "    --output <app.jar>\n"
+          + "    [--rules-output <rules.txt>]\n"
+          + OPTIONS_USAGE;
+
+  private static final String METHOD_DESCRIPTOR = "(I)I";
+  private static final String LAMBDA_INTERFACE = "java/util/function/IntUnaryOperator";
+  private static final Handle LAMBDA_METAFACTORY =
+      new Handle(
+          H_INVOKESTATIC,
+          "java/lang/invoke/LambdaMetafactory",
+          "metafactory",
+          "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+              + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;"
+              + "Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+          false);
+
+  private final int classes;
+  private final int methodsPerClass;
+  private final int hierarchyDepth;
+  private final int fanOut;
+  private final double recursionDensity;
+  private final double interfaceDensity;
+  private final double lambdaDensity;
+  private final int ruleCount;
+  private final long seed;
+
+  private SyntheticAppGenerator(Builder builder) {
+    this.classes = builder.classes;
+    this.methodsPerClass = builder.methodsPerClass;
+    this.hierarchyDepth = builder.hierarchyDepth;
+    this.fanOut = builder.fanOut;
+    this.recursionDensity = builder.recursionDensity;
+    this.interfaceDensity = builder.interfaceDensity;
+    this.lambdaDensity = builder.lambdaDensity;
+    this.ruleCount = builder.ruleCount;
+    this.seed = builder.seed;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int getNumberOfClasses() {
+    return classes;
+  }
+
+  public int getNumberOfInterfaces() {
+    return (int) Math.round(classes * interfaceDensity);
+  }
+
+  /**
+   * Passes the class files of the generated application to the given consumer, one class at a
+   * time, such that large applications do not need to be kept in memory.
+   */
+  public void generate(ClassFileConsumer consumer, DiagnosticsHandler handler) {
+    Random random = new Random(seed);
+    int interfaces = getNumberOfInterfaces();
+    for (int k = 0; k < interfaces; k++) {
+      accept(consumer, interfaceName(k), generateInterface(k), handler);
+    }
+    int[] interfaceOf = new int[classes];
+    for (int i = 0; i < classes; i++) {
+      interfaceOf[i] = interfaces == 0 ? -1 : random.nextInt(interfaces);
+    }
+    for (int i = 0; i < classes; i++) {
+      accept(consumer, className(i), generateClass(i, interfaceOf, random), handler);
+    }
+    accept(consumer, MAIN_CLASS.replace('.', '/'), generateMainClass(), handler);
+    consumer.finished(handler);
+  }
+
+  /** Returns the class files of the generated application. */
+  public List<byte[]> generateClassFiles() {
+    List<byte[]> result = new ArrayList<>(getNumberOfInterfaces() + classes + 1);
+    generate(
+        new ClassFileConsumer.ForwardingConsumer(null) {
+          @Override
+          public void accept(ByteDataView data, String descriptor, DiagnosticsHandler handler) {
+            result.add(data.copyByteData());
+          }
+        },
+        new DiagnosticsHandler() {});
+    return result;
+  }
+
+  /** Compiles the generated application with D8 and passes the result to the given consumer. */
+  public void generateDex(DexIndexedConsumer consumer, Path library, int minApiLevel)
+      throws CompilationFailedException {
+    D8Command.Builder builder =
+        D8Command.builder()
+            .addLibraryFiles(library)
+            .setMinApiLevel(minApiLevel)
+            .setMode(CompilationMode.RELEASE)
+            .setProgramConsumer(consumer);
+    for (byte[] classFile : generateClassFiles()) {
+      builder.addClassProgramData(classFile, Origin.unknown());
+    }
+    D8.run(builder.build());
+  }
+
+  /**
+   * Returns the keep rules for the generated application. The first rule keeps the main class,
+   * and the remaining rules alternate between keeping a method, keeping the members of a class,
+   * keeping the name of a class and conditionally keeping a class.
+   */
+  public List<String> getKeepRules() {
+    Random random = new Random(seed);
+    List<String> result = new ArrayList<>(ruleCount + 1);
+    result.add(KEEP_MAIN_RULE);
+    for (int r = 0; r < ruleCount; r++) {
+      String clazz = className(random.nextInt(classes)).replace('/', '.');
+      String method = "public int m" + random.nextInt(Math.max(1, methodsPerClass)) + "(int);";
+      switch (r % 4) {
+        case 0:
+          result.add("-keep class " + clazz + " { " + method + " }");
+          break;
+        case 1:
+          result.add("-keepclassmembers class " + clazz + " { " + method + " }");
+          break;
+        case 2:
+          result.add("-keepnames class " + clazz);
+          break;
+        default:
+          String other = className(random.nextInt(classes)).replace('/', '.');
+          result.add("-if class " + clazz + " -keep class " + other);
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static void accept(
+      ClassFileConsumer consumer, String name, byte[] bytes, DiagnosticsHandler handler) {
+    consumer.accept(
+        ByteDataView.of(bytes), DescriptorUtils.getDescriptorFromClassBinaryName(name), handler);
+  }
+
+  private static String className(int index) {
+    return PACKAGE + "/C" + index;
+  }
+
+  private static String interfaceName(int index) {
+    return PACKAGE + "/I" + index;
+  }
+
+  private String superClassName(int index) {
+    return index % hierarchyDepth == 0 ? "java/lang/Object" : className(index - 1);
+  }
+
+  private byte[] generateInterface(int index) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(
+        V1_8,
+        ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT,
+        interfaceName(index),
+        null,
+        "java/lang/Object",
+        null);
+    for (int j = 0; j < methodsPerClass; j++) {
+      cw.visitMethod(ACC_PUBLIC | ACC_ABSTRACT, "m" + j, METHOD_DESCRIPTOR, null, null).visitEnd();
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private byte[] generateClass(int index, int[] interfaceOf, Random random) {
+    String name = className(index);
+    String superName = superClassName(index);
+    String[] interfaces =
+        interfaceOf[index] < 0 ? null : new String[] {interfaceName(interfaceOf[index])};
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, superName, interfaces);
+
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    for (int j = 0; j < methodsPerClass; j++) {
+      String methodName = "m" + j;
+      String lambdaName = "lambda$" + methodName + "$0";
+      int[] callees = new int[0];
+      if (index + 1 < classes && fanOut > 0) {
+        int calleeCount = Math.min(fanOut, classes - index - 1);
+        callees = new int[calleeCount];
+        callees[0] = index + 1;
+        for (int c = 1; c < calleeCount; c++) {
+          callees[c] = index + 1 + random.nextInt(classes - index - 1);
+        }
+      }
+      int recursiveCallee = random.nextDouble() < recursionDensity ? random.nextInt(index + 1) : -1;
+      boolean hasLambda = random.nextDouble() < lambdaDensity;
+
+      mv = cw.visitMethod(ACC_PUBLIC, methodName, METHOD_DESCRIPTOR, null, null);
+      mv.visitCode();
+      // int result = x * <index> + <j>
+      mv.visitVarInsn(ILOAD, 1);
+      mv.visitLdcInsn(index);
+      mv.visitInsn(IMUL);
+      mv.visitLdcInsn(j);
+      mv.visitInsn(IADD);
+      mv.visitVarInsn(ISTORE, 2);
+      if (callees.length > 0) {
+        // result += new C<index+1>().m<j>(x)
+        addCall(mv, callees[0], interfaceOf, methodName, false);
+      }
+      if (callees.length > 1 || recursiveCallee >= 0) {
+        // if (x > 0) {
+        //   result += new C<callee>().m<j>(x - 1) for the remaining callees
+        //   result += new C<recursiveCallee>().m<j>(x - 1)
+        // }
+        Label done = new Label();
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitJumpInsn(IFLE, done);
+        for (int c = 1; c < callees.length; c++) {
+          addCall(mv, callees[c], interfaceOf, methodName, true);
+        }
+        if (recursiveCallee >= 0) {
+          addCall(mv, recursiveCallee, interfaceOf, methodName, true);
+        }
+        mv.visitLabel(done);
+        mv.visitFrame(F_APPEND, 1, new Object[] {INTEGER}, 0, null);
+      }
+      mv.visitVarInsn(ILOAD, 2);
+      if (hasLambda) {
+        // + ((IntUnaryOperator) y -> y + <j>).applyAsInt(x)
+        Type lambdaType = Type.getMethodType(METHOD_DESCRIPTOR);
+        mv.visitInvokeDynamicInsn(
+            "applyAsInt",
+            "()L" + LAMBDA_INTERFACE + ";",
+            LAMBDA_METAFACTORY,
+            lambdaType,
+            new Handle(H_INVOKESTATIC, name, lambdaName, METHOD_DESCRIPTOR, false),
+            lambdaType);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(
+            INVOKEINTERFACE, LAMBDA_INTERFACE, "applyAsInt", METHOD_DESCRIPTOR, true);
+        mv.visitInsn(IADD);
+      }
+      mv.visitInsn(IRETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+
+      if (hasLambda) {
+        mv =
+            cw.visitMethod(
+                ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                lambdaName,
+                METHOD_DESCRIPTOR,
+                null,
+                null);
+        mv.visitCode();
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitLdcInsn(j);
+        mv.visitInsn(IADD);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+      }
+    }
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  /**
+   * Emits {@code result += new C<callee>().<methodName>(x)}, or {@code x - 1} as the argument if
+   * {@code decrement} is set. The call is made through the interface of the callee, if any.
+   */
+  private static void addCall(
+      MethodVisitor mv, int callee, int[] interfaceOf, String methodName, boolean decrement) {
+    String calleeName = className(callee);
+    mv.visitVarInsn(ILOAD, 2);
+    mv.visitTypeInsn(NEW, calleeName);
+    mv.visitInsn(DUP);
+    mv.visitMethodInsn(INVOKESPECIAL, calleeName, "<init>", "()V", false);
+    mv.visitVarInsn(ILOAD, 1);
+    if (decrement) {
+      mv.visitInsn(ICONST_1);
+      mv.visitInsn(ISUB);
+    }
+    if (interfaceOf[callee] < 0) {
+      mv.visitMethodInsn(INVOKEVIRTUAL, calleeName, methodName, METHOD_DESCRIPTOR, false);
+    } else {
+      mv.visitMethodInsn(
+          INVOKEINTERFACE, interfaceName(interfaceOf[callee]), methodName, METHOD_DESCRIPTOR, true);
+    }
+    mv.visitInsn(IADD);
+    mv.visitVarInsn(ISTORE, 2);
+  }
+
+  private byte[] generateMainClass() {
+    String name = MAIN_CLASS.replace('.', '/');
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+    MethodVisitor mv =
+        cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+    mv.visitCode();
+    // Call each method of C0, which transitively calls the methods of all other classes.
+    String first = className(0);
+    for (int j = 0; j < methodsPerClass; j++) {
+      mv.visitTypeInsn(NEW, first);
+      mv.visitInsn(DUP);
+      mv.visitMethodInsn(INVOKESPECIAL, first, "<init>", "()V", false);
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitInsn(ARRAYLENGTH);
+      mv.visitMethodInsn(INVOKEVIRTUAL, first, "m" + j, METHOD_DESCRIPTOR, false);
+      mv.visitInsn(POP);
+    }
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  public static class Builder {
+
+    private int classes = 1000;
+    private int methodsPerClass = 10;
+    private int hierarchyDepth = 3;
+    private int fanOut = 1;
+    private double recursionDensity = 0;
+    private double interfaceDensity = 0;
+    private double lambdaDensity = 0.1;
+    private int ruleCount = 0;
+    private long seed = 0;
+
+    private Builder() {}
+
+    public Builder setClasses(int classes) {
+      assert classes > 0;
+      this.classes = classes;
+      return this;
+    }
+
+    public Builder setMethodsPerClass(int methodsPerClass) {
+      this.methodsPerClass = methodsPerClass;
+      return this;
+    }
+
+    /** Sets the number of classes in each class hierarchy, including the root class. */
+    public Builder setHierarchyDepth(int hierarchyDepth) {
+      assert hierarchyDepth > 0;
+      this.hierarchyDepth = hierarchyDepth;
+      return this;
+    }
+
+    /** Sets the number of subsequent classes called from each method. */
+    public Builder setFanOut(int fanOut) {
+      assert fanOut >= 0;
+      this.fanOut = fanOut;
+      return this;
+    }
+
+    /** Sets the fraction of the methods that call a method of a preceding class. */
+    public Builder setRecursionDensity(double recursionDensity) {
+      assert 0 <= recursionDensity && recursionDensity <= 1;
+      this.recursionDensity = recursionDensity;
+      return this;
+    }
+
+    /** Sets the number of interfaces relative to the number of classes. */
+    public Builder setInterfaceDensity(double interfaceDensity) {
+      assert 0 <= interfaceDensity && interfaceDensity <= 1;
+      this.interfaceDensity = interfaceDensity;
+      return this;
+    }
+
+    /** Sets the fraction of the methods that create and call a lambda. */
+    public Builder setLambdaDensity(double lambdaDensity) {
+      assert 0 <= lambdaDensity && lambdaDensity <= 1;
+      this.lambdaDensity = lambdaDensity;
+      return this;
+    }
+
+    /** Sets the number of keep rules in addition to the rule that keeps the main class. */
+    public Builder setRuleCount(int ruleCount) {
+      assert ruleCount >= 0;
+      this.ruleCount = ruleCount;
+      return this;
+    }
+
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Sets the knob for the given command line option, see {@link #OPTIONS_USAGE}. Returns false
+     * if the option is not a generator option.
+     */
+    public boolean setOption(String option, String value) {
+      switch (option) {
+        case "--classes":
+          setClasses(Integer.parseInt(value));
+          return true;
+        case "--methods":
+          setMethodsPerClass(Integer.parseInt(value));
+          return true;
+        case "--depth":
+          setHierarchyDepth(Integer.parseInt(value));
+          return true;
+        case "--fan-out":
+          setFanOut(Integer.parseInt(value));
+          return true;
+        case "--recursion":
+          setRecursionDensity(Double.parseDouble(value));
+          return true;
+        case "--interfaces":
+          setInterfaceDensity(Double.parseDouble(value));
+          return true;
+        case "--lambdas":
+          setLambdaDensity(Double.parseDouble(value));
+          return true;
+        case "--rules":
+          setRuleCount(Integer.parseInt(value));
+          return true;
+        case "--seed":
+          setSeed(Long.parseLong(value));
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    public SyntheticAppGenerator build() {
+      return new SyntheticAppGenerator(this);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Builder builder = builder();
+    Path output = null;
+    Path rulesOutput = null;
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        System.out.println(USAGE);
+        return;
+      }
+      if (args[i].equals("--output")) {
+        output = Paths.get(args[i + 1]);
+      } else if (args[i].equals("--rules-output")) {
+        rulesOutput = Paths.get(args[i + 1]);
+      } else if (!builder.setOption(args[i], args[i + 1])) {
+        System.out.println(USAGE);
+        return;
+      }
+    }
+    if (output == null) {
+      System.out.println(USAGE);
+      return;
+    }
+    SyntheticAppGenerator generator = builder.build();
+    generator.generate(new ClassFileConsumer.ArchiveConsumer(output), new DiagnosticsHandler() {});
+    if (rulesOutput != null) {
+      Files.write(rulesOutput, generator.getKeepRules(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return classes
+        + " classes, "
+        + methodsPerClass
+        + " methods per class, hierarchy depth "
+        + hierarchyDepth
+        + ", fan-out "
+        + fanOut
+        + ", recursion density "
+        + recursionDensity
+        + ", interface density "
+        + interfaceDensity
+        + ", lambda density "
+        + lambdaDensity
+        + ", "
+        + ruleCount
+        + " rules, seed "
+        + seed;
+  }
+}
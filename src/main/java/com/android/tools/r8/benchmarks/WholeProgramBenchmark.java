@@ -0,0 +1,435 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.CompilerBenchmarkHelper;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs R8 and D8 on a synthetic application generated by {@link SyntheticAppGenerator} and reports
+ * the compile time, the time of each compilation phase, the peak heap usage, the number of
+ * allocated bytes and the time spent in garbage collection.
+ *
+ * <p>Each tool is first run for a number of warm-up iterations, whose measurements are discarded.
+ * The report can be written as JSON and compared to a report from an earlier run.
+ */
+public class WholeProgramBenchmark {
+
+  private static final String USAGE =
+      "Arguments:\n"
+          + "    [--tool r8|d8]*                   (default: r8 and d8)\n"
+          + "    [--lib <android.jar>]\n"
+          + "    [--min-api <api>]                 (default: 21)\n"
+          + SyntheticAppGenerator.OPTIONS_USAGE
+          + "    [--warmup <iterations>]           (default: 3)\n"
+          + "    [--iterations <iterations>]       (default: 10)\n"
+          + "    [--threads <threads>]\n"
+          + "    [--output <report.json>]\n"
+          + "    [--baseline <report.json>]\n";
+
+  private static final Path DEFAULT_LIBRARY =
+      Paths.get("third_party", "android_jar", "lib-v28", "android.jar");
+
+  private static final String TOTAL_TIME = "Total time (ms)";
+  private static final String PEAK_HEAP = "Peak heap (MB)";
+  private static final String ALLOCATED = "Allocated (MB)";
+  private static final String GC_TIME = "GC time (ms)";
+  private static final String GC_COUNT = "GC count";
+
+  private enum Tool {
+    R8,
+    D8
+  }
+
+  private final List<Tool> tools;
+  private final Path library;
+  private final int minApi;
+  private final SyntheticAppGenerator generator;
+  private final int warmupIterations;
+  private final int iterations;
+  private final int threads;
+  private final Path output;
+  private final Path baseline;
+
+  private WholeProgramBenchmark(
+      List<Tool> tools,
+      Path library,
+      int minApi,
+      SyntheticAppGenerator generator,
+      int warmupIterations,
+      int iterations,
+      int threads,
+      Path output,
+      Path baseline) {
+    this.tools = tools;
+    this.library = library;
+    this.minApi = minApi;
+    this.generator = generator;
+    this.warmupIterations = warmupIterations;
+    this.iterations = iterations;
+    this.threads = threads;
+    this.output = output;
+    this.baseline = baseline;
+  }
+
+  /** The measurements of a single compilation. */
+  private static class Measurement {
+    final Map<String, Double> metrics = new LinkedHashMap<>();
+    final Map<String, Double> phases = new LinkedHashMap<>();
+
+    void addPhase(String title, long nanos) {
+      // A phase can be timed more than once, e.g., once per round of tree shaking.
+      phases.merge(title, nanos / 1e6, Double::sum);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      metrics.forEach(
+          (name, value) -> {
+            if (builder.length() > 0) {
+              builder.append(", ");
+            }
+            builder.append(name).append(": ").append(Math.round(value));
+          });
+      return builder.toString();
+    }
+  }
+
+  /** Summary statistics of a metric over all measured iterations. */
+  private static class Statistics {
+    double mean;
+    double min;
+    double max;
+    double stddev;
+
+    static Statistics of(List<Double> values) {
+      Statistics statistics = new Statistics();
+      statistics.min = Double.MAX_VALUE;
+      statistics.max = -Double.MAX_VALUE;
+      double sum = 0;
+      for (double value : values) {
+        sum += value;
+        statistics.min = Math.min(statistics.min, value);
+        statistics.max = Math.max(statistics.max, value);
+      }
+      statistics.mean = sum / values.size();
+      double squares = 0;
+      for (double value : values) {
+        squares += (value - statistics.mean) * (value - statistics.mean);
+      }
+      statistics.stddev = Math.sqrt(squares / values.size());
+      return statistics;
+    }
+  }
+
+  public void run() throws CompilationFailedException, IOException {
+    System.out.println("Generating application: " + generator);
+    List<byte[]> classFiles = generator.generateClassFiles();
+    JsonObject report = new JsonObject();
+    report.addProperty("app", generator.toString());
+    ExecutorService executor = ThreadUtils.getExecutorService(threads);
+    try {
+      for (Tool tool : tools) {
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < warmupIterations + iterations; i++) {
+          Measurement measurement = measure(tool, classFiles, executor);
+          boolean isWarmup = i < warmupIterations;
+          System.out.println(
+              tool
+                  + (isWarmup ? " warm-up " + (i + 1) : " iteration " + (i - warmupIterations + 1))
+                  + ": "
+                  + measurement);
+          if (!isWarmup) {
+            measurements.add(measurement);
+          }
+        }
+        report.add(tool.name(), summarize(measurements));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    printReport(report);
+    if (output != null) {
+      Gson gson = new GsonBuilder().setPrettyPrinting().create();
+      Files.write(output, gson.toJson(report).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private Measurement measure(Tool tool, List<byte[]> classFiles, ExecutorService executor)
+      throws CompilationFailedException {
+    Measurement measurement = new Measurement();
+    System.gc();
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        pool.resetPeakUsage();
+        heapPools.add(pool);
+      }
+    }
+    long gcTimeBefore = gcTime();
+    long gcCountBefore = gcCount();
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    if (tool == Tool.R8) {
+      R8Command.Builder builder =
+          R8Command.builder()
+              .addLibraryFiles(library)
+              .addProguardConfiguration(generator.getKeepRules(), Origin.unknown())
+              .setMinApiLevel(minApi)
+              .setProgramConsumer(DexIndexedConsumer.emptyConsumer());
+      classFiles.forEach(classFile -> builder.addClassProgramData(classFile, Origin.unknown()));
+      CompilerBenchmarkHelper.runR8(
+          builder, executor, timing -> timing.forEachDuration(measurement::addPhase));
+    } else {
+      D8Command.Builder builder =
+          D8Command.builder()
+              .addLibraryFiles(library)
+              .setMinApiLevel(minApi)
+              .setMode(CompilationMode.RELEASE)
+              .setProgramConsumer(DexIndexedConsumer.emptyConsumer());
+      classFiles.forEach(classFile -> builder.addClassProgramData(classFile, Origin.unknown()));
+      CompilerBenchmarkHelper.runD8(
+          builder, executor, timing -> timing.forEachDuration(measurement::addPhase));
+    }
+    measurement.metrics.put(TOTAL_TIME, (System.nanoTime() - start) / 1e6);
+    // The sum of the peaks of the individual pools is an upper bound of the peak heap usage.
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeap += pool.getPeakUsage().getUsed();
+    }
+    measurement.metrics.put(PEAK_HEAP, peakHeap / 1e6);
+    long allocatedAfter = allocatedBytes();
+    if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+      measurement.metrics.put(ALLOCATED, (allocatedAfter - allocatedBefore) / 1e6);
+    }
+    measurement.metrics.put(GC_TIME, (double) (gcTime() - gcTimeBefore));
+    measurement.metrics.put(GC_COUNT, (double) (gcCount() - gcCountBefore));
+    return measurement;
+  }
+
+  private static long gcTime() {
+    long result = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0, collector.getCollectionTime());
+    }
+    return result;
+  }
+
+  private static long gcCount() {
+    long result = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0, collector.getCollectionCount());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the live threads, or -1 if not supported by the VM.
+   * The compilations run on the threads of a fixed executor, so the difference between two calls
+   * includes all allocations of the compilation in between.
+   */
+  static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+    if (!sunThreads.isThreadAllocatedMemorySupported()
+        || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long result = 0;
+    for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+      result += Math.max(0, bytes);
+    }
+    return result;
+  }
+
+  private static JsonObject summarize(List<Measurement> measurements) {
+    Map<String, List<Double>> metrics = new LinkedHashMap<>();
+    Map<String, List<Double>> phases = new LinkedHashMap<>();
+    for (Measurement measurement : measurements) {
+      measurement.metrics.forEach(
+          (name, value) -> metrics.computeIfAbsent(name, ignore -> new ArrayList<>()).add(value));
+      measurement.phases.forEach(
+          (name, value) -> phases.computeIfAbsent(name, ignore -> new ArrayList<>()).add(value));
+    }
+    JsonObject result = new JsonObject();
+    result.addProperty("iterations", measurements.size());
+    result.add("metrics", toJson(metrics));
+    result.add("phases (ms)", toJson(phases));
+    return result;
+  }
+
+  private static JsonObject toJson(Map<String, List<Double>> values) {
+    JsonObject result = new JsonObject();
+    values.forEach(
+        (name, list) -> {
+          Statistics statistics = Statistics.of(list);
+          JsonObject json = new JsonObject();
+          json.addProperty("mean", statistics.mean);
+          json.addProperty("min", statistics.min);
+          json.addProperty("max", statistics.max);
+          json.addProperty("stddev", statistics.stddev);
+          result.add(name, json);
+        });
+    return result;
+  }
+
+  private void printReport(JsonObject report) throws IOException {
+    JsonObject baselineReport = null;
+    if (baseline != null) {
+      baselineReport =
+          new JsonParser()
+              .parse(new String(Files.readAllBytes(baseline), StandardCharsets.UTF_8))
+              .getAsJsonObject();
+      if (!report.get("app").equals(baselineReport.get("app"))) {
+        System.out.println(
+            "WARNING: The baseline was measured on a different application: "
+                + baselineReport.get("app").getAsString());
+      }
+    }
+    for (Tool tool : tools) {
+      JsonObject toolReport = report.getAsJsonObject(tool.name());
+      JsonObject toolBaseline =
+          baselineReport == null ? null : baselineReport.getAsJsonObject(tool.name());
+      System.out.println();
+      System.out.println(
+          tool + " (" + toolReport.get("iterations").getAsInt() + " iterations, mean +/- stddev)");
+      for (String section : new String[] {"metrics", "phases (ms)"}) {
+        for (Entry<String, JsonElement> entry : toolReport.getAsJsonObject(section).entrySet()) {
+          JsonObject statistics = entry.getValue().getAsJsonObject();
+          double mean = statistics.get("mean").getAsDouble();
+          String line =
+              String.format(
+                  "  %-60s %12.1f +/- %.1f",
+                  entry.getKey(), mean, statistics.get("stddev").getAsDouble());
+          JsonObject baselineSection =
+              toolBaseline == null ? null : toolBaseline.getAsJsonObject(section);
+          if (baselineSection != null && baselineSection.has(entry.getKey())) {
+            double baselineMean =
+                baselineSection.getAsJsonObject(entry.getKey()).get("mean").getAsDouble();
+            line += String.format("  (baseline %.1f", baselineMean);
+            if (baselineMean != 0) {
+              line += String.format(", %+.1f%%", (mean - baselineMean) * 100 / baselineMean);
+            }
+            line += ")";
+          }
+          System.out.println(line);
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    WholeProgramBenchmark benchmark = parse(args);
+    if (benchmark == null) {
+      System.out.println(USAGE);
+    } else {
+      benchmark.run();
+    }
+  }
+
+  public static WholeProgramBenchmark parse(String[] args) {
+    List<Tool> tools = new ArrayList<>();
+    Path library = DEFAULT_LIBRARY;
+    int minApi = AndroidApiLevel.L.getLevel();
+    SyntheticAppGenerator.Builder generator = SyntheticAppGenerator.builder();
+    int warmupIterations = 3;
+    int iterations = 10;
+    int threads = ThreadUtils.NOT_SPECIFIED;
+    Path output = null;
+    Path baseline = null;
+    int i = 0;
+    while (i < args.length) {
+      if (i + 1 >= args.length) {
+        return null;
+      }
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--tool":
+          if (value.equals("r8")) {
+            tools.add(Tool.R8);
+          } else if (value.equals("d8")) {
+            tools.add(Tool.D8);
+          } else {
+            return null;
+          }
+          break;
+        case "--lib":
+          library = Paths.get(value);
+          break;
+        case "--min-api":
+          minApi = Integer.parseInt(value);
+          break;
+        case "--warmup":
+          warmupIterations = Integer.parseInt(value);
+          break;
+        case "--iterations":
+          iterations = Integer.parseInt(value);
+          break;
+        case "--threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "--output":
+          output = Paths.get(value);
+          break;
+        case "--baseline":
+          baseline = Paths.get(value);
+          break;
+        default:
+          if (!generator.setOption(args[i], value)) {
+            return null;
+          }
+      }
+      i += 2;
+    }
+    if (tools.isEmpty()) {
+      tools.add(Tool.R8);
+      tools.add(Tool.D8);
+    }
+    if (iterations <= 0) {
+      return null;
+    }
+    return new WholeProgramBenchmark(
+        tools,
+        library,
+        minApi,
+        generator.build(),
+        warmupIterations,
+        iterations,
+        threads,
+        output,
+        baseline);
+  }
+}
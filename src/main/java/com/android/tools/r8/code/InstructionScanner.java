@@ -0,0 +1,181 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.code;
+
+import com.android.tools.r8.graph.IndexedDexItem;
+import com.android.tools.r8.graph.OffsetToObjectMapping;
+
+/**
+ * Walks the code units of a dex code item and reports the indexed items referenced by the
+ * instructions, without creating {@link Instruction} objects.
+ *
+ * <p>The size and the kind of reference of each opcode are given by the instruction formats of the
+ * dex specification, see https://source.android.com/devices/tech/dalvik/instruction-formats.
+ */
+public class InstructionScanner {
+
+  /** Receives the references of the scanned instructions. */
+  public interface ReferenceConsumer {
+
+    /**
+     * Called for each indexed item referenced by the instruction at the given offset. The proto of
+     * an invoke-polymorphic instruction is reported after its method.
+     */
+    void accept(int offset, IndexedDexItem item);
+  }
+
+  private static final int NONE = 0;
+  private static final int STRING = 1;
+  private static final int TYPE = 2;
+  private static final int FIELD = 3;
+  private static final int METHOD = 4;
+  private static final int METHOD_AND_PROTO = 5;
+  private static final int CALL_SITE = 6;
+  private static final int METHOD_HANDLE = 7;
+  private static final int PROTO = 8;
+
+  // The size in code units of the instructions of each opcode, or 0 for unused opcodes.
+  private static final byte[] SIZES = new byte[256];
+  // The kind of indexed item referenced by the instructions of each opcode.
+  private static final byte[] REFERENCES = new byte[256];
+
+  static {
+    define(0x00, 0x01, 1); // nop (and payloads), move
+    define(0x02, 0x02, 2); // move/from16
+    define(0x03, 0x03, 3); // move/16
+    define(0x04, 0x04, 1); // move-wide
+    define(0x05, 0x05, 2); // move-wide/from16
+    define(0x06, 0x06, 3); // move-wide/16
+    define(0x07, 0x07, 1); // move-object
+    define(0x08, 0x08, 2); // move-object/from16
+    define(0x09, 0x09, 3); // move-object/16
+    define(0x0a, 0x12, 1); // move-result*, move-exception, return*, const/4
+    define(0x13, 0x13, 2); // const/16
+    define(0x14, 0x14, 3); // const
+    define(0x15, 0x16, 2); // const/high16, const-wide/16
+    define(0x17, 0x17, 3); // const-wide/32
+    define(0x18, 0x18, 5); // const-wide
+    define(0x19, 0x19, 2); // const-wide/high16
+    define(0x1a, 0x1a, 2, STRING); // const-string
+    define(0x1b, 0x1b, 3, STRING); // const-string/jumbo
+    define(0x1c, 0x1c, 2, TYPE); // const-class
+    define(0x1d, 0x1e, 1); // monitor-enter, monitor-exit
+    define(0x1f, 0x20, 2, TYPE); // check-cast, instance-of
+    define(0x21, 0x21, 1); // array-length
+    define(0x22, 0x23, 2, TYPE); // new-instance, new-array
+    define(0x24, 0x25, 3, TYPE); // filled-new-array, filled-new-array/range
+    define(0x26, 0x26, 3); // fill-array-data
+    define(0x27, 0x28, 1); // throw, goto
+    define(0x29, 0x29, 2); // goto/16
+    define(0x2a, 0x2c, 3); // goto/32, packed-switch, sparse-switch
+    define(0x2d, 0x3d, 2); // cmp*, if-*
+    define(0x44, 0x51, 2); // aget*, aput*
+    define(0x52, 0x5f, 2, FIELD); // iget*, iput*
+    define(0x60, 0x6d, 2, FIELD); // sget*, sput*
+    define(0x6e, 0x72, 3, METHOD); // invoke-*
+    define(0x74, 0x78, 3, METHOD); // invoke-*/range
+    define(0x7b, 0x8f, 1); // unop
+    define(0x90, 0xaf, 2); // binop
+    define(0xb0, 0xcf, 1); // binop/2addr
+    define(0xd0, 0xe2, 2); // binop/lit16, binop/lit8
+    define(0xfa, 0xfb, 4, METHOD_AND_PROTO); // invoke-polymorphic, invoke-polymorphic/range
+    define(0xfc, 0xfd, 3, CALL_SITE); // invoke-custom, invoke-custom/range
+    define(0xfe, 0xfe, 2, METHOD_HANDLE); // const-method-handle
+    define(0xff, 0xff, 2, PROTO); // const-method-type
+  }
+
+  private static void define(int firstOpcode, int lastOpcode, int size) {
+    define(firstOpcode, lastOpcode, size, NONE);
+  }
+
+  private static void define(int firstOpcode, int lastOpcode, int size, int reference) {
+    for (int opcode = firstOpcode; opcode <= lastOpcode; opcode++) {
+      SIZES[opcode] = (byte) size;
+      REFERENCES[opcode] = (byte) reference;
+    }
+  }
+
+  /**
+   * Reports the indexed items referenced by the instructions in the given code units, in the order
+   * of the instructions, and returns the number of instructions including payloads.
+   */
+  public static int scan(
+      short[] units, OffsetToObjectMapping mapping, ReferenceConsumer consumer) {
+    int numberOfInstructions = 0;
+    int offset = 0;
+    while (offset < units.length) {
+      int opcode = units[offset] & 0xff;
+      int size = opcode == Nop.OPCODE ? sizeOfNopOrPayload(units, offset) : SIZES[opcode];
+      if (size == 0) {
+        throw new IllegalArgumentException("Illegal Opcode: 0x" + Integer.toString(opcode, 16));
+      }
+      if (size > units.length - offset) {
+        throw new IllegalArgumentException("Truncated instruction at offset " + offset);
+      }
+      switch (REFERENCES[opcode]) {
+        case NONE:
+          break;
+        case STRING:
+          int index = u16(units, offset + 1);
+          if (opcode == ConstStringJumbo.OPCODE) {
+            index |= u16(units, offset + 2) << 16;
+          }
+          consumer.accept(offset, mapping.getString(index));
+          break;
+        case TYPE:
+          consumer.accept(offset, mapping.getType(u16(units, offset + 1)));
+          break;
+        case FIELD:
+          consumer.accept(offset, mapping.getField(u16(units, offset + 1)));
+          break;
+        case METHOD:
+          consumer.accept(offset, mapping.getMethod(u16(units, offset + 1)));
+          break;
+        case METHOD_AND_PROTO:
+          consumer.accept(offset, mapping.getMethod(u16(units, offset + 1)));
+          consumer.accept(offset, mapping.getProto(u16(units, offset + 3)));
+          break;
+        case CALL_SITE:
+          consumer.accept(offset, mapping.getCallSite(u16(units, offset + 1)));
+          break;
+        case METHOD_HANDLE:
+          consumer.accept(offset, mapping.getMethodHandle(u16(units, offset + 1)));
+          break;
+        case PROTO:
+          consumer.accept(offset, mapping.getProto(u16(units, offset + 1)));
+          break;
+        default:
+          throw new AssertionError();
+      }
+      numberOfInstructions++;
+      offset += size;
+    }
+    return numberOfInstructions;
+  }
+
+  private static int sizeOfNopOrPayload(short[] units, int offset) {
+    int high = (units[offset] >> 8) & 0xff;
+    switch (high) {
+      case 0x01:
+        // packed-switch-payload: size, first key and the targets.
+        return 4 + 2 * u16(units, offset + 1);
+      case 0x02:
+        // sparse-switch-payload: size, the keys and the targets.
+        return 2 + 4 * u16(units, offset + 1);
+      case 0x03:
+        // fill-array-data-payload: element width, 32-bit number of elements and the data.
+        long size = u16(units, offset + 2) | ((long) u16(units, offset + 3) << 16);
+        return (int) Math.min(4 + (size * u16(units, offset + 1) + 1) / 2, Integer.MAX_VALUE);
+      default:
+        return 1;
+    }
+  }
+
+  private static int u16(short[] units, int offset) {
+    if (offset >= units.length) {
+      throw new IllegalArgumentException("Truncated instruction at offset " + offset);
+    }
+    return units[offset] & 0xffff;
+  }
+}
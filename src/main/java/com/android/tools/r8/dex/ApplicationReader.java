@@ -30,10 +30,12 @@ import com.android.tools.r8.utils.ClassProvider;
 import com.android.tools.r8.utils.ClasspathClassCollection;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.DexVersion;
+import com.android.tools.r8.utils.HotMethodProfile;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LibraryClassCollection;
 import com.android.tools.r8.utils.MainDexList;
 import com.android.tools.r8.utils.ProgramClassCollection;
+import com.android.tools.r8.utils.StartupProfile;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
@@ -111,6 +113,8 @@ public class ApplicationReader {
       // TODO: try and preload less classes.
       readProguardMap(proguardMap, builder, executorService, futures);
       readMainDexList(builder, executorService, futures);
+      readStartupProfile(executorService, futures);
+      readMethodProfile(executorService, futures);
       ClassReader classReader = new ClassReader(executorService, futures);
       classReader.readSources();
       ThreadUtils.awaitFutures(futures);
@@ -190,7 +194,33 @@ public class ApplicationReader {
     }
   }
 
+  private void readStartupProfile(ExecutorService executorService, List<Future<?>> futures) {
+    if (!inputApp.getStartupProfileResources().isEmpty()) {
+      futures.add(
+          executorService.submit(
+              () -> {
+                options.startupProfile =
+                    StartupProfile.parse(inputApp.getStartupProfileResources(), itemFactory);
+              }));
+    }
+  }
+
+  private void readMethodProfile(ExecutorService executorService, List<Future<?>> futures) {
+    if (!inputApp.getMethodProfileResources().isEmpty()) {
+      futures.add(
+          executorService.submit(
+              () -> {
+                options.hotMethodProfile =
+                    HotMethodProfile.parse(inputApp.getMethodProfileResources(), itemFactory);
+              }));
+    }
+  }
+
   private final class ClassReader {
+
+    // The minimal number of class definitions of a dex file that are read by one task.
+    private static final int MIN_CLASS_DEFS_PER_PARSER = 1000;
+
     private final ExecutorService executorService;
     private final List<Future<?>> futures;
 
@@ -222,13 +252,18 @@ public class ApplicationReader {
         for (DexParser dexParser : dexParsers) {
           dexParser.populateIndexTables();
         }
-        // Read the DexCode items and DexProgramClass items in parallel.
+        // Read the DexCode items and DexProgramClass items in parallel. The class definitions of
+        // a large dex file are split into ranges that are read in parallel as well.
         if (!options.skipReadingDexCode) {
+          int threads = ThreadUtils.getNumberOfThreads(executorService);
           for (DexParser dexParser : dexParsers) {
-            futures.add(executorService.submit(() -> {
-              dexParser.addClassDefsTo(
-                  classKind.bridgeConsumer(classes::add)); // Depends on Methods, Code items etc.
-            }));
+            for (DexParser classDefsParser :
+                dexParser.splitClassDefs(threads, MIN_CLASS_DEFS_PER_PARSER)) {
+              futures.add(executorService.submit(() -> {
+                classDefsParser.addClassDefsTo(
+                    classKind.bridgeConsumer(classes::add)); // Depends on Methods, Code items etc.
+              }));
+            }
           }
         }
       }
@@ -21,7 +21,6 @@ import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationDirectory;
 import com.android.tools.r8.graph.DexAnnotationSet;
 import com.android.tools.r8.graph.DexApplication;
-import com.android.tools.r8.graph.DexCode;
 import com.android.tools.r8.graph.DexDebugInfo;
 import com.android.tools.r8.graph.DexEncodedArray;
 import com.android.tools.r8.graph.DexProgramClass;
@@ -29,6 +28,7 @@ import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.DexTypeList;
 import com.android.tools.r8.graph.DexValue;
+import com.android.tools.r8.graph.DexWritableCode;
 import com.android.tools.r8.graph.EnclosingMethodAttribute;
 import com.android.tools.r8.graph.GraphLense;
 import com.android.tools.r8.graph.InnerClassAttribute;
@@ -40,6 +40,7 @@ import com.android.tools.r8.naming.ProguardMapSupplier;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StartupProfile;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ObjectArrays;
@@ -69,6 +70,8 @@ public class ApplicationWriter {
   public List<DexString> markerStrings;
   public DexIndexedConsumer programConsumer;
   public final ProguardMapSupplier proguardMapSupplier;
+  // The startup profile in terms of the classes and methods of the application being written.
+  public final StartupProfile startupProfile;
 
   private static class SortAnnotations extends MixedSectionCollection {
 
@@ -101,7 +104,7 @@ public class ApplicationWriter {
     }
 
     @Override
-    public boolean add(DexCode dexCode) {
+    public boolean add(DexWritableCode dexCode) {
       return true;
     }
 
@@ -169,6 +172,7 @@ public class ApplicationWriter {
     this.proguardSeedsData = proguardSeedsData;
     this.proguardMapSupplier = proguardMapSupplier;
     this.programConsumer = consumer;
+    this.startupProfile = options.startupProfile.rewrittenWithLense(graphLense);
   }
 
   private Iterable<VirtualFile> distribute(ExecutorService executorService)
@@ -229,7 +233,7 @@ public class ApplicationWriter {
         if (!newFile.isEmpty()) {
           offsetMappingFutures
               .put(newFile, executorService.submit(() -> {
-                ObjectToOffsetMapping mapping = newFile.computeMapping(application);
+                ObjectToOffsetMapping mapping = newFile.computeMapping(application, startupProfile);
                 rewriteCodeWithJumboStrings(mapping, newFile.classes(), application);
                 return mapping;
               }));
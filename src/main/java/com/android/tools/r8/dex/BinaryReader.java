@@ -24,9 +24,13 @@ public abstract class BinaryReader {
   }
 
   protected BinaryReader(Origin origin, byte[] bytes) {
+    this(origin, ByteBuffer.wrap(bytes));
+  }
+
+  protected BinaryReader(Origin origin, ByteBuffer buffer) {
     assert origin != null;
     this.origin = origin;
-    buffer = ByteBuffer.wrap(bytes);
+    this.buffer = buffer;
   }
 
   public Origin getOrigin() {
@@ -35,6 +39,12 @@ public abstract class BinaryReader {
 
   abstract void setByteOrder();
 
+  // Returns the array backing the reader, in which the positions of the reader are indices.
+  byte[] array() {
+    assert buffer.arrayOffset() == 0;
+    return buffer.array();
+  }
+
   byte[] getByteArray(int size) {
     byte[] result = new byte[size];
     buffer.get(result);
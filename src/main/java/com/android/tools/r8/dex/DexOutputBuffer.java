@@ -4,8 +4,8 @@
 package com.android.tools.r8.dex;
 
 import com.android.tools.r8.ByteBufferProvider;
-import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.DexWritableCode;
 import com.android.tools.r8.graph.ObjectToOffsetMapping;
 import com.android.tools.r8.utils.EncodedValueUtils;
 import com.android.tools.r8.utils.LebUtils;
@@ -90,17 +90,13 @@ public class DexOutputBuffer {
     return EncodedValueUtils.putUnsigned(this, value, expectedSize);
   }
 
-  public void putInstructions(Instruction[] insns, ObjectToOffsetMapping mapping) {
-    int size = 0;
-    for (Instruction insn : insns) {
-      size += insn.getSize();
-    }
+  public void putInstructions(DexWritableCode code, ObjectToOffsetMapping mapping) {
+    int size = code.getCodeSizeInUnits();
     ensureSpaceFor(size * Short.BYTES);
     assert byteBuffer.position() % 2 == 0;
     ShortBuffer shortBuffer = byteBuffer.asShortBuffer();
-    for (int i = 0; i < insns.length; i++) {
-      insns[i].write(shortBuffer, mapping);
-    }
+    code.writeInstructions(shortBuffer, mapping);
+    assert shortBuffer.position() == size;
     byteBuffer.position(byteBuffer.position() + shortBuffer.position() * Short.BYTES);
   }
 
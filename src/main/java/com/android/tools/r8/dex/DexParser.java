@@ -10,11 +10,10 @@ import static com.android.tools.r8.utils.EncodedValueUtils.parseUnsigned;
 
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.ProgramResource.Kind;
-import com.android.tools.r8.code.Instruction;
-import com.android.tools.r8.code.InstructionFactory;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.ClassAccessFlags;
 import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.Descriptor;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationElement;
@@ -53,6 +52,7 @@ import com.android.tools.r8.graph.DexValue.DexValueString;
 import com.android.tools.r8.graph.EnclosingMethodAttribute;
 import com.android.tools.r8.graph.FieldAccessFlags;
 import com.android.tools.r8.graph.InnerClassAttribute;
+import com.android.tools.r8.graph.LazyDexCode;
 import com.android.tools.r8.graph.MethodAccessFlags;
 import com.android.tools.r8.graph.OffsetToObjectMapping;
 import com.android.tools.r8.graph.ParameterAnnotationsList;
@@ -64,10 +64,8 @@ import com.google.common.io.ByteStreams;
 import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ShortBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -87,6 +85,10 @@ public class DexParser {
   private final ClassKind classKind;
   private final DiagnosticsHandler reporter;
 
+  // The range of the class definitions that are read by this parser.
+  private final int firstClassDef;
+  private final int endClassDef;
+
   public static DexSection[] parseMapFrom(Path file) throws IOException {
     return parseMapFrom(Files.newInputStream(file), new PathOrigin(file));
   }
@@ -105,19 +107,15 @@ public class DexParser {
   public void close() {
     // This close behavior is needed to reduce peak memory usage of D8/R8.
     indexedItems = null;
-    codes = null;
     offsetMap = null;
     dexReader = null;
     stringIDs = null;
   }
 
   // Mapping from indexes to indexable dex items.
-  private OffsetToObjectMapping indexedItems = new OffsetToObjectMapping();
-
-  // Mapping from offset to code item;
-  private Int2ObjectMap<DexCode> codes = new Int2ObjectOpenHashMap<>();
+  private OffsetToObjectMapping indexedItems;
 
-  // Mapping from offset to dex item;
+  // Mapping from offset to dex item, including code items;
   private Int2ObjectMap<Object> offsetMap = new Int2ObjectOpenHashMap<>();
 
   // Factory to canonicalize certain dexitems.
@@ -134,28 +132,53 @@ public class DexParser {
     parseStringIDs();
     this.classKind = classKind;
     this.reporter = reporter;
+    this.indexedItems = new OffsetToObjectMapping();
+    this.firstClassDef = 0;
+    this.endClassDef = lookupSection(Constants.TYPE_CLASS_DEF_ITEM).length;
   }
 
-  private void ensureCodesInited() {
-    if (codes == null) {
-      codes = new Int2ObjectOpenHashMap<>();
-    }
+  // Creates a parser for a range of the class definitions of the given parser. The index tables
+  // are shared with the given parser, whereas the reader position and the cache of the items
+  // read at an offset are not, such that the parsers can read their classes concurrently.
+  private DexParser(DexParser parser, int firstClassDef, int endClassDef) {
+    this.origin = parser.origin;
+    this.dexReader = parser.dexReader.duplicate();
+    this.dexItemFactory = parser.dexItemFactory;
+    this.dexSections = parser.dexSections;
+    this.stringIDs = parser.stringIDs;
+    this.classKind = parser.classKind;
+    this.reporter = parser.reporter;
+    this.indexedItems = parser.indexedItems;
+    this.firstClassDef = firstClassDef;
+    this.endClassDef = endClassDef;
+  }
 
-    if (classKind == ClassKind.LIBRARY) {
-      // Ignore contents of library files.
-      return;
-    }
-    DexSection dexSection = lookupSection(Constants.TYPE_CODE_ITEM);
-    if (dexSection.length == 0) {
-      return;
-    }
-    dexReader.position(dexSection.offset);
-    for (int i = 0; i < dexSection.length; i++) {
-      dexReader.align(4);  // code items are 4 byte aligned.
-      int offset = dexReader.position();
-      DexCode code = parseCodeItem();
-      codes.put(offset, code);  // Update the file local offset to code mapping.
+  /**
+   * Returns parsers that together read the class definitions of this parser, such that the
+   * classes of a large dex file can be read concurrently. The dex file is split into at most
+   * {@code maxParsers} ranges of at least {@code minClassDefsPerParser} class definitions each.
+   *
+   * <p>Must be called after {@link #populateIndexTables()}, as the index tables are shared.
+   */
+  List<DexParser> splitClassDefs(int maxParsers, int minClassDefsPerParser) {
+    int length = endClassDef - firstClassDef;
+    int parsers = Math.min(maxParsers, length / minClassDefsPerParser);
+    if (parsers <= 1) {
+      return Collections.singletonList(this);
+    }
+    List<DexParser> result = new ArrayList<>(parsers);
+    for (int i = 0; i < parsers; i++) {
+      result.add(
+          new DexParser(
+              this,
+              firstClassDef + (int) ((long) length * i / parsers),
+              firstClassDef + (int) ((long) length * (i + 1) / parsers)));
     }
+    return result;
+  }
+
+  private Code codeAt(int offset) {
+    return (Code) cacheAt(offset, this::parseCodeItem);
   }
 
   private DexTypeList parseTypeList() {
@@ -596,10 +619,12 @@ public class DexParser {
       methodIndex += dexReader.getUleb128();
       MethodAccessFlags accessFlags = MethodAccessFlags.fromDexAccessFlags(dexReader.getUleb128());
       int codeOff = dexReader.getUleb128();
-      DexCode code = null;
-      if (!skipCodes) {
-        assert codeOff == 0 || codes.get(codeOff) != null;
-        code = codes.get(codeOff);
+      Code code = null;
+      if (!skipCodes && codeOff != 0) {
+        // Store and restore offset information around reading the code item.
+        int saved = dexReader.position();
+        code = codeAt(codeOff);
+        dexReader.position(saved);
       }
       DexMethod method = indexedItems.getMethod(methodIndex);
       methods[i] = new DexEncodedMethod(method, accessFlags, annotationIterator.getNextFor(method),
@@ -609,14 +634,12 @@ public class DexParser {
   }
 
   void addClassDefsTo(Consumer<DexClass> classCollection) {
-    ensureCodesInited();
     final DexSection dexSection = lookupSection(Constants.TYPE_CLASS_DEF_ITEM);
-    final int length = dexSection.length;
-    indexedItems.initializeClasses(length);
+    final int length = endClassDef - firstClassDef;
     if (length == 0) {
       return;
     }
-    dexReader.position(dexSection.offset);
+    dexReader.position(dexSection.offset + firstClassDef * Constants.TYPE_CLASS_DEF_ITEM_SIZE);
 
     int[] classIndices = new int[length];
     int[] accessFlags = new int[length];
@@ -759,7 +782,7 @@ public class DexParser {
     return result;
   }
 
-  private DexCode parseCodeItem() {
+  private Code parseCodeItem() {
     int registerSize = dexReader.getUshort();
     int insSize = dexReader.getUshort();
     int outsSize = dexReader.getUshort();
@@ -822,13 +845,12 @@ public class DexParser {
     int saved = dexReader.position();
     DexDebugInfo debugInfo = debugInfoAt(debugInfoOff);
     dexReader.position(saved);
-    InstructionFactory factory = new InstructionFactory();
-    Instruction[] instructions =
-        factory.readSequenceFrom(ShortBuffer.wrap(code), 0, code.length, indexedItems);
-    return new DexCode(registerSize, insSize, outsSize, instructions, tries, handlers, debugInfo);
+    return new LazyDexCode(
+        registerSize, insSize, outsSize, code, tries, handlers, debugInfo, indexedItems);
   }
 
   void populateIndexTables() {
+    indexedItems.initializeClasses(lookupSection(Constants.TYPE_CLASS_DEF_ITEM).length);
     // Populate structures that are already sorted upon read.
     populateStrings();  // Depends on nothing.
     populateTypes();  // Depends on Strings.
@@ -898,13 +920,13 @@ public class DexParser {
     final int offset = stringIDs[index];
     dexReader.position(offset);
     int size = dexReader.getUleb128();
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    byte read;
-    do {
-      read = dexReader.get();
-      os.write(read);
-    } while (read != 0);
-    return dexItemFactory.createString(size, os.toByteArray());
+    int start = dexReader.position();
+    while (dexReader.get() != 0) {
+      // Find the terminating '0' of the content.
+    }
+    // The content is looked up in place and only copied if the string is new.
+    return dexItemFactory.createString(
+        size, dexReader.array(), start, dexReader.position() - start);
   }
 
   private DexType typeAt(int index) {
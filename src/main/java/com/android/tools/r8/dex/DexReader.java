@@ -37,6 +37,19 @@ public class DexReader extends BinaryReader {
     version = parseMagic(buffer);
   }
 
+  private DexReader(DexReader reader) {
+    super(reader.origin, reader.buffer.duplicate().order(reader.buffer.order()));
+    version = reader.version;
+  }
+
+  /**
+   * Returns a reader of the same content with its own position, which can be used concurrently
+   * with this reader.
+   */
+  DexReader duplicate() {
+    return new DexReader(this);
+  }
+
   // Parse the magic header and determine the dex file version.
   private int parseMagic(ByteBuffer buffer) {
     try {
@@ -7,7 +7,6 @@ import static com.android.tools.r8.utils.LebUtils.sizeAsUleb128;
 
 import com.android.tools.r8.ApiLevelException;
 import com.android.tools.r8.ByteBufferProvider;
-import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.Descriptor;
 import com.android.tools.r8.graph.DexAnnotation;
@@ -17,7 +16,6 @@ import com.android.tools.r8.graph.DexAnnotationSet;
 import com.android.tools.r8.graph.DexApplication;
 import com.android.tools.r8.graph.DexCallSite;
 import com.android.tools.r8.graph.DexClass;
-import com.android.tools.r8.graph.DexCode;
 import com.android.tools.r8.graph.DexCode.Try;
 import com.android.tools.r8.graph.DexCode.TryHandler;
 import com.android.tools.r8.graph.DexCode.TryHandler.TypeAddrPair;
@@ -37,6 +35,7 @@ import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.DexTypeList;
 import com.android.tools.r8.graph.DexValue;
+import com.android.tools.r8.graph.DexWritableCode;
 import com.android.tools.r8.graph.IndexedDexItem;
 import com.android.tools.r8.graph.KeyedDexItem;
 import com.android.tools.r8.graph.ObjectToOffsetMapping;
@@ -52,11 +51,14 @@ import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.DexVersion;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LebUtils;
+import com.android.tools.r8.utils.StartupProfile;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.Arrays;
@@ -156,7 +158,8 @@ public class FileWriter {
     layout.setCodesOffset(layout.dataSectionOffset);
 
     // Sort the codes first, as their order might impact size due to alignment constraints.
-    List<DexCode> codes = sortDexCodesByClassName(mixedSectionOffsets.getCodes(), application);
+    List<DexWritableCode> codes =
+        sortDexCodesByClassName(mixedSectionOffsets.getCodes(), application);
 
     // Output the debug_info_items first, as they have no dependencies.
     dest.moveTo(layout.getCodesOffset() + sizeOfCodeItems(codes));
@@ -277,20 +280,53 @@ public class FileWriter {
     }
   }
 
-  private List<DexCode> sortDexCodesByClassName(Collection<DexCode> codes,
+  private List<DexWritableCode> sortDexCodesByClassName(Collection<DexWritableCode> codes,
       DexApplication application) {
-    Map<DexCode, String> codeToSignatureMap = new IdentityHashMap<>();
+    Map<DexWritableCode, String> codeToSignatureMap = new IdentityHashMap<>();
     for (DexProgramClass clazz : mapping.getClasses()) {
       clazz.forEachMethod(method ->
           addSignaturesFromMethod(method, codeToSignatureMap, application.getProguardMap()));
     }
-    DexCode[] codesArray = codes.toArray(new DexCode[codes.size()]);
-    Arrays.sort(codesArray, Comparator.comparing(codeToSignatureMap::get));
+    DexWritableCode[] codesArray = codes.toArray(new DexWritableCode[codes.size()]);
+    Comparator<DexWritableCode> comparator = Comparator.comparing(codeToSignatureMap::get);
+    StartupProfile startupProfile = mapping.getStartupProfile();
+    if (!startupProfile.isEmpty()) {
+      // Place the code of the startup methods first, in the order of the profile, followed by the
+      // code of the other methods of the startup classes. This keeps the code that is executed
+      // during startup on as few pages as possible.
+      Reference2LongMap<DexWritableCode> codeToStartupOrder = new Reference2LongOpenHashMap<>();
+      codeToStartupOrder.defaultReturnValue(Long.MAX_VALUE);
+      for (DexProgramClass clazz : mapping.getClasses()) {
+        int classIndex = startupProfile.getClassIndex(clazz.type);
+        if (classIndex == StartupProfile.NOT_STARTUP) {
+          continue;
+        }
+        clazz.forEachMethod(
+            method -> {
+              if (method.hasCode()) {
+                int methodIndex = startupProfile.getMethodIndex(method.method);
+                long order =
+                    methodIndex != StartupProfile.NOT_STARTUP
+                        ? methodIndex
+                        : ((long) Integer.MAX_VALUE) + classIndex;
+                DexWritableCode code = method.getCode().asDexWritableCode();
+                // Code objects can be shared between methods, use the earliest position.
+                if (order < codeToStartupOrder.getLong(code)) {
+                  codeToStartupOrder.put(code, order);
+                }
+              }
+            });
+      }
+      comparator =
+          Comparator.<DexWritableCode>comparingLong(codeToStartupOrder::getLong)
+              .thenComparing(comparator);
+    }
+    Arrays.sort(codesArray, comparator);
     return Arrays.asList(codesArray);
   }
 
   private static void addSignaturesFromMethod(DexEncodedMethod method,
-      Map<DexCode, String> codeToSignatureMap,
+      Map<DexWritableCode, String> codeToSignatureMap,
       ClassNameMapper proguardMap) {
     if (!method.hasCode()) {
       assert method.shouldNotHaveCode();
@@ -304,7 +340,7 @@ public class FileWriter {
         signature = MethodSignature.fromDexMethod(method.method);
         originalClassName = method.method.holder.toSourceString();
       }
-      codeToSignatureMap.put(method.getCode().asDexCode(), originalClassName + signature);
+      codeToSignatureMap.put(method.getCode().asDexWritableCode(), originalClassName + signature);
     }
   }
 
@@ -324,12 +360,12 @@ public class FileWriter {
     }
   }
 
-  private <T extends DexItem> void writeItems(Collection<T> items, Consumer<Integer> offsetSetter,
+  private <T> void writeItems(Collection<T> items, Consumer<Integer> offsetSetter,
       Consumer<T> writer) {
     writeItems(items, offsetSetter, writer, 1);
   }
 
-  private <T extends DexItem> void writeItems(Collection<T> items, Consumer<Integer> offsetSetter,
+  private <T> void writeItems(Collection<T> items, Consumer<Integer> offsetSetter,
       Consumer<T> writer, int alignment) {
     if (items.isEmpty()) {
       offsetSetter.accept(0);
@@ -339,27 +375,25 @@ public class FileWriter {
     }
   }
 
-  private int sizeOfCodeItems(Iterable<DexCode> codes) {
+  private int sizeOfCodeItems(Iterable<DexWritableCode> codes) {
     int size = 0;
-    for (DexCode code : codes) {
+    for (DexWritableCode code : codes) {
       size = alignSize(4, size);
       size += sizeOfCodeItem(code);
     }
     return size;
   }
 
-  private int sizeOfCodeItem(DexCode code) {
+  private int sizeOfCodeItem(DexWritableCode code) {
     int result = 16;
-    int insnSize = 0;
-    for (Instruction insn : code.instructions) {
-      insnSize += insn.getSize();
-    }
-    result += insnSize * 2;
-    result += code.tries.length * 8;
-    if ((code.handlers != null) && (code.handlers.length > 0)) {
+    result += code.getCodeSizeInUnits() * 2;
+    Try[] tries = code.getTries();
+    TryHandler[] handlers = code.getHandlers();
+    result += tries.length * 8;
+    if ((handlers != null) && (handlers.length > 0)) {
       result = alignSize(4, result);
-      result += LebUtils.sizeAsUleb128(code.handlers.length);
-      for (TryHandler handler : code.handlers) {
+      result += LebUtils.sizeAsUleb128(handlers.length);
+      for (TryHandler handler : handlers) {
         boolean hasCatchAll = handler.catchAllAddr != TryHandler.NO_HANDLER;
         result += LebUtils
             .sizeAsSleb128(hasCatchAll ? -handler.pairs.length : handler.pairs.length);
@@ -434,34 +468,36 @@ public class FileWriter {
     dest.putBytes(new DebugBytecodeWriter(debugInfo, mapping).generate());
   }
 
-  private void writeCodeItem(DexCode code) {
+  private void writeCodeItem(DexWritableCode code) {
     mixedSectionOffsets.setOffsetFor(code, dest.align(4));
+    Try[] tries = code.getTries();
+    TryHandler[] handlers = code.getHandlers();
     // Fixed size header information.
-    dest.putShort((short) code.registerSize);
-    dest.putShort((short) code.incomingRegisterSize);
-    dest.putShort((short) code.outgoingRegisterSize);
-    dest.putShort((short) code.tries.length);
+    dest.putShort((short) code.getRegisterSize());
+    dest.putShort((short) code.getIncomingRegisterSize());
+    dest.putShort((short) code.getOutgoingRegisterSize());
+    dest.putShort((short) tries.length);
     dest.putInt(mixedSectionOffsets.getOffsetFor(code.getDebugInfoForWriting()));
     // Jump over the size.
     int insnSizeOffset = dest.position();
     dest.forward(4);
     // Write instruction stream.
-    dest.putInstructions(code.instructions, mapping);
+    dest.putInstructions(code, mapping);
     // Compute size and do the backward/forward dance to write the size at the beginning.
     int insnSize = dest.position() - insnSizeOffset - 4;
     dest.rewind(insnSize + 4);
     dest.putInt(insnSize / 2);
     dest.forward(insnSize);
-    if (code.tries.length > 0) {
+    if (tries.length > 0) {
       // The tries need to be 4 byte aligned.
       int beginOfTriesOffset = dest.align(4);
       // First write the handlers, so that we know their mixedSectionOffsets.
-      dest.forward(code.tries.length * 8);
+      dest.forward(tries.length * 8);
       int beginOfHandlersOffset = dest.position();
-      dest.putUleb128(code.handlers.length);
-      short[] offsets = new short[code.handlers.length];
+      dest.putUleb128(handlers.length);
+      short[] offsets = new short[handlers.length];
       int i = 0;
-      for (TryHandler handler : code.handlers) {
+      for (TryHandler handler : handlers) {
         offsets[i++] = (short) (dest.position() - beginOfHandlersOffset);
         boolean hasCatchAll = handler.catchAllAddr != TryHandler.NO_HANDLER;
         dest.putSleb128(hasCatchAll ? -handler.pairs.length : handler.pairs.length);
@@ -476,7 +512,7 @@ public class FileWriter {
       int endOfCodeOffset = dest.position();
       // Now write the tries.
       dest.moveTo(beginOfTriesOffset);
-      for (Try aTry : code.tries) {
+      for (Try aTry : tries) {
         dest.putInt(aTry.startAddress);
         dest.putShort((short) aTry.instructionCount);
         dest.putShort(offsets[aTry.handlerIndex]);
@@ -587,7 +623,7 @@ public class FileWriter {
         assert method.shouldNotHaveCode();
         dest.putUleb128(0);
       } else {
-        dest.putUleb128(mixedSectionOffsets.getOffsetFor(method.getCode().asDexCode()));
+        dest.putUleb128(mixedSectionOffsets.getOffsetFor(method.getCode().asDexWritableCode()));
         // Writing the methods starts to take up memory so we are going to flush the
         // code objects since they are no longer necessary after this.
         if (clearBodies) {
@@ -1002,7 +1038,7 @@ public class FileWriter {
     private static final int NOT_SET = -1;
     private static final int NOT_KNOWN = -2;
 
-    private final Reference2IntMap<DexCode> codes = createReference2IntMap();
+    private final Reference2IntMap<DexWritableCode> codes = createReference2IntMap();
     private final Object2IntMap<DexDebugInfo> debugInfos = createObject2IntMap();
     private final Object2IntMap<DexTypeList> typeLists = createObject2IntMap();
     private final Reference2IntMap<DexString> stringData = createReference2IntMap();
@@ -1072,7 +1108,7 @@ public class FileWriter {
     }
 
     @Override
-    public boolean add(DexCode code) {
+    public boolean add(DexWritableCode code) {
       return add(codes, code);
     }
 
@@ -1114,7 +1150,7 @@ public class FileWriter {
       return add(stringData, string);
     }
 
-    public Collection<DexCode> getCodes() {
+    public Collection<DexWritableCode> getCodes() {
       return codes.keySet();
     }
 
@@ -1225,7 +1261,7 @@ public class FileWriter {
       return lookup(annotationSetRefList, annotationSetRefLists);
     }
 
-    public int getOffsetFor(DexCode code) {
+    public int getOffsetFor(DexWritableCode code) {
       return lookup(code, codes);
     }
 
@@ -1243,7 +1279,7 @@ public class FileWriter {
       setOffsetFor(debugInfo, offset, debugInfos);
     }
 
-    void setOffsetFor(DexCode code, int offset) {
+    void setOffsetFor(DexWritableCode code, int offset) {
       setOffsetFor(code, offset, codes);
     }
 
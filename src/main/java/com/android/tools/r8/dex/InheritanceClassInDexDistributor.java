@@ -11,6 +11,7 @@ import com.android.tools.r8.graph.DexClass;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.StartupProfile;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
@@ -57,6 +58,7 @@ public class InheritanceClassInDexDistributor {
     public int numberOfFieldIds = -1;
     public int numberOfMethodIds = -1;
     public boolean dependsOnMainDexClasses = false;
+    public int startupIndex = StartupProfile.NOT_STARTUP;
 
     public ClassGroup() {
       members = new HashSet<>();
@@ -78,6 +80,13 @@ public class InheritanceClassInDexDistributor {
       numberOfMethodIds = virtualFile.getNumberOfMethods();
     }
 
+    public void updateStartupIndex() {
+      // The group is ordered by the first of its members in the startup profile.
+      for (DexProgramClass clazz : members) {
+        startupIndex = Math.min(startupIndex, startupProfile.getClassIndex(clazz.type));
+      }
+    }
+
     public boolean canFitInOneDex() {
       return numberOfFieldIds < VirtualFile.MAX_ENTRIES
           && numberOfMethodIds < VirtualFile.MAX_ENTRIES;
@@ -284,6 +293,7 @@ public class InheritanceClassInDexDistributor {
   private final DexApplication app;
   private int dexIndexOffset;
   private final NamingLens namingLens;
+  private final StartupProfile startupProfile;
   private final DirectSubClassesInfo directSubClasses;
 
   public InheritanceClassInDexDistributor(
@@ -293,6 +303,7 @@ public class InheritanceClassInDexDistributor {
       Map<DexProgramClass, String> originalNames,
       int dexIndexOffset,
       NamingLens namingLens,
+      StartupProfile startupProfile,
       DexApplication app,
       ExecutorService executorService) {
     this.mainDex = mainDex;
@@ -300,6 +311,7 @@ public class InheritanceClassInDexDistributor {
     this.classes = classes;
     this.dexIndexOffset = dexIndexOffset;
     this.namingLens = namingLens;
+    this.startupProfile = startupProfile;
     this.app = app;
     this.executorService = executorService;
 
@@ -353,6 +365,15 @@ public class InheritanceClassInDexDistributor {
       }
     }
 
+    // Allocate the groups with startup classes first, in profile order, so that they end up in the
+    // first dex files. The sort is stable so the other groups keep their order.
+    if (!startupProfile.isEmpty()) {
+      for (ClassGroup group : remainingInheritanceGroups) {
+        group.updateStartupIndex();
+      }
+      remainingInheritanceGroups.sort(Comparator.comparingInt(group -> group.startupIndex));
+    }
+
     // Allocate member of groups independents from the main dex members
     for (ClassGroup group : remainingInheritanceGroups) {
       if (!group.dependsOnMainDexClasses) {
@@ -25,12 +25,14 @@ import com.android.tools.r8.utils.DescriptorUtils;
 import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.StartupProfile;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -151,10 +153,12 @@ public class VirtualFile {
     return prefix;
   }
 
-  public ObjectToOffsetMapping computeMapping(DexApplication application) {
+  public ObjectToOffsetMapping computeMapping(
+      DexApplication application, StartupProfile startupProfile) {
     assert transaction.isEmpty();
     return new ObjectToOffsetMapping(
         application,
+        startupProfile,
         indexedItems.classes,
         indexedItems.protos,
         indexedItems.types,
@@ -397,9 +401,12 @@ public class VirtualFile {
 
       if (multidexLegacy && options.enableInheritanceClassInDexDistributor) {
         new InheritanceClassInDexDistributor(mainDexFile, filesForDistribution, classes,
-            originalNames, fileIndexOffset, writer.namingLens, writer.application, executorService)
+            originalNames, fileIndexOffset, writer.namingLens, writer.startupProfile,
+            writer.application, executorService)
             .distribute();
       } else {
+        // Place the startup classes together in the first file before distributing the rest.
+        fillForStartupProfile(filesForDistribution.get(0));
         // Sort the remaining classes based on the original names.
         // This with make classes from the same package be adjacent.
         classes = sortClassesByPackage(classes, originalNames);
@@ -411,6 +418,31 @@ public class VirtualFile {
       assert totalClassNumber == virtualFiles.stream().mapToInt(dex -> dex.classes().size()).sum();
       return virtualFiles;
     }
+
+    private void fillForStartupProfile(VirtualFile file) {
+      StartupProfile startupProfile = writer.startupProfile;
+      if (startupProfile.isEmpty()) {
+        return;
+      }
+      List<DexProgramClass> startupClasses = new ArrayList<>();
+      for (DexProgramClass clazz : classes) {
+        if (startupProfile.isStartupClass(clazz.type)) {
+          startupClasses.add(clazz);
+        }
+      }
+      startupClasses.sort(
+          Comparator.comparingInt(clazz -> startupProfile.getClassIndex(clazz.type)));
+      for (DexProgramClass clazz : startupClasses) {
+        file.addClass(clazz);
+        if (file.isFilledEnough(fillStrategy) || file.isFull()) {
+          // The remaining startup classes are distributed with the other classes.
+          file.abortTransaction();
+          break;
+        }
+        file.commitTransaction();
+        classes.remove(clazz);
+      }
+    }
   }
 
   public static class MonoDexDistributor extends DistributorBase {
@@ -20,15 +20,17 @@ public abstract class CachedHashValueDexItem extends DexItem {
   public final int hashCode() {
     int cache = hash;
     if (cache == NOT_COMPUTED_HASH_VALUE) {
-      cache = computeHashCode();
-      if (cache == NOT_COMPUTED_HASH_VALUE) {
-        cache = SENTINEL_HASH_VALUE;
-      }
+      cache = toHashValue(computeHashCode());
       hash = cache;
     }
     return cache;
   }
 
+  /** Returns the value of {@link #hashCode()} for the given result of computeHashCode(). */
+  static int toHashValue(int computedHashCode) {
+    return computedHashCode == NOT_COMPUTED_HASH_VALUE ? SENTINEL_HASH_VALUE : computedHashCode;
+  }
+
   @Override
   public void flushCachedValues() {
     super.flushCachedValues();
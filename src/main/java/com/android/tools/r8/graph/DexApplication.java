@@ -172,6 +172,11 @@ public abstract class DexApplication {
       return self();
     }
 
+    public synchronized T clearProgramResourceProviders() {
+      this.programResourceProviders.clear();
+      return self();
+    }
+
     public T appendDeadCode(String deadCodeAtAnotherRound) {
       if (deadCodeAtAnotherRound == null) {
         return self();
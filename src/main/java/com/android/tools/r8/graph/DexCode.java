@@ -20,16 +20,18 @@ import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.StringUtils;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import java.nio.ShortBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 // DexCode corresponds to code item in dalvik/dex-format.html
-public class DexCode extends Code {
+public class DexCode extends Code implements DexWritableCode {
 
   public final int registerSize;
   public final int incomingRegisterSize;
@@ -41,6 +43,7 @@ public class DexCode extends Code {
   public DexString highestSortingString;
   private DexDebugInfo debugInfo;
   private DexDebugInfoForWriting debugInfoForWriting;
+  private DebugEntriesForInlining debugEntriesForInlining;
 
   public DexCode(
       int registerSize,
@@ -92,6 +95,41 @@ public class DexCode extends Code {
     return this;
   }
 
+  @Override
+  public DexWritableCode asDexWritableCode() {
+    return this;
+  }
+
+  @Override
+  public int getRegisterSize() {
+    return registerSize;
+  }
+
+  @Override
+  public int getIncomingRegisterSize() {
+    return incomingRegisterSize;
+  }
+
+  @Override
+  public int getOutgoingRegisterSize() {
+    return outgoingRegisterSize;
+  }
+
+  @Override
+  public Try[] getTries() {
+    return tries;
+  }
+
+  @Override
+  public TryHandler[] getHandlers() {
+    return handlers;
+  }
+
+  @Override
+  public DexString getHighestSortingString() {
+    return highestSortingString;
+  }
+
   public DexDebugInfo getDebugInfo() {
     return debugInfo;
   }
@@ -103,6 +141,24 @@ public class DexCode extends Code {
     }
   }
 
+  /**
+   * Returns the debug entries of this code for the given method, which are computed once and then
+   * shared by all the callers that this code is inlined into. The cached entries are discarded if
+   * the debug info of this code changes.
+   */
+  public List<DexDebugEntry> getDebugEntriesForInlining(DexMethod method) {
+    DexDebugInfo info = debugInfo;
+    if (info == null) {
+      return null;
+    }
+    DebugEntriesForInlining cached = debugEntriesForInlining;
+    if (cached == null || cached.debugInfo != info || cached.method != method) {
+      cached = new DebugEntriesForInlining(info, method);
+      debugEntriesForInlining = cached;
+    }
+    return cached.entries;
+  }
+
   public DexDebugInfo debugInfoWithAdditionalFirstParameter(DexString name) {
     if (debugInfo == null) {
       return null;
@@ -403,6 +459,7 @@ public class DexCode extends Code {
     }
   }
 
+  @Override
   public DexDebugInfoForWriting getDebugInfoForWriting() {
     if (debugInfo == null) {
       return null;
@@ -421,6 +478,22 @@ public class DexCode extends Code {
     }
   }
 
+  @Override
+  public int getCodeSizeInUnits() {
+    int size = 0;
+    for (Instruction insn : instructions) {
+      size += insn.getSize();
+    }
+    return size;
+  }
+
+  @Override
+  public void writeInstructions(ShortBuffer dest, ObjectToOffsetMapping mapping) {
+    for (Instruction insn : instructions) {
+      insn.write(dest, mapping);
+    }
+  }
+
   public boolean usesExceptionHandling() {
     return tries.length != 0;
   }
@@ -434,6 +507,21 @@ public class DexCode extends Code {
     }
   }
 
+  // Immutable, such that it can be shared between the threads that inline this code without
+  // synchronization.
+  private static class DebugEntriesForInlining {
+
+    private final DexDebugInfo debugInfo;
+    private final DexMethod method;
+    private final List<DexDebugEntry> entries;
+
+    private DebugEntriesForInlining(DexDebugInfo debugInfo, DexMethod method) {
+      this.debugInfo = debugInfo;
+      this.method = method;
+      this.entries = Collections.unmodifiableList(debugInfo.computeEntries(method));
+    }
+  }
+
   public static class Try extends DexItem {
 
     public static final int NO_INDEX = -1;
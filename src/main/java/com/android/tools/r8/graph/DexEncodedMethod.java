@@ -50,6 +50,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements ResolutionResult {
@@ -705,16 +706,20 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
     if (code == null) {
       return;
     }
-    DexCode code = this.code.asDexCode();
+    DexWritableCode code = this.code.asDexWritableCode();
     DexString firstJumboString = null;
     if (force) {
       firstJumboString = mapping.getFirstString();
     } else {
-      assert code.highestSortingString != null
-          || Arrays.stream(code.instructions).noneMatch(Instruction::isConstString);
-      assert Arrays.stream(code.instructions).noneMatch(Instruction::isDexItemBasedConstString);
-      if (code.highestSortingString != null
-          && mapping.getOffsetFor(code.highestSortingString) > Constants.MAX_NON_JUMBO_INDEX) {
+      DexString highestSortingString = code.getHighestSortingString();
+      assert !(code instanceof DexCode)
+          || highestSortingString != null
+          || Arrays.stream(((DexCode) code).instructions).noneMatch(Instruction::isConstString);
+      assert !(code instanceof DexCode)
+          || Arrays.stream(((DexCode) code).instructions)
+              .noneMatch(Instruction::isDexItemBasedConstString);
+      if (highestSortingString != null
+          && mapping.getOffsetFor(highestSortingString) > Constants.MAX_NON_JUMBO_INDEX) {
         firstJumboString = mapping.getFirstJumboString();
       }
     }
@@ -780,6 +785,17 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
     public ClassInlinerEligibility(boolean returnsReceiver) {
       this.returnsReceiver = returnsReceiver;
     }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ClassInlinerEligibility
+          && returnsReceiver == ((ClassInlinerEligibility) other).returnsReceiver;
+    }
+
+    @Override
+    public int hashCode() {
+      return Boolean.hashCode(returnsReceiver);
+    }
   }
 
   public static class TrivialInitializer {
@@ -801,6 +817,17 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
       public TrivialClassInitializer(DexField field) {
         this.field = field;
       }
+
+      @Override
+      public boolean equals(Object other) {
+        return other instanceof TrivialClassInitializer
+            && field == ((TrivialClassInitializer) other).field;
+      }
+
+      @Override
+      public int hashCode() {
+        return field.hashCode();
+      }
     }
   }
 
@@ -917,6 +944,11 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
       return UNKNOWN_TRIGGERS_CLASS_INIT_BEFORE_ANY_SIDE_EFFECT;
     }
 
+    @Override
+    public boolean isShared() {
+      return true;
+    }
+
     @Override
     public UpdatableOptimizationInfo mutableCopy() {
       return new OptimizationInfoImpl();
@@ -925,27 +957,29 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
   public static class OptimizationInfoImpl implements UpdatableOptimizationInfo {
 
+    // Bits of the flags field. The boolean facts are packed to keep the instances small.
+    private static final int NEVER_RETURNS_NULL = 1 << 0;
+    private static final int NEVER_RETURNS_NORMALLY = 1 << 1;
+    private static final int RETURNS_CONSTANT = 1 << 2;
+    private static final int USE_IDENTIFIER_NAME_STRING = 1 << 3;
+    private static final int CHECKS_NULL_RECEIVER_BEFORE_ANY_SIDE_EFFECT = 1 << 4;
+    private static final int TRIGGERS_CLASS_INIT_BEFORE_ANY_SIDE_EFFECT = 1 << 5;
+    private static final int INITIALIZER_ENABLING_JAVA_ASSERTIONS = 1 << 6;
+    private static final int REACHABILITY_SENSITIVE = 1 << 7;
+    private static final int FORCE_INLINE = 1 << 8;
+    private static final int NEVER_INLINE = 1 << 9;
+    // Set when the info has been interned, after which it is shared and must not be modified.
+    private static final int INTERNED = 1 << 10;
+
+    private int flags = 0;
     private int returnedArgument = DefaultOptimizationInfoImpl.UNKNOWN_RETURNED_ARGUMENT;
-    private boolean neverReturnsNull = DefaultOptimizationInfoImpl.UNKNOWN_NEVER_RETURNS_NULL;
-    private boolean neverReturnsNormally =
-        DefaultOptimizationInfoImpl.UNKNOWN_NEVER_RETURNS_NORMALLY;
-    private boolean returnsConstant = DefaultOptimizationInfoImpl.UNKNOWN_RETURNS_CONSTANT;
     private long returnedConstant = DefaultOptimizationInfoImpl.UNKNOWN_RETURNED_CONSTANT;
-    private InlinePreference inlining = InlinePreference.Default;
-    private boolean useIdentifierNameString =
-        DefaultOptimizationInfoImpl.DOES_NOT_USE_IDNETIFIER_NAME_STRING;
-    private boolean checksNullReceiverBeforeAnySideEffect =
-        DefaultOptimizationInfoImpl.UNKNOWN_CHECKS_NULL_RECEIVER_BEFORE_ANY_SIDE_EFFECT;
-    private boolean triggersClassInitBeforeAnySideEffect =
-        DefaultOptimizationInfoImpl.UNKNOWN_TRIGGERS_CLASS_INIT_BEFORE_ANY_SIDE_EFFECT;
     // Stores information about instance methods and constructors for
     // class inliner, null value indicates that the method is not eligible.
     private ClassInlinerEligibility classInlinerEligibility =
         DefaultOptimizationInfoImpl.UNKNOWN_CLASS_INLINER_ELIGIBILITY;
     private TrivialInitializer trivialInitializerInfo =
         DefaultOptimizationInfoImpl.UNKNOWN_TRIVIAL_INITIALIZER;
-    private boolean initializerEnablingJavaAssertions =
-        DefaultOptimizationInfoImpl.UNKNOWN_INITIALIZER_ENABLING_JAVA_ASSERTIONS;
     private ParameterUsagesInfo parametersUsages =
         DefaultOptimizationInfoImpl.UNKNOWN_PARAMETER_USAGE_INFO;
     // Stores information about nullability hint per parameter. If set, that means, the method
@@ -964,29 +998,90 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
     // non-null information through {@link NonNullTracker}.
     // Note that this bit set takes into account the receiver for instance methods.
     private BitSet nonNullParamOnNormalExits = null;
-    private boolean reachabilitySensitive = false;
 
     private OptimizationInfoImpl() {
       // Intentionally left empty, just use the default values.
     }
 
     private OptimizationInfoImpl(OptimizationInfoImpl template) {
+      flags = template.flags & ~INTERNED;
       returnedArgument = template.returnedArgument;
-      neverReturnsNull = template.neverReturnsNull;
-      neverReturnsNormally = template.neverReturnsNormally;
-      returnsConstant = template.returnsConstant;
       returnedConstant = template.returnedConstant;
-      inlining = template.inlining;
-      useIdentifierNameString = template.useIdentifierNameString;
-      checksNullReceiverBeforeAnySideEffect = template.checksNullReceiverBeforeAnySideEffect;
-      triggersClassInitBeforeAnySideEffect = template.triggersClassInitBeforeAnySideEffect;
       classInlinerEligibility = template.classInlinerEligibility;
       trivialInitializerInfo = template.trivialInitializerInfo;
-      initializerEnablingJavaAssertions = template.initializerEnablingJavaAssertions;
       parametersUsages = template.parametersUsages;
       nonNullParamOrThrow = template.nonNullParamOrThrow;
       nonNullParamOnNormalExits = template.nonNullParamOnNormalExits;
-      reachabilitySensitive = template.reachabilitySensitive;
+    }
+
+    private boolean isFlagSet(int flag) {
+      return (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+      assert !isShared();
+      if (value) {
+        flags |= flag;
+      } else {
+        flags &= ~flag;
+      }
+    }
+
+    // Returns true if this info has the same facts as DefaultOptimizationInfoImpl.
+    boolean isDefault() {
+      return (flags & ~INTERNED) == 0
+          && returnedArgument == DefaultOptimizationInfoImpl.UNKNOWN_RETURNED_ARGUMENT
+          && returnedConstant == DefaultOptimizationInfoImpl.UNKNOWN_RETURNED_CONSTANT
+          && classInlinerEligibility
+              == DefaultOptimizationInfoImpl.UNKNOWN_CLASS_INLINER_ELIGIBILITY
+          && trivialInitializerInfo == DefaultOptimizationInfoImpl.UNKNOWN_TRIVIAL_INITIALIZER
+          && parametersUsages == DefaultOptimizationInfoImpl.UNKNOWN_PARAMETER_USAGE_INFO
+          && nonNullParamOrThrow == null
+          && nonNullParamOnNormalExits == null;
+    }
+
+    // Marks this info as shared. It is then immutable, see DexEncodedMethod#setOptimizationInfo.
+    void markInterned() {
+      flags |= INTERNED;
+    }
+
+    // The optimization info has value semantics, such that methods with the same facts can share
+    // a single interned instance, see OptimizationInfoTable.
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof OptimizationInfoImpl)) {
+        return false;
+      }
+      OptimizationInfoImpl info = (OptimizationInfoImpl) other;
+      return (flags & ~INTERNED) == (info.flags & ~INTERNED)
+          && returnedArgument == info.returnedArgument
+          && returnedConstant == info.returnedConstant
+          && Objects.equals(classInlinerEligibility, info.classInlinerEligibility)
+          && Objects.equals(trivialInitializerInfo, info.trivialInitializerInfo)
+          && Objects.equals(parametersUsages, info.parametersUsages)
+          && Objects.equals(nonNullParamOrThrow, info.nonNullParamOrThrow)
+          && Objects.equals(nonNullParamOnNormalExits, info.nonNullParamOnNormalExits);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          flags & ~INTERNED,
+          returnedArgument,
+          returnedConstant,
+          classInlinerEligibility,
+          trivialInitializerInfo,
+          parametersUsages,
+          nonNullParamOrThrow,
+          nonNullParamOnNormalExits);
+    }
+
+    @Override
+    public boolean isShared() {
+      return isFlagSet(INTERNED);
     }
 
     @Override
@@ -1011,7 +1106,7 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
     @Override
     public boolean isReachabilitySensitive() {
-      return reachabilitySensitive;
+      return isFlagSet(REACHABILITY_SENSITIVE);
     }
 
     @Override
@@ -1027,17 +1122,17 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
     @Override
     public boolean neverReturnsNull() {
-      return neverReturnsNull;
+      return isFlagSet(NEVER_RETURNS_NULL);
     }
 
     @Override
     public boolean neverReturnsNormally() {
-      return neverReturnsNormally;
+      return isFlagSet(NEVER_RETURNS_NORMALLY);
     }
 
     @Override
     public boolean returnsConstant() {
-      return returnsConstant;
+      return isFlagSet(RETURNS_CONSTANT);
     }
 
     @Override
@@ -1053,71 +1148,77 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
     @Override
     public boolean isInitializerEnablingJavaAssertions() {
-      return initializerEnablingJavaAssertions;
+      return isFlagSet(INITIALIZER_ENABLING_JAVA_ASSERTIONS);
     }
 
     @Override
     public boolean useIdentifierNameString() {
-      return useIdentifierNameString;
+      return isFlagSet(USE_IDENTIFIER_NAME_STRING);
     }
 
     @Override
     public boolean forceInline() {
-      return inlining == InlinePreference.ForceInline;
+      return isFlagSet(FORCE_INLINE);
     }
 
     @Override
     public boolean neverInline() {
-      return inlining == InlinePreference.NeverInline;
+      return isFlagSet(NEVER_INLINE);
     }
 
     @Override
     public boolean checksNullReceiverBeforeAnySideEffect() {
-      return checksNullReceiverBeforeAnySideEffect;
+      return isFlagSet(CHECKS_NULL_RECEIVER_BEFORE_ANY_SIDE_EFFECT);
     }
 
     @Override
     public boolean triggersClassInitBeforeAnySideEffect() {
-      return triggersClassInitBeforeAnySideEffect;
+      return isFlagSet(TRIGGERS_CLASS_INIT_BEFORE_ANY_SIDE_EFFECT);
     }
 
     @Override
     public void setParameterUsages(ParameterUsagesInfo parametersUsages) {
+      assert !isShared();
       this.parametersUsages = parametersUsages;
     }
 
     @Override
     public void setNonNullParamOrThrow(BitSet facts) {
+      assert !isShared();
       this.nonNullParamOrThrow = facts;
     }
 
     @Override
     public void setNonNullParamOnNormalExits(BitSet facts) {
+      assert !isShared();
       this.nonNullParamOnNormalExits = facts;
     }
 
     @Override
     public void setReachabilitySensitive(boolean reachabilitySensitive) {
-      this.reachabilitySensitive = reachabilitySensitive;
+      setFlag(REACHABILITY_SENSITIVE, reachabilitySensitive);
     }
 
     @Override
     public void setClassInlinerEligibility(ClassInlinerEligibility eligibility) {
+      assert !isShared();
       this.classInlinerEligibility = eligibility;
     }
 
     @Override
     public void setTrivialInitializer(TrivialInitializer info) {
+      assert !isShared();
       this.trivialInitializerInfo = info;
     }
 
     @Override
     public void setInitializerEnablingJavaAssertions() {
-      this.initializerEnablingJavaAssertions = true;
+      setFlag(INITIALIZER_ENABLING_JAVA_ASSERTIONS, true);
     }
 
     @Override
     public void markReturnsArgument(int argument) {
+      assert !isShared();
       assert argument >= 0;
       assert returnedArgument == -1 || returnedArgument == argument;
       returnedArgument = argument;
@@ -1125,55 +1226,55 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
     @Override
     public void markNeverReturnsNull() {
-      neverReturnsNull = true;
+      setFlag(NEVER_RETURNS_NULL, true);
     }
 
     @Override
     public void markNeverReturnsNormally() {
-      neverReturnsNormally = true;
+      setFlag(NEVER_RETURNS_NORMALLY, true);
     }
 
     @Override
     public void markReturnsConstant(long value) {
-      assert !returnsConstant || returnedConstant == value;
-      returnsConstant = true;
+      assert !returnsConstant() || returnedConstant == value;
+      setFlag(RETURNS_CONSTANT, true);
       returnedConstant = value;
     }
 
     @Override
     public void markForceInline() {
       // For concurrent scenarios we should allow the flag to be already set
-      assert inlining == InlinePreference.Default || inlining == InlinePreference.ForceInline;
-      inlining = InlinePreference.ForceInline;
+      assert !neverInline();
+      setFlag(FORCE_INLINE, true);
     }
 
     @Override
     public void unsetForceInline() {
       // For concurrent scenarios we should allow the flag to be already unset
-      assert inlining == InlinePreference.Default || inlining == InlinePreference.ForceInline;
-      inlining = InlinePreference.Default;
+      assert !neverInline();
+      setFlag(FORCE_INLINE, false);
     }
 
     @Override
     public void markNeverInline() {
       // For concurrent scenarios we should allow the flag to be already set
-      assert inlining == InlinePreference.Default || inlining == InlinePreference.NeverInline;
-      inlining = InlinePreference.NeverInline;
+      assert !forceInline();
+      setFlag(NEVER_INLINE, true);
     }
 
     @Override
     public void markUseIdentifierNameString() {
-      useIdentifierNameString = true;
+      setFlag(USE_IDENTIFIER_NAME_STRING, true);
     }
 
     @Override
     public void markCheckNullReceiverBeforeAnySideEffect(boolean mark) {
-      checksNullReceiverBeforeAnySideEffect = mark;
+      setFlag(CHECKS_NULL_RECEIVER_BEFORE_ANY_SIDE_EFFECT, mark);
     }
 
     @Override
     public void markTriggerClassInitBeforeAnySideEffect(boolean mark) {
-      triggersClassInitBeforeAnySideEffect = mark;
+      setFlag(TRIGGERS_CLASS_INIT_BEFORE_ANY_SIDE_EFFECT, mark);
     }
 
     @Override
@@ -1190,13 +1291,14 @@ public class DexEncodedMethod extends KeyedDexItem<DexMethod> implements Resolut
 
   public synchronized UpdatableOptimizationInfo getMutableOptimizationInfo() {
     checkIfObsolete();
-    if (optimizationInfo == DefaultOptimizationInfoImpl.DEFAULT_INSTANCE) {
+    // The default and the interned infos are shared between methods, so modify a private copy.
+    if (optimizationInfo.isShared()) {
       optimizationInfo = optimizationInfo.mutableCopy();
     }
     return (UpdatableOptimizationInfo) optimizationInfo;
   }
 
-  public void setOptimizationInfo(UpdatableOptimizationInfo info) {
+  public void setOptimizationInfo(OptimizationInfo info) {
     checkIfObsolete();
     optimizationInfo = info;
   }
@@ -7,6 +7,7 @@ import static com.android.tools.r8.ir.analysis.type.Nullability.maybeNull;
 
 import com.android.tools.r8.dex.Constants;
 import com.android.tools.r8.dex.Marker;
+import com.android.tools.r8.errors.Unreachable;
 import com.android.tools.r8.graph.DexDebugEvent.AdvanceLine;
 import com.android.tools.r8.graph.DexDebugEvent.AdvancePC;
 import com.android.tools.r8.graph.DexDebugEvent.Default;
@@ -57,6 +58,16 @@ public class DexItemFactory {
   private final ConcurrentHashMap<DexMethodHandle, DexMethodHandle> methodHandles =
       new ConcurrentHashMap<>();
 
+  // Keys for looking up strings without creating a DexString, see StringLookupKey.
+  private static final ThreadLocal<StringLookupKey> stringLookupKeys =
+      ThreadLocal.withInitial(StringLookupKey::new);
+
+  // Only collected if the system property com.android.tools.r8.printInterningStatistics is set.
+  private final InterningStatistics interningStatistics =
+      System.getProperty("com.android.tools.r8.printInterningStatistics") != null
+          ? new InterningStatistics()
+          : null;
+
   // DexDebugEvent Canonicalization.
   private final Int2ObjectMap<AdvanceLine> advanceLines = new Int2ObjectOpenHashMap<>();
   private final Int2ObjectMap<AdvancePC> advancePCs = new Int2ObjectOpenHashMap<>();
@@ -385,6 +396,48 @@ public class DexItemFactory {
     return primitiveToBoxed.inverse().get(boxedPrimitive);
   }
 
+  /** Returns the method {@code Box.valueOf(primitive)} for the box type of the given primitive. */
+  public DexMethod getBoxPrimitiveMethod(DexType primitive) {
+    DexType boxedType = getBoxedForPrimitiveType(primitive);
+    return createMethod(boxedType, createProto(boxedType, primitive), valueOfMethodName);
+  }
+
+  /** Returns the method {@code Box.primitiveValue()}, e.g. {@code Integer.intValue()}. */
+  public DexMethod getUnboxPrimitiveMethod(DexType primitive) {
+    DexType boxedType = getBoxedForPrimitiveType(primitive);
+    return createMethod(boxedType, createProto(primitive), getUnboxPrimitiveMethodName(primitive));
+  }
+
+  private DexString getUnboxPrimitiveMethodName(DexType primitive) {
+    switch (primitive.descriptor.content[0]) {
+      case 'Z':
+        return unboxBooleanMethodName;
+      case 'B':
+        return unboxByteMethodName;
+      case 'C':
+        return unboxCharMethodName;
+      case 'S':
+        return unboxShortMethodName;
+      case 'I':
+        return unboxIntMethodName;
+      case 'J':
+        return unboxLongMethodName;
+      case 'F':
+        return unboxFloatMethodName;
+      case 'D':
+        return unboxDoubleMethodName;
+      default:
+        throw new Unreachable("Invalid primitive type descriptor: " + primitive);
+    }
+  }
+
+  public boolean isUnboxPrimitiveMethod(DexMethod method) {
+    DexType primitive = getPrimitiveFromBoxed(method.holder);
+    return primitive != null
+        && method.proto.returnType == primitive
+        && method == getUnboxPrimitiveMethod(primitive);
+  }
+
   public class LongMethods {
 
     public final DexMethod compare;
@@ -485,6 +538,9 @@ public class DexItemFactory {
   public class EnumMethods {
 
     public DexMethod valueOf;
+    public final DexMethod ordinal;
+    public final DexMethod compareTo;
+    public final DexMethod equals;
 
     private EnumMethods() {
       valueOf =
@@ -493,6 +549,29 @@ public class DexItemFactory {
               valueOfMethodName,
               enumDescriptor,
               new DexString[] {classDescriptor, stringDescriptor});
+      ordinal =
+          createMethod(enumDescriptor, ordinalMethodName, intDescriptor, DexString.EMPTY_ARRAY);
+      compareTo =
+          createMethod(
+              enumDescriptor,
+              createString("compareTo"),
+              intDescriptor,
+              new DexString[] {enumDescriptor});
+      equals =
+          createMethod(
+              enumDescriptor,
+              equalsMethodName,
+              booleanDescriptor,
+              new DexString[] {objectDescriptor});
+    }
+
+    /**
+     * Returns true if the given method has the name and prototype of the given final method of
+     * {@link Enum}. When invoked on an enum, such a method always resolves to the method of {@link
+     * Enum}.
+     */
+    public boolean matches(DexMethod method, DexMethod enumMethod) {
+      return method.name == enumMethod.name && method.proto == enumMethod.proto;
     }
   }
 
@@ -647,6 +726,10 @@ public class DexItemFactory {
     public final DexMethod appendObject;
     public final DexMethod appendString;
     public final DexMethod appendStringBuffer;
+    public final DexMethod defaultConstructor;
+    public final DexMethod intConstructor;
+    public final DexMethod stringConstructor;
+    public final DexMethod toString;
 
     private StringBuildingMethods(DexType receiver) {
       DexType sbufType = createType(createString("Ljava/lang/StringBuffer;"));
@@ -667,6 +750,17 @@ public class DexItemFactory {
       appendObject = createMethod(receiver, createProto(receiver, objectType), append);
       appendString = createMethod(receiver, createProto(receiver, stringType), append);
       appendStringBuffer = createMethod(receiver, createProto(receiver, sbufType), append);
+
+      defaultConstructor = createMethod(receiver, createProto(voidType), constructorMethodName);
+      intConstructor =
+          createMethod(receiver, createProto(voidType, intType), constructorMethodName);
+      stringConstructor =
+          createMethod(receiver, createProto(voidType, stringType), constructorMethodName);
+      toString = createMethod(receiver, createProto(stringType), toStringMethodName);
+    }
+
+    public boolean isAppendMethod(DexMethod method) {
+      return method.holder == appendString.holder && method.name == appendString.name;
     }
 
     public void forEachAppendMethod(Consumer<DexMethod> consumer) {
@@ -756,25 +850,137 @@ public class DexItemFactory {
     }
   }
 
-  private static <T extends DexItem> T canonicalize(ConcurrentHashMap<T, T> map, T item) {
+  /**
+   * Key for looking up a string in the strings table by its {@link String} value or by its MUTF-8
+   * encoded content in a buffer, without allocating a DexString or encoding the string.
+   *
+   * <p>The key is only equal to DexStrings, and it is only used as the argument of a lookup, where
+   * {@link ConcurrentHashMap} calls equals on the argument.
+   */
+  private static final class StringLookupKey {
+
+    private String string;
+    private byte[] buffer;
+    private int offset;
+    private int length;
+    private int size;
+    private int hash;
+
+    StringLookupKey set(String string) {
+      this.string = string;
+      this.hash = CachedHashValueDexItem.toHashValue(DexString.computeHashCode(string));
+      return this;
+    }
+
+    StringLookupKey set(int size, byte[] buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+      this.size = size;
+      this.hash =
+          CachedHashValueDexItem.toHashValue(
+              DexString.computeHashCode(size, buffer, offset, length));
+      return this;
+    }
+
+    void clear() {
+      string = null;
+      buffer = null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof DexString)) {
+        return false;
+      }
+      DexString dexString = (DexString) other;
+      return string != null
+          ? dexString.contentEquals(string)
+          : dexString.contentEquals(size, buffer, offset, length);
+    }
+  }
+
+  private static <T extends DexItem> T canonicalize(
+      ConcurrentHashMap<T, T> map, T item, InterningStatistics.Counter counter) {
     assert item != null;
     assert !DexItemFactory.isInternalSentinel(item);
+    // Look up the item before inserting it, since putIfAbsent locks the hash bin even if the item
+    // is already present.
+    T result = map.get(item);
+    if (result != null) {
+      if (counter != null) {
+        counter.hit();
+      }
+      return result;
+    }
+    return insert(map, item, counter);
+  }
+
+  private static <T extends DexItem> T insert(
+      ConcurrentHashMap<T, T> map, T item, InterningStatistics.Counter counter) {
     T previous = map.putIfAbsent(item, item);
+    if (counter != null) {
+      counter.insertion(previous == null);
+    }
     return previous == null ? item : previous;
   }
 
+  public InterningStatistics getInterningStatistics() {
+    return interningStatistics;
+  }
+
   public DexString createString(int size, byte[] content) {
     assert !sorted;
-    return canonicalize(strings, new DexString(size, content));
+    return canonicalize(
+        strings,
+        new DexString(size, content),
+        interningStatistics == null ? null : interningStatistics.strings);
+  }
+
+  /**
+   * Returns the string of the given size with the MUTF-8 encoded content in the given range of
+   * the buffer, including the terminating '0'. The content is only copied if the string is new.
+   */
+  public DexString createString(int size, byte[] buffer, int offset, int length) {
+    assert !sorted;
+    DexString result = lookupString(stringLookupKeys.get().set(size, buffer, offset, length));
+    if (result != null) {
+      return result;
+    }
+    return insert(
+        strings,
+        new DexString(size, Arrays.copyOfRange(buffer, offset, offset + length)),
+        interningStatistics == null ? null : interningStatistics.strings);
   }
 
   public DexString createString(String source) {
     assert !sorted;
-    return canonicalize(strings, new DexString(source));
+    DexString result = lookupString(stringLookupKeys.get().set(source));
+    if (result != null) {
+      return result;
+    }
+    return insert(
+        strings,
+        new DexString(source),
+        interningStatistics == null ? null : interningStatistics.strings);
   }
 
   public DexString lookupString(String source) {
-    return strings.get(new DexString(source));
+    return lookupString(stringLookupKeys.get().set(source));
+  }
+
+  private DexString lookupString(StringLookupKey key) {
+    DexString result = strings.get(key);
+    key.clear();
+    if (result != null && interningStatistics != null) {
+      interningStatistics.strings.hit();
+    }
+    return result;
   }
 
   // Debugging support to extract marking string.
@@ -804,18 +1010,26 @@ public class DexItemFactory {
     return markers;
   }
 
-  synchronized public DexType createType(DexString descriptor) {
+  public DexType createType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
     DexType result = types.get(descriptor);
-    if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType() || result.isClassType() || result.isPrimitiveType() ||
-          result.isVoidType();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
+    if (result != null) {
+      if (interningStatistics != null) {
+        interningStatistics.types.hit();
+      }
+      return result;
     }
-    return result;
+    DexType type = new DexType(descriptor);
+    assert type.isArrayType() || type.isClassType() || type.isPrimitiveType() ||
+        type.isVoidType();
+    assert !isInternalSentinel(type);
+    // Another thread may concurrently create the same type, in which case its type is used.
+    result = types.putIfAbsent(descriptor, type);
+    if (interningStatistics != null) {
+      interningStatistics.types.insertion(result == null);
+    }
+    return result == null ? type : result;
   }
 
   public DexType createType(String descriptor) {
@@ -834,7 +1048,8 @@ public class DexItemFactory {
   public DexField createField(DexType clazz, DexType type, DexString name) {
     assert !sorted;
     DexField field = new DexField(clazz, type, name, skipNameValidationForTesting);
-    return canonicalize(fields, field);
+    return canonicalize(
+        fields, field, interningStatistics == null ? null : interningStatistics.fields);
   }
 
   public DexField createField(DexType clazz, DexType type, String name) {
@@ -844,7 +1059,8 @@ public class DexItemFactory {
   public DexProto createProto(DexType returnType, DexString shorty, DexTypeList parameters) {
     assert !sorted;
     DexProto proto = new DexProto(shorty, returnType, parameters);
-    return canonicalize(protos, proto);
+    return canonicalize(
+        protos, proto, interningStatistics == null ? null : interningStatistics.protos);
   }
 
   public DexProto createProto(DexType returnType, DexType... parameters) {
@@ -900,7 +1116,8 @@ public class DexItemFactory {
   public DexMethod createMethod(DexType holder, DexProto proto, DexString name) {
     assert !sorted;
     DexMethod method = new DexMethod(holder, proto, name, skipNameValidationForTesting);
-    return canonicalize(methods, method);
+    return canonicalize(
+        methods, method, interningStatistics == null ? null : interningStatistics.methods);
   }
 
   public DexMethod createMethod(DexType holder, DexProto proto, String name) {
@@ -912,7 +1129,10 @@ public class DexItemFactory {
       Descriptor<? extends DexItem, ? extends Descriptor<?, ?>> fieldOrMethod) {
     assert !sorted;
     DexMethodHandle methodHandle = new DexMethodHandle(type, fieldOrMethod);
-    return canonicalize(methodHandles, methodHandle);
+    return canonicalize(
+        methodHandles,
+        methodHandle,
+        interningStatistics == null ? null : interningStatistics.methodHandles);
   }
 
   public DexCallSite createCallSite(
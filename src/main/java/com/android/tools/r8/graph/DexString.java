@@ -100,44 +100,112 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
   }
 
   // Inspired from /dex/src/main/java/com/android/dex/Mutf8.java
+  // Returns the number of bytes of the MUTF-8 encoding of the given character.
+  private static int mutf8Length(char ch) {
+    if (ch != 0 && ch <= 127) { // U+0000 uses two bytes.
+      return 1;
+    }
+    return ch <= 2047 ? 2 : 3;
+  }
+
+  // Returns the byte at the given index of the MUTF-8 encoding of the given character, where
+  // length is mutf8Length(ch).
+  private static byte mutf8Byte(char ch, int length, int index) {
+    if (length == 1) {
+      return (byte) ch;
+    }
+    if (index == 0) {
+      return length == 2
+          ? (byte) (0xc0 | (0x1f & (ch >> 6)))
+          : (byte) (0xe0 | (0x0f & (ch >> 12)));
+    }
+    return (byte) (0x80 | (0x3f & (ch >> (6 * (length - 1 - index)))));
+  }
+
   private static int countBytes(String string) {
     int result = 0;
     for (int i = 0; i < string.length(); ++i) {
-      char ch = string.charAt(i);
-      if (ch != 0 && ch <= 127) { // U+0000 uses two bytes.
-        ++result;
-      } else if (ch <= 2047) {
-        result += 2;
-      } else {
-        result += 3;
-      }
+      result += mutf8Length(string.charAt(i));
       assert result > 0;
     }
     // We need an extra byte for the terminating '0'.
     return result + 1;
   }
 
-  // Inspired from /dex/src/main/java/com/android/dex/Mutf8.java
   public static byte[] encodeToMutf8(String string) {
     byte[] result = new byte[countBytes(string)];
     int offset = 0;
     for (int i = 0; i < string.length(); i++) {
       char ch = string.charAt(i);
-      if (ch != 0 && ch <= 127) { // U+0000 uses two bytes.
-        result[offset++] = (byte) ch;
-      } else if (ch <= 2047) {
-        result[offset++] = (byte) (0xc0 | (0x1f & (ch >> 6)));
-        result[offset++] = (byte) (0x80 | (0x3f & ch));
-      } else {
-        result[offset++] = (byte) (0xe0 | (0x0f & (ch >> 12)));
-        result[offset++] = (byte) (0x80 | (0x3f & (ch >> 6)));
-        result[offset++] = (byte) (0x80 | (0x3f & ch));
+      int length = mutf8Length(ch);
+      for (int j = 0; j < length; j++) {
+        result[offset++] = mutf8Byte(ch, length, j);
       }
     }
     result[offset] = 0;
     return result;
   }
 
+  // Returns the value of computeHashCode() for the DexString of the given string, without
+  // encoding the string.
+  static int computeHashCode(String string) {
+    int hash = 1;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      int length = mutf8Length(ch);
+      for (int j = 0; j < length; j++) {
+        hash = 31 * hash + mutf8Byte(ch, length, j);
+      }
+    }
+    // The terminating '0'.
+    hash = 31 * hash;
+    return string.length() * 7 + hash;
+  }
+
+  // Returns the value of computeHashCode() for the DexString with the given size and the content
+  // in the given range of the buffer.
+  static int computeHashCode(int size, byte[] buffer, int offset, int length) {
+    int hash = 1;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + buffer[i];
+    }
+    return size * 7 + hash;
+  }
+
+  // Returns true if this is the DexString of the given string, without encoding the string.
+  boolean contentEquals(String string) {
+    if (size != string.length()) {
+      return false;
+    }
+    // The encoding never contains a zero byte, so a longer string fails at the terminating '0'
+    // of the content at the latest.
+    int offset = 0;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      int length = mutf8Length(ch);
+      for (int j = 0; j < length; j++) {
+        if (content[offset++] != mutf8Byte(ch, length, j)) {
+          return false;
+        }
+      }
+    }
+    return offset == content.length - 1;
+  }
+
+  // Returns true if this is the DexString with the given size and the content in the given range
+  // of the buffer.
+  boolean contentEquals(int size, byte[] buffer, int offset, int length) {
+    if (this.size != size || content.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (content[i] != buffer[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public void collectIndexedItems(IndexedItemCollection indexedItems,
       DexMethod method, int instructionOffset) {
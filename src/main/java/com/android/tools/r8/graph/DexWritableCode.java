@@ -0,0 +1,36 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import java.nio.ShortBuffer;
+
+/** Code that can be written as a code item of a dex file by the FileWriter. */
+public interface DexWritableCode {
+
+  int getRegisterSize();
+
+  int getIncomingRegisterSize();
+
+  int getOutgoingRegisterSize();
+
+  Try[] getTries();
+
+  TryHandler[] getHandlers();
+
+  DexDebugInfoForWriting getDebugInfoForWriting();
+
+  /**
+   * Returns the highest sorting string referenced by a const-string instruction of this code, as
+   * computed by the last call to collectIndexedItems(), or null if there is no such string.
+   */
+  DexString getHighestSortingString();
+
+  /** Returns the size of the instructions in 16-bit code units. */
+  int getCodeSizeInUnits();
+
+  /** Writes the instructions using the indices of the given mapping. */
+  void writeInstructions(ShortBuffer dest, ObjectToOffsetMapping mapping);
+}
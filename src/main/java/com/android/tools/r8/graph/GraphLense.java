@@ -222,6 +222,7 @@ public abstract class GraphLense {
     private static final RewrittenPrototypeDescription none = new RewrittenPrototypeDescription();
 
     private final boolean hasBeenChangedToReturnVoid;
+    private final boolean hasBeenChangedToReturnPrimitive;
     private final RemovedArgumentsInfo removedArgumentsInfo;
 
     private RewrittenPrototypeDescription() {
@@ -230,8 +231,17 @@ public abstract class GraphLense {
 
     public RewrittenPrototypeDescription(
         boolean hasBeenChangedToReturnVoid, RemovedArgumentsInfo removedArgumentsInfo) {
+      this(hasBeenChangedToReturnVoid, false, removedArgumentsInfo);
+    }
+
+    private RewrittenPrototypeDescription(
+        boolean hasBeenChangedToReturnVoid,
+        boolean hasBeenChangedToReturnPrimitive,
+        RemovedArgumentsInfo removedArgumentsInfo) {
       assert removedArgumentsInfo != null;
+      assert !hasBeenChangedToReturnVoid || !hasBeenChangedToReturnPrimitive;
       this.hasBeenChangedToReturnVoid = hasBeenChangedToReturnVoid;
+      this.hasBeenChangedToReturnPrimitive = hasBeenChangedToReturnPrimitive;
       this.removedArgumentsInfo = removedArgumentsInfo;
     }
 
@@ -240,13 +250,24 @@ public abstract class GraphLense {
     }
 
     public boolean isEmpty() {
-      return !hasBeenChangedToReturnVoid && !getRemovedArgumentsInfo().hasRemovedArguments();
+      return !hasBeenChangedToReturnVoid
+          && !hasBeenChangedToReturnPrimitive
+          && !getRemovedArgumentsInfo().hasRemovedArguments();
     }
 
     public boolean hasBeenChangedToReturnVoid() {
       return hasBeenChangedToReturnVoid;
     }
 
+    /**
+     * Returns true if the return type of the method has been changed from a boxed type, such as
+     * {@link Integer}, to the corresponding primitive type. Invocations of the method must box the
+     * returned value if it is used as an object.
+     */
+    public boolean hasBeenChangedToReturnPrimitive() {
+      return hasBeenChangedToReturnPrimitive;
+    }
+
     public RemovedArgumentsInfo getRemovedArgumentsInfo() {
       return removedArgumentsInfo;
     }
@@ -268,7 +289,14 @@ public abstract class GraphLense {
     }
 
     public DexType rewriteReturnType(DexType returnType, DexItemFactory dexItemFactory) {
-      return hasBeenChangedToReturnVoid ? dexItemFactory.voidType : returnType;
+      if (hasBeenChangedToReturnVoid) {
+        return dexItemFactory.voidType;
+      }
+      if (hasBeenChangedToReturnPrimitive) {
+        assert dexItemFactory.getPrimitiveFromBoxed(returnType) != null;
+        return dexItemFactory.getPrimitiveFromBoxed(returnType);
+      }
+      return returnType;
     }
 
     public DexType[] rewriteParameters(DexType[] params) {
@@ -296,13 +324,22 @@ public abstract class GraphLense {
 
     public RewrittenPrototypeDescription withConstantReturn() {
       return !hasBeenChangedToReturnVoid
-          ? new RewrittenPrototypeDescription(true, removedArgumentsInfo)
+          ? new RewrittenPrototypeDescription(true, false, removedArgumentsInfo)
+          : this;
+    }
+
+    public RewrittenPrototypeDescription withPrimitiveReturn() {
+      assert !hasBeenChangedToReturnVoid;
+      return !hasBeenChangedToReturnPrimitive
+          ? new RewrittenPrototypeDescription(false, true, removedArgumentsInfo)
           : this;
     }
 
     public RewrittenPrototypeDescription withRemovedArguments(RemovedArgumentsInfo other) {
       return new RewrittenPrototypeDescription(
-          hasBeenChangedToReturnVoid, removedArgumentsInfo.combine(other));
+          hasBeenChangedToReturnVoid,
+          hasBeenChangedToReturnPrimitive,
+          removedArgumentsInfo.combine(other));
     }
   }
 
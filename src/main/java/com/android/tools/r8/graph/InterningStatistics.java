@@ -0,0 +1,102 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lookups in the interning tables of a {@link DexItemFactory}.
+ *
+ * <p>The tables are not locked, so instead of lock contention we count the number of times two
+ * threads concurrently created the same item and the item of one of them was discarded.
+ */
+public class InterningStatistics {
+
+  /** Counts the lookups in a single interning table. */
+  public static class Counter {
+
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder races = new LongAdder();
+
+    private Counter(String name) {
+      this.name = name;
+    }
+
+    void hit() {
+      hits.increment();
+    }
+
+    void insertion(boolean inserted) {
+      if (inserted) {
+        insertions.increment();
+      } else {
+        races.increment();
+      }
+    }
+
+    /** Returns the number of lookups that found an existing item. */
+    public long getHits() {
+      return hits.sum();
+    }
+
+    /** Returns the number of lookups that inserted a new item. */
+    public long getInsertions() {
+      return insertions.sum();
+    }
+
+    /** Returns the number of lookups that lost the race to insert a new item. */
+    public long getRaces() {
+      return races.sum();
+    }
+
+    private void print(PrintStream out) {
+      long hits = getHits();
+      long insertions = getInsertions();
+      long races = getRaces();
+      long lookups = hits + insertions + races;
+      out.println(
+          "  - "
+              + name
+              + ": "
+              + lookups
+              + " lookups, "
+              + hits
+              + " hits ("
+              + String.format("%.1f", lookups == 0 ? 0.0 : hits * 100.0 / lookups)
+              + "%), "
+              + insertions
+              + " insertions, "
+              + races
+              + " races.");
+    }
+  }
+
+  final Counter strings = new Counter("strings");
+  final Counter types = new Counter("types");
+  final Counter fields = new Counter("fields");
+  final Counter protos = new Counter("protos");
+  final Counter methods = new Counter("methods");
+  final Counter methodHandles = new Counter("method handles");
+
+  public Counter getStrings() {
+    return strings;
+  }
+
+  public Counter getTypes() {
+    return types;
+  }
+
+  public void print(PrintStream out) {
+    out.println("Interning statistics:");
+    strings.print(out);
+    types.print(out);
+    fields.print(out);
+    protos.print(out);
+    methods.print(out);
+    methodHandles.print(out);
+  }
+}
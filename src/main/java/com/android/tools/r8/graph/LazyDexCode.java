@@ -0,0 +1,428 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.code.ConstString;
+import com.android.tools.r8.code.ConstStringJumbo;
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.code.InstructionFactory;
+import com.android.tools.r8.code.InstructionScanner;
+import com.android.tools.r8.code.ReturnVoid;
+import com.android.tools.r8.dex.IndexedItemCollection;
+import com.android.tools.r8.dex.MixedSectionCollection;
+import com.android.tools.r8.errors.InternalCompilerError;
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Code item read from a dex file, which is kept as the raw code units until the instructions are
+ * needed.
+ *
+ * <p>When the code is read, the references of the instructions to indexed items are recorded in a
+ * side table. This allows the code to be written to a dex file by copying the code units and
+ * remapping the indices of the references, such that code that is passed through is never
+ * represented as {@link Instruction} objects. The instructions are decoded when the code is first
+ * accessed as {@link DexCode}, after which all operations are delegated to the decoded code.
+ */
+public class LazyDexCode extends Code implements DexWritableCode {
+
+  private final int registerSize;
+  private final int incomingRegisterSize;
+  private final int outgoingRegisterSize;
+  private final Try[] tries;
+  private final TryHandler[] handlers;
+  private final DexDebugInfo debugInfo;
+  private final int numberOfInstructions;
+
+  // The code units, and the offsets of the instructions that reference the indexed items in
+  // references. Released when the code is decoded.
+  private short[] units;
+  private int[] referenceOffsets;
+  private IndexedDexItem[] references;
+  private OffsetToObjectMapping mapping;
+
+  private DexString highestSortingString;
+  private DexDebugInfoForWriting debugInfoForWriting;
+
+  private volatile DexCode code;
+
+  public LazyDexCode(
+      int registerSize,
+      int insSize,
+      int outsSize,
+      short[] units,
+      Try[] tries,
+      TryHandler[] handlers,
+      DexDebugInfo debugInfo,
+      OffsetToObjectMapping mapping) {
+    this.registerSize = registerSize;
+    this.incomingRegisterSize = insSize;
+    this.outgoingRegisterSize = outsSize;
+    this.units = units;
+    this.tries = tries;
+    this.handlers = handlers;
+    this.debugInfo = debugInfo;
+    this.mapping = mapping;
+    // Find the references by scanning the code units, without decoding the instructions.
+    IntList offsets = new IntArrayList();
+    List<IndexedDexItem> items = new ArrayList<>();
+    this.numberOfInstructions =
+        InstructionScanner.scan(
+            units,
+            mapping,
+            (offset, item) -> {
+              offsets.add(offset);
+              items.add(item);
+            });
+    this.referenceOffsets = offsets.toIntArray();
+    this.references = items.toArray(new IndexedDexItem[items.size()]);
+    assert verifyReferences();
+  }
+
+  private boolean verifyReferences() {
+    ReferenceCollector collector = new ReferenceCollector();
+    Instruction[] instructions = decodeInstructions();
+    for (Instruction insn : instructions) {
+      collector.collect(insn);
+    }
+    assert numberOfInstructions == instructions.length;
+    assert Arrays.equals(referenceOffsets, collector.offsets.toIntArray());
+    assert collector.items.equals(Arrays.asList(references));
+    return true;
+  }
+
+  private Instruction[] decodeInstructions() {
+    return new InstructionFactory()
+        .readSequenceFrom(ShortBuffer.wrap(units), 0, units.length, mapping);
+  }
+
+  @Override
+  public boolean isDexCode() {
+    return true;
+  }
+
+  @Override
+  public DexCode asDexCode() {
+    DexCode code = this.code;
+    if (code == null) {
+      code = decode();
+    }
+    return code;
+  }
+
+  private synchronized DexCode decode() {
+    if (code == null) {
+      DexCode code =
+          new DexCode(
+              registerSize,
+              incomingRegisterSize,
+              outgoingRegisterSize,
+              decodeInstructions(),
+              tries,
+              handlers,
+              debugInfo);
+      code.highestSortingString = highestSortingString;
+      // Propagate the ownership of LazyDexCode to DexCode.
+      code.setOwner(getOwner());
+      this.code = code;
+      units = null;
+      referenceOffsets = null;
+      references = null;
+      mapping = null;
+    }
+    return code;
+  }
+
+  @Override
+  public DexWritableCode asDexWritableCode() {
+    return this;
+  }
+
+  @Override
+  public void setOwner(DexEncodedMethod encodedMethod) {
+    super.setOwner(encodedMethod);
+    DexCode code = this.code;
+    if (code != null) {
+      code.setOwner(encodedMethod);
+    }
+  }
+
+  @Override
+  protected int computeHashCode() {
+    return asDexCode().computeHashCode();
+  }
+
+  @Override
+  protected boolean computeEquals(Object other) {
+    if (other instanceof LazyDexCode) {
+      other = ((LazyDexCode) other).asDexCode();
+    }
+    return asDexCode().computeEquals(other);
+  }
+
+  @Override
+  public synchronized boolean isEmptyVoidMethod() {
+    if (code != null) {
+      return code.isEmptyVoidMethod();
+    }
+    return units.length == 1 && (units[0] & 0xff) == ReturnVoid.OPCODE;
+  }
+
+  @Override
+  public int estimatedSizeForInlining() {
+    return numberOfInstructions;
+  }
+
+  @Override
+  public IRCode buildIR(
+      DexEncodedMethod encodedMethod,
+      AppInfo appInfo,
+      GraphLense graphLense,
+      InternalOptions options,
+      Origin origin) {
+    assert getOwner() == encodedMethod;
+    return asDexCode().buildIR(encodedMethod, appInfo, graphLense, options, origin);
+  }
+
+  @Override
+  public IRCode buildInliningIR(
+      DexEncodedMethod context,
+      DexEncodedMethod encodedMethod,
+      AppInfo appInfo,
+      GraphLense graphLense,
+      InternalOptions options,
+      ValueNumberGenerator valueNumberGenerator,
+      Position callerPosition,
+      Origin origin) {
+    assert getOwner() == encodedMethod;
+    return asDexCode()
+        .buildInliningIR(
+            context,
+            encodedMethod,
+            appInfo,
+            graphLense,
+            options,
+            valueNumberGenerator,
+            callerPosition,
+            origin);
+  }
+
+  @Override
+  public void registerCodeReferences(UseRegistry registry) {
+    asDexCode().registerCodeReferences(registry);
+  }
+
+  @Override
+  public String toString() {
+    return asDexCode().toString();
+  }
+
+  @Override
+  public String toString(DexEncodedMethod method, ClassNameMapper naming) {
+    return asDexCode().toString(method, naming);
+  }
+
+  @Override
+  public int getRegisterSize() {
+    return registerSize;
+  }
+
+  @Override
+  public int getIncomingRegisterSize() {
+    return incomingRegisterSize;
+  }
+
+  @Override
+  public int getOutgoingRegisterSize() {
+    return outgoingRegisterSize;
+  }
+
+  @Override
+  public Try[] getTries() {
+    return tries;
+  }
+
+  @Override
+  public TryHandler[] getHandlers() {
+    return handlers;
+  }
+
+  @Override
+  public synchronized DexDebugInfoForWriting getDebugInfoForWriting() {
+    if (code != null) {
+      return code.getDebugInfoForWriting();
+    }
+    if (debugInfo == null) {
+      return null;
+    }
+    if (debugInfoForWriting == null) {
+      debugInfoForWriting = new DexDebugInfoForWriting(debugInfo);
+    }
+    return debugInfoForWriting;
+  }
+
+  @Override
+  public synchronized DexString getHighestSortingString() {
+    return code != null ? code.highestSortingString : highestSortingString;
+  }
+
+  @Override
+  public synchronized int getCodeSizeInUnits() {
+    return code != null ? code.getCodeSizeInUnits() : units.length;
+  }
+
+  @Override
+  public synchronized void writeInstructions(ShortBuffer dest, ObjectToOffsetMapping mapping) {
+    if (code != null) {
+      code.writeInstructions(dest, mapping);
+      return;
+    }
+    int start = dest.position();
+    dest.put(units);
+    for (int i = 0; i < references.length; i++) {
+      int offset = referenceOffsets[i];
+      int index = references[i].getOffset(mapping);
+      int opcode = units[offset] & 0xff;
+      if (opcode == ConstStringJumbo.OPCODE) {
+        dest.put(start + offset + 1, (short) (index & 0xffff));
+        dest.put(start + offset + 2, (short) ((index >> 16) & 0xffff));
+        continue;
+      }
+      if (opcode == ConstString.OPCODE && index != (index & 0xffff)) {
+        throw new InternalCompilerError("String-index overflow.");
+      }
+      assert index == (index & 0xffff);
+      // The proto of invoke-polymorphic is the second reference of the instruction, and is stored
+      // in the last code unit of the instruction.
+      boolean isProtoOfInvokePolymorphic = i > 0 && referenceOffsets[i - 1] == offset;
+      dest.put(start + offset + (isProtoOfInvokePolymorphic ? 3 : 1), (short) index);
+    }
+  }
+
+  @Override
+  public synchronized void collectIndexedItems(
+      IndexedItemCollection indexedItems, DexMethod method, int instructionOffset) {
+    if (code != null) {
+      code.collectIndexedItems(indexedItems, method, instructionOffset);
+      return;
+    }
+    assert instructionOffset == -1;
+    highestSortingString = null;
+    for (int i = 0; i < references.length; i++) {
+      IndexedDexItem item = references[i];
+      item.collectIndexedItems(indexedItems, method, referenceOffsets[i]);
+      int opcode = units[referenceOffsets[i]] & 0xff;
+      if (opcode == ConstString.OPCODE || opcode == ConstStringJumbo.OPCODE) {
+        updateHighestSortingString((DexString) item);
+      }
+    }
+    if (debugInfo != null) {
+      getDebugInfoForWriting().collectIndexedItems(indexedItems);
+    }
+    if (handlers != null) {
+      for (TryHandler handler : handlers) {
+        handler.collectIndexedItems(indexedItems);
+      }
+    }
+  }
+
+  private void updateHighestSortingString(DexString candidate) {
+    if (highestSortingString == null || highestSortingString.slowCompareTo(candidate) < 0) {
+      highestSortingString = candidate;
+    }
+  }
+
+  @Override
+  void collectMixedSectionItems(MixedSectionCollection mixedItems) {
+    // This code, and not the decoded code, is the code item that is written.
+    if (mixedItems.add(this)) {
+      DexDebugInfoForWriting debugInfoForWriting = getDebugInfoForWriting();
+      if (debugInfoForWriting != null) {
+        debugInfoForWriting.collectMixedSectionItems(mixedItems);
+      }
+    }
+  }
+
+  /**
+   * Records the indexed items that are referenced directly from the decoded instructions, which is
+   * used to check the references found by the {@link InstructionScanner}.
+   */
+  private static class ReferenceCollector implements IndexedItemCollection {
+
+    private final IntList offsets = new IntArrayList();
+    private final List<IndexedDexItem> items = new ArrayList<>();
+    private int offset;
+
+    void collect(Instruction insn) {
+      offset = insn.getOffset();
+      DexCallSite callSite = insn.getCallSite();
+      if (callSite != null) {
+        // Collecting a call site records the method that uses it, which is not known here.
+        add(callSite);
+      } else {
+        insn.collectIndexedItems(this, null, offset);
+      }
+    }
+
+    private boolean add(IndexedDexItem item) {
+      offsets.add(offset);
+      items.add(item);
+      // Returning false prevents the items that are referenced by the item from being collected.
+      return false;
+    }
+
+    @Override
+    public boolean addClass(DexProgramClass dexProgramClass) {
+      throw new Unreachable();
+    }
+
+    @Override
+    public boolean addField(DexField field) {
+      return add(field);
+    }
+
+    @Override
+    public boolean addMethod(DexMethod method) {
+      return add(method);
+    }
+
+    @Override
+    public boolean addString(DexString string) {
+      return add(string);
+    }
+
+    @Override
+    public boolean addProto(DexProto proto) {
+      return add(proto);
+    }
+
+    @Override
+    public boolean addType(DexType type) {
+      return add(type);
+    }
+
+    @Override
+    public boolean addCallSite(DexCallSite callSite) {
+      return add(callSite);
+    }
+
+    @Override
+    public boolean addMethodHandle(DexMethodHandle methodHandle) {
+      return add(methodHandle);
+    }
+  }
+}
@@ -5,14 +5,19 @@ package com.android.tools.r8.graph;
 
 import com.android.tools.r8.dex.Constants;
 import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.utils.StartupProfile;
+import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.objects.Reference2IntLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap.Entry;
 import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -21,6 +26,7 @@ public class ObjectToOffsetMapping {
   private final static int NOT_FOUND = -1;
   private final static int NOT_SET = -2;
 
+  private final StartupProfile startupProfile;
   private final DexProgramClass[] classes;
   private final Reference2IntMap<DexProto> protos;
   private final Reference2IntMap<DexType> types;
@@ -41,7 +47,32 @@ public class ObjectToOffsetMapping {
       Collection<DexString> strings,
       Collection<DexCallSite> callSites,
       Collection<DexMethodHandle> methodHandles) {
+    this(
+        application,
+        StartupProfile.empty(),
+        classes,
+        protos,
+        types,
+        methods,
+        fields,
+        strings,
+        callSites,
+        methodHandles);
+  }
+
+  public ObjectToOffsetMapping(
+      DexApplication application,
+      StartupProfile startupProfile,
+      Collection<DexProgramClass> classes,
+      Collection<DexProto> protos,
+      Collection<DexType> types,
+      Collection<DexMethod> methods,
+      Collection<DexField> fields,
+      Collection<DexString> strings,
+      Collection<DexCallSite> callSites,
+      Collection<DexMethodHandle> methodHandles) {
     assert application != null;
+    assert startupProfile != null;
     assert classes != null;
     assert protos != null;
     assert types != null;
@@ -51,7 +82,8 @@ public class ObjectToOffsetMapping {
     assert callSites != null;
     assert methodHandles != null;
 
-    this.classes = sortClasses(application, classes);
+    this.startupProfile = startupProfile;
+    this.classes = sortClasses(application, classes, startupProfile);
     this.protos = createMap(protos, this::failOnOverflow);
     this.types = createMap(types, this::failOnOverflow);
     this.methods = createMap(methods, this::failOnOverflow);
@@ -135,14 +167,23 @@ public class ObjectToOffsetMapping {
   }
 
   private static DexProgramClass[] sortClasses(DexApplication application,
-      Collection<DexProgramClass> classes) {
+      Collection<DexProgramClass> classes, StartupProfile startupProfile) {
     // Collect classes in subtyping order, based on a sorted list of classes to start with.
     ProgramClassDepthsMemoized classDepths = new ProgramClassDepthsMemoized(application);
+    // Startup classes go first. Their supertypes are loaded with them, so they count as startup
+    // classes as well, which also keeps the supertypes in front of the subtypes.
+    Set<DexProgramClass> startupClasses =
+        computeStartupClassesWithSupertypes(application, classes, startupProfile);
     List<DexProgramClass> sortedClasses =
         classes
             .stream()
             .sorted(
                 (x, y) -> {
+                  boolean sx = startupClasses.contains(x);
+                  boolean sy = startupClasses.contains(y);
+                  if (sx != sy) {
+                    return sx ? -1 : 1;
+                  }
                   int dx = classDepths.getDepth(x);
                   int dy = classDepths.getDepth(y);
                   return dx != dy ? dx - dy : x.type.compareTo(y.type);
@@ -151,6 +192,43 @@ public class ObjectToOffsetMapping {
     return sortedClasses.toArray(new DexProgramClass[sortedClasses.size()]);
   }
 
+  private static Set<DexProgramClass> computeStartupClassesWithSupertypes(
+      DexApplication application,
+      Collection<DexProgramClass> classes,
+      StartupProfile startupProfile) {
+    if (startupProfile.isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<DexProgramClass> startupClasses = Sets.newIdentityHashSet();
+    Deque<DexProgramClass> worklist = new ArrayDeque<>();
+    for (DexProgramClass clazz : classes) {
+      if (startupProfile.isStartupClass(clazz.type) && startupClasses.add(clazz)) {
+        worklist.add(clazz);
+      }
+    }
+    while (!worklist.isEmpty()) {
+      DexProgramClass clazz = worklist.removeFirst();
+      if (clazz.superType != null) {
+        addStartupSupertype(application, clazz.superType, startupClasses, worklist);
+      }
+      for (DexType iface : clazz.interfaces.values) {
+        addStartupSupertype(application, iface, startupClasses, worklist);
+      }
+    }
+    return startupClasses;
+  }
+
+  private static void addStartupSupertype(
+      DexApplication application,
+      DexType type,
+      Set<DexProgramClass> startupClasses,
+      Deque<DexProgramClass> worklist) {
+    DexProgramClass clazz = application.programDefinitionFor(type);
+    if (clazz != null && startupClasses.add(clazz)) {
+      worklist.add(clazz);
+    }
+  }
+
   private static <T> Collection<T> keysOrEmpty(Map<T, ?> map) {
     return map == null ? Collections.emptyList() : map.keySet();
   }
@@ -163,6 +241,10 @@ public class ObjectToOffsetMapping {
     return classes;
   }
 
+  public StartupProfile getStartupProfile() {
+    return startupProfile;
+  }
+
   public Collection<DexType> getTypes() {
     return keysOrEmpty(types);
   }
@@ -11,12 +11,6 @@ import java.util.BitSet;
 
 public interface OptimizationInfo {
 
-  enum InlinePreference {
-    NeverInline,
-    ForceInline,
-    Default
-  }
-
   ParameterUsage getParameterUsages(int parameter);
 
   BitSet getNonNullParamOrThrow();
@@ -53,5 +47,11 @@ public interface OptimizationInfo {
 
   boolean triggersClassInitBeforeAnySideEffect();
 
+  /**
+   * Returns true if this info may be shared between methods, in which case it must not be updated
+   * and {@link #mutableCopy} should be used to obtain an updatable info.
+   */
+  boolean isShared();
+
   UpdatableOptimizationInfo mutableCopy();
 }
@@ -0,0 +1,45 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.graph.DexEncodedMethod.DefaultOptimizationInfoImpl;
+import com.android.tools.r8.graph.DexEncodedMethod.OptimizationInfoImpl;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash-conses optimization infos such that methods with the same optimization facts share a single
+ * immutable instance.
+ *
+ * <p>Most methods end up with one of a few distinct infos, so interning the infos when they are
+ * published at the end of a wave keeps only one copy of each alive. An interned info must not be
+ * updated, see {@link OptimizationInfo#isShared}.
+ */
+public class OptimizationInfoTable {
+
+  private final ConcurrentHashMap<OptimizationInfoImpl, OptimizationInfoImpl> table =
+      new ConcurrentHashMap<>();
+
+  public OptimizationInfo intern(OptimizationInfo info) {
+    if (info.isShared()) {
+      return info;
+    }
+    assert info instanceof OptimizationInfoImpl;
+    OptimizationInfoImpl impl = (OptimizationInfoImpl) info;
+    if (impl.isDefault()) {
+      return DefaultOptimizationInfoImpl.DEFAULT_INSTANCE;
+    }
+    OptimizationInfoImpl existing = table.putIfAbsent(impl, impl);
+    if (existing != null) {
+      return existing;
+    }
+    // The info is now reachable from the table and must no longer change, since that would change
+    // its hash code.
+    impl.markInterned();
+    return impl;
+  }
+
+  public int size() {
+    return table.size();
+  }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -42,6 +43,17 @@ public final class ParameterUsagesInfo {
     return null;
   }
 
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ParameterUsagesInfo
+        && parametersUsages.equals(((ParameterUsagesInfo) other).parametersUsages);
+  }
+
+  @Override
+  public int hashCode() {
+    return parametersUsages.hashCode();
+  }
+
   public final static class ParameterUsage {
 
     public final int index;
@@ -87,6 +99,51 @@ public final class ParameterUsagesInfo {
           && !isAssignedToField
           && !isReturned;
     }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof ParameterUsage)) {
+        return false;
+      }
+      ParameterUsage usage = (ParameterUsage) other;
+      return index == usage.index
+          && hasFieldAssignment == usage.hasFieldAssignment
+          && hasFieldRead == usage.hasFieldRead
+          && isAssignedToField == usage.isAssignedToField
+          && isReturned == usage.isReturned
+          && ifZeroTest.equals(usage.ifZeroTest)
+          && callsReceiverEquals(usage.callsReceiver);
+    }
+
+    // Pair does not support equality, so compare the invoke types and the canonical methods.
+    private boolean callsReceiverEquals(List<Pair<Invoke.Type, DexMethod>> other) {
+      if (callsReceiver.size() != other.size()) {
+        return false;
+      }
+      for (int i = 0; i < callsReceiver.size(); i++) {
+        Pair<Invoke.Type, DexMethod> call = callsReceiver.get(i);
+        Pair<Invoke.Type, DexMethod> otherCall = other.get(i);
+        if (call.getFirst() != otherCall.getFirst() || call.getSecond() != otherCall.getSecond()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          index,
+          ifZeroTest,
+          callsReceiver.size(),
+          hasFieldAssignment,
+          hasFieldRead,
+          isAssignedToField,
+          isReturned);
+    }
   }
 
   public static class ParameterUsageBuilder {
@@ -32,6 +32,9 @@ import java.util.Arrays;
 public class ArrayGet extends Instruction implements ImpreciseMemberTypeInstruction {
 
   private MemberType type;
+  // Set when the array is known to be non-null and the index is known to be within the bounds of
+  // the array.
+  private boolean knownToBeInBounds = false;
 
   public ArrayGet(MemberType type, Value dest, Value array, Value index) {
     super(dest, Arrays.asList(array, index));
@@ -106,7 +109,11 @@ public class ArrayGet extends Instruction implements ImpreciseMemberTypeInstruct
 
   @Override
   public boolean identicalNonValueNonPositionParts(Instruction other) {
-    return other.isArrayGet() && other.asArrayGet().type == type;
+    // The bounds are only known where the access is guarded, so an access known to be in bounds
+    // cannot be shared with one that is not.
+    return other.isArrayGet()
+        && other.asArrayGet().type == type
+        && other.asArrayGet().knownToBeInBounds == knownToBeInBounds;
   }
 
   @Override
@@ -121,10 +128,22 @@ public class ArrayGet extends Instruction implements ImpreciseMemberTypeInstruct
 
   @Override
   public boolean instructionTypeCanThrow() {
-    // TODO: Determine if the array index out-of-bounds exception cannot happen.
     return true;
   }
 
+  @Override
+  public boolean instructionInstanceCanThrow() {
+    return !knownToBeInBounds;
+  }
+
+  public boolean isKnownToBeInBounds() {
+    return knownToBeInBounds;
+  }
+
+  public void markKnownToBeInBounds() {
+    knownToBeInBounds = true;
+  }
+
   @Override
   public boolean isArrayGet() {
     return true;
@@ -63,6 +63,11 @@ public class ArrayLength extends Instruction {
     return true;
   }
 
+  @Override
+  public boolean instructionInstanceCanThrow() {
+    return !array().isNeverNull();
+  }
+
   @Override
   public boolean identicalAfterRegisterAllocation(Instruction other, RegisterAllocator allocator) {
     if (super.identicalAfterRegisterAllocation(other, allocator)) {
@@ -33,6 +33,9 @@ public class ArrayPut extends Instruction implements ImpreciseMemberTypeInstruct
   private static final int VALUE_INDEX = 2;
 
   private MemberType type;
+  // Set when the array is known to be non-null and the index is known to be within the bounds of
+  // the array. Only used for primitive arrays, where the store cannot fail otherwise.
+  private boolean knownToBeInBounds = false;
 
   public ArrayPut(MemberType type, Value array, Value index, Value value) {
     super(null, Arrays.asList(array, index, value));
@@ -116,6 +119,9 @@ public class ArrayPut extends Instruction implements ImpreciseMemberTypeInstruct
 
   @Override
   public boolean instructionInstanceCanThrow() {
+    if (knownToBeInBounds) {
+      return false;
+    }
     if (index().isConstant() && !array().isPhi() && array().definition.isNewArrayEmpty()) {
       Value newArraySizeValue = array().definition.asNewArrayEmpty().size();
       if (newArraySizeValue.isConstant()) {
@@ -127,6 +133,15 @@ public class ArrayPut extends Instruction implements ImpreciseMemberTypeInstruct
     return true;
   }
 
+  public boolean isKnownToBeInBounds() {
+    return knownToBeInBounds;
+  }
+
+  public void markKnownToBeInBounds() {
+    assert type != MemberType.OBJECT;
+    knownToBeInBounds = true;
+  }
+
   @Override
   public boolean canBeDeadCode(AppInfo appInfo, IRCode code) {
     // ArrayPut has side-effects on input values.
@@ -143,7 +158,11 @@ public class ArrayPut extends Instruction implements ImpreciseMemberTypeInstruct
 
   @Override
   public boolean identicalNonValueNonPositionParts(Instruction other) {
-    return other.isArrayPut() && other.asArrayPut().type == type;
+    // The bounds are only known where the access is guarded, so an access known to be in bounds
+    // cannot be shared with one that is not.
+    return other.isArrayPut()
+        && other.asArrayPut().type == type
+        && other.asArrayPut().knownToBeInBounds == knownToBeInBounds;
   }
 
   @Override
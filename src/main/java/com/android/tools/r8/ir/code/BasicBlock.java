@@ -141,6 +141,10 @@ public class BasicBlock {
 
   private Set<BasicBlockChangeListener> onControlFlowEdgesMayChangeListeners = null;
 
+  // The analysis manager of the code that this block belongs to, if any analysis results that may
+  // depend on this block are cached.
+  private IRCodeAnalysisManager analysisManager = null;
+
   // Catch handler information about which successors are catch handlers and what their guards are.
   private CatchHandlers<Integer> catchHandlers = CatchHandlers.EMPTY_INDICES;
 
@@ -182,7 +186,24 @@ public class BasicBlock {
     return Collections.unmodifiableList(successors);
   }
 
+  void setAnalysisManager(IRCodeAnalysisManager analysisManager) {
+    this.analysisManager = analysisManager;
+  }
+
+  private void notifyAnalysisManagerOfControlFlowChange() {
+    if (analysisManager != null) {
+      analysisManager.onControlFlowMayChange();
+    }
+  }
+
+  void notifyAnalysisManagerOfInstructionChange() {
+    if (analysisManager != null) {
+      analysisManager.onInstructionsMayChange();
+    }
+  }
+
   public List<BasicBlock> getMutableSuccessors() {
+    notifyAnalysisManagerOfControlFlowChange();
     assert notifySuccessorsMayChangeListeners();
     return successors;
   }
@@ -213,6 +234,7 @@ public class BasicBlock {
   }
 
   public List<BasicBlock> getMutablePredecessors() {
+    notifyAnalysisManagerOfControlFlowChange();
     assert notifyPredecessorsMayChangeListeners();
     return predecessors;
   }
@@ -322,6 +344,7 @@ public class BasicBlock {
       } else if (exit().isIf()) {
         if (indexOfNewBlock >= successors.size() - 2 && indexOfOldBlock >= successors.size() - 2) {
           // New and old are true target and fallthrough, replace last instruction with a goto.
+          notifyAnalysisManagerOfInstructionChange();
           Instruction instruction = getInstructions().removeLast();
           // Iterate in reverse order to ensure that POP instructions are inserted in correct order.
           for (int i = instruction.inValues().size() - 1; i >= 0; i--) {
@@ -402,7 +425,6 @@ public class BasicBlock {
   public void replacePredecessor(BasicBlock block, BasicBlock newBlock) {
     for (int i = 0; i < predecessors.size(); i++) {
       if (predecessors.get(i) == block) {
-        assert notifyPredecessorsMayChangeListeners();
         getMutablePredecessors().set(i, newBlock);
         return;
       }
@@ -505,7 +527,12 @@ public class BasicBlock {
 
   public void setNumber(int number) {
     assert number >= 0;
-    this.number = number;
+    if (this.number != number) {
+      this.number = number;
+      if (analysisManager != null) {
+        analysisManager.onBlockNumberingChange();
+      }
+    }
   }
 
   public String getNumberAsString() {
@@ -1188,10 +1215,12 @@ public class BasicBlock {
     Instruction branch = exit();
     instructions.set(instructions.size() - 1, move);
     instructions.add(branch);
+    notifyAnalysisManagerOfInstructionChange();
   }
 
   public void setInstructions(LinkedList<Instruction> instructions) {
     this.instructions = instructions;
+    notifyAnalysisManagerOfInstructionChange();
   }
 
   /**
@@ -1583,6 +1612,7 @@ public class BasicBlock {
       exceptionType = move.getExceptionType();
       assert move.getDebugValues().isEmpty();
       getInstructions().remove(0);
+      notifyAnalysisManagerOfInstructionChange();
     }
     // Create new predecessor blocks.
     List<BasicBlock> newPredecessors = new ArrayList<>();
@@ -4,8 +4,6 @@
 
 package com.android.tools.r8.ir.code;
 
-import static com.android.tools.r8.ir.code.DominatorTree.Assumption.MAY_HAVE_UNREACHABLE_BLOCKS;
-
 import com.android.tools.r8.graph.AppInfo;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.ir.analysis.type.TypeAnalysis;
@@ -97,6 +95,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
       instruction.setPosition(position);
     }
     listIterator.add(instruction);
+    block.notifyAnalysisManagerOfInstructionChange();
   }
 
   /**
@@ -112,6 +111,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
     instruction.setBlock(block);
     assert instruction.getBlock() == block;
     listIterator.set(instruction);
+    block.notifyAnalysisManagerOfInstructionChange();
   }
 
   /**
@@ -145,6 +145,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
       }
     }
     listIterator.remove();
+    block.notifyAnalysisManagerOfInstructionChange();
     current = null;
   }
 
@@ -177,6 +178,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
     newInstruction.setPosition(current.getPosition());
     listIterator.remove();
     listIterator.add(newInstruction);
+    block.notifyAnalysisManagerOfInstructionChange();
     current.clearBlock();
   }
 
@@ -211,6 +213,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
       instruction.setBlock(newBlock);
       listIterator.remove();
     }
+    code.markInstructionsChanged();
 
     // Insert the new block in the block list right after the current block.
     if (blocksIterator == null) {
@@ -392,6 +395,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
         // Insert cast instruction into the new block.
         inlineEntry.getInstructions().addFirst(castInstruction);
         castInstruction.setBlock(inlineEntry);
+        inlinee.markInstructionsChanged();
         assert castInstruction.getBlock().getInstructions().size() == 2;
       } else {
         castInstruction.setBlock(entryBlock);
@@ -485,6 +489,8 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
     int blockNumber = code.getHighestBlockNumber() + 1;
     for (BasicBlock bb : inlinee.blocks) {
       bb.setNumber(blockNumber++);
+      // Modifications of the inlined blocks must be reported to the analyses of the caller.
+      bb.setAnalysisManager(code.getAnalysisManager());
       blocksIterator.add(bb);
     }
 
@@ -499,7 +505,7 @@ public class BasicBlockInstructionIterator implements InstructionIterator, Instr
     // catch handlers would otherwise be removed although they are not actually dead).
     if (normalExits.isEmpty()) {
       assert inlineeCanThrow;
-      DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+      DominatorTree dominatorTree = code.getDominatorTree();
       blocksToRemove.addAll(invokePredecessor.unlink(invokeBlock, dominatorTree));
     }
 
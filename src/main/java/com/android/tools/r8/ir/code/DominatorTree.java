@@ -8,10 +8,15 @@ import static com.android.tools.r8.ir.code.DominatorTree.Assumption.MAY_HAVE_UNR
 
 import com.android.tools.r8.ir.code.BasicBlock.BasicBlockChangeListener;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 public class DominatorTree implements BasicBlockChangeListener {
 
@@ -29,10 +34,33 @@ public class DominatorTree implements BasicBlockChangeListener {
   private BasicBlock[] doms;
   private final BasicBlock normalExitBlock = new BasicBlock();
 
+  // Pre- and post-order numbers of the blocks in a depth-first traversal of the dominator tree,
+  // indexed by block number. A block that is not in the dominator tree (i.e., an unreachable
+  // block) has the number -1.
+  private int[] preorder;
+  private int[] postorder;
+
+  // Lazily computed dominance frontier, indexed by block number.
+  private List<Set<BasicBlock>> dominanceFrontier = null;
+
   private final int unreachableStartIndex;
 
+  // The numbers of the blocks that are predecessors of the normal exit block.
+  private final BitSet normalExits = new BitSet();
+
+  // The modification counts of the analysis manager of the code when this tree was last known to
+  // be up to date, see isUpToDate(IRCode).
+  private final int blockNumberingChanges;
+  private int instructionChanges;
+
   private boolean obsolete = false;
 
+  /**
+   * Build the dominator tree for the given code.
+   *
+   * <p>Prefer {@link IRCode#getDominatorTree()}, which caches the dominator tree until the control
+   * flow graph changes.
+   */
   public DominatorTree(IRCode code) {
     this(code, Assumption.NO_UNREACHABLE_BLOCKS);
   }
@@ -78,12 +106,53 @@ public class DominatorTree implements BasicBlockChangeListener {
     }
     numberBlocks();
     build();
+    numberDominatorTree();
+    for (BasicBlock block : normalExitBlock.getPredecessors()) {
+      normalExits.set(block.getNumber());
+    }
+    IRCodeAnalysisManager analysisManager = code.getAnalysisManager();
+    blockNumberingChanges = analysisManager.getBlockNumberingChanges();
+    instructionChanges = analysisManager.getInstructionChanges();
 
     // This is intentionally implemented via an `assert` so that we do not attach listeners to all
     // basic blocks when running without assertions.
     assert recordChangesToControlFlowEdges(code.blocks);
   }
 
+  /**
+   * Returns true if this dominator tree can still be used for the given code, assuming that no
+   * control flow edges have changed, i.e., the block numbering is the one assigned by this tree,
+   * and the set of blocks that exit normally is unchanged.
+   *
+   * <p>The blocks are only inspected if instructions have changed since the last check.
+   */
+  boolean isUpToDate(IRCode code) {
+    IRCodeAnalysisManager analysisManager = code.getAnalysisManager();
+    if (obsolete
+        || code.blocks.size() + 1 != sorted.length
+        || analysisManager.getBlockNumberingChanges() != blockNumberingChanges) {
+      return false;
+    }
+    if (analysisManager.getInstructionChanges() != instructionChanges) {
+      if (!hasSameNormalExits(code)) {
+        return false;
+      }
+      instructionChanges = analysisManager.getInstructionChanges();
+    }
+    return true;
+  }
+
+  private boolean hasSameNormalExits(IRCode code) {
+    for (BasicBlock block : code.blocks) {
+      int number = block.getNumber();
+      boolean isNormalExit = number < unreachableStartIndex && block.exit().isReturn();
+      if (isNormalExit != normalExits.get(number)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Get the immediate dominator block for a block.
    */
@@ -116,19 +185,18 @@ public class DominatorTree implements BasicBlockChangeListener {
    */
   public boolean strictlyDominatedBy(BasicBlock subject, BasicBlock dominator) {
     assert !obsolete;
-    if (subject.getNumber() == 0 || subject == normalExitBlock) {
+    if (subject == dominator || subject.getNumber() == 0 || subject == normalExitBlock) {
       return false;
     }
-    while (true) {
-      BasicBlock idom = immediateDominator(subject);
-      if (idom.getNumber() < dominator.getNumber()) {
-        return false;
-      }
-      if (idom == dominator) {
-        return true;
-      }
-      subject = idom;
+    int subjectNumber = subject.getNumber();
+    int dominatorNumber = dominator.getNumber();
+    if (preorder[subjectNumber] < 0 || preorder[dominatorNumber] < 0) {
+      return false;
     }
+    // The subject is in the subtree rooted at the dominator iff its interval is nested inside the
+    // interval of the dominator.
+    return preorder[dominatorNumber] < preorder[subjectNumber]
+        && postorder[subjectNumber] < postorder[dominatorNumber];
   }
 
   /**
@@ -209,6 +277,20 @@ public class DominatorTree implements BasicBlockChangeListener {
     };
   }
 
+  /**
+   * Returns the dominance frontier of <code>block</code>, i.e., the set of blocks where the
+   * dominance of <code>block</code> ends.
+   *
+   * <p>The dominance frontier is computed for all blocks on the first invocation.
+   */
+  public Set<BasicBlock> dominanceFrontier(BasicBlock block) {
+    assert !obsolete;
+    if (dominanceFrontier == null) {
+      computeDominanceFrontier();
+    }
+    return dominanceFrontier.get(block.getNumber());
+  }
+
   public Iterable<BasicBlock> normalExitDominatorBlocks() {
     assert !obsolete;
     return dominatorBlocks(normalExitBlock);
@@ -224,6 +306,72 @@ public class DominatorTree implements BasicBlockChangeListener {
     }
   }
 
+  // Number the blocks in the order of a depth-first traversal of the dominator tree. A block d
+  // dominates a block b iff the interval [preorder(d), postorder(d)] contains the interval
+  // [preorder(b), postorder(b)], which allows answering dominance queries in constant time.
+  private void numberDominatorTree() {
+    int numberOfBlocks = sorted.length;
+    // Children of a block in the dominator tree as linked lists of block numbers.
+    int[] firstChild = new int[numberOfBlocks];
+    int[] nextSibling = new int[numberOfBlocks];
+    Arrays.fill(firstChild, -1);
+    for (int i = numberOfBlocks - 1; i > 0; i--) {
+      BasicBlock idom = doms[i];
+      if (idom != null) {
+        nextSibling[i] = firstChild[idom.getNumber()];
+        firstChild[idom.getNumber()] = i;
+      }
+    }
+    preorder = new int[numberOfBlocks];
+    postorder = new int[numberOfBlocks];
+    Arrays.fill(preorder, -1);
+    Arrays.fill(postorder, -1);
+    int[] stack = new int[numberOfBlocks];
+    int top = 0;
+    int counter = 0;
+    stack[top] = 0;
+    preorder[0] = counter++;
+    while (top >= 0) {
+      int current = stack[top];
+      int child = firstChild[current];
+      if (child >= 0) {
+        // Unlink the child such that it is only visited once.
+        firstChild[current] = nextSibling[child];
+        preorder[child] = counter++;
+        stack[++top] = child;
+      } else {
+        postorder[current] = counter++;
+        top--;
+      }
+    }
+  }
+
+  // Compute the dominance frontier based on the algorithm described in the paper referenced above
+  // build().
+  private void computeDominanceFrontier() {
+    dominanceFrontier = new ArrayList<>(sorted.length);
+    for (int i = 0; i < sorted.length; i++) {
+      dominanceFrontier.add(Sets.newIdentityHashSet());
+    }
+    for (int i = 0; i < unreachableStartIndex; i++) {
+      BasicBlock block = sorted[i];
+      if (block == normalExitBlock || block.getPredecessors().size() < 2 || doms[i] == null) {
+        continue;
+      }
+      BasicBlock idom = doms[i];
+      for (BasicBlock predecessor : block.getPredecessors()) {
+        BasicBlock runner = predecessor;
+        while (runner != idom && preorder[runner.getNumber()] >= 0) {
+          dominanceFrontier.get(runner.getNumber()).add(block);
+          runner = doms[runner.getNumber()];
+        }
+      }
+    }
+    for (int i = 0; i < sorted.length; i++) {
+      dominanceFrontier.set(i, Collections.unmodifiableSet(dominanceFrontier.get(i)));
+    }
+  }
+
   private boolean postorderCompareLess(BasicBlock b1, BasicBlock b2) {
     // The topological sort is reverse postorder.
     return b1.getNumber() > b2.getNumber();
@@ -96,6 +96,8 @@ public class IRCode {
   private boolean numbered = false;
   private int nextInstructionNumber = 0;
 
+  private final IRCodeAnalysisManager analysisManager;
+
   // Initial value indicating if the code does have actual positions on all throwing instructions.
   // If this is the case, which holds for javac code, then we want to ensure that it remains so.
   private boolean allThrowingInstructionsHavePositions;
@@ -127,6 +129,7 @@ public class IRCode {
     this.hasMonitorInstruction = hasMonitorInstruction;
     this.hasConstString = hasConstString;
     this.origin = origin;
+    this.analysisManager = new IRCodeAnalysisManager(this);
     // TODO(zerny): Remove or update this property now that all instructions have positions.
     allThrowingInstructionsHavePositions = computeAllThrowingInstructionsHavePositions();
   }
@@ -346,6 +349,8 @@ public class IRCode {
       }
     }
     blocks = tracedBlocks;
+    // The order of the blocks has changed.
+    analysisManager.invalidateAll();
     returnMarkingColor(color);
     assert noColorsInUse();
   }
@@ -406,6 +411,10 @@ public class IRCode {
    * no sorting.
    */
   public ImmutableList<BasicBlock> topologicallySortedBlocks() {
+    return analysisManager.get(IRCodeAnalysis.TOPOLOGICALLY_SORTED_BLOCKS);
+  }
+
+  ImmutableList<BasicBlock> computeTopologicallySortedBlocks() {
     ImmutableList<BasicBlock> ordered = depthFirstSorting();
     return options.testing.placeExceptionalBlocksLast
         ? reorderExceptionalBlocksLastForTesting(ordered)
@@ -720,6 +729,40 @@ public class IRCode {
     return new IRCodeInstructionsIterator(this);
   }
 
+  /**
+   * Returns the dominator tree of this code.
+   *
+   * <p>The dominator tree is cached, and only recomputed if the control flow graph or the block
+   * numbering has changed since the last call. Note that the dominator tree assigns new block
+   * numbers when it is (re)computed. The code may contain unreachable blocks, which are not part of
+   * the tree.
+   */
+  public DominatorTree getDominatorTree() {
+    return analysisManager.get(IRCodeAnalysis.DOMINATOR_TREE);
+  }
+
+  /** Returns the natural loops of this code, innermost loops first. The result is cached. */
+  public List<Loop> getLoops() {
+    return analysisManager.get(IRCodeAnalysis.LOOPS);
+  }
+
+  /** Returns the blocks that end with a return instruction. The result is cached. */
+  public List<BasicBlock> getNormalExitBlocks() {
+    return analysisManager.get(IRCodeAnalysis.NORMAL_EXIT_BLOCKS);
+  }
+
+  public IRCodeAnalysisManager getAnalysisManager() {
+    return analysisManager;
+  }
+
+  /**
+   * Must be called by passes that modify the instruction lists of blocks directly rather than via
+   * the instruction iterators, to invalidate cached analysis results that depend on instructions.
+   */
+  public void markInstructionsChanged() {
+    analysisManager.onInstructionsMayChange();
+  }
+
   public List<BasicBlock> computeNormalExitBlocks() {
     ImmutableList.Builder<BasicBlock> builder = ImmutableList.builder();
     for (BasicBlock block : blocks) {
@@ -0,0 +1,114 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import com.android.tools.r8.ir.code.DominatorTree.Assumption;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * An analysis of {@link IRCode} whose result is cached by the {@link IRCodeAnalysisManager} of the
+ * code until the code is modified.
+ *
+ * <p>An analysis is identified by its instance, so each analysis should only be instantiated once.
+ *
+ * <p>Type widening, see {@link com.android.tools.r8.ir.analysis.type.TypeAnalysis}, is not cached
+ * this way. It does not compute a result but updates the types of the values of the code in place,
+ * and it must be rerun after the users of a value are replaced, which does not change the
+ * instruction lists and is therefore not seen by the {@link IRCodeAnalysisManager}. Passes that
+ * only change some values already widen just the affected values.
+ */
+public abstract class IRCodeAnalysis<T> {
+
+  /** Describes which modifications of the code invalidate the result of an analysis. */
+  public enum Invalidation {
+    // The result only depends on the control flow graph.
+    CONTROL_FLOW,
+    // The result depends on the control flow graph and the instructions.
+    INSTRUCTIONS
+  }
+
+  public static final IRCodeAnalysis<DominatorTree> DOMINATOR_TREE =
+      new IRCodeAnalysis<DominatorTree>("Dominator tree", Invalidation.CONTROL_FLOW) {
+
+        @Override
+        public DominatorTree compute(IRCode code) {
+          return new DominatorTree(code, Assumption.MAY_HAVE_UNREACHABLE_BLOCKS);
+        }
+
+        @Override
+        public boolean isUpToDate(IRCode code, DominatorTree dominatorTree) {
+          // The block numbering may have changed without any changes to the control flow graph.
+          return dominatorTree.isUpToDate(code);
+        }
+      };
+
+  public static final IRCodeAnalysis<List<BasicBlock>> NORMAL_EXIT_BLOCKS =
+      new IRCodeAnalysis<List<BasicBlock>>("Normal exit blocks", Invalidation.INSTRUCTIONS) {
+
+        @Override
+        public List<BasicBlock> compute(IRCode code) {
+          return code.computeNormalExitBlocks();
+        }
+      };
+
+  public static final IRCodeAnalysis<ImmutableList<BasicBlock>> TOPOLOGICALLY_SORTED_BLOCKS =
+      new IRCodeAnalysis<ImmutableList<BasicBlock>>(
+          "Topologically sorted blocks", Invalidation.CONTROL_FLOW) {
+
+        @Override
+        public ImmutableList<BasicBlock> compute(IRCode code) {
+          return code.computeTopologicallySortedBlocks();
+        }
+
+        @Override
+        public boolean isUpToDate(IRCode code, ImmutableList<BasicBlock> blocks) {
+          // The order only depends on the entry block and the successors of the blocks, which are
+          // tracked by the analysis manager. When placing exceptional blocks last, the order also
+          // depends on the instructions.
+          return !code.options.testing.placeExceptionalBlocksLast;
+        }
+      };
+
+  public static final IRCodeAnalysis<List<Loop>> LOOPS =
+      new IRCodeAnalysis<List<Loop>>("Loops", Invalidation.CONTROL_FLOW) {
+
+        @Override
+        public List<Loop> compute(IRCode code) {
+          return Loop.computeLoops(code);
+        }
+      };
+
+  private final String name;
+  private final Invalidation invalidation;
+
+  protected IRCodeAnalysis(String name, Invalidation invalidation) {
+    this.name = name;
+    this.invalidation = invalidation;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Invalidation getInvalidation() {
+    return invalidation;
+  }
+
+  /** Computes the result of this analysis. The result must not be modified by clients. */
+  public abstract T compute(IRCode code);
+
+  /**
+   * Allows an analysis to reject a cached result for modifications that are not tracked by the
+   * {@link IRCodeAnalysisManager}.
+   */
+  public boolean isUpToDate(IRCode code, T result) {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import com.android.tools.r8.ir.code.IRCodeAnalysis.Invalidation;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Caches the results of {@link IRCodeAnalysis} instances for a single {@link IRCode}.
+ *
+ * <p>The cached results are dropped when the code is modified. Modifications of the control flow
+ * graph are reported by {@link BasicBlock#getMutableSuccessors()} and {@link
+ * BasicBlock#getMutablePredecessors()}, and modifications of the instructions are reported by the
+ * instruction iterators. Passes that modify the instruction lists of blocks directly must call
+ * {@link IRCode#markInstructionsChanged()}.
+ */
+public class IRCodeAnalysisManager {
+
+  private final IRCode code;
+
+  private final Map<IRCodeAnalysis<?>, Object> results = new IdentityHashMap<>();
+  private boolean hasResultsDependingOnInstructions = false;
+
+  // The number of blocks and the entry block of the code when the blocks were last registered with
+  // this manager.
+  private int numberOfRegisteredBlocks = -1;
+  private BasicBlock registeredEntryBlock = null;
+
+  // The number of modifications that do not invalidate any cached results by themselves. Analyses
+  // can compare these counts in IRCodeAnalysis.isUpToDate() to avoid inspecting the code.
+  private int blockNumberingChanges = 0;
+  private int instructionChanges = 0;
+
+  // Instrumentation of how often each analysis is requested and computed, only collected when
+  // the statistics are printed.
+  private final Reference2IntMap<IRCodeAnalysis<?>> requests;
+  private final Reference2IntMap<IRCodeAnalysis<?>> computations;
+
+  IRCodeAnalysisManager(IRCode code) {
+    this.code = code;
+    if (code.options.printIRAnalysisStatistics) {
+      requests = new Reference2IntOpenHashMap<>();
+      computations = new Reference2IntOpenHashMap<>();
+    } else {
+      requests = null;
+      computations = null;
+    }
+  }
+
+  /** Returns the result of the given analysis, which is computed if it is not already cached. */
+  public <T> T get(IRCodeAnalysis<T> analysis) {
+    if (requests != null) {
+      requests.put(analysis, requests.getInt(analysis) + 1);
+    }
+    if (numberOfRegisteredBlocks != code.blocks.size()
+        || registeredEntryBlock != code.blocks.getFirst()) {
+      // Blocks have been added, removed or replaced without modifying the control flow of the
+      // blocks that are registered with this manager.
+      invalidateAll();
+    }
+    @SuppressWarnings("unchecked")
+    T result = (T) results.get(analysis);
+    if (result == null || !analysis.isUpToDate(code, result)) {
+      result = analysis.compute(code);
+      if (computations != null) {
+        computations.put(analysis, computations.getInt(analysis) + 1);
+      }
+      results.put(analysis, result);
+      if (analysis.getInvalidation() == Invalidation.INSTRUCTIONS) {
+        hasResultsDependingOnInstructions = true;
+      }
+      registerBlocks();
+    }
+    return result;
+  }
+
+  public void invalidateAll() {
+    results.clear();
+    hasResultsDependingOnInstructions = false;
+  }
+
+  void onControlFlowMayChange() {
+    if (!results.isEmpty()) {
+      invalidateAll();
+    }
+  }
+
+  void onInstructionsMayChange() {
+    instructionChanges++;
+    if (hasResultsDependingOnInstructions) {
+      results.keySet().removeIf(
+          analysis -> analysis.getInvalidation() == Invalidation.INSTRUCTIONS);
+      hasResultsDependingOnInstructions = false;
+    }
+  }
+
+  void onBlockNumberingChange() {
+    blockNumberingChanges++;
+  }
+
+  int getBlockNumberingChanges() {
+    return blockNumberingChanges;
+  }
+
+  int getInstructionChanges() {
+    return instructionChanges;
+  }
+
+  private void registerBlocks() {
+    // Blocks that are added to the code later on are registered when the next result is computed.
+    // Until then there are no cached results, since adding a block to the control flow graph
+    // modifies the edges of one of the registered blocks.
+    for (BasicBlock block : code.blocks) {
+      block.setAnalysisManager(this);
+    }
+    numberOfRegisteredBlocks = code.blocks.size();
+    registeredEntryBlock = code.blocks.getFirst();
+  }
+
+  /** Reports the number of requests and computations of each analysis that has been requested. */
+  public void forEachAnalysis(AnalysisStatisticsConsumer consumer) {
+    if (requests != null) {
+      requests.forEach(
+          (analysis, count) -> consumer.accept(analysis, count, computations.getInt(analysis)));
+    }
+  }
+
+  public interface AnalysisStatisticsConsumer {
+    void accept(IRCodeAnalysis<?> analysis, int requests, int computations);
+  }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Aggregates how often each {@link IRCodeAnalysis} is requested and computed per method. */
+public class IRCodeAnalysisStatistics {
+
+  private static class Entry {
+    int methods = 0;
+    long requests = 0;
+    long computations = 0;
+    int maxComputationsPerMethod = 0;
+  }
+
+  private final Map<String, Entry> entries = new TreeMap<>();
+
+  public synchronized void record(IRCodeAnalysisManager analysisManager) {
+    analysisManager.forEachAnalysis(
+        (analysis, requests, computations) -> {
+          Entry entry = entries.computeIfAbsent(analysis.getName(), ignore -> new Entry());
+          entry.methods++;
+          entry.requests += requests;
+          entry.computations += computations;
+          entry.maxComputationsPerMethod =
+              Math.max(entry.maxComputationsPerMethod, computations);
+        });
+  }
+
+  public synchronized void print(PrintStream out) {
+    out.println("IR analysis statistics:");
+    entries.forEach(
+        (name, entry) ->
+            out.println(
+                "  - "
+                    + name
+                    + ": "
+                    + entry.methods
+                    + " methods, "
+                    + entry.requests
+                    + " requests, "
+                    + entry.computations
+                    + " computations ("
+                    + String.format("%.2f", (double) entry.computations / entry.methods)
+                    + " per method, max "
+                    + entry.maxComputationsPerMethod
+                    + ")."));
+  }
+}
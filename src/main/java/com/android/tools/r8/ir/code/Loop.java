@@ -0,0 +1,121 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.code;
+
+import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A natural loop of {@link IRCode}.
+ *
+ * <p>A back edge is an edge whose target dominates its source. The natural loop of a header block
+ * consists of the header and all blocks that can reach the source of one of the back edges to the
+ * header without passing through the header. All blocks of the loop are dominated by the header.
+ */
+public class Loop {
+
+  private final BasicBlock header;
+  private final List<BasicBlock> backEdgeSources = new ArrayList<>();
+  private final Set<BasicBlock> blocks = Sets.newIdentityHashSet();
+
+  private Loop(BasicBlock header) {
+    this.header = header;
+    blocks.add(header);
+  }
+
+  public BasicBlock getHeader() {
+    return header;
+  }
+
+  /** Returns the blocks that end with a back edge to the header. */
+  public List<BasicBlock> getBackEdgeSources() {
+    return backEdgeSources;
+  }
+
+  public Set<BasicBlock> getBlocks() {
+    return blocks;
+  }
+
+  public boolean contains(BasicBlock block) {
+    return blocks.contains(block);
+  }
+
+  /** Returns true if the value is defined outside of the loop. */
+  public boolean isInvariant(Value value) {
+    BasicBlock block = value.isPhi() ? value.asPhi().getBlock() : value.definition.getBlock();
+    return !contains(block);
+  }
+
+  /** Returns the predecessors of the header that are not in the loop. */
+  public List<BasicBlock> getEntryBlocks() {
+    List<BasicBlock> entryBlocks = new ArrayList<>();
+    for (BasicBlock predecessor : header.getPredecessors()) {
+      if (!contains(predecessor)) {
+        entryBlocks.add(predecessor);
+      }
+    }
+    return entryBlocks;
+  }
+
+  /** Must be called when a block is inserted into the loop. */
+  public void addBlock(BasicBlock block) {
+    blocks.add(block);
+  }
+
+  /**
+   * Returns the natural loops of the code, innermost loops first. Loops that share a header are
+   * merged into a single loop.
+   */
+  public static List<Loop> computeLoops(IRCode code) {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    Map<BasicBlock, Loop> loops = new LinkedHashMap<>();
+    for (BasicBlock block : code.blocks) {
+      for (BasicBlock successor : block.getSuccessors()) {
+        if (dominatorTree.dominatedBy(block, successor)) {
+          loops.computeIfAbsent(successor, Loop::new).backEdgeSources.add(block);
+        }
+      }
+    }
+    if (loops.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<Loop> result = new ArrayList<>(loops.values());
+    for (Loop loop : result) {
+      loop.computeBlocks(dominatorTree);
+    }
+    // Inner loops are contained in their outer loops, so sorting by size places them first.
+    result.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+    return result;
+  }
+
+  private void computeBlocks(DominatorTree dominatorTree) {
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    for (BasicBlock source : backEdgeSources) {
+      if (blocks.add(source)) {
+        worklist.add(source);
+      }
+    }
+    while (!worklist.isEmpty()) {
+      BasicBlock block = worklist.removeFirst();
+      for (BasicBlock predecessor : block.getPredecessors()) {
+        // Unreachable blocks may jump into the loop, but are not part of it.
+        if (dominatorTree.dominatedBy(predecessor, header) && blocks.add(predecessor)) {
+          worklist.add(predecessor);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Loop(header: " + header.getNumber() + ", blocks: " + blocks.size() + ")";
+  }
+}
@@ -27,6 +27,7 @@ import com.android.tools.r8.code.MoveResultObject;
 import com.android.tools.r8.code.MoveResultWide;
 import com.android.tools.r8.code.SwitchPayload;
 import com.android.tools.r8.code.Throw;
+import com.android.tools.r8.errors.Unreachable;
 import com.android.tools.r8.graph.AppInfo;
 import com.android.tools.r8.graph.DebugLocalInfo;
 import com.android.tools.r8.graph.DexCode;
@@ -47,11 +48,9 @@ import com.android.tools.r8.ir.code.CanonicalPositions;
 import com.android.tools.r8.ir.code.CatchHandlers;
 import com.android.tools.r8.ir.code.Position;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 import java.util.Set;
 
 public class DexSourceCode implements SourceCode {
@@ -59,9 +58,6 @@ public class DexSourceCode implements SourceCode {
   private final DexCode code;
   private final DexEncodedMethod method;
 
-  // Mapping from instruction offset to instruction index in the DexCode instruction array.
-  private final Map<Integer, Integer> offsetToInstructionIndex = new HashMap<>();
-
   private final SwitchPayloadResolver switchPayloadResolver = new SwitchPayloadResolver();
   private final ArrayFilledDataPayloadResolver arrayFilledDataPayloadResolver =
       new ArrayFilledDataPayloadResolver();
@@ -88,7 +84,11 @@ public class DexSourceCode implements SourceCode {
     this.originalMethod = originalMethod;
     DexDebugInfo info = code.getDebugInfo();
     if (info != null) {
-      debugEntries = info.computeEntries(originalMethod);
+      // When inlining, the same code is typically built for many call sites.
+      debugEntries =
+          callerPosition != null
+              ? code.getDebugEntriesForInlining(originalMethod)
+              : info.computeEntries(originalMethod);
     }
     canonicalPositions =
         new CanonicalPositions(
@@ -125,9 +125,7 @@ public class DexSourceCode implements SourceCode {
   @Override
   public void setUp() {
     // Collect all payloads in the instruction stream.
-    for (int index = 0; index < code.instructions.length; index++) {
-      Instruction insn = code.instructions[index];
-      offsetToInstructionIndex.put(insn.getOffset(), index);
+    for (Instruction insn : code.instructions) {
       if (insn.isPayload()) {
         if (insn.isSwitchPayload()) {
           switchPayloadResolver.resolve((SwitchPayload) insn);
@@ -262,16 +260,22 @@ public class DexSourceCode implements SourceCode {
   }
 
   private DexDebugEntry getDebugEntryAtOffset(int offset) {
-    DexDebugEntry current = null;
-    if (debugEntries != null) {
-      for (DexDebugEntry entry : debugEntries) {
-        if (entry.address > offset) {
-          break;
-        }
-        current = entry;
+    if (debugEntries == null) {
+      return null;
+    }
+    // Find the last entry whose address is not after the offset. The entries are sorted by
+    // address.
+    int low = 0;
+    int high = debugEntries.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (debugEntries.get(mid).address > offset) {
+        high = mid;
+      } else {
+        low = mid + 1;
       }
     }
-    return current;
+    return low == 0 ? null : debugEntries.get(low - 1);
   }
 
   private void updateDebugPosition(int instructionIndex, IRBuilder builder) {
@@ -311,7 +315,23 @@ public class DexSourceCode implements SourceCode {
 
   @Override
   public int instructionIndex(int instructionOffset) {
-    return offsetToInstructionIndex.get(instructionOffset);
+    // The instructions are sorted by offset, so there is no need to build an index for each IR
+    // that is built from the code.
+    Instruction[] instructions = code.instructions;
+    int low = 0;
+    int high = instructions.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int offset = instructions[mid].getOffset();
+      if (offset < instructionOffset) {
+        low = mid + 1;
+      } else if (offset > instructionOffset) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    throw new Unreachable("No instruction at offset " + instructionOffset);
   }
 
   @Override
@@ -382,7 +402,7 @@ public class DexSourceCode implements SourceCode {
       if (tryRange != null) {
         // Ensure the block starts at the start of the try-range (don't enqueue, not a target).
         int tryRangeStartAddress = tryRange.startAddress;
-        if (isMoveResult(code.instructions[offsetToInstructionIndex.get(tryRangeStartAddress)])) {
+        if (isMoveResult(code.instructions[instructionIndex(tryRangeStartAddress)])) {
           // If a handler range starts at a move result instruction it is safe to start it at
           // the following instruction since the move-result cannot throw an exception. Doing so
           // makes sure that we do not split an invoke and its move result instruction across
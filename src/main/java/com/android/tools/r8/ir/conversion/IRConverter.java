@@ -33,6 +33,7 @@ import com.android.tools.r8.ir.code.AlwaysMaterializingDefinition;
 import com.android.tools.r8.ir.code.AlwaysMaterializingUser;
 import com.android.tools.r8.ir.code.BasicBlock;
 import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.IRCodeAnalysisStatistics;
 import com.android.tools.r8.ir.code.Instruction;
 import com.android.tools.r8.ir.code.InstructionListIterator;
 import com.android.tools.r8.ir.code.InvokeStatic;
@@ -44,6 +45,7 @@ import com.android.tools.r8.ir.desugar.Java8MethodRewriter;
 import com.android.tools.r8.ir.desugar.LambdaRewriter;
 import com.android.tools.r8.ir.desugar.StringConcatRewriter;
 import com.android.tools.r8.ir.desugar.TwrCloseResourceRewriter;
+import com.android.tools.r8.ir.optimize.BoundsCheckElimination;
 import com.android.tools.r8.ir.optimize.CodeRewriter;
 import com.android.tools.r8.ir.optimize.ConstantCanonicalizer;
 import com.android.tools.r8.ir.optimize.DeadCodeRemover;
@@ -51,6 +53,7 @@ import com.android.tools.r8.ir.optimize.Devirtualizer;
 import com.android.tools.r8.ir.optimize.IdempotentFunctionCallCanonicalizer;
 import com.android.tools.r8.ir.optimize.Inliner;
 import com.android.tools.r8.ir.optimize.Inliner.ConstraintWithTarget;
+import com.android.tools.r8.ir.optimize.LoopInvariantCodeMotion;
 import com.android.tools.r8.ir.optimize.MemberValuePropagation;
 import com.android.tools.r8.ir.optimize.NonNullTracker;
 import com.android.tools.r8.ir.optimize.Outliner;
@@ -61,6 +64,7 @@ import com.android.tools.r8.ir.optimize.UninstantiatedTypeOptimization;
 import com.android.tools.r8.ir.optimize.classinliner.ClassInliner;
 import com.android.tools.r8.ir.optimize.lambda.LambdaMerger;
 import com.android.tools.r8.ir.optimize.staticizer.ClassStaticizer;
+import com.android.tools.r8.ir.optimize.string.StringBuilderOptimizer;
 import com.android.tools.r8.ir.optimize.string.StringOptimizer;
 import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
 import com.android.tools.r8.ir.regalloc.RegisterAllocator;
@@ -82,6 +86,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
 import java.util.ArrayList;
@@ -135,9 +140,11 @@ public class IRConverter {
   private final Devirtualizer devirtualizer;
   private final CovariantReturnTypeAnnotationTransformer covariantReturnTypeAnnotationTransformer;
   private final StringOptimizer stringOptimizer;
+  private final StringBuilderOptimizer stringBuilderOptimizer;
   private final UninstantiatedTypeOptimization uninstantiatedTypeOptimization;
   private final TypeChecker typeChecker;
   private final IdempotentFunctionCallCanonicalizer idempotentFunctionCallCanonicalizer;
+  private final LoopInvariantCodeMotion loopInvariantCodeMotion;
 
   final DeadCodeRemover deadCodeRemover;
 
@@ -147,6 +154,7 @@ public class IRConverter {
       new OptimizationFeedbackDelayed();
   private final OptimizationFeedback ignoreOptimizationFeedback = new OptimizationFeedbackIgnore();
   private final OptimizationFeedback simpleOptimizationFeedback = new OptimizationFeedbackSimple();
+  private final IRCodeAnalysisStatistics analysisStatistics;
   private DexString highestSortingString;
 
   // For some optimizations, e.g. optimizing synthetic classes, we may need to resolve
@@ -175,6 +183,8 @@ public class IRConverter {
     this.rootSet = rootSet;
     this.options = options;
     this.printer = printer;
+    this.analysisStatistics =
+        options.printIRAnalysisStatistics ? new IRCodeAnalysisStatistics() : null;
     this.mainDexClasses = mainDexClasses.getClasses();
     this.codeRewriter = new CodeRewriter(this, libraryMethodsReturningReceiver(), options);
     this.stringConcatRewriter = new StringConcatRewriter(appInfo);
@@ -195,6 +205,8 @@ public class IRConverter {
             ? new CovariantReturnTypeAnnotationTransformer(this, appInfo.dexItemFactory)
             : null;
     this.stringOptimizer = new StringOptimizer(appInfo, options.getInternalOutputMode());
+    this.stringBuilderOptimizer =
+        new StringBuilderOptimizer(appInfo, options.getInternalOutputMode());
     this.enableWholeProgramOptimizations = appView != null;
     if (enableWholeProgramOptimizations) {
       assert appInfo.hasLiveness();
@@ -221,6 +233,10 @@ public class IRConverter {
               ? new UninstantiatedTypeOptimization(appViewWithLiveness, options)
               : null;
       this.typeChecker = new TypeChecker(appView);
+      this.loopInvariantCodeMotion =
+          options.enableLoopInvariantCodeMotion
+              ? new LoopInvariantCodeMotion(appViewWithLiveness)
+              : null;
     } else {
       this.nonNullTracker = null;
       this.inliner = null;
@@ -231,6 +247,7 @@ public class IRConverter {
       this.devirtualizer = null;
       this.uninstantiatedTypeOptimization = null;
       this.typeChecker = null;
+      this.loopInvariantCodeMotion = null;
     }
     this.classInliner =
         (options.enableClassInlining && options.enableInlining && inliner != null)
@@ -328,8 +345,12 @@ public class IRConverter {
   }
 
   private void removeLambdaDeserializationMethods() {
+    removeLambdaDeserializationMethods(appInfo.classes());
+  }
+
+  private void removeLambdaDeserializationMethods(Iterable<DexProgramClass> classes) {
     if (lambdaRewriter != null) {
-      lambdaRewriter.removeLambdaDeserializationMethods(appInfo.classes());
+      lambdaRewriter.removeLambdaDeserializationMethods(classes);
     }
   }
 
@@ -413,6 +434,101 @@ public class IRConverter {
     handleSynthesizedClassMapping(builder);
     timing.end();
 
+    printAnalysisStatistics();
+    return builder.build();
+  }
+
+  /**
+   * Splits the program classes into the windows that are converted one after the other by {@link
+   * #convertWindowToDex}. Each window has at most {@code windowSize} classes.
+   *
+   * <p>The classes are in input order, except that the program superclasses of a class are moved
+   * before it, since the methods that desugaring of default interface methods adds to a class
+   * depend on the methods added to its superclasses. The interfaces form the last window, since
+   * the desugaring of default interface methods in the classes, and in the interfaces themselves,
+   * must see the interfaces before their default methods are moved to companion classes. Without
+   * interface method desugaring the interfaces are split like the classes.
+   */
+  public List<List<DexProgramClass>> computeDexConversionWindows(
+      DexApplication application, int windowSize) {
+    assert windowSize > 0;
+    List<DexProgramClass> classes = new ArrayList<>();
+    List<DexProgramClass> interfaces = new ArrayList<>();
+    Set<DexProgramClass> seen = Sets.newIdentityHashSet();
+    for (DexProgramClass clazz : application.classes()) {
+      if (clazz.isInterface()) {
+        interfaces.add(clazz);
+      } else {
+        addWithProgramSuperclasses(clazz, classes, seen);
+      }
+    }
+    List<List<DexProgramClass>> windows = new ArrayList<>(Lists.partition(classes, windowSize));
+    if (!interfaces.isEmpty()) {
+      if (interfaceMethodRewriter == null) {
+        windows.addAll(Lists.partition(interfaces, windowSize));
+      } else {
+        windows.add(interfaces);
+      }
+    }
+    return windows;
+  }
+
+  private void addWithProgramSuperclasses(
+      DexProgramClass clazz, List<DexProgramClass> classes, Set<DexProgramClass> seen) {
+    if (!seen.add(clazz)) {
+      return;
+    }
+    if (clazz.superType != null) {
+      DexClass superClass = appInfo.definitionFor(clazz.superType);
+      if (superClass != null && superClass.isProgramClass() && !superClass.isInterface()) {
+        addWithProgramSuperclasses(superClass.asProgramClass(), classes, seen);
+      }
+    }
+    classes.add(clazz);
+  }
+
+  /**
+   * Converts one of the windows computed by {@link #computeDexConversionWindows} to dex, and
+   * returns an application with the classes of the window and the classes synthesized for them.
+   *
+   * <p>Desugaring is performed as in {@link #convertToDex}, except that the classes that are
+   * synthesized for several classes, such as the utility classes, are synthesized for each window
+   * that uses them. The windows must be converted in order.
+   */
+  public DexApplication convertWindowToDex(
+      DexApplication application, List<DexProgramClass> window, ExecutorService executor)
+      throws ExecutionException {
+    removeLambdaDeserializationMethods(window);
+
+    timing.begin("IR conversion");
+    highestSortingString = null;
+    convertClassesToDex(window, executor);
+
+    Builder<?> builder = application.builder().replaceProgramClasses(window);
+    builder.setHighestSortingString(highestSortingString);
+
+    synthesizeLambdaClasses(builder, executor);
+    if (interfaceMethodRewriter != null) {
+      interfaceMethodRewriter.desugarInterfaceMethodsOfWindow(
+          builder, ExcludeDexResources, executor);
+    }
+    synthesizeTwrCloseResourceUtilityClass(builder);
+    synthesizeJava8UtilityClass(builder);
+    processCovariantReturnTypeAnnotations(builder);
+
+    handleSynthesizedClassMapping(builder);
+
+    // Start the next window without the classes synthesized for this window.
+    if (lambdaRewriter != null) {
+      lambdaRewriter.clearLambdaClasses();
+    }
+    if (twrCloseResourceRewriter != null) {
+      twrCloseResourceRewriter.clearReferencingClasses();
+    }
+    if (java8MethodRewriter != null) {
+      java8MethodRewriter.clearUtilityMethods();
+    }
+    timing.end();
     return builder.build();
   }
 
@@ -498,7 +614,7 @@ public class IRConverter {
     // When converting all methods on a class always convert <clinit> first.
     for (DexEncodedMethod method : clazz.directMethods()) {
       if (method.isClassInitializer()) {
-        method.getMutableOptimizationInfo().setReachabilitySensitive(isReachabilitySensitive);
+        setReachabilitySensitive(method, isReachabilitySensitive);
         convertMethodToDex(method);
         break;
       }
@@ -506,7 +622,7 @@ public class IRConverter {
     clazz.forEachMethod(
         method -> {
           if (!method.isClassInitializer()) {
-            method.getMutableOptimizationInfo().setReachabilitySensitive(isReachabilitySensitive);
+            setReachabilitySensitive(method, isReachabilitySensitive);
             convertMethodToDex(method);
           }
         });
@@ -639,9 +755,24 @@ public class IRConverter {
       uninstantiatedTypeOptimization.logResults();
     }
 
+    printAnalysisStatistics();
     return builder.build();
   }
 
+  private void printAnalysisStatistics() {
+    if (analysisStatistics != null) {
+      analysisStatistics.print(System.out);
+    }
+  }
+
+  private static void setReachabilitySensitive(
+      DexEncodedMethod method, boolean isReachabilitySensitive) {
+    // Avoid allocating a private optimization info for methods that keep the shared default info.
+    if (method.getOptimizationInfo().isReachabilitySensitive() != isReachabilitySensitive) {
+      method.getMutableOptimizationInfo().setReachabilitySensitive(isReachabilitySensitive);
+    }
+  }
+
   private void computeReachabilitySensitivity(DexApplication application) {
     application.classes().forEach(c -> {
       if (c.hasReachabilitySensitiveAnnotation(options.itemFactory)) {
@@ -953,6 +1084,9 @@ public class IRConverter {
     if (options.enableSwitchMapRemoval && appInfo.hasLiveness()) {
       codeRewriter.removeSwitchMaps(code);
     }
+    if (options.enableEnumValueOptimization && appInfo.hasLiveness()) {
+      codeRewriter.rewriteEnumConstantOperations(code);
+    }
     if (options.disableAssertions) {
       codeRewriter.disableAssertions(appInfo, method, code, feedback);
     }
@@ -1003,6 +1137,9 @@ public class IRConverter {
         code, enableWholeProgramOptimizations);
 
     codeRewriter.rewriteLongCompareAndRequireNonNull(code, options);
+    if (!isDebugMode) {
+      codeRewriter.removeBoxingRoundTrips(code);
+    }
     codeRewriter.commonSubexpressionElimination(code);
     codeRewriter.simplifyArrayConstruction(code);
     codeRewriter.rewriteMoveResult(code);
@@ -1014,6 +1151,9 @@ public class IRConverter {
     // TODO(b/123284765) This produces a runtime-crash in Q. Activate again when fixed.
     // codeRewriter.redundantConstNumberRemoval(code);
     new RedundantFieldLoadElimination(appInfo, code, enableWholeProgramOptimizations).run();
+    if (!isDebugMode && loopInvariantCodeMotion != null) {
+      loopInvariantCodeMotion.run(code);
+    }
 
     if (options.testing.invertConditionals) {
       invertConditionalsForTesting(code);
@@ -1026,6 +1166,13 @@ public class IRConverter {
       assert code.isConsistentSSA();
     }
 
+    if (!isDebugMode && options.enableBoundsCheckElimination) {
+      new BoundsCheckElimination(code).run();
+    }
+    if (!isDebugMode && options.enableStringBuilderOptimization) {
+      stringBuilderOptimizer.optimize(code);
+    }
+
     if (!isDebugMode) {
       codeRewriter.collectClassInitializerDefaults(method, code);
     }
@@ -1231,6 +1378,9 @@ public class IRConverter {
       assert options.isGeneratingDex();
       finalizeToDex(method, code, feedback);
     }
+    if (analysisStatistics != null) {
+      analysisStatistics.record(code.getAnalysisManager());
+    }
   }
 
   private void finalizeEmptyThrowingCode(DexEncodedMethod method, OptimizationFeedback feedback) {
@@ -1280,7 +1430,8 @@ public class IRConverter {
   }
 
   private synchronized void updateHighestSortingStrings(DexEncodedMethod method) {
-    DexString highestSortingReferencedString = method.getCode().asDexCode().highestSortingString;
+    DexString highestSortingReferencedString =
+        method.getCode().asDexWritableCode().getHighestSortingString();
     if (highestSortingReferencedString != null) {
       if (highestSortingString == null
           || highestSortingReferencedString.slowCompareTo(highestSortingString) > 0) {
@@ -5,6 +5,7 @@ package com.android.tools.r8.ir.conversion;
 
 import static com.android.tools.r8.graph.UseRegistry.MethodHandleUse.ARGUMENT_TO_LAMBDA_METAFACTORY;
 import static com.android.tools.r8.graph.UseRegistry.MethodHandleUse.NOT_ARGUMENT_TO_LAMBDA_METAFACTORY;
+import static com.android.tools.r8.ir.analysis.type.Nullability.maybeNull;
 import static com.android.tools.r8.ir.code.Invoke.Type.STATIC;
 
 import com.android.tools.r8.errors.Unreachable;
@@ -29,6 +30,7 @@ import com.android.tools.r8.graph.GraphLense.RewrittenPrototypeDescription;
 import com.android.tools.r8.graph.GraphLense.RewrittenPrototypeDescription.RemovedArgumentsInfo;
 import com.android.tools.r8.graph.UseRegistry.MethodHandleUse;
 import com.android.tools.r8.ir.analysis.type.TypeAnalysis;
+import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
 import com.android.tools.r8.ir.code.BasicBlock;
 import com.android.tools.r8.ir.code.CatchHandlers;
 import com.android.tools.r8.ir.code.CheckCast;
@@ -48,6 +50,7 @@ import com.android.tools.r8.ir.code.InvokeDirect;
 import com.android.tools.r8.ir.code.InvokeMethod;
 import com.android.tools.r8.ir.code.InvokeMultiNewArray;
 import com.android.tools.r8.ir.code.InvokeNewArray;
+import com.android.tools.r8.ir.code.InvokeStatic;
 import com.android.tools.r8.ir.code.MoveException;
 import com.android.tools.r8.ir.code.NewArrayEmpty;
 import com.android.tools.r8.ir.code.NewInstance;
@@ -57,6 +60,7 @@ import com.android.tools.r8.ir.code.Value;
 import com.android.tools.r8.logging.Log;
 import com.android.tools.r8.shaking.VerticalClassMerger.VerticallyMergedClasses;
 import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -176,10 +180,31 @@ public class LensCodeRewriter {
               invoke.outValue().replaceUsers(constantReturnMaterializingInstruction.outValue());
             }
 
-            Value newOutValue =
-                prototypeChanges.hasBeenChangedToReturnVoid()
-                    ? null
-                    : makeOutValue(invoke, code, newSSAValues);
+            // If the method has been changed to return a primitive, then the returned value is
+            // boxed at the call site.
+            InvokeStatic boxingInstruction = null;
+            if (prototypeChanges.hasBeenChangedToReturnPrimitive() && invoke.outValue() != null) {
+              DexType primitiveType = actualTarget.proto.returnType;
+              Value primitiveValue =
+                  code.createValue(
+                      TypeLatticeElement.fromDexType(primitiveType, maybeNull(), appInfo));
+              boxingInstruction =
+                  new InvokeStatic(
+                      appInfo.dexItemFactory.getBoxPrimitiveMethod(primitiveType),
+                      makeOutValue(invoke, code, newSSAValues),
+                      ImmutableList.of(primitiveValue));
+              boxingInstruction.setPosition(invoke.getPosition());
+              invoke.outValue().replaceUsers(boxingInstruction.outValue());
+            }
+
+            Value newOutValue;
+            if (prototypeChanges.hasBeenChangedToReturnVoid()) {
+              newOutValue = null;
+            } else if (boxingInstruction != null) {
+              newOutValue = boxingInstruction.inValues().get(0);
+            } else {
+              newOutValue = makeOutValue(invoke, code, newSSAValues);
+            }
 
             List<Value> newInValues;
             if (removedArgumentsInfo.hasRemovedArguments()) {
@@ -221,8 +246,20 @@ public class LensCodeRewriter {
               }
             }
 
+            if (boxingInstruction != null) {
+              if (block.hasCatchHandlers()) {
+                // Split the block to ensure no instructions after throwing instructions.
+                iterator.split(code, blocks).listIterator().add(boxingInstruction);
+              } else {
+                iterator.add(boxingInstruction);
+              }
+            }
+
             DexType actualReturnType = actualTarget.proto.returnType;
-            DexType expectedReturnType = graphLense.lookupType(invokedMethod.proto.returnType);
+            DexType expectedReturnType =
+                prototypeChanges.rewriteReturnType(
+                    graphLense.lookupType(invokedMethod.proto.returnType),
+                    appInfo.dexItemFactory);
             if (newInvoke.outValue() != null && actualReturnType != expectedReturnType) {
               throw new Unreachable(
                   "Unexpected need to insert a cast. Possibly related to resolving b/79143143.\n"
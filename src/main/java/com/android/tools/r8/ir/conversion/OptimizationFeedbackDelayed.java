@@ -7,6 +7,7 @@ package com.android.tools.r8.ir.conversion;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexEncodedMethod.ClassInlinerEligibility;
 import com.android.tools.r8.graph.DexEncodedMethod.TrivialInitializer;
+import com.android.tools.r8.graph.OptimizationInfoTable;
 import com.android.tools.r8.graph.ParameterUsagesInfo;
 import com.android.tools.r8.graph.UpdatableOptimizationInfo;
 import com.android.tools.r8.ir.optimize.Inliner.ConstraintWithTarget;
@@ -22,6 +23,9 @@ public class OptimizationFeedbackDelayed implements OptimizationFeedback {
       new IdentityHashMap<>();
   private final Map<DexEncodedMethod, ConstraintWithTarget> processed = new IdentityHashMap<>();
 
+  // Shared by all waves, such that methods with equal optimization info share a single instance.
+  private final OptimizationInfoTable optimizationInfoTable = new OptimizationInfoTable();
+
   private synchronized UpdatableOptimizationInfo getOptimizationInfoForUpdating(
       DexEncodedMethod method) {
     UpdatableOptimizationInfo info = optimizationInfos.get(method);
@@ -114,7 +118,8 @@ public class OptimizationFeedbackDelayed implements OptimizationFeedback {
     IteratorUtils.removeIf(
         optimizationInfos.entrySet().iterator(), entry -> entry.getKey().isObsolete());
     IteratorUtils.removeIf(processed.entrySet().iterator(), entry -> entry.getKey().isObsolete());
-    optimizationInfos.forEach(DexEncodedMethod::setOptimizationInfo);
+    optimizationInfos.forEach(
+        (method, info) -> method.setOptimizationInfo(optimizationInfoTable.intern(info)));
     processed.forEach(DexEncodedMethod::markProcessed);
     optimizationInfos.clear();
     processed.clear();
@@ -32,13 +32,18 @@ final class ClassProcessor {
   private final Set<DexClass> processedClasses = Sets.newIdentityHashSet();
   // Maps already created methods into default methods they were generated based on.
   private final Map<DexEncodedMethod, DexEncodedMethod> createdMethods = new IdentityHashMap<>();
+  // Methods created since the last call to takeForwardMethods().
+  private Set<DexEncodedMethod> newMethods = Sets.newIdentityHashSet();
 
   ClassProcessor(InterfaceMethodRewriter rewriter) {
     this.rewriter = rewriter;
   }
 
-  final Set<DexEncodedMethod> getForwardMethods() {
-    return createdMethods.keySet();
+  // Returns the forwarding methods created since the last call.
+  final Set<DexEncodedMethod> takeForwardMethods() {
+    Set<DexEncodedMethod> result = newMethods;
+    newMethods = Sets.newIdentityHashSet();
+    return result;
   }
 
   final void process(DexClass clazz) {
@@ -95,6 +100,7 @@ final class ClassProcessor {
       DexEncodedMethod newMethod = addForwardingMethod(method, clazz);
       clazz.virtualMethods()[existing.length + i] = newMethod;
       createdMethods.put(newMethod, method);
+      newMethods.add(newMethod);
     }
   }
 
@@ -98,6 +98,9 @@ public final class InterfaceMethodRewriter {
    */
   private final Set<DexItem> reportedMissing = Sets.newConcurrentHashSet();
 
+  // The processor of the classes, which is kept between windows of classes.
+  private ClassProcessor classProcessor;
+
   /**
    * Defines a minor variation in desugaring.
    */
@@ -390,6 +393,35 @@ public final class InterfaceMethodRewriter {
       ExecutorService executorService,
       Map<DexType, DexProgramClass> synthesizedClasses)
       throws ExecutionException {
+    processAndOptimize(builder, flavour, executorService, synthesizedClasses);
+
+    // Cached data is not needed any more.
+    clear();
+  }
+
+  /**
+   * Desugars the classes of the builder, which holds one of the windows of program classes that
+   * are converted one after the other.
+   *
+   * <p>Unlike {@link #desugarInterfaceMethods}, the information about the classes that have been
+   * processed and about the default methods of the interfaces is kept for the later windows. This
+   * requires that the windows with classes precede the windows with interfaces, and that the
+   * superclasses of a class are in the same or an earlier window.
+   */
+  public void desugarInterfaceMethodsOfWindow(
+      Builder<?> builder, Flavor flavour, ExecutorService executorService)
+      throws ExecutionException {
+    processAndOptimize(builder, flavour, executorService, null);
+    synthesizedMethods.clear();
+    requiredDispatchClasses.clear();
+  }
+
+  private void processAndOptimize(
+      Builder<?> builder,
+      Flavor flavour,
+      ExecutorService executorService,
+      Map<DexType, DexProgramClass> synthesizedClasses)
+      throws ExecutionException {
     // Process all classes first. Add missing forwarding methods to
     // replace desugared default interface methods.
     synthesizedMethods.addAll(processClasses(builder, flavour));
@@ -410,15 +442,13 @@ public final class InterfaceMethodRewriter {
     }
 
     converter.optimizeSynthesizedMethods(synthesizedMethods, executorService);
-
-    // Cached data is not needed any more.
-    clear();
   }
 
   private void clear() {
     this.cache.clear();
     this.synthesizedMethods.clear();
     this.requiredDispatchClasses.clear();
+    this.classProcessor = null;
   }
 
   private static boolean shouldProcess(
@@ -446,13 +476,15 @@ public final class InterfaceMethodRewriter {
   }
 
   private Set<DexEncodedMethod> processClasses(Builder<?> builder, Flavor flavour) {
-    ClassProcessor processor = new ClassProcessor(this);
+    if (classProcessor == null) {
+      classProcessor = new ClassProcessor(this);
+    }
     for (DexProgramClass clazz : builder.getProgramClasses()) {
       if (shouldProcess(clazz, flavour, false)) {
-        processor.process(clazz);
+        classProcessor.process(clazz);
       }
     }
-    return processor.getForwardMethods();
+    return classProcessor.takeForwardMethods();
   }
 
   final boolean isDefaultMethod(DexEncodedMethod method) {
@@ -88,6 +88,12 @@ public final class Java8MethodRewriter {
     return clazz.descriptor.toString().startsWith(UTILITY_CLASS_DESCRIPTOR_PREFIX);
   }
 
+  // Forgets the utility methods, and the classes referencing them, seen so far.
+  public void clearUtilityMethods() {
+    holders.clear();
+    methodGenerators.clear();
+  }
+
   public void synthesizeUtilityClass(Builder<?> builder, InternalOptions options) {
     if (holders.isEmpty()) {
       return;
@@ -205,6 +205,19 @@ public class LambdaRewriter {
     }
   }
 
+  /**
+   * Forgets the lambda classes seen so far, such that the next call to synthesizeLambdaClasses()
+   * only synthesizes the lambda classes of the code converted after this call.
+   */
+  public void clearLambdaClasses() {
+    synchronized (knownCallSites) {
+      knownCallSites.clear();
+    }
+    synchronized (knownLambdaClasses) {
+      knownLambdaClasses.clear();
+    }
+  }
+
   public Set<DexCallSite> getDesugaredCallSites() {
     synchronized (knownCallSites) {
       return knownCallSites.keySet();
@@ -107,6 +107,11 @@ public final class TwrCloseResourceRewriter {
         && original.proto == converter.appInfo.dexItemFactory.twrCloseResourceMethodProto;
   }
 
+  // Forgets the classes referencing the utility class seen so far.
+  public void clearReferencingClasses() {
+    referencingClasses.clear();
+  }
+
   public void synthesizeUtilityClass(Builder<?> builder, InternalOptions options) {
     if (referencingClasses.isEmpty()) {
       return;
@@ -0,0 +1,140 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.If;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.MemberType;
+import com.android.tools.r8.ir.code.NumericType;
+import com.android.tools.r8.ir.code.Phi;
+import com.android.tools.r8.ir.code.Value;
+
+/**
+ * Array bounds-check elimination.
+ *
+ * <p>Finds array accesses that are guarded by a check of the form {@code index < array.length},
+ * where the index is known to be non-negative, and marks them as unable to throw. The array is
+ * known to be non-null at such accesses, since the guard reads the length of the array.
+ *
+ * <p>An index is non-negative if it is a non-negative constant, or an induction variable of the
+ * form {@code i = phi(start, i + 1)}, where {@code start} is non-negative and the increment is
+ * guarded by the same check. Since the increment is only performed when {@code i < array.length},
+ * it cannot overflow. This covers the canonical {@code for (i = 0; i < a.length; i++)} loop.
+ */
+public class BoundsCheckElimination {
+
+  private final IRCode code;
+  private DominatorTree dominatorTree;
+
+  public BoundsCheckElimination(IRCode code) {
+    this.code = code;
+  }
+
+  public void run() {
+    for (BasicBlock block : code.blocks) {
+      Instruction exit = block.exit();
+      if (exit.isIf() && !exit.asIf().isZeroTest()) {
+        eliminateBoundsChecks(exit.asIf());
+      }
+    }
+  }
+
+  private void eliminateBoundsChecks(If theIf) {
+    // Normalize the condition to index <type> length.
+    Value index = theIf.inValues().get(0);
+    Value length = theIf.inValues().get(1);
+    If.Type type = theIf.getType();
+    if (!isArrayLength(length)) {
+      Value tmp = index;
+      index = length;
+      length = tmp;
+      type = type.forSwappedOperands();
+    }
+    if (!isArrayLength(length) || isArrayLength(index)) {
+      return;
+    }
+    BasicBlock guarded;
+    if (type == If.Type.LT) {
+      guarded = theIf.getTrueTarget();
+    } else if (type == If.Type.GE) {
+      guarded = theIf.fallthroughBlock();
+    } else {
+      return;
+    }
+    // The guarded block is only known to satisfy the condition if it has no other predecessors.
+    if (guarded.getPredecessors().size() != 1 || guarded == theIf.getBlock()) {
+      return;
+    }
+    if (dominatorTree == null) {
+      dominatorTree = code.getDominatorTree();
+    }
+    if (!isNonNegative(index, guarded)) {
+      return;
+    }
+    Value array = length.getAliasedValue().definition.asArrayLength().array().getAliasedValue();
+    for (Instruction user : index.uniqueUsers()) {
+      if (!dominatorTree.dominatedBy(user.getBlock(), guarded)) {
+        continue;
+      }
+      if (user.isArrayGet()) {
+        if (user.asArrayGet().index() == index
+            && user.asArrayGet().array().getAliasedValue() == array) {
+          user.asArrayGet().markKnownToBeInBounds();
+        }
+      } else if (user.isArrayPut()) {
+        if (user.asArrayPut().index() == index
+            && user.asArrayPut().array().getAliasedValue() == array
+            && user.asArrayPut().getMemberType() != MemberType.OBJECT) {
+          user.asArrayPut().markKnownToBeInBounds();
+        }
+      }
+    }
+  }
+
+  private static boolean isArrayLength(Value value) {
+    Value aliasedValue = value.getAliasedValue();
+    return !aliasedValue.isPhi() && aliasedValue.definition.isArrayLength();
+  }
+
+  private boolean isNonNegative(Value index, BasicBlock guarded) {
+    if (index.hasValueRange()) {
+      return index.getValueRange().getMin() >= 0;
+    }
+    if (!index.isPhi()) {
+      return false;
+    }
+    Phi phi = index.asPhi();
+    for (Value operand : phi.getOperands()) {
+      if (operand.hasValueRange()) {
+        if (operand.getValueRange().getMin() < 0) {
+          return false;
+        }
+      } else if (!isGuardedIncrement(operand, phi, guarded)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isGuardedIncrement(Value value, Phi phi, BasicBlock guarded) {
+    if (value.isPhi() || !value.definition.isAdd()) {
+      return false;
+    }
+    Instruction add = value.definition;
+    if (add.asAdd().getNumericType() != NumericType.INT
+        || !dominatorTree.dominatedBy(add.getBlock(), guarded)) {
+      return false;
+    }
+    Value left = add.asAdd().leftValue();
+    Value right = add.asAdd().rightValue();
+    return (left == phi && isOne(right)) || (right == phi && isOne(left));
+  }
+
+  private static boolean isOne(Value value) {
+    return value.isConstNumber() && value.getConstInstruction().asConstNumber().getIntValue() == 1;
+  }
+}
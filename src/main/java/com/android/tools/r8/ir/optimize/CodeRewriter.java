@@ -78,6 +78,7 @@ import com.android.tools.r8.ir.code.InstructionListIterator;
 import com.android.tools.r8.ir.code.Invoke;
 import com.android.tools.r8.ir.code.InvokeDirect;
 import com.android.tools.r8.ir.code.InvokeMethod;
+import com.android.tools.r8.ir.code.InvokeMethodWithReceiver;
 import com.android.tools.r8.ir.code.InvokeNewArray;
 import com.android.tools.r8.ir.code.InvokeStatic;
 import com.android.tools.r8.ir.code.InvokeVirtual;
@@ -940,6 +941,96 @@ public class CodeRewriter {
     }
   }
 
+  /**
+   * Replaces calls to {@code ordinal()}, {@code compareTo()} and {@code equals()} on enum constants
+   * with a known ordinal by the resulting constant.
+   *
+   * <p>The ordinals of the constants of a program enum are extracted from its class initializer by
+   * the {@link EnumOrdinalMapCollector}. An enum constant is read from its static field, which is
+   * assumed to be initialized. This does not hold during the initialization of the enum class,
+   * and therefore the enum class and its subclasses are not rewritten.
+   */
+  public void rewriteEnumConstantOperations(IRCode code) {
+    assert appInfo.hasLiveness();
+    DexType context = code.method.method.holder;
+    InstructionIterator iterator = code.instructionIterator();
+    while (iterator.hasNext()) {
+      Instruction current = iterator.next();
+      if (!current.isInvokeMethodWithReceiver()) {
+        continue;
+      }
+      InvokeMethodWithReceiver invoke = current.asInvokeMethodWithReceiver();
+      DexMethod invokedMethod = invoke.getInvokedMethod();
+      int receiverOrdinal = getEnumConstantOrdinal(invoke.getReceiver(), context);
+      if (receiverOrdinal < 0) {
+        continue;
+      }
+      int result;
+      if (dexItemFactory.enumMethods.matches(invokedMethod, dexItemFactory.enumMethods.ordinal)) {
+        result = receiverOrdinal;
+      } else if (dexItemFactory.enumMethods.matches(
+          invokedMethod, dexItemFactory.enumMethods.compareTo)) {
+        Value argument = invoke.inValues().get(1);
+        int argumentOrdinal = getEnumConstantOrdinal(argument, context);
+        // Enum.compareTo() throws if the constants are from different enums.
+        if (argumentOrdinal < 0
+            || getEnumConstantType(argument) != getEnumConstantType(invoke.getReceiver())) {
+          continue;
+        }
+        result = receiverOrdinal - argumentOrdinal;
+      } else if (dexItemFactory.enumMethods.matches(
+          invokedMethod, dexItemFactory.enumMethods.equals)) {
+        Value argument = invoke.inValues().get(1);
+        if (getEnumConstantOrdinal(argument, context) < 0) {
+          continue;
+        }
+        result = isSameEnumConstant(invoke.getReceiver(), argument, context) ? 1 : 0;
+      } else {
+        continue;
+      }
+      Value outValue = invoke.outValue();
+      if (outValue == null) {
+        // The receiver is non-null, so the invoke has no side effects.
+        iterator.removeOrReplaceByDebugLocalRead();
+      } else {
+        Value constantValue = code.createValue(outValue.getTypeLattice(), invoke.getLocalInfo());
+        iterator.replaceCurrentInstruction(new ConstNumber(constantValue, result));
+      }
+    }
+    assert code.isConsistentSSA();
+  }
+
+  // Returns the ordinal of the enum constant that is the given value, or -1 if the value is not
+  // known to be an enum constant with a known ordinal.
+  private int getEnumConstantOrdinal(Value value, DexType context) {
+    DexField field = getEnumConstantField(value);
+    if (field == null || field.clazz == context || context.isSubtypeOf(field.clazz, appInfo)) {
+      return -1;
+    }
+    Reference2IntMap<DexField> ordinalsMap = appInfo.withLiveness().getOrdinalsMapFor(field.clazz);
+    return ordinalsMap != null ? ordinalsMap.getInt(field) : -1;
+  }
+
+  private static DexField getEnumConstantField(Value value) {
+    Value root = value.getAliasedValue();
+    if (root.isPhi() || !root.definition.isStaticGet()) {
+      return null;
+    }
+    return root.definition.asStaticGet().getField();
+  }
+
+  private static DexType getEnumConstantType(Value value) {
+    return getEnumConstantField(value).clazz;
+  }
+
+  // Returns true if the values, which must be enum constants with a known ordinal, are the same
+  // constant. An enum constant can be stored in more than one field, but the constants of an enum
+  // with known ordinals have distinct ordinals.
+  private boolean isSameEnumConstant(Value value, Value other, DexType context) {
+    return getEnumConstantType(value) == getEnumConstantType(other)
+        && getEnumConstantOrdinal(value, context) == getEnumConstantOrdinal(other, context);
+  }
+
   /**
    * Rewrite all branch targets to the destination of trivial goto chains when possible.
    * Does not rewrite fallthrough targets as that would require block reordering and the
@@ -989,7 +1080,7 @@ public class CodeRewriter {
 
   public void identifyReturnsArgument(
       DexEncodedMethod method, IRCode code, OptimizationFeedback feedback) {
-    List<BasicBlock> normalExits = code.computeNormalExitBlocks();
+    List<BasicBlock> normalExits = code.getNormalExitBlocks();
     if (normalExits.isEmpty()) {
       feedback.methodNeverReturnsNormally(method);
       return;
@@ -2009,6 +2100,7 @@ public class CodeRewriter {
 
   private void computeUnnecessaryStaticPuts(IRCode code, DexEncodedMethod clinit, DexClass clazz,
       Set<StaticPut> puts, Map<DexField, StaticPut> finalFieldPut) {
+    Set<DexField> fieldsWithRemainingPuts = Sets.newIdentityHashSet();
     final int color = code.reserveMarkingColor();
     try {
       BasicBlock block = code.blocks.getFirst();
@@ -2029,7 +2121,13 @@ public class CodeRewriter {
               }
               DexField field = put.getField();
               if (clazz.definesStaticField(field)) {
+                if (fieldsWithRemainingPuts.contains(field)) {
+                  // A previous put to this field remains in the class initializer, so this put
+                  // cannot be replaced by the initial value of the field.
+                  continue;
+                }
                 if (put.inValue().isDexItemBasedConstStringThatNeedsToComputeClassName()) {
+                  fieldsWithRemainingPuts.add(field);
                   continue;
                 }
                 if (put.inValue().isConstant()) {
@@ -2041,16 +2139,21 @@ public class CodeRewriter {
                       || field.type == dexItemFactory.stringType) {
                     finalFieldPut.put(put.getField(), put);
                     puts.add(put);
+                  } else {
+                    fieldsWithRemainingPuts.add(field);
                   }
                 } else if (isClassNameConstantOf(clazz, put)) {
                   // Collect put of class name constant as a potential default value.
                   finalFieldPut.put(put.getField(), put);
                   puts.add(put);
+                } else {
+                  fieldsWithRemainingPuts.add(field);
                 }
               }
             } else if (!instruction.isConstString()
                 && !instruction.isDexItemBasedConstString()
-                && !instruction.isConstClass()) {
+                && !instruction.isConstClass()
+                && !isArrayInstructionWithoutClassInitialization(instruction)) {
               // Allow const string and const class which can only throw exceptions as their
               // side-effect. Bail out for anything else.
               return;
@@ -2066,6 +2169,24 @@ public class CodeRewriter {
     }
   }
 
+  /**
+   * Returns true if the given instruction creates or accesses an array without running any code.
+   *
+   * <p>Such instructions can only throw exceptions as their side-effect: they neither trigger the
+   * initialization of another class (allocating an array does not initialize the element type),
+   * nor read the static fields of the class being initialized. Therefore, the static puts that
+   * follow an array initializer such as {@code static final int[] TABLE = {1, 2, 3}} can still be
+   * hoisted to the field initial values.
+   */
+  private static boolean isArrayInstructionWithoutClassInitialization(Instruction instruction) {
+    return instruction.isNewArrayEmpty()
+        || instruction.isNewArrayFilledData()
+        || instruction.isInvokeNewArray()
+        || instruction.isArrayPut()
+        || instruction.isArrayGet()
+        || instruction.isArrayLength();
+  }
+
   DexClass definitionFor(DexType type) {
     return converter.definitionFor(type);
   }
@@ -2419,8 +2540,7 @@ public class CodeRewriter {
     // and ConstStrings with one user.
     // TODO(ager): Generalize this to shorten live ranges for more instructions? Currently
     // doing so seems to make things worse.
-    Supplier<DominatorTree> dominatorTreeMemoization =
-        Suppliers.memoize(() -> new DominatorTree(code));
+    Supplier<DominatorTree> dominatorTreeMemoization = Suppliers.memoize(code::getDominatorTree);
     Map<BasicBlock, List<Instruction>> addConstantInBlock = new HashMap<>();
     LinkedList<BasicBlock> blocks = code.blocks;
     for (int i = 0; i < blocks.size(); i++) {
@@ -3005,7 +3125,7 @@ public class CodeRewriter {
       final ListMultimap<Wrapper<Instruction>, Value> instructionToValue =
           ArrayListMultimap.create();
       final CSEExpressionEquivalence equivalence = new CSEExpressionEquivalence(code);
-      final DominatorTree dominatorTree = new DominatorTree(code);
+      final DominatorTree dominatorTree = code.getDominatorTree();
       for (int i = 0; i < dominatorTree.getSortedBlocks().length; i++) {
         BasicBlock block = dominatorTree.getSortedBlocks()[i];
         if (block.isMarked(noCandidate)) {
@@ -3144,6 +3264,18 @@ public class CodeRewriter {
               }
             }
           }
+        } else if (!theIf.isZeroTest()
+            && (theIf.getType() == Type.EQ || theIf.getType() == Type.NE)
+            && options.enableEnumValueOptimization
+            && appInfo.hasLiveness()
+            && getEnumConstantOrdinal(inValues.get(0), code.method.method.holder) >= 0
+            && getEnumConstantOrdinal(inValues.get(1), code.method.method.holder) >= 0) {
+          // Comparison between two enum constants.
+          int cond =
+              isSameEnumConstant(inValues.get(0), inValues.get(1), code.method.method.holder)
+                  ? 0
+                  : 1;
+          simplifyIfWithKnownCondition(code, block, theIf, cond);
         } else if (theIf.isZeroTest() && !inValues.get(0).isConstNumber()
             && (theIf.getType() == Type.EQ || theIf.getType() == Type.NE)) {
           if (inValues.get(0).isNeverNull()) {
@@ -3195,7 +3327,7 @@ public class CodeRewriter {
   public void redundantConstNumberRemoval(IRCode code) {
     Supplier<Long2ReferenceMap<List<ConstNumber>>> constantsByValue =
         Suppliers.memoize(() -> getConstantsByValue(code));
-    Supplier<DominatorTree> dominatorTree = Suppliers.memoize(() -> new DominatorTree(code));
+    Supplier<DominatorTree> dominatorTree = Suppliers.memoize(code::getDominatorTree);
 
     boolean changed = false;
     for (BasicBlock block : code.blocks) {
@@ -3530,6 +3662,7 @@ public class CodeRewriter {
                 // The xor is replacing a phi so it does not have an actual position.
                 newInstruction.setPosition(phiPosition);
                 phiBlock.getInstructions().add(insertIndex, newInstruction);
+                code.markInstructionsChanged();
                 deadPhis++;
               }
             }
@@ -3668,6 +3801,55 @@ public class CodeRewriter {
     assert code.isConsistentSSA();
   }
 
+  /**
+   * Removes the unboxing of values that have just been boxed, i.e., rewrites {@code
+   * Integer.valueOf(x).intValue()} into {@code x}. The unboxing cannot throw, since the boxed value
+   * is non-null. The boxing is removed as well if the boxed value is not used otherwise, since the
+   * {@code valueOf} methods of the box types have no side effects.
+   */
+  public void removeBoxingRoundTrips(IRCode code) {
+    Set<InvokeStatic> boxingInstructions = Sets.newIdentityHashSet();
+    InstructionIterator iterator = code.instructionIterator();
+    while (iterator.hasNext()) {
+      Instruction current = iterator.next();
+      if (!current.isInvokeVirtual()) {
+        continue;
+      }
+      InvokeVirtual unboxing = current.asInvokeVirtual();
+      DexMethod unboxMethod = unboxing.getInvokedMethod();
+      if (!dexItemFactory.isUnboxPrimitiveMethod(unboxMethod)) {
+        continue;
+      }
+      Value boxedValue = unboxing.getReceiver().getAliasedValue();
+      if (boxedValue.isPhi() || !boxedValue.definition.isInvokeStatic()) {
+        continue;
+      }
+      InvokeStatic boxing = boxedValue.definition.asInvokeStatic();
+      DexMethod boxMethod = dexItemFactory.getBoxPrimitiveMethod(unboxMethod.proto.returnType);
+      if (boxing.getInvokedMethod() != boxMethod) {
+        continue;
+      }
+      Value outValue = unboxing.outValue();
+      if (outValue != null) {
+        if (outValue.hasLocalInfo()) {
+          continue;
+        }
+        outValue.replaceUsers(boxing.inValues().get(0));
+      }
+      iterator.removeOrReplaceByDebugLocalRead();
+      boxingInstructions.add(boxing);
+    }
+    for (InvokeStatic boxing : boxingInstructions) {
+      Value boxedValue = boxing.outValue();
+      if (!boxedValue.isUsed() && !boxedValue.hasLocalInfo()) {
+        InstructionListIterator boxingIterator = boxing.getBlock().listIterator();
+        boxingIterator.nextUntil(instruction -> instruction == boxing);
+        boxingIterator.removeOrReplaceByDebugLocalRead();
+      }
+    }
+    assert code.isConsistentSSA();
+  }
+
   /**
    * Remove moves that are not actually used by instructions in exiting paths. These moves can arise
    * due to debug local info needing a particular value and the live-interval for it then moves it
@@ -4198,6 +4380,7 @@ public class CodeRewriter {
             fixit.setBlock(handler);
             fixit.setPosition(handler.getPosition());
             handler.getInstructions().addFirst(fixit);
+            code.markInstructionsChanged();
           }
         }
       }
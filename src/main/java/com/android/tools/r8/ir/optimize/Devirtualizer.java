@@ -44,7 +44,7 @@ public class Devirtualizer {
   public void devirtualizeInvokeInterface(IRCode code, DexType invocationContext) {
     Set<Value> affectedValues = Sets.newIdentityHashSet();
     Map<InvokeInterface, InvokeVirtual> devirtualizedCall = new IdentityHashMap<>();
-    DominatorTree dominatorTree = new DominatorTree(code);
+    DominatorTree dominatorTree = code.getDominatorTree();
     Map<Value, Map<DexType, Value>> castedReceiverCache = new IdentityHashMap<>();
     Set<CheckCast> newCheckCastInstructions = Sets.newIdentityHashSet();
 
@@ -194,7 +194,7 @@ public class Devirtualizer {
                 it.previous();
                 it.add(checkCast);
                 // Update the dominator tree after the split.
-                dominatorTree = new DominatorTree(code);
+                dominatorTree = code.getDominatorTree();
                 // Restore the cursor.
                 it = blockWithDevirtualizedInvoke.listIterator();
                 assert it.peekNext() == devirtualizedInvoke;
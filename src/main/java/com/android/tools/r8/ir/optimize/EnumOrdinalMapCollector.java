@@ -16,6 +16,8 @@ import com.android.tools.r8.ir.code.InvokeDirect;
 import com.android.tools.r8.ir.code.StaticPut;
 import com.android.tools.r8.shaking.Enqueuer.AppInfoWithLiveness;
 import com.android.tools.r8.utils.InternalOptions;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntArrayMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import java.util.IdentityHashMap;
@@ -63,6 +65,9 @@ public class EnumOrdinalMapCollector {
         initializer.getCode().buildIR(initializer, appInfo, graphLense, options, clazz.origin);
     Reference2IntMap<DexField> ordinalsMap = new Reference2IntArrayMap<>();
     ordinalsMap.defaultReturnValue(-1);
+    // A constant can be stored in more than one field, but distinct constants must have distinct
+    // ordinals, such that constants with the same ordinal are the same object.
+    Int2ReferenceMap<Instruction> instancesByOrdinal = new Int2ReferenceOpenHashMap<>();
     InstructionIterator it = code.instructionIterator();
     while (it.hasNext()) {
       Instruction insn = it.next();
@@ -93,7 +98,12 @@ public class EnumOrdinalMapCollector {
       if (ordinal == null || !ordinal.isConstNumber()) {
         return;
       }
-      if (ordinalsMap.put(staticPut.getField(), ordinal.asConstNumber().getIntValue()) != -1) {
+      int ordinalValue = ordinal.asConstNumber().getIntValue();
+      if (ordinalsMap.put(staticPut.getField(), ordinalValue) != -1) {
+        return;
+      }
+      Instruction previousInstance = instancesByOrdinal.put(ordinalValue, newInstance);
+      if (previousInstance != null && previousInstance != newInstance) {
         return;
       }
     }
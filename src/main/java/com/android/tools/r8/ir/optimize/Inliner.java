@@ -558,14 +558,20 @@ public class Inliner {
       Predicate<DexEncodedMethod> isProcessedConcurrently,
       CallSiteInformation callSiteInformation) {
 
+    // Hot methods trade size for speed and inline larger methods.
+    boolean isHot = options.hotMethodProfile.isHot(method.method, appView.graphLense());
+    int instructionLimit =
+        isHot ? options.hotInliningInstructionLimit : options.inliningInstructionLimit;
+    int instructionAllowance =
+        isHot ? options.hotInliningInstructionAllowance : options.inliningInstructionAllowance;
     DefaultInliningOracle oracle =
         createDefaultOracle(
             method,
             code,
             isProcessedConcurrently,
             callSiteInformation,
-            options.inliningInstructionLimit,
-            options.inliningInstructionAllowance - numberOfInstructions(code));
+            instructionLimit,
+            instructionAllowance - numberOfInstructions(code));
 
     performInliningImpl(oracle, oracle, method, code);
   }
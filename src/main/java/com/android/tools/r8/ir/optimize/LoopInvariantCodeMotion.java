@@ -0,0 +1,240 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.analysis.ClassInitializationAnalysis;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.ConstNumber;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.Loop;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.shaking.Enqueuer.AppInfoWithLiveness;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loop-invariant code motion.
+ *
+ * <p>Moves computations whose operands are defined outside of a loop to a preheader of the loop,
+ * such that they are computed once instead of in every iteration. The pass only moves arithmetic,
+ * array lengths and reads of final fields.
+ *
+ * <p>An instruction that cannot throw is moved even if it is not executed in every iteration. An
+ * instruction that can throw is only moved if it is the first instruction with side effects in the
+ * loop header, such that the exception is raised at the same point of the execution. Array lengths
+ * and instance field reads cannot throw if the receiver is known to be non-null, and static field
+ * reads cannot throw if the class is known to be initialized at the preheader, as determined by the
+ * {@link ClassInitializationAnalysis}.
+ */
+public class LoopInvariantCodeMotion {
+
+  private final AppView<? extends AppInfoWithLiveness> appView;
+
+  public LoopInvariantCodeMotion(AppView<? extends AppInfoWithLiveness> appView) {
+    this.appView = appView;
+  }
+
+  public void run(IRCode code) {
+    List<Loop> loops = code.getLoops();
+    if (loops.isEmpty()) {
+      return;
+    }
+    // The loops are modified when preheaders are inserted, so take a copy of the cached loops.
+    loops = new ArrayList<>(loops);
+    ClassInitializationAnalysis classInitializationAnalysis =
+        new ClassInitializationAnalysis(appView, code);
+    for (Loop loop : loops) {
+      if (hoistInvariants(code, loops, loop, classInitializationAnalysis)) {
+        classInitializationAnalysis.notifyCodeHasChanged();
+      }
+    }
+    classInitializationAnalysis.finish();
+    assert code.isConsistentSSA();
+  }
+
+  // Returns true if the control flow graph has changed.
+  private boolean hoistInvariants(
+      IRCode code,
+      List<Loop> loops,
+      Loop loop,
+      ClassInitializationAnalysis classInitializationAnalysis) {
+    BasicBlock header = loop.getHeader();
+    List<BasicBlock> entryBlocks = loop.getEntryBlocks();
+    if (entryBlocks.size() != 1 || header.entry().isMoveException()) {
+      return false;
+    }
+    BasicBlock entry = entryBlocks.get(0);
+    // The instructions are moved to the end of the entry block if it jumps directly to the header,
+    // and otherwise to a new block on the edge from the entry block to the header.
+    boolean useEntryAsPreheader = entry.exit().isGoto();
+    boolean preheaderHasCatchHandlers = useEntryAsPreheader && entry.hasCatchHandlers();
+    List<Instruction> invariants =
+        computeInvariants(
+            code, loop, entry, preheaderHasCatchHandlers, classInitializationAnalysis);
+    if (invariants.isEmpty()) {
+      return false;
+    }
+    BasicBlock preheader = useEntryAsPreheader ? entry : createPreheader(code, loops, loop, entry);
+    moveToPreheader(code, loop, invariants, preheader);
+    return !useEntryAsPreheader;
+  }
+
+  private List<Instruction> computeInvariants(
+      IRCode code,
+      Loop loop,
+      BasicBlock entry,
+      boolean preheaderHasCatchHandlers,
+      ClassInitializationAnalysis classInitializationAnalysis) {
+    List<Instruction> invariants = new ArrayList<>();
+    Set<Value> invariantValues = Sets.newIdentityHashSet();
+    BasicBlock header = loop.getHeader();
+    // Instructions that may throw can only be moved from the start of the header, and only if
+    // the exception is not caught, since the preheader cannot contain a throwing instruction
+    // with different catch handlers.
+    boolean allowThrowing = !header.hasCatchHandlers() && !preheaderHasCatchHandlers;
+    // The blocks are visited in dominator order, such that operands are visited before their uses.
+    DominatorTree dominatorTree = code.getDominatorTree();
+    for (BasicBlock block : dominatorTree.getSortedBlocks()) {
+      if (!loop.contains(block)) {
+        continue;
+      }
+      boolean isAtStartOfHeader = block == header && allowThrowing;
+      for (Instruction instruction : block.getInstructions()) {
+        if (isCandidate(code.method, instruction)
+            && hasInvariantOperands(loop, instruction, invariantValues)
+            && (!instruction.instructionTypeCanThrow() || !preheaderHasCatchHandlers)) {
+          if (isAtStartOfHeader || !canThrow(instruction, entry, classInitializationAnalysis)) {
+            invariants.add(instruction);
+            invariantValues.add(instruction.outValue());
+            continue;
+          }
+        }
+        // An exception raised by a later instruction must not be moved before a side effect, such
+        // as a store that cannot throw.
+        if (instruction.instructionInstanceCanThrow()
+            || !instruction.canBeDeadCode(appView.appInfo(), code)) {
+          isAtStartOfHeader = false;
+        }
+      }
+    }
+    return invariants;
+  }
+
+  private boolean isCandidate(DexEncodedMethod method, Instruction instruction) {
+    Value outValue = instruction.outValue();
+    if (outValue == null || outValue.hasLocalInfo() || !instruction.getDebugValues().isEmpty()) {
+      return false;
+    }
+    if (instruction.isBinop() || instruction.isUnop() || instruction.isArrayLength()) {
+      return true;
+    }
+    if (instruction.isInstanceGet() || instruction.isStaticGet()) {
+      // Final fields can be assigned in the initializers.
+      if (method.isInstanceInitializer() || method.isClassInitializer()) {
+        return false;
+      }
+      DexEncodedField field =
+          appView.appInfo().definitionFor(instruction.asFieldInstruction().getField());
+      return field != null
+          && field.accessFlags.isFinal()
+          && !field.accessFlags.isVolatile()
+          && field.accessFlags.isStatic() == instruction.isStaticGet();
+    }
+    return false;
+  }
+
+  private boolean canThrow(
+      Instruction instruction,
+      BasicBlock entry,
+      ClassInitializationAnalysis classInitializationAnalysis) {
+    if (instruction.isInstanceGet()) {
+      return !instruction.asInstanceGet().object().isNeverNull();
+    }
+    if (instruction.isStaticGet()) {
+      DexEncodedField field =
+          appView.appInfo().definitionFor(instruction.asStaticGet().getField());
+      return field == null
+          || !classInitializationAnalysis.isClassDefinitelyLoadedBeforeInstruction(
+              field.field.clazz, entry.exit());
+    }
+    return instruction.instructionInstanceCanThrow();
+  }
+
+  private static boolean hasInvariantOperands(
+      Loop loop, Instruction instruction, Set<Value> invariantValues) {
+    for (Value value : instruction.inValues()) {
+      if (!loop.isInvariant(value)
+          && !invariantValues.contains(value)
+          && !isRematerializableConstant(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isRematerializableConstant(Value value) {
+    return value.isConstNumber() && !value.hasLocalInfo();
+  }
+
+  private static BasicBlock createPreheader(
+      IRCode code, List<Loop> loops, Loop loop, BasicBlock entry) {
+    BasicBlock header = loop.getHeader();
+    BasicBlock preheader =
+        BasicBlock.createGotoBlock(
+            code.getHighestBlockNumber() + 1, entry.exit().getPosition(), header);
+    entry.replaceSuccessor(header, preheader);
+    preheader.getMutablePredecessors().add(entry);
+    header.replacePredecessor(entry, preheader);
+    code.blocks.add(code.blocks.indexOf(header), preheader);
+    // The preheader is part of the enclosing loops of the edge that it is inserted on.
+    for (Loop other : loops) {
+      if (other.contains(entry) && other.contains(header)) {
+        other.addBlock(preheader);
+      }
+    }
+    return preheader;
+  }
+
+  private static void moveToPreheader(
+      IRCode code, Loop loop, List<Instruction> invariants, BasicBlock preheader) {
+    LinkedList<Instruction> preheaderInstructions = preheader.getInstructions();
+    Map<Value, Value> constantCopies = new IdentityHashMap<>();
+    for (Instruction instruction : invariants) {
+      // Constants are left in the loop for their other users, and copied to the preheader.
+      for (int i = 0; i < instruction.inValues().size(); i++) {
+        Value value = instruction.inValues().get(i);
+        if (loop.isInvariant(value) || value.definition.getBlock() == preheader) {
+          continue;
+        }
+        assert isRematerializableConstant(value);
+        Value copy =
+            constantCopies.computeIfAbsent(
+                value,
+                constant -> {
+                  ConstNumber constNumber =
+                      ConstNumber.copyOf(code, constant.definition.asConstNumber());
+                  constNumber.setPosition(instruction.getPosition());
+                  constNumber.setBlock(preheader);
+                  preheaderInstructions.add(preheaderInstructions.size() - 1, constNumber);
+                  return constNumber.outValue();
+                });
+        instruction.replaceValue(i, copy);
+      }
+      instruction.getBlock().getInstructions().remove(instruction);
+      instruction.setBlock(preheader);
+      preheaderInstructions.add(preheaderInstructions.size() - 1, instruction);
+    }
+    code.markInstructionsChanged();
+  }
+}
@@ -3,8 +3,6 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.ir.optimize;
 
-import static com.android.tools.r8.ir.code.DominatorTree.Assumption.MAY_HAVE_UNREACHABLE_BLOCKS;
-
 import com.android.tools.r8.errors.Unreachable;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexMethod;
@@ -178,7 +176,7 @@ public class NonNullTracker {
           BasicBlock target = theIf.targetFromNonNullObject();
           // Ignore uncommon empty blocks.
           if (!target.isEmpty()) {
-            DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+            DominatorTree dominatorTree = code.getDominatorTree();
             // Make sure there are no paths to the target block without passing the current block.
             if (dominatorTree.dominatedBy(target, block)) {
               // Collect users of the original value that are dominated by the target block.
@@ -245,7 +243,7 @@ public class NonNullTracker {
     // A: ...y // blockWithNonNullInstruction
     boolean split = block.hasCatchHandlers();
     BasicBlock blockWithNonNullInstruction = split ? iterator.split(code, blockIterator) : block;
-    DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+    DominatorTree dominatorTree = code.getDominatorTree();
 
     for (Value knownToBeNonNullValue : knownToBeNonNullValues) {
       // Find all users of the original value that are dominated by either the current block
@@ -352,8 +350,8 @@ public class NonNullTracker {
 
   public void computeNonNullParamOnNormalExits(OptimizationFeedback feedback, IRCode code) {
     Set<BasicBlock> normalExits = Sets.newIdentityHashSet();
-    normalExits.addAll(code.computeNormalExitBlocks());
-    DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+    normalExits.addAll(code.getNormalExitBlocks());
+    DominatorTree dominatorTree = code.getDominatorTree();
     List<Value> arguments = code.collectArguments();
     BitSet facts = new BitSet();
     Set<BasicBlock> nullCheckedBlocks = Sets.newIdentityHashSet();
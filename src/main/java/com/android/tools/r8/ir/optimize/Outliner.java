@@ -68,6 +68,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -100,16 +101,31 @@ import java.util.function.BiConsumer;
  *       Outliner#applyOutliningCandidate(IRCode, DexEncodedMethod)} to perform the outlining, and
  *       converted back to the output format (DEX or CF).
  * </ul>
+ *
+ * <p>Methods that are hot according to {@link InternalOptions#hotMethodProfile} are only outlined
+ * in their cold blocks, and the outlines found there are built regardless of the threshold. This
+ * splits the cold code of hot methods into the outline support class.
  */
 public class Outliner {
 
   private final InternalOptions options;
   /** Result of first step (see {@link Outliner#identifyCandidateMethods()}. */
   private final List<List<DexEncodedMethod>> candidateMethodLists = new ArrayList<>();
+  /**
+   * Result of first step for the methods that are hot according to the method profile and have
+   * outlining candidates in cold blocks. These methods are always selected for outlining.
+   */
+  private final Set<DexEncodedMethod> hotMethodsWithColdCandidates = Sets.newIdentityHashSet();
   /** Result of second step (see {@link Outliner#selectMethodsForOutlining()}. */
   private final Set<DexEncodedMethod> methodsSelectedForOutlining = Sets.newIdentityHashSet();
   /** Result of second step (see {@link Outliner#selectMethodsForOutlining()}. */
   private final Map<Outline, List<DexEncodedMethod>> outlineSites = new HashMap<>();
+  /**
+   * Result of second step: the outlines that occur in cold blocks of hot methods. These are
+   * outlined regardless of {@link OutlineOptions#threshold}, which moves the cold code out of the
+   * hot methods.
+   */
+  private final Set<Outline> coldOutlines = new HashSet<>();
   /** Result of third step (see {@link Outliner#buildOutlinerClass(DexType)}. */
   private final Map<Outline, DexMethod> generatedOutlines = new HashMap<>();
 
@@ -1073,19 +1089,25 @@ public class Outliner {
   private class OutlineMethodIdentifier extends OutlineSpotter {
 
     private final Map<Outline, List<DexEncodedMethod>> candidateMap;
+    private final boolean isColdBlockOfHotMethod;
 
     OutlineMethodIdentifier(
         DexEncodedMethod method,
         BasicBlock block,
-        Map<Outline, List<DexEncodedMethod>> candidateMap) {
+        Map<Outline, List<DexEncodedMethod>> candidateMap,
+        boolean isColdBlockOfHotMethod) {
       super(method, block);
       this.candidateMap = candidateMap;
+      this.isColdBlockOfHotMethod = isColdBlockOfHotMethod;
     }
 
     @Override
     protected void handle(int start, int end, Outline outline) {
       synchronized (candidateMap) {
         candidateMap.computeIfAbsent(outline, this::addOutlineMethodList).add(method);
+        if (isColdBlockOfHotMethod) {
+          hotMethodsWithColdCandidates.add(method);
+        }
       }
     }
 
@@ -1098,14 +1120,21 @@ public class Outliner {
 
   private class OutlineSiteIdentifier extends OutlineSpotter {
 
-    OutlineSiteIdentifier(DexEncodedMethod method, BasicBlock block) {
+    private final boolean isColdBlockOfHotMethod;
+
+    OutlineSiteIdentifier(
+        DexEncodedMethod method, BasicBlock block, boolean isColdBlockOfHotMethod) {
       super(method, block);
+      this.isColdBlockOfHotMethod = isColdBlockOfHotMethod;
     }
 
     @Override
     protected void handle(int start, int end, Outline outline) {
       synchronized (outlineSites) {
         outlineSites.computeIfAbsent(outline, k -> new ArrayList<>()).add(method);
+        if (isColdBlockOfHotMethod) {
+          coldOutlines.add(outline);
+        }
       }
     }
   }
@@ -1219,19 +1248,35 @@ public class Outliner {
     assert candidateMethodLists.isEmpty();
     return (code, method) -> {
       assert !(method.getCode() instanceof OutlineCode);
+      boolean isHot = isHot(method);
       for (BasicBlock block : code.blocks) {
-        new OutlineMethodIdentifier(method, block, candidateMap).process();
+        if (!isHot || isColdBlock(block)) {
+          new OutlineMethodIdentifier(method, block, candidateMap, isHot).process();
+        }
       }
     };
   }
 
   public void identifyOutlineSites(IRCode code, DexEncodedMethod method) {
     assert !(method.getCode() instanceof OutlineCode);
+    boolean isHot = isHot(method);
     for (BasicBlock block : code.blocks) {
-      new OutlineSiteIdentifier(method, block).process();
+      if (!isHot || isColdBlock(block)) {
+        new OutlineSiteIdentifier(method, block, isHot).process();
+      }
     }
   }
 
+  private boolean isHot(DexEncodedMethod method) {
+    return options.hotMethodProfile.isHot(method.method, converter.graphLense());
+  }
+
+  // Hot methods are only outlined in their cold blocks, such that the hot paths do not pay for the
+  // calls to the outlines. Exception and assertion error paths end in a throw.
+  private static boolean isColdBlock(BasicBlock block) {
+    return block.exit().isThrow();
+  }
+
   public boolean selectMethodsForOutlining(Map<DexType, DexProgramClass> synthesizedClasses) {
     assert methodsSelectedForOutlining.size() == 0;
     assert outlineSites.size() == 0;
@@ -1245,7 +1290,12 @@ public class Outliner {
         }
       }
     }
+    for (DexEncodedMethod hotMethod : hotMethodsWithColdCandidates) {
+      methodsSelectedForOutlining.add(
+          converter.graphLense().mapDexEncodedMethod(hotMethod, appInfo, synthesizedClasses));
+    }
     candidateMethodLists.clear();
+    hotMethodsWithColdCandidates.clear();
     return methodsSelectedForOutlining.size() > 0;
   }
 
@@ -1315,7 +1365,8 @@ public class Outliner {
     assert candidateMethodLists.isEmpty();
     List<Outline> result = new ArrayList<>();
     for (Entry<Outline, List<DexEncodedMethod>> entry : outlineSites.entrySet()) {
-      if (entry.getValue().size() >= options.outline.threshold) {
+      if (entry.getValue().size() >= options.outline.threshold
+          || coldOutlines.contains(entry.getKey())) {
         result.add(entry.getKey());
       }
     }
@@ -1324,9 +1375,13 @@ public class Outliner {
 
   public void applyOutliningCandidate(IRCode code, DexEncodedMethod method) {
     assert !(method.getCode() instanceof OutlineCode);
+    boolean isHot = isHot(method);
     ListIterator<BasicBlock> blocksIterator = code.blocks.listIterator();
     while (blocksIterator.hasNext()) {
       BasicBlock block = blocksIterator.next();
+      if (isHot && !isColdBlock(block)) {
+        continue;
+      }
       List<Integer> toRemove = new ArrayList<>();
       new OutlineRewriter(method, code, blocksIterator, block, toRemove).process();
       block.removeInstructions(toRemove);
@@ -41,6 +41,8 @@ public class PeepholeOptimizer {
     removeRedundantInstructions(code, allocator);
     shareIdenticalBlockPrefix(code, allocator);
     shareIdenticalBlockSuffix(code, allocator, 0);
+    // The peephole optimizations modify the instruction lists of the blocks directly.
+    code.markInstructionsChanged();
     assert code.isConsistentGraph();
   }
 
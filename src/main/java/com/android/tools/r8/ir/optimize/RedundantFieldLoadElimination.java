@@ -52,7 +52,7 @@ public class RedundantFieldLoadElimination {
     this.method = code.method;
     this.code = code;
     this.enableWholeProgramOptimizations = enableWholeProgramOptimizations;
-    dominatorTree = new DominatorTree(code);
+    dominatorTree = code.getDominatorTree();
   }
 
   private static class FieldAndObject {
@@ -0,0 +1,226 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.optimize;
+
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.graph.GraphLense.NestedGraphLense;
+import com.android.tools.r8.graph.JarCode;
+import com.android.tools.r8.shaking.Enqueuer.AppInfoWithLiveness;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Streams;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * Changes the return type of methods that return a boxed primitive, such as {@link Integer}, to
+ * the corresponding primitive type.
+ *
+ * <p>A method is rewritten if it cannot be overridden, it is not pinned, and all of its return
+ * values are boxed immediately before they are returned, i.e., every {@code areturn} is preceded
+ * by an invocation of {@code Integer.valueOf(int)}. The boxing is then moved to the call sites:
+ * the method returns the primitive value, and the invocations box the returned value using the same
+ * {@code valueOf} method. This preserves the identity of the returned values, since {@code valueOf}
+ * returns the same cached instance, or a fresh instance, for a given primitive value regardless of
+ * where it is called. The boxing at the call sites is removed by {@link
+ * CodeRewriter#removeBoxingRoundTrips} when the caller immediately unboxes the returned value.
+ */
+public class ReturnValueUnboxing {
+
+  private final AppView<AppInfoWithLiveness> appView;
+
+  private final BiMap<DexMethod, DexMethod> methodMapping = HashBiMap.create();
+
+  static class ReturnValueUnboxingGraphLense extends NestedGraphLense {
+
+    ReturnValueUnboxingGraphLense(
+        Map<DexType, DexType> typeMap,
+        Map<DexMethod, DexMethod> methodMap,
+        Map<DexField, DexField> fieldMap,
+        BiMap<DexField, DexField> originalFieldSignatures,
+        BiMap<DexMethod, DexMethod> originalMethodSignatures,
+        GraphLense previousLense,
+        DexItemFactory dexItemFactory) {
+      super(
+          typeMap,
+          methodMap,
+          fieldMap,
+          originalFieldSignatures,
+          originalMethodSignatures,
+          previousLense,
+          dexItemFactory);
+    }
+
+    @Override
+    public RewrittenPrototypeDescription lookupPrototypeChanges(DexMethod method) {
+      DexMethod originalMethod = originalMethodSignatures.getOrDefault(method, method);
+      RewrittenPrototypeDescription result = previousLense.lookupPrototypeChanges(originalMethod);
+      return originalMethod != method ? result.withPrimitiveReturn() : result;
+    }
+  }
+
+  public ReturnValueUnboxing(AppView<AppInfoWithLiveness> appView) {
+    this.appView = appView;
+  }
+
+  public GraphLense run(ExecutorService executorService) throws ExecutionException {
+    ThreadUtils.awaitFutures(
+        Streams.stream(appView.appInfo().classes())
+            .map(clazz -> executorService.submit(() -> processClass(clazz)))
+            // Materialize list such that all runnables are submitted to the executor service
+            // before calling awaitFutures().
+            .collect(Collectors.toList()));
+
+    if (!methodMapping.isEmpty()) {
+      return new ReturnValueUnboxingGraphLense(
+          ImmutableMap.of(),
+          methodMapping,
+          ImmutableMap.of(),
+          ImmutableBiMap.of(),
+          methodMapping.inverse(),
+          appView.graphLense(),
+          appView.dexItemFactory());
+    }
+
+    return appView.graphLense();
+  }
+
+  private void processClass(DexProgramClass clazz) {
+    DexItemFactory dexItemFactory = appView.dexItemFactory();
+    for (int i = 0; i < clazz.directMethods().length; i++) {
+      DexEncodedMethod method = clazz.directMethods()[i];
+      DexType primitiveType = dexItemFactory.getPrimitiveFromBoxed(method.method.proto.returnType);
+      if (primitiveType == null || !isCandidate(method)) {
+        continue;
+      }
+      DexMethod newSignature =
+          dexItemFactory.createMethod(
+              method.method.holder,
+              dexItemFactory.createProto(primitiveType, method.method.proto.parameters.values),
+              method.method.name);
+      if (clazz.lookupMethod(newSignature) != null) {
+        continue;
+      }
+      MethodNode node = method.getCode().asJarCode().getNode();
+      List<AbstractInsnNode> boxingInstructions =
+          findBoxingInstructions(node, dexItemFactory.getBoxPrimitiveMethod(primitiveType));
+      if (boxingInstructions == null) {
+        continue;
+      }
+      int returnOpcode =
+          Type.getType(primitiveType.toDescriptorString()).getOpcode(Opcodes.IRETURN);
+      for (AbstractInsnNode boxingInstruction : boxingInstructions) {
+        AbstractInsnNode returnInstruction = boxingInstruction.getNext();
+        while (returnInstruction.getOpcode() != Opcodes.ARETURN) {
+          returnInstruction = returnInstruction.getNext();
+        }
+        node.instructions.set(returnInstruction, new InsnNode(returnOpcode));
+        node.instructions.remove(boxingInstruction);
+      }
+      node.desc = newSignature.proto.toDescriptorString();
+      DexEncodedMethod newMethod = method.toTypeSubstitutedMethod(newSignature);
+      clazz.directMethods()[i] = newMethod;
+      synchronized (this) {
+        methodMapping.put(method.method, newSignature);
+      }
+    }
+  }
+
+  private boolean isCandidate(DexEncodedMethod method) {
+    if (ArgumentRemovalUtils.isPinned(method, appView)
+        || method.isInstanceInitializer()
+        || method.isClassInitializer()
+        || method.accessFlags.isSynchronized()) {
+      return false;
+    }
+    // Only process JAR code.
+    if (method.getCode() == null || !method.getCode().isJarCode()) {
+      return false;
+    }
+    JarCode code = method.getCode().asJarCode();
+    assert code.getOwner() == method;
+    // The boxing cannot be removed from an areturn that is covered by a catch handler, since the
+    // unboxing at the return may then need to be moved into the try block.
+    return code.getNode().tryCatchBlocks.isEmpty();
+  }
+
+  /**
+   * Returns the invocations of the given boxing method that immediately precede each {@code
+   * areturn} instruction in the given method, or null if some return value is not boxed
+   * immediately before it is returned.
+   */
+  private static List<AbstractInsnNode> findBoxingInstructions(
+      MethodNode node, DexMethod boxMethod) {
+    String owner = boxMethod.holder.getInternalName();
+    String name = boxMethod.name.toString();
+    String desc = boxMethod.proto.toDescriptorString();
+    Set<LabelNode> jumpTargets = computeJumpTargets(node);
+    List<AbstractInsnNode> boxingInstructions = new ArrayList<>();
+    for (AbstractInsnNode insn : node.instructions.toArray()) {
+      if (insn.getOpcode() != Opcodes.ARETURN) {
+        continue;
+      }
+      AbstractInsnNode previous = insn.getPrevious();
+      while (previous != null && previous.getOpcode() < 0) {
+        // Another path could reach the areturn with a different value on the stack.
+        if (previous instanceof LabelNode && jumpTargets.contains(previous)) {
+          return null;
+        }
+        previous = previous.getPrevious();
+      }
+      if (previous == null || previous.getOpcode() != Opcodes.INVOKESTATIC) {
+        return null;
+      }
+      MethodInsnNode invoke = (MethodInsnNode) previous;
+      if (!invoke.owner.equals(owner) || !invoke.name.equals(name) || !invoke.desc.equals(desc)) {
+        return null;
+      }
+      boxingInstructions.add(invoke);
+    }
+    return boxingInstructions.isEmpty() ? null : boxingInstructions;
+  }
+
+  private static Set<LabelNode> computeJumpTargets(MethodNode node) {
+    Set<LabelNode> jumpTargets = Sets.newIdentityHashSet();
+    for (AbstractInsnNode insn : node.instructions.toArray()) {
+      if (insn instanceof JumpInsnNode) {
+        jumpTargets.add(((JumpInsnNode) insn).label);
+      } else if (insn instanceof TableSwitchInsnNode) {
+        jumpTargets.add(((TableSwitchInsnNode) insn).dflt);
+        jumpTargets.addAll(((TableSwitchInsnNode) insn).labels);
+      } else if (insn instanceof LookupSwitchInsnNode) {
+        jumpTargets.add(((LookupSwitchInsnNode) insn).dflt);
+        jumpTargets.addAll(((LookupSwitchInsnNode) insn).labels);
+      }
+    }
+    return jumpTargets;
+  }
+}
@@ -4,7 +4,6 @@
 
 package com.android.tools.r8.ir.optimize;
 
-import static com.android.tools.r8.ir.code.DominatorTree.Assumption.MAY_HAVE_UNREACHABLE_BLOCKS;
 import static com.android.tools.r8.ir.optimize.UninstantiatedTypeOptimization.Strategy.ALLOW_ARGUMENT_REMOVAL;
 import static com.android.tools.r8.ir.optimize.UninstantiatedTypeOptimization.Strategy.DISALLOW_ARGUMENT_REMOVAL;
 
@@ -547,7 +546,7 @@ public class UninstantiatedTypeOptimization {
 
     // Unlink all blocks that are dominated by successor.
     {
-      DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+      DominatorTree dominatorTree = code.getDominatorTree();
       blocksToBeRemoved.addAll(block.unlink(normalSuccessorBlock, dominatorTree));
     }
 
@@ -584,7 +583,7 @@ public class UninstantiatedTypeOptimization {
             if (!dexItemFactory.npeType.isSubtypeOf(guard, appView.appInfo())) {
               // TODO(christofferqa): Consider updating previous dominator tree instead of
               // rebuilding it from scratch.
-              DominatorTree dominatorTree = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+              DominatorTree dominatorTree = code.getDominatorTree();
               blocksToBeRemoved.addAll(block.unlink(target, dominatorTree));
             }
           });
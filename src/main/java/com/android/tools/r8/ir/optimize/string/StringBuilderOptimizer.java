@@ -0,0 +1,439 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize.string;
+
+import static com.android.tools.r8.ir.analysis.type.Nullability.definitelyNotNull;
+
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexItemFactory.StringBuildingMethods;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.BasicBlock.ThrowingInfo;
+import com.android.tools.r8.ir.code.ConstNumber;
+import com.android.tools.r8.ir.code.ConstString;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.InstructionIterator;
+import com.android.tools.r8.ir.code.InstructionListIterator;
+import com.android.tools.r8.ir.code.InvokeDirect;
+import com.android.tools.r8.ir.code.InvokeMethodWithReceiver;
+import com.android.tools.r8.ir.code.InvokeVirtual;
+import com.android.tools.r8.ir.code.NewInstance;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.utils.InternalOutputMode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimizes operations on StringBuilder and StringBuffer instances that are local to a method.
+ *
+ * <p>A builder is only considered if all of its uses are calls to a constructor, append() and
+ * toString(), and if these are performed on a straight-line path of blocks that starts at the
+ * allocation, such that each operation is executed exactly once per allocation. Such a builder does
+ * not escape, and its content at each toString() call is known whenever the appended values are
+ * constants. Depending on the operations, the builder is then:
+ *
+ * <ul>
+ *   <li>removed, if all toString() calls are replaced by the constant content of the builder;
+ *   <li>removed, if the result of toString() is never used and the appends have no side effects;
+ *   <li>rewritten, such that adjacent constant appends are merged into a single append, and such
+ *       that the initial capacity of the builder fits the constant part of the content.
+ * </ul>
+ */
+public class StringBuilderOptimizer {
+
+  // The capacity of a builder that is created without an explicit capacity.
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final AppInfo appInfo;
+  private final DexItemFactory factory;
+  private final ThrowingInfo throwingInfo;
+
+  public StringBuilderOptimizer(AppInfo appInfo, InternalOutputMode outputMode) {
+    this.appInfo = appInfo;
+    this.factory = appInfo.dexItemFactory;
+    this.throwingInfo =
+        outputMode.isGeneratingClassFiles() ? ThrowingInfo.NO_THROW : ThrowingInfo.CAN_THROW;
+  }
+
+  public void optimize(IRCode code) {
+    List<NewInstance> candidates = new ArrayList<>();
+    InstructionIterator it = code.instructionIterator();
+    while (it.hasNext()) {
+      Instruction instruction = it.next();
+      if (instruction.isNewInstance()) {
+        NewInstance newInstance = instruction.asNewInstance();
+        if (getMethods(newInstance.clazz) != null
+            && newInstance.outValue() != null
+            && !newInstance.outValue().hasLocalInfo()) {
+          candidates.add(newInstance);
+        }
+      }
+    }
+    for (NewInstance newInstance : candidates) {
+      List<InvokeMethodWithReceiver> operations = computeOperations(newInstance);
+      if (operations != null) {
+        optimize(code, newInstance, operations, getMethods(newInstance.clazz));
+      }
+    }
+    assert code.isConsistentSSA();
+  }
+
+  private StringBuildingMethods getMethods(DexType type) {
+    if (type == factory.stringBuilderType) {
+      return factory.stringBuilderMethods;
+    }
+    if (type == factory.stringBufferType) {
+      return factory.stringBufferMethods;
+    }
+    return null;
+  }
+
+  // Returns the operations on the builder in execution order, or null if the builder is not local.
+  private List<InvokeMethodWithReceiver> computeOperations(NewInstance newInstance) {
+    StringBuildingMethods methods = getMethods(newInstance.clazz);
+    Value builder = newInstance.outValue();
+    // Collect the uses of the builder, including the uses of the results of append(), which
+    // return the receiver.
+    Set<Instruction> users = Sets.newIdentityHashSet();
+    Deque<Value> worklist = new ArrayDeque<>();
+    worklist.add(builder);
+    while (!worklist.isEmpty()) {
+      Value value = worklist.poll();
+      if (value.hasLocalInfo() || value.numberOfPhiUsers() > 0 || value.numberOfDebugUsers() > 0) {
+        return null;
+      }
+      for (Instruction user : value.uniqueUsers()) {
+        if (!isBuilderOperation(user, value, methods)) {
+          return null;
+        }
+        DexMethod invokedMethod = user.asInvokeMethodWithReceiver().getInvokedMethod();
+        if (invokedMethod.name == factory.constructorMethodName && value != builder) {
+          return null;
+        }
+        if (methods.isAppendMethod(invokedMethod) && user.outValue() != null) {
+          worklist.add(user.outValue());
+        }
+        users.add(user);
+      }
+    }
+    // Order the uses by walking the straight-line path of blocks from the allocation.
+    List<InvokeMethodWithReceiver> operations = new ArrayList<>(users.size());
+    BasicBlock block = newInstance.getBlock();
+    InstructionListIterator instructionIterator = block.listIterator(newInstance);
+    while (true) {
+      while (instructionIterator.hasNext() && operations.size() < users.size()) {
+        Instruction instruction = instructionIterator.next();
+        if (users.contains(instruction)) {
+          operations.add(instruction.asInvokeMethodWithReceiver());
+        }
+      }
+      if (operations.size() == users.size()) {
+        break;
+      }
+      if (!block.exit().isGoto()) {
+        return null;
+      }
+      BasicBlock next = block.exit().asGoto().getTarget();
+      if (next.getPredecessors().size() != 1 || next == newInstance.getBlock()) {
+        return null;
+      }
+      block = next;
+      instructionIterator = block.listIterator();
+    }
+    // The builder must be initialized before it is used.
+    if (operations.isEmpty()
+        || operations.get(0).getInvokedMethod().name != factory.constructorMethodName) {
+      return null;
+    }
+    return operations;
+  }
+
+  private boolean isBuilderOperation(
+      Instruction instruction, Value value, StringBuildingMethods methods) {
+    if (!instruction.isInvokeDirect() && !instruction.isInvokeVirtual()) {
+      return false;
+    }
+    InvokeMethodWithReceiver invoke = instruction.asInvokeMethodWithReceiver();
+    // The builder may only be used as the receiver.
+    if (invoke.getReceiver() != value || invoke.inValues().lastIndexOf(value) != 0) {
+      return false;
+    }
+    DexMethod invokedMethod = invoke.getInvokedMethod();
+    if (instruction.isInvokeDirect()) {
+      return invokedMethod.holder == methods.toString.holder
+          && invokedMethod.name == factory.constructorMethodName;
+    }
+    return invokedMethod == methods.toString || methods.isAppendMethod(invokedMethod);
+  }
+
+  private void optimize(
+      IRCode code,
+      NewInstance newInstance,
+      List<InvokeMethodWithReceiver> operations,
+      StringBuildingMethods methods) {
+    InvokeMethodWithReceiver constructor = operations.get(0);
+    String initialContent = getInitialContent(constructor, methods);
+    boolean hasSideEffects = !isSideEffectFree(constructor, methods);
+    boolean isConstant = initialContent != null && !hasSideEffects;
+    boolean isResultUsed = false;
+    for (InvokeMethodWithReceiver operation : operations.subList(1, operations.size())) {
+      if (operation.getInvokedMethod() == methods.toString) {
+        isResultUsed |= operation.outValue() != null && operation.outValue().isUsed();
+      } else if (operation.getInvokedMethod().name == factory.constructorMethodName) {
+        // The builder is initialized twice.
+        return;
+      } else {
+        isConstant &= getConstantArgument(operation, methods) != null;
+        hasSideEffects |= !isSideEffectFree(operation, methods);
+      }
+    }
+    if (isConstant) {
+      replaceToStringByConstants(code, operations, initialContent, methods);
+      removeOperations(newInstance, operations);
+    } else if (!isResultUsed && !hasSideEffects) {
+      removeOperations(newInstance, operations);
+    } else {
+      mergeConstantAppends(code, operations, methods);
+      presize(code, operations, methods);
+    }
+  }
+
+  // Returns the content of the builder after the constructor call, or null if not constant.
+  private String getInitialContent(
+      InvokeMethodWithReceiver constructor, StringBuildingMethods methods) {
+    DexMethod invokedMethod = constructor.getInvokedMethod();
+    if (invokedMethod == methods.defaultConstructor || invokedMethod == methods.intConstructor) {
+      return "";
+    }
+    if (invokedMethod == methods.stringConstructor) {
+      return getConstantString(constructor.inValues().get(1));
+    }
+    return null;
+  }
+
+  private static String getConstantString(Value value) {
+    Value aliasedValue = value.getAliasedValue();
+    if (aliasedValue.isPhi()
+        || !aliasedValue.definition.isConstString()
+        || !aliasedValue.isConstant()) {
+      return null;
+    }
+    return aliasedValue.definition.asConstString().getValue().toString();
+  }
+
+  // Returns the string that is appended by the given operation, or null if the operation is not
+  // an append() of a constant.
+  private String getConstantArgument(
+      InvokeMethodWithReceiver append, StringBuildingMethods methods) {
+    DexMethod invokedMethod = append.getInvokedMethod();
+    if (!methods.isAppendMethod(invokedMethod)) {
+      return null;
+    }
+    Value argument = append.inValues().get(append.inValues().size() - 1);
+    if (invokedMethod == methods.appendString || invokedMethod == methods.appendCharSequence) {
+      if (argument.getTypeLattice().isNullType()) {
+        return "null";
+      }
+      return getConstantString(argument);
+    }
+    if (!argument.isConstNumber()) {
+      return null;
+    }
+    ConstNumber constNumber = argument.getConstInstruction().asConstNumber();
+    if (invokedMethod == methods.appendBoolean) {
+      return String.valueOf(constNumber.getIntValue() != 0);
+    }
+    if (invokedMethod == methods.appendChar) {
+      return String.valueOf((char) constNumber.getIntValue());
+    }
+    if (invokedMethod == methods.appendInt) {
+      return String.valueOf(constNumber.getIntValue());
+    }
+    if (invokedMethod == methods.appendLong) {
+      return String.valueOf(constNumber.getLongValue());
+    }
+    return null;
+  }
+
+  // Returns true if the operation has no effect other than changing the content of the builder.
+  private boolean isSideEffectFree(
+      InvokeMethodWithReceiver operation, StringBuildingMethods methods) {
+    DexMethod invokedMethod = operation.getInvokedMethod();
+    if (invokedMethod == methods.defaultConstructor
+        || invokedMethod == methods.appendBoolean
+        || invokedMethod == methods.appendChar
+        || invokedMethod == methods.appendInt
+        || invokedMethod == methods.appendLong
+        || invokedMethod == methods.appendFloat
+        || invokedMethod == methods.appendDouble
+        || invokedMethod == methods.appendString) {
+      return true;
+    }
+    if (invokedMethod == methods.stringConstructor) {
+      // The constructor throws a NullPointerException for a null argument.
+      return operation.inValues().get(1).isNeverNull();
+    }
+    if (invokedMethod == methods.intConstructor) {
+      // The constructor throws a NegativeArraySizeException for a negative capacity.
+      Value capacity = operation.inValues().get(1);
+      return capacity.hasValueRange() && capacity.getValueRange().getMin() >= 0;
+    }
+    return false;
+  }
+
+  // Replaces the toString() calls with used results, and removes them from the operations.
+  private void replaceToStringByConstants(
+      IRCode code,
+      List<InvokeMethodWithReceiver> operations,
+      String initialContent,
+      StringBuildingMethods methods) {
+    StringBuilder content = new StringBuilder(initialContent);
+    Iterator<InvokeMethodWithReceiver> iterator = operations.listIterator(1);
+    while (iterator.hasNext()) {
+      InvokeMethodWithReceiver operation = iterator.next();
+      if (operation.getInvokedMethod() != methods.toString) {
+        content.append(getConstantArgument(operation, methods));
+        continue;
+      }
+      Value out = operation.outValue();
+      if (out == null || !out.isUsed()) {
+        continue;
+      }
+      Value stringValue =
+          code.createValue(
+              TypeLatticeElement.stringClassType(appInfo, definitelyNotNull()),
+              operation.getLocalInfo());
+      ConstString constString =
+          new ConstString(stringValue, factory.createString(content.toString()), throwingInfo);
+      iteratorAt(operation).replaceCurrentInstruction(constString);
+      iterator.remove();
+      code.hasConstString = true;
+    }
+  }
+
+  private static void removeOperations(
+      NewInstance newInstance, List<InvokeMethodWithReceiver> operations) {
+    // Remove the operations in reverse order, such that the results of append() are unused when
+    // the append() is removed.
+    for (Instruction operation : Lists.reverse(operations)) {
+      iteratorAt(operation).removeOrReplaceByDebugLocalRead();
+    }
+    iteratorAt(newInstance).removeOrReplaceByDebugLocalRead();
+  }
+
+  private static InstructionListIterator iteratorAt(Instruction instruction) {
+    InstructionListIterator it = instruction.getBlock().listIterator();
+    it.nextUntil(i -> i == instruction);
+    return it;
+  }
+
+  // Merges each sequence of adjacent appends of constants into a single append of a string.
+  private void mergeConstantAppends(
+      IRCode code, List<InvokeMethodWithReceiver> operations, StringBuildingMethods methods) {
+    int index = 1;
+    while (index < operations.size()) {
+      InvokeMethodWithReceiver first = operations.get(index);
+      String firstString = getConstantArgument(first, methods);
+      int end = index + 1;
+      StringBuilder merged = null;
+      while (firstString != null && end < operations.size()) {
+        String nextString = getConstantArgument(operations.get(end), methods);
+        if (nextString == null) {
+          break;
+        }
+        if (merged == null) {
+          merged = new StringBuilder(firstString);
+        }
+        merged.append(nextString);
+        end++;
+      }
+      // The new constant is inserted before the first append, which is only valid if the
+      // block has no catch handlers since the constant can throw.
+      if (merged != null && !first.getBlock().hasCatchHandlers()) {
+        mergeAppends(code, operations.subList(index, end), merged.toString(), methods);
+        operations.subList(index + 1, end).clear();
+      }
+      index++;
+    }
+  }
+
+  private void mergeAppends(
+      IRCode code,
+      List<InvokeMethodWithReceiver> appends,
+      String merged,
+      StringBuildingMethods methods) {
+    InvokeMethodWithReceiver first = appends.get(0);
+    Value stringValue =
+        code.createValue(TypeLatticeElement.stringClassType(appInfo, definitelyNotNull()));
+    ConstString constString =
+        new ConstString(stringValue, factory.createString(merged), throwingInfo);
+    constString.setPosition(first.getPosition());
+    Value outValue =
+        first.outValue() == null ? null : code.createValue(first.outValue().getTypeLattice());
+    InvokeVirtual append =
+        new InvokeVirtual(
+            methods.appendString, outValue, ImmutableList.of(first.getReceiver(), stringValue));
+    InstructionListIterator it = iteratorAt(first);
+    it.previous();
+    it.add(constString);
+    it.next();
+    it.replaceCurrentInstruction(append);
+    code.hasConstString = true;
+    appends.set(0, append);
+    // The results of the remaining appends are the receiver of the merged append.
+    for (int i = appends.size() - 1; i > 0; i--) {
+      InvokeMethodWithReceiver other = appends.get(i);
+      if (other.outValue() != null) {
+        other.outValue().replaceUsers(other.getReceiver());
+      }
+      iteratorAt(other).removeOrReplaceByDebugLocalRead();
+    }
+  }
+
+  // Sets the initial capacity of the builder to fit the constant content, if the default capacity
+  // is known to be too small.
+  private void presize(
+      IRCode code, List<InvokeMethodWithReceiver> operations, StringBuildingMethods methods) {
+    InvokeMethodWithReceiver constructor = operations.get(0);
+    if (constructor.getInvokedMethod() != methods.defaultConstructor) {
+      return;
+    }
+    int constantLength = 0;
+    for (InvokeMethodWithReceiver operation : operations.subList(1, operations.size())) {
+      if (operation.getInvokedMethod() == methods.toString) {
+        break;
+      }
+      String constant = getConstantArgument(operation, methods);
+      if (constant != null) {
+        constantLength += constant.length();
+      }
+    }
+    if (constantLength <= DEFAULT_CAPACITY) {
+      return;
+    }
+    ConstNumber capacity = code.createIntConstant(constantLength + DEFAULT_CAPACITY);
+    capacity.setPosition(constructor.getPosition());
+    InvokeDirect newConstructor =
+        new InvokeDirect(
+            methods.intConstructor,
+            null,
+            ImmutableList.of(constructor.getReceiver(), capacity.outValue()));
+    InstructionListIterator it = iteratorAt(constructor);
+    it.previous();
+    it.add(capacity);
+    it.next();
+    it.replaceCurrentInstruction(newConstructor);
+  }
+}
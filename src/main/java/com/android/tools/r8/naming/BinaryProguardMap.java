@@ -0,0 +1,702 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static com.android.tools.r8.utils.DescriptorUtils.descriptorToJavaType;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.naming.MemberNaming.FieldSignature;
+import com.android.tools.r8.naming.MemberNaming.MethodSignature;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.LebUtils;
+import com.android.tools.r8.utils.ThrowingSupplier;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Proguard map in a compact binary format, which can be used without parsing it.
+ *
+ * <p>The binary map holds the same information as the text format read by {@link
+ * ProguardMapReader}, and the comment lines at the start of the text. It is created from the text
+ * with {@link #fromText} and converted back with {@link #writeText}. The names are stored once in
+ * a string table, the member mappings of each class are stored in a record of LEB128 encoded
+ * string indices and line numbers, and two hash tables index the classes by obfuscated and by
+ * original name. A binary map file is memory mapped when opened, and a class is only decoded when
+ * it is looked up.
+ *
+ * <p>The layout of the format, where all offsets are from the start of the file and all u4 values
+ * are big endian, is:
+ *
+ * <pre>
+ *   header:
+ *     u4 magic, u4 version,
+ *     u4 string count, u4 offset of string offsets,
+ *     u4 class count, u4 offset of class index,
+ *     u4 hash table size, u4 offset of obfuscated name table, u4 offset of original name table,
+ *     u4 string index of the header comment
+ *   string offsets: u4 offset of the UTF-8 bytes of each string and u4 end of the last string
+ *   class index: u4 original name string index, u4 obfuscated name string index and u4 offset of
+ *     the record of each class
+ *   name tables: u4 class index + 1 (or 0 for an empty slot) of an open addressing hash table,
+ *     using String.hashCode of the name and linear probing
+ *   class record: uleb128 entry count, followed by the member entries and mapped ranges
+ *     ({@link ClassNaming.Builder#addMemberEntry} and {@link ClassNaming.Builder#addMappedRange})
+ *     in the order they were read from the text
+ * </pre>
+ */
+public class BinaryProguardMap implements ProguardMap {
+
+  private static final int MAGIC = 0x52384d50; // "R8MP"
+  private static final int VERSION = 1;
+
+  // Offsets of the fields of the header.
+  private static final int VERSION_OFFSET = 4;
+  private static final int STRING_COUNT_OFFSET = 8;
+  private static final int STRING_OFFSETS_OFFSET = 12;
+  private static final int CLASS_COUNT_OFFSET = 16;
+  private static final int CLASS_INDEX_OFFSET = 20;
+  private static final int TABLE_SIZE_OFFSET = 24;
+  private static final int OBFUSCATED_NAME_TABLE_OFFSET = 28;
+  private static final int ORIGINAL_NAME_TABLE_OFFSET = 32;
+  private static final int HEADER_COMMENT_OFFSET = 36;
+  private static final int HEADER_SIZE = 40;
+
+  // Offsets of the fields of a class index entry.
+  private static final int ORIGINAL_NAME = 0;
+  private static final int OBFUSCATED_NAME = 4;
+  private static final int RECORD = 8;
+  private static final int CLASS_INDEX_ENTRY_SIZE = 12;
+
+  // The kinds of entries of a class record, and the flags of mapped ranges.
+  private static final int KIND_MASK = 0x3;
+  private static final int FIELD_MEMBER = 0;
+  private static final int METHOD_MEMBER = 1;
+  private static final int MAPPED_RANGE = 2;
+  private static final int HAS_MINIFIED_RANGE = 1 << 2;
+  private static final int HAS_ORIGINAL_LINE = 1 << 3;
+  private static final int HAS_ORIGINAL_RANGE = 1 << 4;
+
+  /** Builds a binary map from the mappings read by {@link ProguardMapReader}. */
+  public static class Builder extends ProguardMap.Builder {
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<ClassBuilder> classes = new ArrayList<>();
+    private final Set<String> renamedNames = new HashSet<>();
+    private String headerComment = "";
+
+    private Builder() {}
+
+    private int getStringId(String string) {
+      Integer id = stringIds.get(string);
+      if (id == null) {
+        id = strings.size();
+        stringIds.put(string, id);
+        strings.add(string);
+      }
+      return id;
+    }
+
+    /** Set the comment lines at the start of the text, including their line endings. */
+    public Builder setHeaderComment(String headerComment) {
+      this.headerComment = headerComment;
+      return this;
+    }
+
+    @Override
+    ClassBuilder classNamingBuilder(String renamedName, String originalName) {
+      if (!renamedNames.add(renamedName)) {
+        throw new CompilationError(
+            "Duplicate class mapping for obfuscated name '" + renamedName + "'");
+      }
+      ClassBuilder classBuilder =
+          new ClassBuilder(this, getStringId(originalName), getStringId(renamedName));
+      classes.add(classBuilder);
+      return classBuilder;
+    }
+
+    @Override
+    public BinaryProguardMap build() {
+      int headerCommentId = getStringId(headerComment);
+      byte[][] encodedStrings = new byte[strings.size()][];
+      int stringsSize = 0;
+      for (int i = 0; i < encodedStrings.length; i++) {
+        encodedStrings[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        stringsSize += encodedStrings[i].length;
+      }
+      int tableSize = 1;
+      while (tableSize < 2 * classes.size()) {
+        tableSize <<= 1;
+      }
+      int recordsSize = 0;
+      for (ClassBuilder classBuilder : classes) {
+        recordsSize += classBuilder.getRecordSize();
+      }
+      int stringOffsetsOffset = HEADER_SIZE;
+      int stringsOffset = stringOffsetsOffset + (encodedStrings.length + 1) * Integer.BYTES;
+      int classIndexOffset = stringsOffset + stringsSize;
+      int obfuscatedNameTableOffset = classIndexOffset + classes.size() * CLASS_INDEX_ENTRY_SIZE;
+      int originalNameTableOffset = obfuscatedNameTableOffset + tableSize * Integer.BYTES;
+      int recordsOffset = originalNameTableOffset + tableSize * Integer.BYTES;
+
+      ByteBuffer buffer = ByteBuffer.allocate(recordsOffset + recordsSize);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putInt(encodedStrings.length);
+      buffer.putInt(stringOffsetsOffset);
+      buffer.putInt(classes.size());
+      buffer.putInt(classIndexOffset);
+      buffer.putInt(tableSize);
+      buffer.putInt(obfuscatedNameTableOffset);
+      buffer.putInt(originalNameTableOffset);
+      buffer.putInt(headerCommentId);
+      assert buffer.position() == HEADER_SIZE;
+
+      int stringOffset = stringsOffset;
+      for (byte[] encodedString : encodedStrings) {
+        buffer.putInt(stringOffset);
+        stringOffset += encodedString.length;
+      }
+      buffer.putInt(stringOffset);
+      for (byte[] encodedString : encodedStrings) {
+        buffer.put(encodedString);
+      }
+
+      int recordOffset = recordsOffset;
+      int[] obfuscatedNameTable = new int[tableSize];
+      int[] originalNameTable = new int[tableSize];
+      for (int i = 0; i < classes.size(); i++) {
+        ClassBuilder classBuilder = classes.get(i);
+        buffer.putInt(classBuilder.originalNameId);
+        buffer.putInt(classBuilder.renamedNameId);
+        buffer.putInt(recordOffset);
+        recordOffset += classBuilder.getRecordSize();
+        insert(obfuscatedNameTable, strings.get(classBuilder.renamedNameId), i);
+        insert(originalNameTable, strings.get(classBuilder.originalNameId), i);
+      }
+      for (int entry : obfuscatedNameTable) {
+        buffer.putInt(entry);
+      }
+      for (int entry : originalNameTable) {
+        buffer.putInt(entry);
+      }
+      for (ClassBuilder classBuilder : classes) {
+        classBuilder.writeRecord(buffer);
+      }
+      assert !buffer.hasRemaining();
+      buffer.clear();
+      return new BinaryProguardMap(buffer);
+    }
+
+    // Later classes with the same name are found after the first one, as for a map the first
+    // mapping of a name is used.
+    private static void insert(int[] table, String name, int classIndex) {
+      int mask = table.length - 1;
+      int slot = name.hashCode() & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = classIndex + 1;
+    }
+  }
+
+  private static class ClassBuilder extends ClassNaming.Builder {
+
+    private final Builder builder;
+    private final int originalNameId;
+    private final int renamedNameId;
+    private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+    private int entryCount = 0;
+
+    private ClassBuilder(Builder builder, int originalNameId, int renamedNameId) {
+      this.builder = builder;
+      this.originalNameId = originalNameId;
+      this.renamedNameId = renamedNameId;
+    }
+
+    private void putByte(int value) {
+      entries.write(value);
+    }
+
+    private void putUleb128(int value) {
+      byte[] bytes = LebUtils.encodeUleb128(value);
+      entries.write(bytes, 0, bytes.length);
+    }
+
+    private void putSleb128(int value) {
+      byte[] bytes = LebUtils.encodeSleb128(value);
+      entries.write(bytes, 0, bytes.length);
+    }
+
+    private void putString(String string) {
+      putUleb128(builder.getStringId(string));
+    }
+
+    private void putMethodSignature(MethodSignature signature) {
+      putString(signature.name);
+      putString(signature.type);
+      putUleb128(signature.parameters.length);
+      for (String parameter : signature.parameters) {
+        putString(parameter);
+      }
+    }
+
+    private void putRange(Range range) {
+      putSleb128(range.from);
+      putSleb128(range.to - range.from);
+    }
+
+    @Override
+    public ClassNaming.Builder addMemberEntry(MemberNaming entry) {
+      entryCount++;
+      if (entry.isMethodNaming()) {
+        putByte(METHOD_MEMBER);
+        putMethodSignature((MethodSignature) entry.getOriginalSignature());
+      } else {
+        FieldSignature signature = (FieldSignature) entry.getOriginalSignature();
+        putByte(FIELD_MEMBER);
+        putString(signature.name);
+        putString(signature.type);
+      }
+      putString(entry.getRenamedName());
+      return this;
+    }
+
+    @Override
+    public void addMappedRange(
+        Range obfuscatedRange,
+        MethodSignature originalSignature,
+        Object originalRange,
+        String obfuscatedName) {
+      entryCount++;
+      int kind = MAPPED_RANGE;
+      if (obfuscatedRange != null) {
+        kind |= HAS_MINIFIED_RANGE;
+      }
+      if (originalRange instanceof Integer) {
+        kind |= HAS_ORIGINAL_LINE;
+      } else if (originalRange != null) {
+        kind |= HAS_ORIGINAL_RANGE;
+      }
+      putByte(kind);
+      if (obfuscatedRange != null) {
+        putRange(obfuscatedRange);
+      }
+      putMethodSignature(originalSignature);
+      if (originalRange instanceof Integer) {
+        putSleb128((Integer) originalRange);
+      } else if (originalRange != null) {
+        putRange((Range) originalRange);
+      }
+      putString(obfuscatedName);
+    }
+
+    @Override
+    public ClassNaming build() {
+      // The classes are built by BinaryProguardMap.Builder.build.
+      throw new Unreachable();
+    }
+
+    private int getRecordSize() {
+      return LebUtils.sizeAsUleb128(entryCount) + entries.size();
+    }
+
+    private void writeRecord(ByteBuffer buffer) {
+      buffer.put(LebUtils.encodeUleb128(entryCount));
+      buffer.put(entries.toByteArray());
+    }
+  }
+
+  /** Reads a class record, the position is the only state so records can be read in parallel. */
+  private class RecordReader {
+
+    private final String[] stringCache;
+    private int position;
+
+    private RecordReader(int position, String[] stringCache) {
+      this.position = position;
+      this.stringCache = stringCache;
+    }
+
+    private int getUbyte() {
+      return buffer.get(position++) & 0xff;
+    }
+
+    private int getUleb128() {
+      int result = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = getUbyte();
+        result |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return result;
+    }
+
+    private int getSleb128() {
+      int result = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = getUbyte();
+        result |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return shift < Integer.SIZE && (b & 0x40) != 0 ? result | (-1 << shift) : result;
+    }
+
+    private String getString() {
+      int id = getUleb128();
+      if (stringCache == null) {
+        return BinaryProguardMap.this.getString(id);
+      }
+      String string = stringCache[id];
+      if (string == null) {
+        string = BinaryProguardMap.this.getString(id);
+        stringCache[id] = string;
+      }
+      return string;
+    }
+
+    private MethodSignature getMethodSignature() {
+      String name = getString();
+      String type = getString();
+      String[] parameters = new String[getUleb128()];
+      for (int i = 0; i < parameters.length; i++) {
+        parameters[i] = getString();
+      }
+      return new MethodSignature(name, type, parameters);
+    }
+
+    private Range getRange() {
+      int from = getSleb128();
+      return new Range(from, from + getSleb128());
+    }
+
+    private void addEntriesTo(ClassNaming.Builder classNamingBuilder) {
+      int entryCount = getUleb128();
+      for (int i = 0; i < entryCount; i++) {
+        int kind = getUbyte();
+        switch (kind & KIND_MASK) {
+          case FIELD_MEMBER:
+            {
+              String name = getString();
+              FieldSignature signature = new FieldSignature(name, getString());
+              classNamingBuilder.addMemberEntry(new MemberNaming(signature, getString()));
+              break;
+            }
+          case METHOD_MEMBER:
+            {
+              MethodSignature signature = getMethodSignature();
+              classNamingBuilder.addMemberEntry(new MemberNaming(signature, getString()));
+              break;
+            }
+          case MAPPED_RANGE:
+            {
+              Range obfuscatedRange = (kind & HAS_MINIFIED_RANGE) != 0 ? getRange() : null;
+              MethodSignature signature = getMethodSignature();
+              Object originalRange = null;
+              if ((kind & HAS_ORIGINAL_LINE) != 0) {
+                originalRange = getSleb128();
+              } else if ((kind & HAS_ORIGINAL_RANGE) != 0) {
+                originalRange = getRange();
+              }
+              classNamingBuilder.addMappedRange(
+                  obfuscatedRange, signature, originalRange, getString());
+              break;
+            }
+          default:
+            throw new CompilationError("Invalid binary Proguard map entry kind " + kind);
+        }
+      }
+    }
+  }
+
+  /** File consumer that writes the Proguard map it receives as a binary map. */
+  public static class FileConsumer extends StringConsumer.ForwardingConsumer {
+
+    private final Path outputPath;
+
+    /** Consumer that forwards to {@param consumer} and also writes to {@param outputPath}. */
+    public FileConsumer(Path outputPath, StringConsumer consumer) {
+      super(consumer);
+      this.outputPath = outputPath;
+    }
+
+    @Override
+    public void accept(String string, DiagnosticsHandler handler) {
+      super.accept(string, handler);
+      try {
+        Path parent = outputPath.getParent();
+        if (parent != null && !parent.toFile().exists()) {
+          Files.createDirectories(parent);
+        }
+        fromText(string).write(outputPath);
+      } catch (IOException e) {
+        handler.error(new ExceptionDiagnostic(e, new PathOrigin(outputPath)));
+      }
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private final int stringOffsetsOffset;
+  private final int classCount;
+  private final int classIndexOffset;
+  private final int tableSize;
+  private final int obfuscatedNameTableOffset;
+  private final int originalNameTableOffset;
+
+  private BinaryProguardMap(ByteBuffer buffer) {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new CompilationError("Not a binary Proguard map");
+    }
+    if (buffer.getInt(VERSION_OFFSET) != VERSION) {
+      throw new CompilationError(
+          "Unsupported binary Proguard map version " + buffer.getInt(VERSION_OFFSET));
+    }
+    this.buffer = buffer;
+    stringOffsetsOffset = buffer.getInt(STRING_OFFSETS_OFFSET);
+    classCount = buffer.getInt(CLASS_COUNT_OFFSET);
+    classIndexOffset = buffer.getInt(CLASS_INDEX_OFFSET);
+    tableSize = buffer.getInt(TABLE_SIZE_OFFSET);
+    if (tableSize <= 0 || Integer.bitCount(tableSize) != 1) {
+      throw new CompilationError("Invalid binary Proguard map table size " + tableSize);
+    }
+    obfuscatedNameTableOffset = buffer.getInt(OBFUSCATED_NAME_TABLE_OFFSET);
+    originalNameTableOffset = buffer.getInt(ORIGINAL_NAME_TABLE_OFFSET);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Returns true if the file {@code path} starts like a binary Proguard map. */
+  public static boolean isBinaryProguardMap(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return new DataInputStream(in).readInt() == MAGIC;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /** Memory maps the binary Proguard map file {@code path}. */
+  public static BinaryProguardMap mapFromFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new BinaryProguardMap(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /** Converts the text of a Proguard map to a binary map. */
+  public static BinaryProguardMap fromText(String text) throws IOException {
+    return fromText(() -> new BufferedReader(new StringReader(text)));
+  }
+
+  /** Converts the Proguard map text file {@code path} to a binary map. */
+  public static BinaryProguardMap fromTextFile(Path path) throws IOException {
+    return fromText(() -> Files.newBufferedReader(path, StandardCharsets.UTF_8));
+  }
+
+  private static BinaryProguardMap fromText(ThrowingSupplier<BufferedReader, IOException> text)
+      throws IOException {
+    Builder builder = builder();
+    try (BufferedReader reader = text.get()) {
+      StringBuilder headerComment = new StringBuilder();
+      for (String line = reader.readLine();
+          line != null && ProguardMapReader.isEmptyOrCommentLine(line);
+          line = reader.readLine()) {
+        headerComment.append(line).append('\n');
+      }
+      builder.setHeaderComment(headerComment.toString());
+    }
+    try (ProguardMapReader proguardReader = new ProguardMapReader(text.get())) {
+      proguardReader.parse(builder);
+    }
+    return builder.build();
+  }
+
+  /** Writes the binary map to {@code path}. */
+  public void write(Path path) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      ByteBuffer contents = buffer.duplicate();
+      contents.clear();
+      while (contents.hasRemaining()) {
+        channel.write(contents);
+      }
+    }
+  }
+
+  /**
+   * Writes the map as text, with the classes sorted as by {@link ClassNameMapper#write}. The text
+   * of a map written by ClassNameMapper is converted back to the same text.
+   */
+  public void writeText(Writer writer) throws IOException {
+    writer.write(getHeaderComment());
+    toClassNameMapper().write(writer);
+  }
+
+  /** Returns the comment lines at the start of the text that the map was created from. */
+  public String getHeaderComment() {
+    return getString(buffer.getInt(HEADER_COMMENT_OFFSET));
+  }
+
+  /** Returns the number of classes in the map. */
+  public int size() {
+    return classCount;
+  }
+
+  /** Returns the map with all classes decoded. */
+  public ClassNameMapper toClassNameMapper() {
+    ClassNameMapper.Builder builder = ClassNameMapper.builder();
+    addTo(builder);
+    return builder.build();
+  }
+
+  /** Adds all the classes to {@code mapBuilder} in the order they were read from the text. */
+  void addTo(ProguardMap.Builder mapBuilder) {
+    String[] stringCache = new String[buffer.getInt(STRING_COUNT_OFFSET)];
+    for (int i = 0; i < classCount; i++) {
+      ClassNaming.Builder classNamingBuilder =
+          mapBuilder.classNamingBuilder(getObfuscatedName(i), getOriginalName(i));
+      new RecordReader(getClassIndexEntry(i, RECORD), stringCache)
+          .addEntriesTo(classNamingBuilder);
+    }
+  }
+
+  /** Adds the member mappings of the class {@code classIndex} to {@code classNamingBuilder}. */
+  void addMembersTo(int classIndex, ClassNaming.Builder classNamingBuilder) {
+    new RecordReader(getClassIndexEntry(classIndex, RECORD), null)
+        .addEntriesTo(classNamingBuilder);
+  }
+
+  String getOriginalName(int classIndex) {
+    return getString(getClassIndexEntry(classIndex, ORIGINAL_NAME));
+  }
+
+  String getObfuscatedName(int classIndex) {
+    return getString(getClassIndexEntry(classIndex, OBFUSCATED_NAME));
+  }
+
+  /** Returns the index of the class with the obfuscated name or -1 if there is none. */
+  int lookupObfuscatedName(String obfuscatedName) {
+    return lookup(obfuscatedNameTableOffset, OBFUSCATED_NAME, obfuscatedName);
+  }
+
+  /** Returns the index of the class with the original name or -1 if there is none. */
+  int lookupOriginalName(String originalName) {
+    return lookup(originalNameTableOffset, ORIGINAL_NAME, originalName);
+  }
+
+  private int lookup(int tableOffset, int nameField, String name) {
+    byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+    int mask = tableSize - 1;
+    int slot = name.hashCode() & mask;
+    // The table always has empty slots, so a lookup that probes every slot has a corrupt table.
+    for (int probes = 0; probes < tableSize; probes++) {
+      int entry = buffer.getInt(tableOffset + slot * Integer.BYTES);
+      if (entry == 0) {
+        return -1;
+      }
+      int classIndex = entry - 1;
+      if (classIndex < 0 || classIndex >= classCount) {
+        throw new CompilationError("Invalid class index in binary Proguard map: " + classIndex);
+      }
+      if (stringEquals(getClassIndexEntry(classIndex, nameField), encodedName)) {
+        return classIndex;
+      }
+      slot = (slot + 1) & mask;
+    }
+    throw new CompilationError("Corrupt hash table in binary Proguard map");
+  }
+
+  private int getClassIndexEntry(int classIndex, int field) {
+    assert 0 <= classIndex && classIndex < classCount;
+    return buffer.getInt(classIndexOffset + classIndex * CLASS_INDEX_ENTRY_SIZE + field);
+  }
+
+  private int getStringStart(int id) {
+    return buffer.getInt(stringOffsetsOffset + id * Integer.BYTES);
+  }
+
+  private int getStringEnd(int id) {
+    return buffer.getInt(stringOffsetsOffset + (id + 1) * Integer.BYTES);
+  }
+
+  private String getString(int id) {
+    int start = getStringStart(id);
+    byte[] bytes = new byte[getStringEnd(id) - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private boolean stringEquals(int id, byte[] encodedString) {
+    int start = getStringStart(id);
+    if (getStringEnd(id) - start != encodedString.length) {
+      return false;
+    }
+    for (int i = 0; i < encodedString.length; i++) {
+      if (buffer.get(start + i) != encodedString[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean hasMapping(String obfuscatedName) {
+    return lookupObfuscatedName(obfuscatedName) >= 0;
+  }
+
+  @Override
+  public boolean hasMapping(DexType type) {
+    return hasMapping(descriptorToJavaType(type.descriptor.toString()));
+  }
+
+  @Override
+  public ClassNamingForNameMapper getClassNaming(DexType type) {
+    return getClassNaming(descriptorToJavaType(type.descriptor.toString()));
+  }
+
+  /** Decodes the class {@code obfuscatedName}, or returns null if there is none. */
+  public ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    int classIndex = lookupObfuscatedName(obfuscatedName);
+    if (classIndex < 0) {
+      return null;
+    }
+    ClassNamingForNameMapper.Builder builder =
+        ClassNamingForNameMapper.builder(obfuscatedName, getOriginalName(classIndex));
+    addMembersTo(classIndex, builder);
+    return builder.build();
+  }
+}
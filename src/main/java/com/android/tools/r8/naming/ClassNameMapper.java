@@ -88,6 +88,9 @@ public class ClassNameMapper implements ProguardMap {
         && !path.toFile().exists()) {
       return mapperFromString("");
     }
+    if (BinaryProguardMap.isBinaryProguardMap(path)) {
+      return BinaryProguardMap.mapFromFile(path).toClassNameMapper();
+    }
     return mapperFromInputStream(Files.newInputStream(path));
   }
 
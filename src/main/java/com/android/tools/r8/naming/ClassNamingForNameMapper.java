@@ -137,6 +137,24 @@ public class ClassNamingForNameMapper implements ClassNaming {
       return noLineRange == null ? Collections.emptyList() : Collections.singletonList(noLineRange);
     }
 
+    /**
+     * Return the MappedRanges of the methods that were renamed to this name, which are the general
+     * MappedRanges ("a() -> b") and the last MappedRange of each group of MappedRanges with the
+     * same minified range. The other MappedRanges of a group are inlined into the last one.
+     */
+    public List<MappedRange> allOutermostRanges() {
+      List<MappedRange> result = new ArrayList<>();
+      for (int i = 0; i < mappedRanges.size(); ++i) {
+        MappedRange rangeI = mappedRanges.get(i);
+        if (rangeI.minifiedRange == null
+            || i + 1 == mappedRanges.size()
+            || !rangeI.minifiedRange.equals(mappedRanges.get(i + 1).minifiedRange)) {
+          result.add(rangeI);
+        }
+      }
+      return result;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -0,0 +1,310 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static com.android.tools.r8.utils.DescriptorUtils.descriptorToJavaType;
+
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A Proguard map backed by a mapping file which is only indexed when opened.
+ *
+ * <p>The index maps each obfuscated class name to the original name and the location of the class
+ * mapping in the file. The members of a class are parsed with {@link ProguardMapReader} when the
+ * class is first looked up, and the most recently used classes are kept in a cache of bounded
+ * size. This makes looking up a few classes in a large mapping file much cheaper than {@link
+ * ClassNameMapper#mapperFromFile}, which parses all of the mapping file.
+ *
+ * <p>A {@link BinaryProguardMap} file is memory mapped instead of indexed, and classes are decoded
+ * from it when they are looked up.
+ *
+ * <p>Lookups are thread safe.
+ */
+public class IndexedClassNameMapper implements ProguardMap, Closeable {
+
+  public static final int DEFAULT_CACHE_SIZE = 1000;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // States of the scan of the lines of the mapping file when building the index.
+  private static final int LINE_START = 0;
+  private static final int CLASS_LINE = 1;
+  private static final int OTHER_LINE = 2;
+
+  private static class ClassEntry {
+
+    private final String originalName;
+    private final long offset;
+    private int length;
+
+    private ClassEntry(String originalName, long offset) {
+      this.originalName = originalName;
+      this.offset = offset;
+    }
+  }
+
+  private static class LRUCache {
+
+    private final int capacity;
+    // Iterates the entries from the least to the most recently accessed.
+    private final Map<String, ClassNamingForNameMapper> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    private LRUCache(int capacity) {
+      this.capacity = capacity;
+    }
+
+    private synchronized ClassNamingForNameMapper get(String obfuscatedName) {
+      return entries.get(obfuscatedName);
+    }
+
+    private synchronized void put(String obfuscatedName, ClassNamingForNameMapper classNaming) {
+      entries.put(obfuscatedName, classNaming);
+      if (entries.size() > capacity) {
+        Iterator<String> iterator = entries.keySet().iterator();
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+
+  private final Origin origin;
+  private final FileChannel channel;
+  private final Map<String, ClassEntry> index;
+  private final BinaryProguardMap binaryMap;
+  private final LRUCache cache;
+
+  private IndexedClassNameMapper(
+      Origin origin, FileChannel channel, Map<String, ClassEntry> index, int cacheSize) {
+    this.origin = origin;
+    this.channel = channel;
+    this.index = index;
+    this.binaryMap = null;
+    this.cache = new LRUCache(cacheSize);
+  }
+
+  private IndexedClassNameMapper(Origin origin, BinaryProguardMap binaryMap, int cacheSize) {
+    this.origin = origin;
+    this.channel = null;
+    this.index = null;
+    this.binaryMap = binaryMap;
+    this.cache = new LRUCache(cacheSize);
+  }
+
+  public static IndexedClassNameMapper mapperFromFile(Path path) throws IOException {
+    return mapperFromFile(path, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Index the mapping file {@code path}. The file is kept open until the mapper is closed, and
+   * at most {@code cacheSize} parsed classes are kept in memory.
+   */
+  public static IndexedClassNameMapper mapperFromFile(Path path, int cacheSize)
+      throws IOException {
+    assert cacheSize > 0;
+    Origin origin = new PathOrigin(path);
+    if (BinaryProguardMap.isBinaryProguardMap(path)) {
+      return new IndexedClassNameMapper(origin, BinaryProguardMap.mapFromFile(path), cacheSize);
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new IndexedClassNameMapper(origin, channel, buildIndex(origin, channel), cacheSize);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static Map<String, ClassEntry> buildIndex(Origin origin, FileChannel channel)
+      throws IOException {
+    Map<String, ClassEntry> index = new HashMap<>();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    byte[] line = new byte[256];
+    int lineLength = 0;
+    long lineStart = 0;
+    int state = LINE_START;
+    ClassEntry current = null;
+    long position = 0;
+    int read;
+    while ((read = channel.read(buffer, position)) >= 0) {
+      byte[] bytes = buffer.array();
+      for (int i = 0; i < read; i++) {
+        byte b = bytes[i];
+        switch (state) {
+          case LINE_START:
+            if (b == '\n') {
+              break;
+            }
+            // Member mappings are indented, all other lines are class mappings or comments.
+            if (b == ' ' || b == '\t' || b == '\r' || b == '#') {
+              state = OTHER_LINE;
+              break;
+            }
+            state = CLASS_LINE;
+            lineStart = position + i;
+            line[0] = b;
+            lineLength = 1;
+            break;
+          case CLASS_LINE:
+            if (b == '\n') {
+              current = addClass(origin, index, current, line, lineLength, lineStart);
+              state = LINE_START;
+            } else {
+              if (lineLength == line.length) {
+                line = Arrays.copyOf(line, lineLength * 2);
+              }
+              line[lineLength++] = b;
+            }
+            break;
+          case OTHER_LINE:
+            if (b == '\n') {
+              state = LINE_START;
+            }
+            break;
+          default:
+            throw new AssertionError();
+        }
+      }
+      position += read;
+      buffer.clear();
+    }
+    if (state == CLASS_LINE) {
+      current = addClass(origin, index, current, line, lineLength, lineStart);
+    }
+    if (current != null) {
+      current.length = Math.toIntExact(position - current.offset);
+    }
+    return index;
+  }
+
+  // Add the class mapping 'original -> obfuscated:' in line and end the previous class mapping.
+  private static ClassEntry addClass(
+      Origin origin,
+      Map<String, ClassEntry> index,
+      ClassEntry previous,
+      byte[] line,
+      int lineLength,
+      long lineStart) {
+    if (previous != null) {
+      previous.length = Math.toIntExact(lineStart - previous.offset);
+    }
+    String mapping = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+    int arrow = mapping.indexOf("->");
+    if (arrow < 0 || !mapping.endsWith(":")) {
+      throw new CompilationError("Invalid class mapping '" + mapping + "'", origin);
+    }
+    String originalName = mapping.substring(0, arrow).trim();
+    // Mappings of package-info classes are skipped by the ProguardMapReader as well.
+    if (originalName.endsWith("package-info")) {
+      return null;
+    }
+    String obfuscatedName = mapping.substring(arrow + 2, mapping.length() - 1).trim();
+    ClassEntry entry = new ClassEntry(originalName, lineStart);
+    if (index.putIfAbsent(obfuscatedName, entry) != null) {
+      throw new CompilationError(
+          "Duplicate class mapping for obfuscated name '" + obfuscatedName + "'", origin);
+    }
+    return entry;
+  }
+
+  /** Returns the number of classes in the mapping file. */
+  public int size() {
+    return binaryMap != null ? binaryMap.size() : index.size();
+  }
+
+  /**
+   * Deobfuscate a class name.
+   *
+   * <p>Returns the deobfuscated name if a mapping was found. Otherwise it returns the passed in
+   * name.
+   */
+  public String deobfuscateClassName(String obfuscatedName) {
+    if (binaryMap != null) {
+      int classIndex = binaryMap.lookupObfuscatedName(obfuscatedName);
+      return classIndex < 0 ? obfuscatedName : binaryMap.getOriginalName(classIndex);
+    }
+    ClassEntry entry = index.get(obfuscatedName);
+    return entry == null ? obfuscatedName : entry.originalName;
+  }
+
+  public boolean hasMapping(String obfuscatedName) {
+    return binaryMap != null
+        ? binaryMap.hasMapping(obfuscatedName)
+        : index.containsKey(obfuscatedName);
+  }
+
+  @Override
+  public boolean hasMapping(DexType type) {
+    return hasMapping(descriptorToJavaType(type.descriptor.toString()));
+  }
+
+  @Override
+  public ClassNamingForNameMapper getClassNaming(DexType type) {
+    return getClassNaming(descriptorToJavaType(type.descriptor.toString()));
+  }
+
+  /** Returns the parsed mapping of the class {@code obfuscatedName} or null if there is none. */
+  public ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    if (binaryMap != null) {
+      return binaryMap.getClassNaming(obfuscatedName);
+    }
+    ClassEntry entry = index.get(obfuscatedName);
+    if (entry == null) {
+      return null;
+    }
+    ClassNamingForNameMapper classNaming = cache.get(obfuscatedName);
+    if (classNaming == null) {
+      // Parse outside of the lock. Concurrent lookups of the same class may parse it twice, which
+      // gives equal results.
+      classNaming = parseClassNaming(obfuscatedName, entry);
+      cache.put(obfuscatedName, classNaming);
+    }
+    return classNaming;
+  }
+
+  private ClassNamingForNameMapper parseClassNaming(String obfuscatedName, ClassEntry entry) {
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+          throw new EOFException();
+        }
+      }
+      ClassNameMapper mapper =
+          ClassNameMapper.mapperFromInputStream(new ByteArrayInputStream(buffer.array()));
+      ClassNamingForNameMapper classNaming = mapper.getClassNaming(obfuscatedName);
+      if (classNaming == null) {
+        throw new CompilationError("Mapping of class '" + obfuscatedName + "' changed", origin);
+      }
+      return classNaming;
+    } catch (IOException e) {
+      throw new CompilationError(
+          "Failed to read mapping of class '" + obfuscatedName + "'", e, origin);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
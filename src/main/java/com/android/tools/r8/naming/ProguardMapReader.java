@@ -108,7 +108,7 @@ public class ProguardMapReader implements AutoCloseable {
     return skipLine();
   }
 
-  private static boolean isEmptyOrCommentLine(String line) {
+  static boolean isEmptyOrCommentLine(String line) {
     if (line == null) {
       return true;
     }
@@ -65,6 +65,11 @@ public class SeedMapper implements ProguardMap {
   }
 
   public static SeedMapper seedMapperFromFile(Path path) throws IOException {
+    if (BinaryProguardMap.isBinaryProguardMap(path)) {
+      SeedMapper.Builder builder = SeedMapper.builder();
+      BinaryProguardMap.mapFromFile(path).addTo(builder);
+      return builder.build();
+    }
     return seedMapperFromInputStream(Files.newInputStream(path));
   }
 
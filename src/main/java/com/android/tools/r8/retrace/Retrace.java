@@ -0,0 +1,289 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.Keep;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRangesOfName;
+import com.android.tools.r8.naming.IndexedClassNameMapper;
+import com.android.tools.r8.utils.OptionsParsing;
+import com.android.tools.r8.utils.OptionsParsing.ParseContext;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retrace stack traces of programs obfuscated by R8 or Proguard using the mapping file.
+ *
+ * <p>The mapping file is indexed with {@link IndexedClassNameMapper}, so only the classes that
+ * occur in the stack traces are parsed. Frames of methods inlined by R8 are expanded to one frame
+ * for each inlined method using the line number ranges of the mapping file.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ *   retrace [options] &lt;mapping-file&gt; [&lt;stacktrace-file&gt;]
+ *   retrace [options] --output &lt;dir&gt; &lt;mapping-file&gt; &lt;stacktrace-file&gt;...
+ * </pre>
+ *
+ * The first form retraces one stack trace file, or the standard input, to the standard output. The
+ * second form retraces a batch of stack trace files concurrently into files of the same name in the
+ * output directory.
+ */
+@Keep
+public class Retrace {
+
+  private static final String USAGE_MESSAGE =
+      String.join(
+          "\n",
+          "Usage: retrace [options] <mapping-file> [<stacktrace-file>]",
+          "       retrace [options] --output <dir> <mapping-file> <stacktrace-file>...",
+          " options:",
+          "  --output <dir>        # Retrace a batch of files into <dir>.",
+          "  --cache-size <n>      # Number of parsed classes to keep in memory (default "
+              + IndexedClassNameMapper.DEFAULT_CACHE_SIZE
+              + ").",
+          "  --threads <n>         # Number of threads for batch retracing.",
+          "  --help                # Print this message.");
+
+  // A frame such as '\tat a.b.c(SourceFile:12)', possibly with a module prefix 'java.base/'.
+  private static final Pattern FRAME =
+      Pattern.compile(
+          "^(\\s*at (?:[^\\s/(]*/)*)([^\\s/(]+)\\.([^\\s/.(]+)\\(([^:)]*)(?::(\\d+))?\\)(.*)$");
+  // An exception line such as 'Caused by: a.b: message'.
+  private static final Pattern EXCEPTION =
+      Pattern.compile("^(\\s*(?:Caused by: |Suppressed: |Exception in thread \"[^\"]*\" )?)"
+          + "([^\\s:]+)(:.*)?$");
+
+  private static final String NATIVE_METHOD = "Native Method";
+  private static final String UNKNOWN_SOURCE = "Unknown Source";
+
+  private final IndexedClassNameMapper mapper;
+
+  public Retrace(IndexedClassNameMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /** Retrace the lines of a stack trace. */
+  public List<String> retrace(List<String> stackTrace) {
+    List<String> result = new ArrayList<>(stackTrace.size());
+    for (String line : stackTrace) {
+      retraceLine(line, result::add);
+    }
+    return result;
+  }
+
+  /** Retrace the stack traces read from {@code input} and write them to {@code output}. */
+  public void retrace(BufferedReader input, Writer output) throws IOException {
+    List<String> retraced = new ArrayList<>();
+    for (String line = input.readLine(); line != null; line = input.readLine()) {
+      retraceLine(line, retraced::add);
+      for (String retracedLine : retraced) {
+        output.write(retracedLine);
+        output.write('\n');
+      }
+      retraced.clear();
+    }
+    output.flush();
+  }
+
+  /**
+   * Retrace each of the stack trace files into the file of the same name in {@code outputDir}.
+   * The files are retraced concurrently on {@code executor}, sharing the parsed classes.
+   */
+  public void retrace(List<Path> stackTraces, Path outputDir, ExecutorService executor)
+      throws IOException, ExecutionException {
+    Files.createDirectories(outputDir);
+    List<Future<?>> futures = new ArrayList<>(stackTraces.size());
+    for (Path stackTrace : stackTraces) {
+      Path output = outputDir.resolve(stackTrace.getFileName());
+      futures.add(
+          executor.submit(
+              () -> {
+                try (BufferedReader reader =
+                        Files.newBufferedReader(stackTrace, StandardCharsets.UTF_8);
+                    Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                  retrace(reader, writer);
+                }
+                return null;
+              }));
+    }
+    ThreadUtils.awaitFutures(futures);
+  }
+
+  private void retraceLine(String line, Consumer<String> result) {
+    Matcher frame = FRAME.matcher(line);
+    if (frame.matches()) {
+      retraceFrame(frame, result);
+      return;
+    }
+    Matcher exception = EXCEPTION.matcher(line);
+    if (exception.matches() && mapper.hasMapping(exception.group(2))) {
+      result.accept(
+          exception.group(1)
+              + mapper.deobfuscateClassName(exception.group(2))
+              + (exception.group(3) == null ? "" : exception.group(3)));
+      return;
+    }
+    result.accept(line);
+  }
+
+  private void retraceFrame(Matcher frame, Consumer<String> result) {
+    String prefix = frame.group(1);
+    String className = frame.group(2);
+    String methodName = frame.group(3);
+    String fileName = frame.group(4);
+    int lineNumber = frame.group(5) == null ? -1 : Integer.parseInt(frame.group(5));
+    String suffix = frame.group(6);
+    ClassNamingForNameMapper classNaming = mapper.getClassNaming(className);
+    if (classNaming == null) {
+      result.accept(frame.group());
+      return;
+    }
+    MappedRangesOfName mappedRanges = classNaming.mappedRangesByRenamedName.get(methodName);
+    List<MappedRange> ranges = null;
+    if (mappedRanges != null) {
+      ranges =
+          lineNumber >= 0
+              ? mappedRanges.allRangesForLine(lineNumber)
+              : mappedRanges.allOutermostRanges();
+    }
+    if (ranges == null || ranges.isEmpty()) {
+      // The method is not renamed, or not in the mapping, only the holder is.
+      result.accept(
+          frameToString(
+              prefix, classNaming.originalName, methodName, fileName, lineNumber, suffix));
+      return;
+    }
+    // With a line number the ranges are the inlined methods, innermost first, followed by the
+    // method they are inlined into. Without a line number all the methods with the name are
+    // possible and methods that only differ in their signature give the same frame.
+    Collection<String> frames = lineNumber >= 0 ? new ArrayList<>() : new LinkedHashSet<>();
+    for (MappedRange range : ranges) {
+      String holder = classNaming.originalName;
+      String name = range.signature.name;
+      int lastDot = name.lastIndexOf('.');
+      if (lastDot >= 0) {
+        // The method is inlined from another class.
+        holder = name.substring(0, lastDot);
+        name = name.substring(lastDot + 1);
+      }
+      int originalLineNumber = lineNumber >= 0 ? range.getOriginalLineNumber(lineNumber) : -1;
+      frames.add(frameToString(prefix, holder, name, fileName, originalLineNumber, suffix));
+    }
+    frames.forEach(result);
+  }
+
+  private static String frameToString(
+      String prefix,
+      String className,
+      String methodName,
+      String fileName,
+      int lineNumber,
+      String suffix) {
+    StringBuilder builder = new StringBuilder(prefix);
+    builder.append(className).append('.').append(methodName).append('(');
+    if (fileName.equals(NATIVE_METHOD) || fileName.equals(UNKNOWN_SOURCE)) {
+      builder.append(fileName);
+    } else {
+      builder.append(sourceFileForClass(className));
+    }
+    if (lineNumber >= 0) {
+      builder.append(':').append(lineNumber);
+    }
+    return builder.append(')').append(suffix).toString();
+  }
+
+  // Like Proguard retrace the source file is guessed from the name of the outermost class.
+  private static String sourceFileForClass(String className) {
+    String simpleName = className.substring(className.lastIndexOf('.') + 1);
+    int dollar = simpleName.indexOf('$');
+    if (dollar > 0) {
+      simpleName = simpleName.substring(0, dollar);
+    }
+    return simpleName + ".java";
+  }
+
+  public static void main(String[] args) throws IOException, ExecutionException {
+    Path output = null;
+    int cacheSize = IndexedClassNameMapper.DEFAULT_CACHE_SIZE;
+    int threads = ThreadUtils.NOT_SPECIFIED;
+    List<Path> files = new ArrayList<>();
+    ParseContext context = new ParseContext(args);
+    while (context.head() != null) {
+      if (context.head().equals("--help")) {
+        System.out.println(USAGE_MESSAGE);
+        return;
+      }
+      String outputArgument = OptionsParsing.tryParseSingle(context, "--output", null);
+      if (outputArgument != null) {
+        output = Paths.get(outputArgument);
+        continue;
+      }
+      String cacheSizeArgument = OptionsParsing.tryParseSingle(context, "--cache-size", null);
+      if (cacheSizeArgument != null) {
+        cacheSize = Integer.parseInt(cacheSizeArgument);
+        continue;
+      }
+      String threadsArgument = OptionsParsing.tryParseSingle(context, "--threads", null);
+      if (threadsArgument != null) {
+        threads = Integer.parseInt(threadsArgument);
+        continue;
+      }
+      if (context.head().startsWith("--")) {
+        throw new RuntimeException("Unknown option: " + context.head() + "\n" + USAGE_MESSAGE);
+      }
+      files.add(Paths.get(context.head()));
+      context.next();
+    }
+    if (files.isEmpty()
+        || cacheSize <= 0
+        || (output == null ? files.size() > 2 : files.size() < 2)) {
+      throw new RuntimeException(USAGE_MESSAGE);
+    }
+    try (IndexedClassNameMapper mapper =
+        IndexedClassNameMapper.mapperFromFile(files.get(0), cacheSize)) {
+      Retrace retrace = new Retrace(mapper);
+      if (output != null) {
+        ExecutorService executor = ThreadUtils.getExecutorService(threads);
+        try {
+          retrace.retrace(files.subList(1, files.size()), output, executor);
+        } finally {
+          executor.shutdown();
+        }
+        return;
+      }
+      Writer writer =
+          new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+      if (files.size() == 2) {
+        try (BufferedReader reader =
+            Files.newBufferedReader(files.get(1), StandardCharsets.UTF_8)) {
+          retrace.retrace(reader, writer);
+        }
+      } else {
+        retrace.retrace(
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), writer);
+      }
+    }
+  }
+}
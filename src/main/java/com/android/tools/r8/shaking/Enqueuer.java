@@ -58,6 +58,7 @@ import com.android.tools.r8.references.Reference;
 import com.android.tools.r8.references.TypeReference;
 import com.android.tools.r8.shaking.RootSetBuilder.ConsequentRootSet;
 import com.android.tools.r8.shaking.RootSetBuilder.IfRuleEvaluator;
+import com.android.tools.r8.shaking.RootSetBuilder.IfRuleIndex;
 import com.android.tools.r8.shaking.RootSetBuilder.RootSet;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.StringDiagnostic;
@@ -118,17 +119,16 @@ public class Enqueuer {
 
   private final Map<DexType, Set<DexMethod>> virtualInvokes = Maps.newIdentityHashMap();
   private final Map<DexType, Set<DexMethod>> interfaceInvokes = Maps.newIdentityHashMap();
-  private final Map<DexType, Set<TargetWithContext<DexMethod>>> superInvokes =
-      Maps.newIdentityHashMap();
+  private final Map<DexMethod, Set<DexEncodedMethod>> superInvokes = Maps.newIdentityHashMap();
   private final Map<DexType, Set<DexMethod>> directInvokes = Maps.newIdentityHashMap();
   private final Map<DexType, Set<DexMethod>> staticInvokes = Maps.newIdentityHashMap();
-  private final Map<DexType, Set<TargetWithContext<DexField>>> instanceFieldsWritten =
+  private final Map<DexField, Set<DexEncodedMethod>> instanceFieldsWritten =
       Maps.newIdentityHashMap();
-  private final Map<DexType, Set<TargetWithContext<DexField>>> instanceFieldsRead =
+  private final Map<DexField, Set<DexEncodedMethod>> instanceFieldsRead =
       Maps.newIdentityHashMap();
-  private final Map<DexType, Set<TargetWithContext<DexField>>> staticFieldsRead =
+  private final Map<DexField, Set<DexEncodedMethod>> staticFieldsRead =
       Maps.newIdentityHashMap();
-  private final Map<DexType, Set<TargetWithContext<DexField>>> staticFieldsWritten =
+  private final Map<DexField, Set<DexEncodedMethod>> staticFieldsWritten =
       Maps.newIdentityHashMap();
   private final Set<DexCallSite> callSites = Sets.newIdentityHashSet();
 
@@ -171,6 +171,14 @@ public class Enqueuer {
    * for these.
    */
   private final Set<DexType> liveTypes = Sets.newIdentityHashSet();
+  /**
+   * Set of types that have become live, or whose live or targeted members have changed, since the
+   * -if rules were last evaluated. Only these types can satisfy an -if rule that has not been
+   * applied yet.
+   */
+  private final Set<DexType> typesToEvaluateIfRulesFor = Sets.newIdentityHashSet();
+  /** Index of the -if rules, which is created the first time the -if rules are evaluated. */
+  private IfRuleIndex ifRuleIndex;
   /**
    * Set of annotation types that are instantiated.
    */
@@ -400,29 +408,58 @@ public class Enqueuer {
     return seen.computeIfAbsent(item.getHolder(), (ignore) -> Sets.newIdentityHashSet()).add(item);
   }
 
+  // The contexts are recorded per target, such that registering an access does not allocate
+  // unless it is the first access to the target.
   private <S extends DexItem, T extends Descriptor<S, T>> boolean registerItemWithTargetAndContext(
-      Map<DexType, Set<TargetWithContext<T>>> seen, T item, DexEncodedMethod context) {
+      Map<T, Set<DexEncodedMethod>> seen, T item, DexEncodedMethod context) {
     DexType holder = item.getHolder().toBaseType(appInfo.dexItemFactory);
     if (!holder.isClassType()) {
       return false;
     }
     markTypeAsLive(holder);
-    return seen.computeIfAbsent(item.getHolder(), (ignore) -> new HashSet<>())
-        .add(new TargetWithContext<>(item, context));
+    return seen.computeIfAbsent(item, (ignore) -> Sets.newIdentityHashSet()).add(context);
   }
 
   private class UseRegistry extends com.android.tools.r8.graph.UseRegistry {
 
     private final DexEncodedMethod currentMethod;
 
+    // The reasons only depend on the current method, and are therefore shared by all the items
+    // that are referenced from it. They are created lazily, since most methods only give rise to
+    // some of them.
+    private KeepReason invokedFromReason;
+    private KeepReason fieldReferencedInReason;
+    private KeepReason instantiatedInReason;
+
     private UseRegistry(DexItemFactory factory, DexEncodedMethod currentMethod) {
       super(factory);
       this.currentMethod = currentMethod;
     }
 
+    private KeepReason invokedFromCurrentMethod() {
+      if (invokedFromReason == null) {
+        invokedFromReason = KeepReason.invokedFrom(currentMethod);
+      }
+      return invokedFromReason;
+    }
+
+    private KeepReason fieldReferencedInCurrentMethod() {
+      if (fieldReferencedInReason == null) {
+        fieldReferencedInReason = KeepReason.fieldReferencedIn(currentMethod);
+      }
+      return fieldReferencedInReason;
+    }
+
+    private KeepReason instantiatedInCurrentMethod() {
+      if (instantiatedInReason == null) {
+        instantiatedInReason = KeepReason.instantiatedIn(currentMethod);
+      }
+      return instantiatedInReason;
+    }
+
     @Override
     public boolean registerInvokeVirtual(DexMethod method) {
-      return registerInvokeVirtual(method, KeepReason.invokedFrom(currentMethod));
+      return registerInvokeVirtual(method, invokedFromCurrentMethod());
     }
 
     boolean registerInvokeVirtual(DexMethod method, KeepReason keepReason) {
@@ -444,7 +481,7 @@ public class Enqueuer {
 
     @Override
     public boolean registerInvokeDirect(DexMethod method) {
-      return registerInvokeDirect(method, KeepReason.invokedFrom(currentMethod));
+      return registerInvokeDirect(method, invokedFromCurrentMethod());
     }
 
     boolean registerInvokeDirect(DexMethod method, KeepReason keepReason) {
@@ -460,7 +497,7 @@ public class Enqueuer {
 
     @Override
     public boolean registerInvokeStatic(DexMethod method) {
-      return registerInvokeStatic(method, KeepReason.invokedFrom(currentMethod));
+      return registerInvokeStatic(method, invokedFromCurrentMethod());
     }
 
     boolean registerInvokeStatic(DexMethod method, KeepReason keepReason) {
@@ -487,7 +524,7 @@ public class Enqueuer {
 
     @Override
     public boolean registerInvokeInterface(DexMethod method) {
-      return registerInvokeInterface(method, KeepReason.invokedFrom(currentMethod));
+      return registerInvokeInterface(method, invokedFromCurrentMethod());
     }
 
     boolean registerInvokeInterface(DexMethod method, KeepReason keepReason) {
@@ -525,7 +562,7 @@ public class Enqueuer {
         Log.verbose(getClass(), "Register Iput `%s`.", field);
       }
       // TODO(herhut): We have to add this, but DCR should eliminate dead writes.
-      workList.add(Action.markReachableField(field, KeepReason.fieldReferencedIn(currentMethod)));
+      workList.add(Action.markReachableField(field, fieldReferencedInCurrentMethod()));
       return true;
     }
 
@@ -537,13 +574,13 @@ public class Enqueuer {
       if (Log.ENABLED) {
         Log.verbose(getClass(), "Register Iget `%s`.", field);
       }
-      workList.add(Action.markReachableField(field, KeepReason.fieldReferencedIn(currentMethod)));
+      workList.add(Action.markReachableField(field, fieldReferencedInCurrentMethod()));
       return true;
     }
 
     @Override
     public boolean registerNewInstance(DexType type) {
-      return registerNewInstance(type, KeepReason.instantiatedIn(currentMethod));
+      return registerNewInstance(type, instantiatedInCurrentMethod());
     }
 
     public boolean registerNewInstance(DexType type, KeepReason keepReason) {
@@ -559,7 +596,7 @@ public class Enqueuer {
       if (Log.ENABLED) {
         Log.verbose(getClass(), "Register Sget `%s`.", field);
       }
-      markStaticFieldAsLive(field, KeepReason.fieldReferencedIn(currentMethod));
+      markStaticFieldAsLive(field, fieldReferencedInCurrentMethod());
       return true;
     }
 
@@ -572,7 +609,7 @@ public class Enqueuer {
         Log.verbose(getClass(), "Register Sput `%s`.", field);
       }
       // TODO(herhut): We have to add this, but DCR should eliminate dead writes.
-      markStaticFieldAsLive(field, KeepReason.fieldReferencedIn(currentMethod));
+      markStaticFieldAsLive(field, fieldReferencedInCurrentMethod());
       return true;
     }
 
@@ -758,6 +795,12 @@ public class Enqueuer {
   // Actual actions performed.
   //
 
+  private void recordLivenessChangeForIfRules(DexType type) {
+    if (!rootSet.ifRules.isEmpty()) {
+      typesToEvaluateIfRulesFor.add(type);
+    }
+  }
+
   private void markTypeAsLive(DexType type) {
     type = type.toBaseType(appInfo.dexItemFactory);
     if (!type.isClassType()) {
@@ -768,6 +811,7 @@ public class Enqueuer {
       if (Log.ENABLED) {
         Log.verbose(getClass(), "Type `%s` has become live.", type);
       }
+      recordLivenessChangeForIfRules(type);
       DexClass holder = appInfo.definitionFor(type);
       if (holder == null) {
         reportMissingClass(type);
@@ -937,6 +981,7 @@ public class Enqueuer {
     if (!targetedMethods.add(method, reason)) {
       return;
     }
+    recordLivenessChangeForIfRules(method.method.holder);
     markTypeAsLive(method.method.holder);
     markParameterAndReturnTypesAsLive(method);
     processAnnotations(method.annotations.annotations);
@@ -1051,13 +1096,13 @@ public class Enqueuer {
 
   private void transitionNonAbstractMethodsToLiveAndShadow(Iterable<DexEncodedMethod> reachable,
       DexType instantiatedType, ScopedDexMethodSet seen) {
+    KeepReason reason = KeepReason.reachableFromLiveType(instantiatedType);
     for (DexEncodedMethod encodedMethod : reachable) {
       if (seen.addMethod(encodedMethod)) {
         // Abstract methods do shadow implementations but they cannot be live, as they have no
         // code.
         if (!encodedMethod.accessFlags.isAbstract()) {
-          markVirtualMethodAsLive(encodedMethod,
-              KeepReason.reachableFromLiveType(instantiatedType));
+          markVirtualMethodAsLive(encodedMethod, reason);
         }
       }
     }
@@ -1077,8 +1122,9 @@ public class Enqueuer {
       }
       SetWithReason<DexEncodedField> reachableFields = reachableInstanceFields.get(type);
       if (reachableFields != null) {
+        KeepReason reason = KeepReason.reachableFromLiveType(type);
         for (DexEncodedField field : reachableFields.getItems()) {
-          markInstanceFieldAsLive(field, KeepReason.reachableFromLiveType(type));
+          markInstanceFieldAsLive(field, reason);
         }
       }
       type = clazz.superType;
@@ -1111,7 +1157,9 @@ public class Enqueuer {
             encodedField.field);
       }
     }
-    liveFields.add(encodedField, reason);
+    if (liveFields.add(encodedField, reason)) {
+      recordLivenessChangeForIfRules(encodedField.field.clazz);
+    }
     collectProguardCompatibilityRule(reason);
     // Add all dependent members to the workqueue.
     enqueueRootItems(rootSet.getDependentItems(encodedField));
@@ -1124,7 +1172,9 @@ public class Enqueuer {
     if (Log.ENABLED) {
       Log.verbose(getClass(), "Adding instance field `%s` to live set.", field.field);
     }
-    liveFields.add(field, reason);
+    if (liveFields.add(field, reason)) {
+      recordLivenessChangeForIfRules(field.field.clazz);
+    }
     collectProguardCompatibilityRule(reason);
     // Add all dependent members to the workqueue.
     enqueueRootItems(rootSet.getDependentItems(field));
@@ -1202,8 +1252,15 @@ public class Enqueuer {
   }
 
   private boolean isInstantiatedOrHasInstantiatedSubtype(DexType type) {
-    return instantiatedTypes.contains(type)
-        || appInfo.subtypes(type).stream().anyMatch(instantiatedTypes::contains);
+    if (instantiatedTypes.contains(type)) {
+      return true;
+    }
+    for (DexType subtype : appInfo.subtypes(type)) {
+      if (instantiatedTypes.contains(subtype)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private void markInstanceFieldAsReachable(DexField field, KeepReason reason) {
@@ -1456,15 +1513,26 @@ public class Enqueuer {
         numOfLiveItemsAfterProcessing += (long) liveMethods.items.size();
         numOfLiveItemsAfterProcessing += (long) liveFields.items.size();
         if (numOfLiveItemsAfterProcessing > numOfLiveItems) {
+          if (ifRuleIndex == null) {
+            ifRuleIndex = new IfRuleIndex(rootSet.ifRules);
+          }
           RootSetBuilder consequentSetBuilder =
               new RootSetBuilder(appView, rootSet.ifRules, options);
           IfRuleEvaluator ifRuleEvaluator =
               consequentSetBuilder.getIfRuleEvaluator(
-                  liveFields.getItems(),
-                  liveMethods.getItems(),
-                  targetedMethods.getItems(),
+                  liveFields.getItemsView(),
+                  liveMethods.getItemsView(),
+                  targetedMethods.getItemsView(),
+                  ifRuleIndex,
                   executorService);
-          ConsequentRootSet consequentRootSet = ifRuleEvaluator.run(liveTypes);
+          // The types are only evaluated if they are live. The remaining types are evaluated when
+          // they become live, since they are then recorded again.
+          List<DexType> typesToEvaluate =
+              typesToEvaluateIfRulesFor.stream()
+                  .filter(liveTypes::contains)
+                  .collect(Collectors.toList());
+          typesToEvaluateIfRulesFor.clear();
+          ConsequentRootSet consequentRootSet = ifRuleEvaluator.run(typesToEvaluate);
           rootSet.addConsequentRootSet(consequentRootSet);
           enqueueRootItems(consequentRootSet.noShrinking);
           // Check if any newly dependent members are not static, and in that case find the holder
@@ -1569,6 +1637,7 @@ public class Enqueuer {
 
   private void processNewlyLiveMethod(DexEncodedMethod method, KeepReason reason) {
     if (liveMethods.add(method, reason)) {
+      recordLivenessChangeForIfRules(method.method.holder);
       collectProguardCompatibilityRule(reason);
       DexClass holder = appInfo.definitionFor(method.method.holder);
       assert holder != null;
@@ -1609,34 +1678,20 @@ public class Enqueuer {
     }
   }
 
-  private Map<DexField, Set<DexEncodedMethod>> collectFields(
-      Map<DexType, Set<TargetWithContext<DexField>>> map) {
-    Map<DexField, Set<DexEncodedMethod>> result = new IdentityHashMap<>();
-    for (Entry<DexType, Set<TargetWithContext<DexField>>> entry : map.entrySet()) {
-      for (TargetWithContext<DexField> fieldWithContext : entry.getValue()) {
-        DexField field = fieldWithContext.getTarget();
-        DexEncodedMethod context = fieldWithContext.getContext();
-        result.computeIfAbsent(field, k -> Sets.newIdentityHashSet())
-            .add(context);
-      }
-    }
-    return result;
-  }
-
   Map<DexField, Set<DexEncodedMethod>> collectInstanceFieldsRead() {
-    return Collections.unmodifiableMap(collectFields(instanceFieldsRead));
+    return Collections.unmodifiableMap(instanceFieldsRead);
   }
 
   Map<DexField, Set<DexEncodedMethod>> collectInstanceFieldsWritten() {
-    return Collections.unmodifiableMap(collectFields(instanceFieldsWritten));
+    return Collections.unmodifiableMap(instanceFieldsWritten);
   }
 
   Map<DexField, Set<DexEncodedMethod>> collectStaticFieldsRead() {
-    return Collections.unmodifiableMap(collectFields(staticFieldsRead));
+    return Collections.unmodifiableMap(staticFieldsRead);
   }
 
   Map<DexField, Set<DexEncodedMethod>> collectStaticFieldsWritten() {
-    return Collections.unmodifiableMap(collectFields(staticFieldsWritten));
+    return Collections.unmodifiableMap(staticFieldsWritten);
   }
 
   private Set<DexField> collectReachedFields(
@@ -2033,7 +2088,9 @@ public class Enqueuer {
           DexDefinition.mapToReference(enqueuer.pinnedItems.stream()).collect(Collectors.toSet());
       this.virtualInvokes = joinInvokedMethods(enqueuer.virtualInvokes);
       this.interfaceInvokes = joinInvokedMethods(enqueuer.interfaceInvokes);
-      this.superInvokes = joinInvokedMethods(enqueuer.superInvokes, TargetWithContext::getTarget);
+      this.superInvokes =
+          ImmutableSortedSet.copyOf(
+              PresortedComparable<DexMethod>::slowCompareTo, enqueuer.superInvokes.keySet());
       this.directInvokes = joinInvokedMethods(enqueuer.directInvokes);
       this.staticInvokes = joinInvokedMethods(enqueuer.staticInvokes);
       this.callSites = enqueuer.callSites;
@@ -2276,12 +2333,7 @@ public class Enqueuer {
     }
 
     private SortedSet<DexMethod> joinInvokedMethods(Map<DexType, Set<DexMethod>> invokes) {
-      return joinInvokedMethods(invokes, Function.identity());
-    }
-
-    private <T> SortedSet<DexMethod> joinInvokedMethods(Map<DexType, Set<T>> invokes,
-        Function<T, DexMethod> getter) {
-      return invokes.values().stream().flatMap(Set::stream).map(getter)
+      return invokes.values().stream().flatMap(Set::stream)
           .collect(ImmutableSortedSet.toImmutableSortedSet(PresortedComparable::slowCompare));
     }
 
@@ -2644,38 +2696,9 @@ public class Enqueuer {
     Set<T> getItems() {
       return ImmutableSet.copyOf(items);
     }
-  }
-
-  private static final class TargetWithContext<T extends Descriptor<?, T>> {
-
-    private final T target;
-    private final DexEncodedMethod context;
-
-    private TargetWithContext(T target, DexEncodedMethod context) {
-      this.target = target;
-      this.context = context;
-    }
-
-    public T getTarget() {
-      return target;
-    }
-
-    public DexEncodedMethod getContext() {
-      return context;
-    }
 
-    @Override
-    public int hashCode() {
-      return target.hashCode() * 31 + context.hashCode();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-      if (!(obj instanceof TargetWithContext)) {
-        return false;
-      }
-      TargetWithContext other = (TargetWithContext) obj;
-      return (this.target == other.target) && (this.context == other.context);
+    Set<T> getItemsView() {
+      return Collections.unmodifiableSet(items);
     }
   }
 
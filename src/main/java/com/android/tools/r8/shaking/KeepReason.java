@@ -13,6 +13,8 @@ import com.android.tools.r8.graph.DexType;
 // TODO(herhut): Canonicalize reason objects.
 public abstract class KeepReason {
 
+  private static final KeepReason IS_LIBRARY_METHOD = new IsLibraryMethod();
+
   public abstract GraphEdgeInfo.EdgeKind edgeKind();
 
   public abstract GraphNode getSourceNode(Enqueuer enqueuer);
@@ -46,7 +48,7 @@ public abstract class KeepReason {
   }
 
   public static KeepReason isLibraryMethod() {
-    return new IsLibraryMethod();
+    return IS_LIBRARY_METHOD;
   }
 
   public static KeepReason fieldReferencedIn(DexEncodedMethod method) {
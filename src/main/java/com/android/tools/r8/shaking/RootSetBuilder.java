@@ -285,8 +285,56 @@ public class RootSetBuilder {
       Set<DexEncodedField> liveFields,
       Set<DexEncodedMethod> liveMethods,
       Set<DexEncodedMethod> targetedMethods,
+      IfRuleIndex ifRuleIndex,
       ExecutorService executorService) {
-    return new IfRuleEvaluator(liveFields, liveMethods, targetedMethods, executorService);
+    return new IfRuleEvaluator(
+        liveFields, liveMethods, targetedMethods, ifRuleIndex, executorService);
+  }
+
+  /**
+   * Index of the -if rules that is maintained by the {@link Enqueuer} across the rounds of -if rule
+   * evaluation.
+   *
+   * <p>The rules whose class name condition only lists specific types are indexed by these types,
+   * such that a live type is only matched against the rules that can possibly match it. In
+   * addition, the index records for which types the -if rules without member rules have been
+   * evaluated. The outcome of these rules only depends on the type, and not on its live members,
+   * so they are never evaluated more than once for the same type.
+   */
+  static class IfRuleIndex {
+
+    private final Map<DexType, List<ProguardIfRule>> rulesForSpecificTypes =
+        new IdentityHashMap<>();
+    private final List<ProguardIfRule> rulesForOtherTypes = new ArrayList<>();
+    private final Map<ProguardIfRule, Set<DexType>> evaluatedTypesForRulesWithoutMembers =
+        new IdentityHashMap<>();
+
+    IfRuleIndex(Collection<ProguardIfRule> ifRules) {
+      for (ProguardIfRule ifRule : ifRules) {
+        List<DexType> specifics = ifRule.getClassNames().asSpecificDexTypes();
+        if (specifics != null) {
+          for (DexType type : specifics) {
+            rulesForSpecificTypes.computeIfAbsent(type, key -> new ArrayList<>()).add(ifRule);
+          }
+        } else {
+          rulesForOtherTypes.add(ifRule);
+        }
+      }
+    }
+
+    Iterable<ProguardIfRule> getRulesFor(DexType type) {
+      List<ProguardIfRule> rules = rulesForSpecificTypes.get(type);
+      return rules == null ? rulesForOtherTypes : Iterables.concat(rules, rulesForOtherTypes);
+    }
+
+    // Returns true if the given rule without member rules has not been evaluated for the given
+    // type before.
+    boolean markEvaluated(ProguardIfRule rule, DexType type) {
+      assert rule.getMemberRules().isEmpty();
+      return evaluatedTypesForRulesWithoutMembers
+          .computeIfAbsent(rule, key -> Sets.newIdentityHashSet())
+          .add(type);
+    }
   }
 
   class IfRuleEvaluator {
@@ -294,6 +342,7 @@ public class RootSetBuilder {
     private final Set<DexEncodedField> liveFields;
     private final Set<DexEncodedMethod> liveMethods;
     private final Set<DexEncodedMethod> targetedMethods;
+    private final IfRuleIndex ifRuleIndex;
 
     private final ExecutorService executorService;
 
@@ -303,43 +352,45 @@ public class RootSetBuilder {
         Set<DexEncodedField> liveFields,
         Set<DexEncodedMethod> liveMethods,
         Set<DexEncodedMethod> targetedMethods,
+        IfRuleIndex ifRuleIndex,
         ExecutorService executorService) {
       this.liveFields = liveFields;
       this.liveMethods = liveMethods;
       this.targetedMethods = targetedMethods;
+      this.ifRuleIndex = ifRuleIndex;
       this.executorService = executorService;
     }
 
-    public ConsequentRootSet run(Set<DexType> liveTypes) throws ExecutionException {
+    /**
+     * Evaluates the -if rules for the given live types. The rules only need to be evaluated for
+     * the types that have become live, or whose live members have changed, since the previous
+     * evaluation: for all other types, the rules that were satisfied have already been applied.
+     */
+    public ConsequentRootSet run(Iterable<DexType> liveTypes) throws ExecutionException {
       application.timing.begin("Find consequent items for -if rules...");
       try {
         if (rules != null) {
-          for (ProguardConfigurationRule rule : rules) {
-            assert rule instanceof ProguardIfRule;
-            ProguardIfRule ifRule = (ProguardIfRule) rule;
-            // Depending on which types that trigger the -if rule, the application of the subsequent
-            // -keep rule may vary (due to back references). So, we need to try all pairs of -if
-            // rule and live types.
-            for (DexType type : liveTypes) {
-              DexClass clazz = appView.appInfo().definitionFor(type);
-              if (clazz == null) {
-                continue;
-              }
+          // Depending on which types that trigger the -if rule, the application of the subsequent
+          // -keep rule may vary (due to back references). So, we need to try all pairs of -if
+          // rule and live types.
+          for (DexType type : liveTypes) {
+            DexClass clazz = appView.appInfo().definitionFor(type);
+            if (clazz == null) {
+              continue;
+            }
 
-              // Check if the class matches the if-rule.
-              evaluateIfRule(ifRule, clazz, clazz);
-
-              // Check if one of the types that have been merged into `clazz` satisfies the if-rule.
-              if (options.enableVerticalClassMerging && appView.verticallyMergedClasses() != null) {
-                for (DexType sourceType : appView.verticallyMergedClasses().getSourcesFor(type)) {
-                  // Note that, although `sourceType` has been merged into `type`, the dex class for
-                  // `sourceType` is still available until the second round of tree shaking. This
-                  // way
-                  // we can still retrieve the access flags of `sourceType`.
-                  DexClass sourceClass = appView.appInfo().definitionFor(sourceType);
-                  assert sourceClass != null;
-                  evaluateIfRule(ifRule, sourceClass, clazz);
-                }
+            // Check if the class matches the if-rule.
+            evaluateIfRules(clazz, clazz);
+
+            // Check if one of the types that have been merged into `clazz` satisfies the if-rule.
+            if (options.enableVerticalClassMerging && appView.verticallyMergedClasses() != null) {
+              for (DexType sourceType : appView.verticallyMergedClasses().getSourcesFor(type)) {
+                // Note that, although `sourceType` has been merged into `type`, the dex class for
+                // `sourceType` is still available until the second round of tree shaking. This
+                // way we can still retrieve the access flags of `sourceType`.
+                DexClass sourceClass = appView.appInfo().definitionFor(sourceType);
+                assert sourceClass != null;
+                evaluateIfRules(sourceClass, clazz);
               }
             }
           }
@@ -357,6 +408,16 @@ public class RootSetBuilder {
           dependentNoShrinking);
     }
 
+    private void evaluateIfRules(DexClass sourceClass, DexClass targetClass) {
+      for (ProguardIfRule ifRule : ifRuleIndex.getRulesFor(sourceClass.type)) {
+        if (ifRule.getMemberRules().isEmpty()
+            && !ifRuleIndex.markEvaluated(ifRule, sourceClass.type)) {
+          continue;
+        }
+        evaluateIfRule(ifRule, sourceClass, targetClass);
+      }
+    }
+
     /**
      * Determines if `sourceClass` satisfies the given if-rule. If `sourceClass` has not been merged
      * into another class, then `targetClass` is the same as `sourceClass`. Otherwise, `targetClass`
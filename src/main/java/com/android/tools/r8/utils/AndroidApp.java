@@ -61,6 +61,8 @@ public class AndroidApp {
   private final StringResource proguardMapOutputData;
   private final List<StringResource> mainDexListResources;
   private final List<String> mainDexClasses;
+  private final List<StringResource> startupProfileResources;
+  private final List<StringResource> methodProfileResources;
 
   public void closeInternalArchiveProviders() throws IOException {
     for (InternalArchiveClassFileProvider provider : archiveProvidersToClose) {
@@ -129,7 +131,9 @@ public class AndroidApp {
       ImmutableList<InternalArchiveClassFileProvider> archiveProvidersToClose,
       StringResource proguardMapOutputData,
       List<StringResource> mainDexListResources,
-      List<String> mainDexClasses) {
+      List<String> mainDexClasses,
+      List<StringResource> startupProfileResources,
+      List<StringResource> methodProfileResources) {
     this.programResourceProviders = programResourceProviders;
     this.programResourcesMainDescriptor = programResourcesMainDescriptor;
     this.classpathResourceProviders = classpathResourceProviders;
@@ -138,6 +142,8 @@ public class AndroidApp {
     this.proguardMapOutputData = proguardMapOutputData;
     this.mainDexListResources = mainDexListResources;
     this.mainDexClasses = mainDexClasses;
+    this.startupProfileResources = startupProfileResources;
+    this.methodProfileResources = methodProfileResources;
     assert verifyInternalProvidersInCloseSet(classpathResourceProviders, archiveProvidersToClose);
     assert verifyInternalProvidersInCloseSet(libraryResourceProviders, archiveProvidersToClose);
   }
@@ -279,6 +285,16 @@ public class AndroidApp {
     return mainDexClasses;
   }
 
+  /** Get the startup profile resources if any. */
+  public List<StringResource> getStartupProfileResources() {
+    return startupProfileResources;
+  }
+
+  /** Get the method profile resources if any. */
+  public List<StringResource> getMethodProfileResources() {
+    return methodProfileResources;
+  }
+
   /** Returns a copy of this AndroidApp that does not have a main dex list. */
   public AndroidApp withoutMainDexList() {
     return new AndroidApp(
@@ -289,7 +305,9 @@ public class AndroidApp {
         archiveProvidersToClose,
         proguardMapOutputData,
         ImmutableList.of(),
-        ImmutableList.of());
+        ImmutableList.of(),
+        startupProfileResources,
+        methodProfileResources);
   }
 
   /**
@@ -364,6 +382,8 @@ public class AndroidApp {
         new ArrayList<>();
     private List<StringResource> mainDexListResources = new ArrayList<>();
     private List<String> mainDexListClasses = new ArrayList<>();
+    private List<StringResource> startupProfileResources = new ArrayList<>();
+    private List<StringResource> methodProfileResources = new ArrayList<>();
     private boolean ignoreDexInArchive = false;
 
     // Proguard map data is output only data. This should never be used as input to a compilation.
@@ -385,6 +405,8 @@ public class AndroidApp {
       archiveProvidersToClose.addAll(app.archiveProvidersToClose);
       mainDexListResources = app.mainDexListResources;
       mainDexListClasses = app.mainDexClasses;
+      startupProfileResources = app.startupProfileResources;
+      methodProfileResources = app.methodProfileResources;
     }
 
     public Reporter getReporter() {
@@ -608,6 +630,28 @@ public class AndroidApp {
       return !(mainDexListResources.isEmpty() && mainDexListClasses.isEmpty());
     }
 
+    /** Add startup profile file resources. */
+    public Builder addStartupProfileFiles(Collection<Path> files) throws NoSuchFileException {
+      for (Path file : files) {
+        if (!Files.exists(file)) {
+          throw new NoSuchFileException(file.toString());
+        }
+        startupProfileResources.add(StringResource.fromFile(file));
+      }
+      return this;
+    }
+
+    /** Add method profile file resources. */
+    public Builder addMethodProfileFiles(Collection<Path> files) throws NoSuchFileException {
+      for (Path file : files) {
+        if (!Files.exists(file)) {
+          throw new NoSuchFileException(file.toString());
+        }
+        methodProfileResources.add(StringResource.fromFile(file));
+      }
+      return this;
+    }
+
     /**
      * Ignore dex resources in input archives.
      *
@@ -666,7 +710,9 @@ public class AndroidApp {
           ImmutableList.copyOf(archiveProvidersToClose),
           proguardMapOutputData,
           mainDexListResources,
-          mainDexListClasses);
+          mainDexListClasses,
+          startupProfileResources,
+          methodProfileResources);
     }
 
     public Builder addProgramFile(Path file) {
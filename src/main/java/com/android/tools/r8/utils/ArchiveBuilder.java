@@ -6,7 +6,6 @@ package com.android.tools.r8.utils;
 
 import com.android.tools.r8.ByteDataView;
 import com.android.tools.r8.DataEntryResource;
-import com.android.tools.r8.DataResource;
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.ResourceException;
 import com.android.tools.r8.origin.Origin;
@@ -23,20 +22,37 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipOutputStream;
 
+/**
+ * Builder for an output archive that can be populated concurrently.
+ *
+ * <p>The entries are compressed on the threads that add them, and are then written to the archive
+ * in a deterministic order: the indexed class files in the order of their index, followed by all
+ * other entries in the order of their names.
+ */
 public class ArchiveBuilder implements OutputBuilder {
   private final Path archive;
   private final Origin origin;
-  private ZipOutputStream stream = null;
+  private final boolean storeDexFilesUncompressed;
+  private ZipWriter writer = null;
   private boolean closed = false;
   private int openCount = 0;
   private int classesFileIndex = 0;
-  private Map<Integer, DelayedData> delayedClassesDexFiles = new HashMap<>();
+  private Map<Integer, ZipWriter.Entry> delayedClassesDexFiles = new HashMap<>();
   private SortedSet<DelayedData> delayedWrites = new TreeSet<>();
 
   public ArchiveBuilder(Path archive) {
+    this(archive, false);
+  }
+
+  /**
+   * Creates a builder for the given archive. If {@code storeDexFilesUncompressed} is true, the dex
+   * files are stored in the archive without compression and aligned on a 4-byte boundary, as in an
+   * APK, such that they can be mapped into memory directly from the archive.
+   */
+  public ArchiveBuilder(Path archive, boolean storeDexFilesUncompressed) {
     this.archive = archive;
+    this.storeDexFilesUncompressed = storeDexFilesUncompressed;
     origin = new PathOrigin(archive);
   }
 
@@ -54,8 +70,8 @@ public class ArchiveBuilder implements OutputBuilder {
       writeDelayed(handler);
       closed = true;
       try {
-        getStreamRaw().close();
-        stream = null;
+        getWriterRaw().close();
+        writer = null;
       } catch (IOException e) {
         handler.error(new ExceptionDiagnostic(e, origin));
       }
@@ -66,34 +82,28 @@ public class ArchiveBuilder implements OutputBuilder {
     // We should never have any indexed files at this point
     assert delayedClassesDexFiles.isEmpty();
     for (DelayedData data : delayedWrites) {
-      if (data.isDirectory) {
-        assert data.content == null;
-        writeDirectoryNow(data.name, handler);
-      } else {
-        assert data.content != null;
-        writeFileNow(data.name, data.content, handler);
-      }
+      writeEntryNow(data.entry, handler);
     }
   }
 
-  private ZipOutputStream getStreamRaw() throws IOException {
-    if (stream != null) {
-      return stream;
+  private ZipWriter getWriterRaw() throws IOException {
+    if (writer != null) {
+      return writer;
     }
-    stream = new ZipOutputStream(Files.newOutputStream(
+    writer = new ZipWriter(Files.newOutputStream(
         archive, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
-    return stream;
+    return writer;
   }
 
-  /** Get or open the zip output stream. */
-  private synchronized ZipOutputStream getStream(DiagnosticsHandler handler) {
+  /** Get or open the zip writer. */
+  private synchronized ZipWriter getWriter(DiagnosticsHandler handler) {
     assert !closed;
     try {
-      getStreamRaw();
+      getWriterRaw();
     } catch (IOException e) {
       handler.error(new ExceptionDiagnostic(e, origin));
     }
-    return stream;
+    return writer;
   }
 
   private void handleIOException(IOException e, DiagnosticsHandler handler) {
@@ -108,32 +118,16 @@ public class ArchiveBuilder implements OutputBuilder {
 
   @Override
   public synchronized void addDirectory(String name, DiagnosticsHandler handler) {
-    delayedWrites.add(DelayedData.createDirectory(name));
-  }
-
-  private void writeDirectoryNow(String name, DiagnosticsHandler handler) {
-    if (name.charAt(name.length() - 1) != DataResource.SEPARATOR) {
-      name += DataResource.SEPARATOR;
-    }
-    ZipEntry entry = new ZipEntry(name);
-    entry.setTime(0);
-    ZipOutputStream zip = getStream(handler);
-    synchronized (this) {
-      try {
-        zip.putNextEntry(entry);
-        zip.closeEntry();
-      } catch (IOException e) {
-        handleIOException(e, handler);
-      }
-    }
+    delayedWrites.add(new DelayedData(ZipWriter.createDirectoryEntry(name)));
   }
 
   @Override
   public void addFile(String name, DataEntryResource content, DiagnosticsHandler handler) {
     try (InputStream in = content.getByteStream()) {
       ByteDataView view = ByteDataView.of(ByteStreams.toByteArray(in));
+      DelayedData data = new DelayedData(createFileEntry(name, view));
       synchronized (this) {
-        delayedWrites.add(DelayedData.createFile(name, view));
+        delayedWrites.add(data);
       }
     } catch (IOException e) {
       handleIOException(e, handler);
@@ -144,39 +138,52 @@ public class ArchiveBuilder implements OutputBuilder {
   }
 
   @Override
-  public synchronized void addFile(String name, ByteDataView content, DiagnosticsHandler handler) {
-    delayedWrites.add(DelayedData.createFile(name,  ByteDataView.of(content.copyByteData())));
+  public void addFile(String name, ByteDataView content, DiagnosticsHandler handler) {
+    DelayedData data = new DelayedData(createFileEntry(name, content));
+    synchronized (this) {
+      delayedWrites.add(data);
+    }
+  }
+
+  // Compresses the given content on the current thread, such that files can be compressed in
+  // parallel. The resulting entry does not refer to the content, which may be released by the
+  // caller.
+  private ZipWriter.Entry createFileEntry(String name, ByteDataView content) {
+    int method =
+        storeDexFilesUncompressed && ZipUtils.isDexFile(name) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+    return ZipWriter.createFileEntry(name, content, method);
   }
 
-  private void writeFileNow(String name, ByteDataView content, DiagnosticsHandler handler) {
+  private void writeEntryNow(ZipWriter.Entry entry, DiagnosticsHandler handler) {
     try {
-      ZipUtils.writeToZipStream(getStream(handler), name, content, ZipEntry.DEFLATED);
+      getWriter(handler).write(entry);
     } catch (IOException e) {
       handleIOException(e, handler);
     }
   }
 
   private void writeNextIfAvailable(DiagnosticsHandler handler) {
-    DelayedData data = delayedClassesDexFiles.remove(classesFileIndex);
-    while (data != null) {
-      writeFileNow(data.name, data.content, handler);
+    ZipWriter.Entry entry = delayedClassesDexFiles.remove(classesFileIndex);
+    while (entry != null) {
+      writeEntryNow(entry, handler);
       classesFileIndex++;
-      data = delayedClassesDexFiles.remove(classesFileIndex);
+      entry = delayedClassesDexFiles.remove(classesFileIndex);
     }
   }
 
   @Override
-  public synchronized void addIndexedClassFile(
+  public void addIndexedClassFile(
       int index, String name, ByteDataView content, DiagnosticsHandler handler) {
-    if (index == classesFileIndex) {
-      // Fast case, we got the file in order (or we only had one).
-      writeFileNow(name, content, handler);
-      classesFileIndex++;
-      writeNextIfAvailable(handler);
-    } else {
-      // Data is released in the application writer, take a copy.
-      delayedClassesDexFiles.put(index,
-          new DelayedData(name, ByteDataView.of(content.copyByteData()), false));
+    ZipWriter.Entry entry = createFileEntry(name, content);
+    synchronized (this) {
+      if (index == classesFileIndex) {
+        // Fast case, we got the file in order (or we only had one).
+        writeEntryNow(entry, handler);
+        classesFileIndex++;
+        writeNextIfAvailable(handler);
+      } else {
+        delayedClassesDexFiles.put(index, entry);
+      }
     }
   }
 
@@ -191,30 +198,18 @@ public class ArchiveBuilder implements OutputBuilder {
   }
 
   private static class DelayedData implements Comparable<DelayedData> {
-    public final String name;
-    public final ByteDataView content;
-    public final boolean isDirectory;
-
-    public static DelayedData createFile(String name, ByteDataView content) {
-      return new DelayedData(name, content, false);
-    }
-
-    public static DelayedData createDirectory(String name) {
-      return new DelayedData(name, null, true);
-    }
+    public final ZipWriter.Entry entry;
 
-    private DelayedData(String name, ByteDataView content, boolean isDirectory) {
-      this.name = name;
-      this.content = content;
-      this.isDirectory = isDirectory;
+    private DelayedData(ZipWriter.Entry entry) {
+      this.entry = entry;
     }
 
     @Override
     public int compareTo(DelayedData other) {
       if (other == null) {
-        return name.compareTo(null);
+        return entry.getName().compareTo(null);
       }
-      return name.compareTo(other.name);
+      return entry.getName().compareTo(other.entry.getName());
     }
   }
 }
@@ -0,0 +1,143 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.position.TextPosition;
+import java.util.List;
+import org.objectweb.asm.Type;
+
+/**
+ * Parser for the human readable ART profile format, with one class or method per line:
+ *
+ * <pre>
+ *   # Comment
+ *   Lcom/example/Main;
+ *   HSPLcom/example/Main;-&gt;onCreate(Landroid/os/Bundle;)V
+ * </pre>
+ *
+ * The optional flags in front of a method mark it as hot (H), used at startup (S) or used after
+ * startup (P).
+ */
+public class ArtProfileParser {
+
+  private static final String FLAGS = "HSP";
+  private static final String METHOD_SEPARATOR = "->";
+
+  public interface ArtProfileConsumer {
+
+    /** Called for each class entry, where index is the position of the entry in the profile. */
+    void acceptClass(DexType type, int index);
+
+    /** Called for each method entry, where index is the position of the entry in the profile. */
+    void acceptMethod(DexMethod method, String flags, int index);
+  }
+
+  private final String kind;
+  private final DexItemFactory itemFactory;
+  private final ArtProfileConsumer consumer;
+
+  private int index = 0;
+
+  private ArtProfileParser(String kind, DexItemFactory itemFactory, ArtProfileConsumer consumer) {
+    this.kind = kind;
+    this.itemFactory = itemFactory;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Parses the given resources in order and reports the entries to the consumer.
+   *
+   * @param kind the kind of profile, used in error messages, e.g. "startup profile".
+   */
+  public static void parse(
+      List<StringResource> resources,
+      String kind,
+      DexItemFactory itemFactory,
+      ArtProfileConsumer consumer) {
+    ArtProfileParser parser = new ArtProfileParser(kind, itemFactory, consumer);
+    for (StringResource resource : resources) {
+      parser.parse(resource);
+    }
+  }
+
+  private void parse(StringResource resource) {
+    String lines;
+    try {
+      lines = resource.getString();
+    } catch (ResourceException e) {
+      throw new CompilationError("Failed to parse " + kind, e, resource.getOrigin());
+    }
+    int lineNumber = 0;
+    for (int offset = 0; offset < lines.length(); ) {
+      ++lineNumber;
+      int newLineIndex = lines.indexOf('\n', offset);
+      int lineEnd = newLineIndex == -1 ? lines.length() : newLineIndex;
+      String line = lines.substring(offset, lineEnd).trim();
+      if (!line.isEmpty() && line.charAt(0) != '#') {
+        try {
+          parseEntry(line);
+        } catch (CompilationError e) {
+          throw new CompilationError(
+              e.getMessage(),
+              e,
+              resource.getOrigin(),
+              new TextPosition(offset, lineNumber, TextPosition.UNKNOWN_COLUMN));
+        }
+      }
+      offset = lineEnd + 1;
+    }
+  }
+
+  private void parseEntry(String line) {
+    int start = 0;
+    while (start < line.length() && FLAGS.indexOf(line.charAt(start)) >= 0) {
+      start++;
+    }
+    String flags = line.substring(0, start);
+    int separator = line.indexOf(METHOD_SEPARATOR, start);
+    String classDescriptor =
+        separator < 0 ? line.substring(start) : line.substring(start, separator);
+    if (!DescriptorUtils.isClassDescriptor(classDescriptor)) {
+      throw illegalEntry(line);
+    }
+    DexType holder = itemFactory.createType(classDescriptor);
+    if (separator < 0) {
+      consumer.acceptClass(holder, index++);
+      return;
+    }
+    String nameAndDescriptor = line.substring(separator + METHOD_SEPARATOR.length());
+    int descriptorStart = nameAndDescriptor.indexOf('(');
+    if (descriptorStart <= 0 || nameAndDescriptor.indexOf(')', descriptorStart) < 0) {
+      throw illegalEntry(line);
+    }
+    String name = nameAndDescriptor.substring(0, descriptorStart);
+    String descriptor = nameAndDescriptor.substring(descriptorStart);
+    DexType returnType;
+    Type[] argumentTypes;
+    try {
+      returnType = itemFactory.createType(Type.getReturnType(descriptor).getDescriptor());
+      argumentTypes = Type.getArgumentTypes(descriptor);
+    } catch (RuntimeException e) {
+      throw illegalEntry(line);
+    }
+    DexType[] parameters = new DexType[argumentTypes.length];
+    for (int i = 0; i < argumentTypes.length; i++) {
+      parameters[i] = itemFactory.createType(argumentTypes[i].getDescriptor());
+    }
+    consumer.acceptMethod(
+        itemFactory.createMethod(holder, itemFactory.createProto(returnType, parameters), name),
+        flags,
+        index++);
+  }
+
+  private CompilationError illegalEntry(String line) {
+    return new CompilationError("Illegal " + kind + " entry '" + line + "'.");
+  }
+}
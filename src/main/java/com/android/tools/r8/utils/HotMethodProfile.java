@@ -0,0 +1,74 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.utils.ArtProfileParser.ArtProfileConsumer;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The methods that are hot at runtime, given in the human readable ART profile format, see {@link
+ * ArtProfileParser}.
+ *
+ * <p>A method entry is hot if it has the H flag or no flags at all, such that a plain list of
+ * method signatures can be used as a profile. Class entries are ignored.
+ *
+ * <p>The profile is in terms of the input names. The optimizations query it with the signature of
+ * the method at the time of the query, which is mapped back to the input signature using the graph
+ * lense.
+ */
+public class HotMethodProfile {
+
+  private static final HotMethodProfile EMPTY = new HotMethodProfile(Sets.newIdentityHashSet());
+
+  private final Set<DexMethod> hotMethods;
+
+  private HotMethodProfile(Set<DexMethod> hotMethods) {
+    this.hotMethods = hotMethods;
+  }
+
+  public static HotMethodProfile empty() {
+    return EMPTY;
+  }
+
+  public boolean isEmpty() {
+    return hotMethods.isEmpty();
+  }
+
+  public boolean isHot(DexMethod method, GraphLense lense) {
+    return !hotMethods.isEmpty() && hotMethods.contains(lense.getOriginalMethodSignature(method));
+  }
+
+  public static HotMethodProfile parse(
+      List<StringResource> resources, DexItemFactory itemFactory) {
+    if (resources.isEmpty()) {
+      return empty();
+    }
+    Set<DexMethod> hotMethods = Sets.newIdentityHashSet();
+    ArtProfileParser.parse(
+        resources,
+        "method profile",
+        itemFactory,
+        new ArtProfileConsumer() {
+          @Override
+          public void acceptClass(DexType type, int index) {
+            // Only methods can be hot.
+          }
+
+          @Override
+          public void acceptMethod(DexMethod method, String flags, int index) {
+            if (flags.isEmpty() || flags.indexOf('H') >= 0) {
+              hotMethods.add(method);
+            }
+          }
+        });
+    return hotMethods.isEmpty() ? empty() : new HotMethodProfile(hotMethods);
+  }
+}
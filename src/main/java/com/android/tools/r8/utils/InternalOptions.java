@@ -101,10 +101,19 @@ public class InternalOptions {
       enableSwitchMapRemoval = false;
       outline.enabled = false;
       enableValuePropagation = false;
+      enableLoopInvariantCodeMotion = false;
+      enableBoundsCheckElimination = false;
+      enableStringBuilderOptimization = false;
+      enableReturnValueUnboxing = false;
+      enableEnumValueOptimization = false;
     }
   }
 
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
+  // If set, receives the recorded timings when the compilation has finished.
+  public Consumer<Timing> timingConsumer = null;
+  public boolean printIRAnalysisStatistics =
+      System.getProperty("com.android.tools.r8.printIRAnalysisStatistics") != null;
 
   // Flag to toggle if DEX code objects should pass-through without IR processing.
   public boolean passthroughDexCode = false;
@@ -127,6 +136,9 @@ public class InternalOptions {
   public int inliningInstructionLimit = 3;
   // This defines how many instructions of inlinees we can inlinee overall.
   public int inliningInstructionAllowance = 1500;
+  // The inlining limits used for methods that are hot according to the method profile.
+  public int hotInliningInstructionLimit = 10;
+  public int hotInliningInstructionAllowance = 3000;
   // Maximum number of control flow resolution blocks that setup the register state before
   // the actual catch handler allowed when inlining. Threshold found empirically by testing on
   // GMS Core.
@@ -135,6 +147,11 @@ public class InternalOptions {
   public final OutlineOptions outline = new OutlineOptions();
   public boolean enableValuePropagation = true;
   public boolean enableUninstantiatedTypeOptimization = true;
+  public boolean enableLoopInvariantCodeMotion = true;
+  public boolean enableBoundsCheckElimination = true;
+  public boolean enableStringBuilderOptimization = true;
+  public boolean enableReturnValueUnboxing = true;
+  public boolean enableEnumValueOptimization = true;
 
   // Number of threads to use while processing the dex files.
   public int numberOfThreads = DETERMINISTIC_DEBUGGING ? 1 : ThreadUtils.NOT_SPECIFIED;
@@ -224,6 +241,9 @@ public class InternalOptions {
   // Skipping min_api check and compiling an intermediate result intended for later merging.
   // Intermediate builds also emits or update synthesized classes mapping.
   public boolean intermediate = false;
+  // When positive, D8 compiles and writes the program classes in windows of at most this many
+  // classes. Only used when compiling to a dex file per class.
+  public int streamingWindowSize = 0;
   public List<String> logArgumentsFilter = ImmutableList.of();
 
   // Flag to turn on/off lambda class merging in R8.
@@ -335,6 +355,14 @@ public class InternalOptions {
   // If non null it must be and passed to the consumer.
   public StringConsumer mainDexListConsumer = null;
 
+  // Classes and methods used during startup, which are placed first in the dex output. Read
+  // together with the program, in terms of the input names.
+  public StartupProfile startupProfile = StartupProfile.empty();
+
+  // Methods that are hot at runtime, which get larger inlining budgets and are only outlined in
+  // their cold blocks. Read together with the program, in terms of the input names.
+  public HotMethodProfile hotMethodProfile = HotMethodProfile.empty();
+
   // If null, no proguad map needs to be computed.
   // If non null it must be and passed to the consumer.
   public StringConsumer proguardMapConsumer = null;
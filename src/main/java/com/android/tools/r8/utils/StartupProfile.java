@@ -0,0 +1,109 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.utils.ArtProfileParser.ArtProfileConsumer;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.List;
+
+/**
+ * The classes and methods that are used during application startup, in the order they are used.
+ *
+ * <p>The profile is given in the human readable ART profile format, see {@link ArtProfileParser}.
+ * The optional flags in front of the descriptor are ignored. A class that has a method in the
+ * profile is a startup class, even if the class itself is not listed.
+ *
+ * <p>The dex writer uses the profile to place startup classes and their code first, such that the
+ * pages touched during startup are adjacent.
+ */
+public class StartupProfile {
+
+  public static final int NOT_STARTUP = Integer.MAX_VALUE;
+
+  private static final StartupProfile EMPTY = new StartupProfile();
+
+  // The index of the first line that mentions the class or method.
+  private final Reference2IntMap<DexType> classes = new Reference2IntOpenHashMap<>();
+  private final Reference2IntMap<DexMethod> methods = new Reference2IntOpenHashMap<>();
+
+  private StartupProfile() {
+    classes.defaultReturnValue(NOT_STARTUP);
+    methods.defaultReturnValue(NOT_STARTUP);
+  }
+
+  public static StartupProfile empty() {
+    return EMPTY;
+  }
+
+  public boolean isEmpty() {
+    return classes.isEmpty();
+  }
+
+  public boolean isStartupClass(DexType type) {
+    return classes.containsKey(type);
+  }
+
+  /** Returns the position of the class in the profile or {@link #NOT_STARTUP}. */
+  public int getClassIndex(DexType type) {
+    return classes.getInt(type);
+  }
+
+  /** Returns the position of the method in the profile or {@link #NOT_STARTUP}. */
+  public int getMethodIndex(DexMethod method) {
+    return methods.getInt(method);
+  }
+
+  public StartupProfile rewrittenWithLense(GraphLense lense) {
+    if (isEmpty() || lense == null || lense.isIdentityLense()) {
+      return this;
+    }
+    StartupProfile result = new StartupProfile();
+    classes.forEach((type, index) -> result.addClass(lense.lookupType(type), index));
+    methods.forEach(
+        (method, index) -> result.addMethod(lense.getRenamedMethodSignature(method), index));
+    return result;
+  }
+
+  private void addClass(DexType type, int index) {
+    if (index < classes.getInt(type)) {
+      classes.put(type, index);
+    }
+  }
+
+  private void addMethod(DexMethod method, int index) {
+    addClass(method.holder, index);
+    if (index < methods.getInt(method)) {
+      methods.put(method, index);
+    }
+  }
+
+  public static StartupProfile parse(List<StringResource> resources, DexItemFactory itemFactory) {
+    if (resources.isEmpty()) {
+      return empty();
+    }
+    StartupProfile profile = new StartupProfile();
+    ArtProfileParser.parse(
+        resources,
+        "startup profile",
+        itemFactory,
+        new ArtProfileConsumer() {
+          @Override
+          public void acceptClass(DexType type, int index) {
+            profile.addClass(type, index);
+          }
+
+          @Override
+          public void acceptMethod(DexMethod method, String flags, int index) {
+            profile.addMethod(method, index);
+          }
+        });
+    return profile;
+  }
+}
@@ -7,7 +7,9 @@ import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class ThreadUtils {
 
@@ -52,4 +54,15 @@ public class ThreadUtils {
   public static ExecutorService getExecutorService(InternalOptions options) {
     return getExecutorService(options.numberOfThreads);
   }
+
+  /** Returns the number of threads that run the tasks of the given executor, if it is known. */
+  public static int getNumberOfThreads(ExecutorService executorService) {
+    if (executorService instanceof ForkJoinPool) {
+      return ((ForkJoinPool) executorService).getParallelism();
+    }
+    if (executorService instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) executorService).getMaximumPoolSize();
+    }
+    return 1;
+  }
 }
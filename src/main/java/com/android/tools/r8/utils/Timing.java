@@ -16,6 +16,7 @@ package com.android.tools.r8.utils;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
+import java.util.function.BiConsumer;
 
 public class Timing {
 
@@ -68,6 +69,12 @@ public class Timing {
       return toString() + " (" + percentage + "%)";
     }
 
+    void forEachDuration(String prefix, BiConsumer<String, Long> consumer) {
+      String path = prefix + title;
+      consumer.accept(path, duration());
+      children.values().forEach(child -> child.forEachDuration(path + " > ", consumer));
+    }
+
     public void report(int depth, Node top) {
       assert duration() >= 0;
       if (depth > 0) {
@@ -107,6 +114,14 @@ public class Timing {
     top.report(0, top);
   }
 
+  /**
+   * Reports the duration in nanoseconds of each recorded task. The titles of nested tasks are
+   * prefixed by the titles of the enclosing tasks, separated by " > ".
+   */
+  public void forEachDuration(BiConsumer<String, Long> consumer) {
+    stack.firstElement().children.values().forEach(child -> child.forEachDuration("", consumer));
+  }
+
   public void scope(String title, TimingScope fn) {
     begin(title);
     try {
@@ -0,0 +1,338 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DataResource;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writer of zip archives whose entries have been compressed up front.
+ *
+ * <p>Unlike {@link java.util.zip.ZipOutputStream}, which compresses the data of an entry while the
+ * entry is being written, this writer only copies entries that have already been compressed by
+ * {@link #createFileEntry}. This allows the entries to be compressed concurrently on the threads
+ * that produce them, while the archive itself is written sequentially in a deterministic order.
+ *
+ * <p>The entries are written with the same headers as {@link ZipUtils#writeToZipStream}, i.e., with
+ * a modification time of zero and with UTF-8 encoded names. The zip64 format is used when the
+ * archive has too many entries, or is too large, for the standard format. The data of stored
+ * files is aligned on a 4-byte boundary, as done by zipalign, such that it can be memory-mapped
+ * directly from the archive.
+ */
+class ZipWriter implements Closeable {
+
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+
+  private static final int VERSION_STORED = 10;
+  private static final int VERSION_DEFLATED = 20;
+  private static final int VERSION_ZIP64 = 45;
+
+  // General purpose flag indicating that the name of the entry is encoded using UTF-8.
+  private static final int FLAG_UTF8 = 0x0800;
+
+  // The modification time zero is before 1980, which is the earliest time that can be represented
+  // in the MS-DOS format. Therefore, the time is stored in an extended timestamp field.
+  private static final int DOS_TIME = 0;
+  private static final int DOS_DATE_1980 = (1 << 5) | 1;
+  private static final int EXTENDED_TIMESTAMP_ID = 0x5455;
+  private static final int EXTENDED_TIMESTAMP_FLAG_MODIFICATION_TIME = 0x1;
+  private static final int EXTENDED_TIMESTAMP_SIZE = 9;
+
+  // The data of stored entries is aligned by padding the extra field of the local file header with
+  // an alignment field, in the same way as the Android apksigner.
+  private static final int STORED_DATA_ALIGNMENT = 4;
+  private static final int ALIGNMENT_ID = 0xD935;
+  private static final int ALIGNMENT_MIN_SIZE = 6;
+
+  private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+  private static final int ZIP64_EXTENDED_INFORMATION_ID = 0x0001;
+  private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  /** An entry that is ready to be written to an archive. */
+  static class Entry {
+
+    private final String name;
+    private final byte[] encodedName;
+    private final int method;
+    private final long crc;
+    private final int size;
+    private final byte[] data;
+    private final int dataOffset;
+    private final int dataLength;
+
+    private Entry(
+        String name,
+        int method,
+        long crc,
+        int size,
+        byte[] data,
+        int dataOffset,
+        int dataLength) {
+      this.name = name;
+      this.encodedName = name.getBytes(StandardCharsets.UTF_8);
+      this.method = method;
+      this.crc = crc;
+      this.size = size;
+      this.data = data;
+      this.dataOffset = dataOffset;
+      this.dataLength = dataLength;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    private int getVersion() {
+      return method == ZipEntry.DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+    }
+  }
+
+  private static class CentralDirectoryRecord {
+
+    private final Entry entry;
+    private final long localHeaderOffset;
+
+    private CentralDirectoryRecord(Entry entry, long localHeaderOffset) {
+      this.entry = entry;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  private final OutputStream out;
+  private final List<CentralDirectoryRecord> centralDirectory = new ArrayList<>();
+  private final Set<String> names = new HashSet<>();
+  private final byte[] scratch = new byte[8];
+  private long offset = 0;
+
+  ZipWriter(OutputStream out) {
+    this.out = new BufferedOutputStream(out);
+  }
+
+  /**
+   * Creates an entry for a file with the given content, compressed using the given method. The
+   * content is not retained, i.e., it can be released when this method returns.
+   */
+  static Entry createFileEntry(String name, ByteDataView content, int method) {
+    byte[] buffer = content.getBuffer();
+    int offset = content.getOffset();
+    int length = content.getLength();
+    CRC32 crc = new CRC32();
+    crc.update(buffer, offset, length);
+    if (method == ZipEntry.STORED) {
+      byte[] data = content.copyByteData();
+      return new Entry(name, method, crc.getValue(), length, data, 0, data.length);
+    }
+    assert method == ZipEntry.DEFLATED;
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      deflater.setInput(buffer, offset, length);
+      deflater.finish();
+      byte[] compressed = new byte[Math.max(64, length / 2)];
+      int compressedLength = 0;
+      while (!deflater.finished()) {
+        if (compressedLength == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        compressedLength +=
+            deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+      }
+      return new Entry(name, method, crc.getValue(), length, compressed, 0, compressedLength);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  static Entry createDirectoryEntry(String name) {
+    if (name.charAt(name.length() - 1) != DataResource.SEPARATOR) {
+      name += DataResource.SEPARATOR;
+    }
+    return new Entry(name, ZipEntry.STORED, 0, 0, new byte[0], 0, 0);
+  }
+
+  void write(Entry entry) throws IOException {
+    if (!names.add(entry.name)) {
+      throw new ZipException("duplicate entry: " + entry.name);
+    }
+    centralDirectory.add(new CentralDirectoryRecord(entry, offset));
+    int alignmentSize = getAlignmentSize(entry);
+    writeInt(LOCAL_FILE_HEADER_SIGNATURE);
+    writeShort(entry.getVersion());
+    writeCommonHeaderFields(entry);
+    writeShort(EXTENDED_TIMESTAMP_SIZE + alignmentSize);
+    out.write(entry.encodedName);
+    offset += entry.encodedName.length;
+    writeExtendedTimestamp();
+    if (alignmentSize > 0) {
+      writeShort(ALIGNMENT_ID);
+      writeShort(alignmentSize - 4);
+      writeShort(STORED_DATA_ALIGNMENT);
+      for (int i = ALIGNMENT_MIN_SIZE; i < alignmentSize; i++) {
+        out.write(0);
+        offset++;
+      }
+    }
+    assert entry.method != ZipEntry.STORED
+        || entry.dataLength == 0
+        || offset % STORED_DATA_ALIGNMENT == 0;
+    out.write(entry.data, entry.dataOffset, entry.dataLength);
+    offset += entry.dataLength;
+  }
+
+  // Returns the size of the alignment field that is needed in the local file header of the given
+  // entry for its data to start on an aligned offset, or zero if no alignment field is needed.
+  private int getAlignmentSize(Entry entry) {
+    if (entry.method != ZipEntry.STORED || entry.dataLength == 0) {
+      return 0;
+    }
+    long dataOffset =
+        offset + LOCAL_FILE_HEADER_SIZE + entry.encodedName.length + EXTENDED_TIMESTAMP_SIZE;
+    int padding = (int) (-dataOffset & (STORED_DATA_ALIGNMENT - 1));
+    if (padding == 0) {
+      return 0;
+    }
+    int size = padding;
+    while (size < ALIGNMENT_MIN_SIZE) {
+      size += STORED_DATA_ALIGNMENT;
+    }
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    long centralDirectoryOffset = offset;
+    for (CentralDirectoryRecord record : centralDirectory) {
+      writeCentralDirectoryHeader(record);
+    }
+    long centralDirectorySize = offset - centralDirectoryOffset;
+    int entries = centralDirectory.size();
+    boolean zip64 =
+        entries >= ZIP64_MAGIC_SHORT
+            || centralDirectoryOffset >= ZIP64_MAGIC
+            || centralDirectorySize >= ZIP64_MAGIC;
+    if (zip64) {
+      long zip64EndOfCentralDirectoryOffset = offset;
+      writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+      // Size of the remaining record.
+      writeLong(44);
+      writeShort(VERSION_ZIP64);
+      writeShort(VERSION_ZIP64);
+      // Number of this disk, and number of the disk with the start of the central directory.
+      writeInt(0);
+      writeInt(0);
+      writeLong(entries);
+      writeLong(entries);
+      writeLong(centralDirectorySize);
+      writeLong(centralDirectoryOffset);
+
+      writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+      writeInt(0);
+      writeLong(zip64EndOfCentralDirectoryOffset);
+      // Total number of disks.
+      writeInt(1);
+    }
+    writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+    writeShort(0);
+    writeShort(0);
+    writeShort(Math.min(entries, ZIP64_MAGIC_SHORT));
+    writeShort(Math.min(entries, ZIP64_MAGIC_SHORT));
+    writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+    writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+    // Comment length.
+    writeShort(0);
+    out.close();
+  }
+
+  private void writeCentralDirectoryHeader(CentralDirectoryRecord record) throws IOException {
+    Entry entry = record.entry;
+    boolean zip64 = record.localHeaderOffset >= ZIP64_MAGIC;
+    writeInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+    // Version made by, and version needed to extract.
+    writeShort(zip64 ? VERSION_ZIP64 : entry.getVersion());
+    writeShort(zip64 ? VERSION_ZIP64 : entry.getVersion());
+    writeCommonHeaderFields(entry);
+    writeShort(EXTENDED_TIMESTAMP_SIZE + (zip64 ? 12 : 0));
+    // Comment length, disk number, internal attributes and external attributes.
+    writeShort(0);
+    writeShort(0);
+    writeShort(0);
+    writeInt(0);
+    writeInt(zip64 ? ZIP64_MAGIC : record.localHeaderOffset);
+    out.write(entry.encodedName);
+    offset += entry.encodedName.length;
+    writeExtendedTimestamp();
+    if (zip64) {
+      writeShort(ZIP64_EXTENDED_INFORMATION_ID);
+      writeShort(8);
+      writeLong(record.localHeaderOffset);
+    }
+  }
+
+  // Writes the fields that are common to the local file header and the central directory header,
+  // from the general purpose flag up to and excluding the length of the extra field.
+  private void writeCommonHeaderFields(Entry entry) throws IOException {
+    writeShort(FLAG_UTF8);
+    writeShort(entry.method);
+    writeShort(DOS_TIME);
+    writeShort(DOS_DATE_1980);
+    writeInt(entry.crc);
+    writeInt(entry.dataLength);
+    writeInt(entry.size);
+    writeShort(entry.encodedName.length);
+  }
+
+  private void writeExtendedTimestamp() throws IOException {
+    writeShort(EXTENDED_TIMESTAMP_ID);
+    writeShort(EXTENDED_TIMESTAMP_SIZE - 4);
+    out.write(EXTENDED_TIMESTAMP_FLAG_MODIFICATION_TIME);
+    offset++;
+    writeInt(0);
+  }
+
+  private void writeShort(int value) throws IOException {
+    assert 0 <= value && value <= 0xFFFF;
+    scratch[0] = (byte) value;
+    scratch[1] = (byte) (value >>> 8);
+    out.write(scratch, 0, 2);
+    offset += 2;
+  }
+
+  private void writeInt(long value) throws IOException {
+    assert 0 <= value && value <= ZIP64_MAGIC;
+    scratch[0] = (byte) value;
+    scratch[1] = (byte) (value >>> 8);
+    scratch[2] = (byte) (value >>> 16);
+    scratch[3] = (byte) (value >>> 24);
+    out.write(scratch, 0, 4);
+    offset += 4;
+  }
+
+  private void writeLong(long value) throws IOException {
+    for (int i = 0; i < 8; i++) {
+      scratch[i] = (byte) (value >>> (8 * i));
+    }
+    out.write(scratch, 0, 8);
+    offset += 8;
+  }
+}
@@ -244,6 +244,19 @@ public class D8CommandTest {
     assertTrue(ToolHelper.getApp(command).hasMainDexListResources());
   }
 
+  @Test(expected = CompilationFailedException.class)
+  public void streamingWindowWithoutFilePerClass() throws Throwable {
+    DiagnosticsChecker.checkErrorsContains(
+        "--streaming-window requires --file-per-class",
+        (handler) -> parse(handler, "--streaming-window", "100"));
+  }
+
+  @Test
+  public void streamingWindowWithFilePerClass() throws Throwable {
+    D8Command command = parse("--streaming-window", "100", "--file-per-class");
+    assertEquals(100, command.getInternalOptions().streamingWindowSize);
+  }
+
   @Test(expected = CompilationFailedException.class)
   public void mainDexListWithIntermediate() throws Throwable {
     Path mainDexList = temp.newFile("main-dex-list.txt").toPath();
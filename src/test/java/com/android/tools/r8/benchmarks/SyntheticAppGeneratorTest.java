@@ -0,0 +1,134 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.FoundClassSubject;
+import java.util.List;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class SyntheticAppGeneratorTest extends TestBase {
+
+  private static final int METHODS_PER_CLASS = 4;
+
+  private static SyntheticAppGenerator.Builder generator(int classes) {
+    return SyntheticAppGenerator.builder()
+        .setClasses(classes)
+        .setMethodsPerClass(METHODS_PER_CLASS)
+        .setHierarchyDepth(3)
+        .setFanOut(3)
+        .setRecursionDensity(0.2)
+        .setInterfaceDensity(0.1)
+        .setLambdaDensity(0.1)
+        .setRuleCount(20);
+  }
+
+  @Test
+  public void testShape() {
+    SyntheticAppGenerator generator = generator(100).build();
+    assertEquals(10, generator.getNumberOfInterfaces());
+    assertEquals(100 + 10 + 1, generator.generateClassFiles().size());
+    List<String> rules = generator.getKeepRules();
+    assertEquals(21, rules.size());
+    assertEquals(SyntheticAppGenerator.KEEP_MAIN_RULE, rules.get(0));
+  }
+
+  @Test
+  public void testDeterministic() {
+    List<byte[]> first = generator(100).build().generateClassFiles();
+    List<byte[]> second = generator(100).build().generateClassFiles();
+    assertEquals(first.size(), second.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertArrayEquals(first.get(i), second.get(i));
+    }
+  }
+
+  @Test
+  public void testJvm() throws Exception {
+    testForJvm()
+        .addProgramClassFileData(generator(100).build().generateClassFiles())
+        .run(SyntheticAppGenerator.MAIN_CLASS)
+        .assertSuccess();
+  }
+
+  @Test
+  public void testR8() throws Exception {
+    SyntheticAppGenerator generator = generator(100).build();
+    testForR8(Backend.CF)
+        .addProgramClassFileData(generator.generateClassFiles())
+        .addKeepRules(generator.getKeepRules())
+        .run(SyntheticAppGenerator.MAIN_CLASS)
+        .assertSuccess();
+  }
+
+  @Test
+  public void testSizeScalesLinearly() {
+    // The number of class files is linear in the number of classes, and the number of methods in
+    // each class file does not depend on the number of classes.
+    for (int classes : new int[] {250, 1000}) {
+      List<byte[]> classFiles = generator(classes).build().generateClassFiles();
+      assertEquals(classes + classes / 10 + 1, classFiles.size());
+      for (byte[] classFile : classFiles) {
+        // A constructor, and each method with its lambda body.
+        assertTrue(countMethods(classFile) <= 1 + 2 * METHODS_PER_CLASS);
+      }
+    }
+  }
+
+  // Returns the number of classes and methods in the output of R8 for an app of the given size.
+  private int[] compileAndCount(int classes) throws Exception {
+    SyntheticAppGenerator generator = generator(classes).build();
+    CodeInspector inspector =
+        testForR8(Backend.CF)
+            .addProgramClassFileData(generator.generateClassFiles())
+            .addKeepRules(generator.getKeepRules())
+            .compile()
+            .inspector();
+    int methods = 0;
+    for (FoundClassSubject clazz : inspector.allClasses()) {
+      methods += clazz.allMethods().size();
+    }
+    return new int[] {inspector.allClasses().size(), methods};
+  }
+
+  @Test
+  public void testR8OutputScalesLinearly() throws Exception {
+    int[] small = compileAndCount(250);
+    int[] large = compileAndCount(1000);
+    // Most of the generated app is reachable from the main class, so the output has at least one
+    // class per generated class.
+    assertTrue(small[0] >= 250);
+    assertTrue(large[0] >= 1000);
+    // Four times the input gives about four times the output classes and methods.
+    for (int i = 0; i < small.length; i++) {
+      double ratio = (double) large[i] / small[i];
+      assertTrue("Ratio " + ratio, 3.5 <= ratio && ratio <= 4.5);
+    }
+  }
+
+  private static int countMethods(byte[] classFile) {
+    int[] methods = {0};
+    new ClassReader(classFile)
+        .accept(
+            new ClassVisitor(Opcodes.ASM6) {
+              @Override
+              public MethodVisitor visitMethod(
+                  int access, String name, String desc, String signature, String[] exceptions) {
+                methods[0]++;
+                return null;
+              }
+            },
+            ClassReader.SKIP_CODE);
+    return methods[0];
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.d8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that compiling to a dex file per class in windows of classes produces the same dex files
+ * as compiling all classes at once, also when desugaring spans several windows.
+ */
+@RunWith(Parameterized.class)
+public class StreamingWindowTest extends TestBase {
+
+  interface Named {
+
+    String name();
+
+    default String greeting() {
+      return "Hello " + name();
+    }
+
+    static Named of(String name) {
+      return () -> name;
+    }
+  }
+
+  interface Loud extends Named {
+
+    @Override
+    default String greeting() {
+      return Named.super.greeting() + "!";
+    }
+  }
+
+  static class Base implements Named {
+
+    @Override
+    public String name() {
+      return "base";
+    }
+  }
+
+  static class Sub extends Base implements Loud {}
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      Supplier<Named> sub = Sub::new;
+      System.out.println(new Base().greeting());
+      System.out.println(sub.get().greeting());
+      System.out.println(Named.of("lambda").greeting());
+    }
+  }
+
+  private static final List<Class<?>> CLASSES =
+      ImmutableList.of(TestClass.class, Sub.class, Base.class, Loud.class, Named.class);
+
+  private static final String EXPECTED =
+      StringUtils.lines("Hello base", "Hello base!", "Hello lambda");
+
+  private final boolean combineSyntheticClasses;
+
+  @Parameters(name = "combine synthetic classes: {0}")
+  public static Object[] data() {
+    return new Object[] {true, false};
+  }
+
+  public StreamingWindowTest(boolean combineSyntheticClasses) {
+    this.combineSyntheticClasses = combineSyntheticClasses;
+  }
+
+  private Map<String, byte[]> compile(int windowSize) throws Exception {
+    Map<String, byte[]> files = new TreeMap<>();
+    testForD8()
+        .addProgramClasses(CLASSES)
+        .setMinApi(AndroidApiLevel.K)
+        .setProgramConsumer(
+            new DexFilePerClassFileConsumer() {
+              @Override
+              public synchronized void accept(
+                  String primaryClassDescriptor,
+                  ByteDataView data,
+                  Set<String> descriptors,
+                  DiagnosticsHandler handler) {
+                assertTrue(files.put(primaryClassDescriptor, data.copyByteData()) == null);
+              }
+
+              @Override
+              public void finished(DiagnosticsHandler handler) {}
+
+              @Override
+              public boolean combineSyntheticClassesWithPrimaryClass() {
+                return combineSyntheticClasses;
+              }
+            })
+        .addOptionsModification(options -> options.streamingWindowSize = windowSize)
+        .compile();
+    return files;
+  }
+
+  @Test
+  public void test() throws Exception {
+    Map<String, byte[]> expected = compile(0);
+    for (int windowSize : new int[] {1, 2, CLASSES.size()}) {
+      Map<String, byte[]> files = compile(windowSize);
+      assertEquals(expected.keySet(), files.keySet());
+      for (String descriptor : expected.keySet()) {
+        assertArrayEquals(descriptor, expected.get(descriptor), files.get(descriptor));
+      }
+    }
+
+    Path dir = temp.newFolder().toPath();
+    List<Path> dexFiles = new ArrayList<>();
+    for (Map.Entry<String, byte[]> entry : compile(1).entrySet()) {
+      Path file =
+          dir.resolve(DescriptorUtils.getClassBinaryNameFromDescriptor(entry.getKey()) + ".dex");
+      Files.createDirectories(file.getParent());
+      Files.write(file, entry.getValue());
+      dexFiles.add(file);
+    }
+    testForD8()
+        .addProgramFiles(dexFiles)
+        .setMinApi(AndroidApiLevel.K)
+        .run(TestClass.class)
+        .assertSuccessWithOutput(EXPECTED);
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.FoundMethodSubject;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject.JumboStringMode;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import java.nio.file.Path;
+import org.junit.Test;
+
+/**
+ * Tests that code read from dex files is written correctly when it is passed through D8, in which
+ * case the code units are copied and the indices of the referenced items are remapped.
+ */
+public class PassThroughDexCodeTest extends TestBase {
+
+  static class TestClass {
+
+    static int counter;
+    String name;
+
+    TestClass(String name) {
+      this.name = name;
+    }
+
+    static String describe(Object o) {
+      try {
+        switch (((TestClass) o).name.length()) {
+          case 1:
+            return "short";
+          case 5:
+            return "Hello";
+          default:
+            return "other";
+        }
+      } catch (ClassCastException e) {
+        return "not a TestClass";
+      }
+    }
+
+    static int next(int i) {
+      switch (i) {
+        case 0:
+          return 7;
+        case 1:
+          return 11;
+        case 2:
+          return 13;
+        case 3:
+          return 17;
+        case 4:
+          return 19;
+        case 5:
+          return 23;
+        case 6:
+          return 29;
+        default:
+          return 1;
+      }
+    }
+
+    public static void main(String[] args) {
+      counter++;
+      int[] values = {1, 2, 3};
+      long[] longs = {19L, 23L, 29L, 31L, 37L, 41L};
+      System.out.println(describe(new TestClass("Hello")));
+      System.out.println(describe(Other.name()));
+      System.out.println(counter + values[2]);
+      System.out.println(next(args.length + 2) + longs[5]);
+    }
+  }
+
+  static class Other {
+
+    static String name() {
+      return "Other";
+    }
+  }
+
+  private static final String EXPECTED = StringUtils.lines("Hello", "not a TestClass", "4", "54");
+
+  private Path compileToDex(Class<?> clazz) throws Exception {
+    Path dex = temp.newFolder().toPath().resolve("classes.zip");
+    testForD8().addProgramClasses(clazz).compile().writeToZip(dex);
+    return dex;
+  }
+
+  @Test
+  public void test() throws Exception {
+    Path testClassDex = compileToDex(TestClass.class);
+    // Merging with another dex file changes the indices of the items referenced from the code.
+    CodeInspector inspector =
+        testForD8()
+            .addProgramFiles(compileToDex(Other.class), testClassDex)
+            .compile()
+            .run(TestClass.class)
+            .assertSuccessWithOutput(EXPECTED)
+            .inspector();
+
+    ClassSubject input = new CodeInspector(testClassDex).clazz(TestClass.class);
+    ClassSubject output = inspector.clazz(TestClass.class);
+    assertTrue(output.isPresent());
+    for (FoundMethodSubject method : input.allMethods()) {
+      MethodSubject outputMethod = output.method(method.getOriginalSignature());
+      assertTrue(outputMethod.isPresent());
+      assertEquals(method.getMethod().codeToString(), outputMethod.getMethod().codeToString());
+    }
+  }
+
+  @Test
+  public void testJumboStrings() throws Exception {
+    CodeInspector inspector =
+        testForD8()
+            .addProgramFiles(compileToDex(Other.class), compileToDex(TestClass.class))
+            .addOptionsModification(options -> options.testing.forceJumboStringProcessing = true)
+            .compile()
+            .run(TestClass.class)
+            .assertSuccessWithOutput(EXPECTED)
+            .inspector();
+
+    MethodSubject describe = inspector.clazz(TestClass.class).uniqueMethodWithName("describe");
+    assertTrue(describe.isPresent());
+    assertTrue(
+        describe
+            .streamInstructions()
+            .anyMatch(instruction -> instruction.isConstString("Hello", JumboStringMode.ALLOW)));
+    assertTrue(
+        describe
+            .streamInstructions()
+            .noneMatch(
+                instruction -> instruction.isConstString("Hello", JumboStringMode.DISALLOW)));
+  }
+}
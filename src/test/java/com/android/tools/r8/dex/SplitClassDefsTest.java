@@ -0,0 +1,158 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.io.ByteStreams;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipFile;
+import org.junit.Test;
+
+/**
+ * Tests that reading the class definitions of a dex file in several ranges concurrently gives the
+ * same classes as reading them with a single parser.
+ */
+public class SplitClassDefsTest extends TestBase {
+
+  @Deprecated
+  interface I {
+    String NAME = "I";
+
+    void m(String s);
+  }
+
+  static class A implements I {
+
+    static final int VALUE = 42;
+    static final String STRING = "A";
+    int field;
+
+    @Override
+    public void m(String s) {
+      try {
+        field = Integer.parseInt(s);
+      } catch (NumberFormatException e) {
+        field = VALUE;
+      }
+    }
+  }
+
+  static class B extends A {
+
+    @Deprecated long other = 7L;
+
+    @Override
+    public void m(String s) {
+      super.m(s + NAME + STRING);
+      other += field;
+    }
+  }
+
+  static class C {
+
+    static String describe(I i) {
+      return i instanceof B ? "B" : i instanceof A ? "A" : "I";
+    }
+  }
+
+  static class D extends B {}
+
+  static class E {
+
+    static final double[] VALUES = {1.0, 2.0, 3.0};
+  }
+
+  private final DexItemFactory factory = new DexItemFactory();
+
+  private List<DexClass> read(byte[] dex, int parsers) throws Exception {
+    DexParser dexParser =
+        new DexParser(
+            new DexReader(Origin.unknown(), dex),
+            ClassKind.PROGRAM,
+            factory,
+            new DiagnosticsHandler() {});
+    dexParser.populateIndexTables();
+    List<DexParser> classDefsParsers = dexParser.splitClassDefs(parsers, 1);
+    assertEquals(parsers, classDefsParsers.size());
+    List<List<DexClass>> classes = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newWorkStealingPool(parsers);
+    try {
+      for (DexParser classDefsParser : classDefsParsers) {
+        List<DexClass> range = new ArrayList<>();
+        classes.add(range);
+        futures.add(executor.submit(() -> classDefsParser.addClassDefsTo(range::add)));
+      }
+      ThreadUtils.awaitFutures(futures);
+    } finally {
+      executor.shutdown();
+    }
+    List<DexClass> result = new ArrayList<>();
+    classes.forEach(result::addAll);
+    return result;
+  }
+
+  // Returns the parts of the class that are read from the dex file, which are compared by value.
+  private static List<Object> describe(DexClass clazz) {
+    List<Object> result = new ArrayList<>();
+    result.add(clazz.type);
+    result.add(clazz.accessFlags.toString());
+    result.add(clazz.superType);
+    result.add(clazz.interfaces);
+    result.add(clazz.sourceFile);
+    result.add(clazz.annotations);
+    for (DexEncodedField field : clazz.fields()) {
+      result.add(field.field);
+      result.add(field.accessFlags.toString());
+      result.add(field.annotations);
+      result.add(field.accessFlags.isStatic() ? field.getStaticValue() : null);
+    }
+    for (DexEncodedMethod method : clazz.methods()) {
+      result.add(method.method);
+      result.add(method.accessFlags.toString());
+      result.add(method.annotations);
+      result.add(method.parameterAnnotationsList);
+      result.add(method.getCode() == null ? null : method.getCode().toString());
+    }
+    return result;
+  }
+
+  @Test
+  public void test() throws Exception {
+    Path zip = temp.newFolder().toPath().resolve("out.zip");
+    testForD8()
+        .addProgramClasses(I.class, A.class, B.class, C.class, D.class, E.class)
+        .compile()
+        .writeToZip(zip);
+    byte[] dex;
+    try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+      dex = ByteStreams.toByteArray(zipFile.getInputStream(zipFile.getEntry("classes.dex")));
+    }
+
+    List<DexClass> expected = read(dex, 1);
+    assertEquals(6, expected.size());
+    for (int parsers : new int[] {2, 3, 6}) {
+      List<DexClass> classes = read(dex, parsers);
+      assertEquals(expected.size(), classes.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(describe(expected.get(i)), describe(classes.get(i)));
+      }
+    }
+  }
+}
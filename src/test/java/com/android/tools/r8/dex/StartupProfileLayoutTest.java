@@ -0,0 +1,311 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.StartupProfile;
+import com.google.common.collect.ImmutableList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
+import org.jf.dexlib2.dexbacked.DexReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+public class StartupProfileLayoutTest {
+
+  static class A {
+    void a1() {
+      System.out.println("a1");
+    }
+  }
+
+  static class B {
+    void b1() {
+      System.out.println("b1");
+    }
+
+    void b2() {
+      System.out.println("b2");
+    }
+  }
+
+  static class Base {
+    void base() {
+      System.out.println("base");
+    }
+  }
+
+  static class C extends Base {
+    void c1() {
+      System.out.println("c1");
+    }
+  }
+
+  // Enough methods in total to need two dex files.
+  private static final int GENERATED_CLASSES = 700;
+  private static final int METHODS_PER_CLASS = 100;
+
+  @Rule
+  public TemporaryFolder temp = ToolHelper.getTemporaryFolderForTest();
+
+  private static String descriptor(Class<?> clazz) {
+    return "L" + clazz.getName().replace('.', '/') + ";";
+  }
+
+  private DexBackedDexFile compile(String profile) throws Exception {
+    D8Command.Builder builder = D8Command.builder();
+    for (Class<?> clazz : ImmutableList.of(A.class, B.class, Base.class, C.class)) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    if (profile != null) {
+      Path profileFile = temp.newFile("profile.txt").toPath();
+      Files.write(profileFile, profile.getBytes(StandardCharsets.UTF_8));
+      builder.addStartupProfileFiles(profileFile);
+    }
+    List<byte[]> dexFiles = new ArrayList<>();
+    builder.setProgramConsumer(
+        new DexIndexedConsumer.ForwardingConsumer(null) {
+          @Override
+          public void accept(
+              int fileIndex, ByteDataView data, Set<String> descriptors, DiagnosticsHandler h) {
+            dexFiles.add(data.copyByteData());
+          }
+        });
+    D8.run(builder.setMinApiLevel(21).build());
+    assertEquals(1, dexFiles.size());
+    return new DexBackedDexFile(Opcodes.getDefault(), dexFiles.get(0));
+  }
+
+  // Each odd class extends the preceding even class, so the inheritance groups are pairs.
+  private static byte[] generateClass(int index) {
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(
+        V1_8,
+        ACC_PUBLIC | ACC_SUPER,
+        generatedName(index),
+        null,
+        index % 2 == 0 ? "java/lang/Object" : generatedName(index - 1),
+        null);
+    for (int i = 0; i < METHODS_PER_CLASS; i++) {
+      MethodVisitor method =
+          writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "m" + i, "()V", null, null);
+      method.visitCode();
+      method.visitInsn(RETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  private static String generatedName(int index) {
+    return String.format("p/C%03d", index);
+  }
+
+  // Compiles the generated classes for legacy multidex with the inheritance based distribution,
+  // and returns the descriptors of the classes of each dex file.
+  private List<Set<String>> compileGenerated(String profile) throws Exception {
+    D8Command.Builder builder = D8Command.builder();
+    for (int i = 0; i < GENERATED_CLASSES; i++) {
+      builder.addClassProgramData(generateClass(i), Origin.unknown());
+    }
+    Path profileFile = temp.newFile().toPath();
+    Files.write(profileFile, profile.getBytes(StandardCharsets.UTF_8));
+    Map<Integer, Set<String>> files = new TreeMap<>();
+    builder
+        .addStartupProfileFiles(profileFile)
+        .addMainDexClasses("p.C000")
+        .setOptimizeMultidexForLinearAlloc(true)
+        .setMinApiLevel(19)
+        .setProgramConsumer(
+            new DexIndexedConsumer.ForwardingConsumer(null) {
+              @Override
+              public synchronized void accept(
+                  int fileIndex, ByteDataView data, Set<String> descriptors, DiagnosticsHandler h) {
+                files.put(fileIndex, descriptors);
+              }
+            });
+    D8.run(builder.build());
+    return new ArrayList<>(files.values());
+  }
+
+  private static List<String> classOrder(DexBackedDexFile dexFile) {
+    List<String> classes = new ArrayList<>();
+    for (int i = 0; i < dexFile.getClassCount(); i++) {
+      classes.add(dexFile.getType(dexFile.readSmallUint(dexFile.getClassDefItemOffset(i))));
+    }
+    return classes;
+  }
+
+  // Maps "Holder.name" to the offset of the code item of the method.
+  private static Map<String, Integer> codeOffsets(DexBackedDexFile dexFile) {
+    Map<String, Integer> offsets = new LinkedHashMap<>();
+    for (int i = 0; i < dexFile.getClassCount(); i++) {
+      int classDataOffset = dexFile.readSmallUint(dexFile.getClassDefItemOffset(i) + 24);
+      DexReader reader = dexFile.readerAt(classDataOffset);
+      int staticFields = reader.readSmallUleb128();
+      int instanceFields = reader.readSmallUleb128();
+      int directMethods = reader.readSmallUleb128();
+      int virtualMethods = reader.readSmallUleb128();
+      for (int field = 0; field < staticFields + instanceFields; field++) {
+        reader.readSmallUleb128();
+        reader.readSmallUleb128();
+      }
+      int methodIndex = 0;
+      for (int method = 0; method < directMethods + virtualMethods; method++) {
+        // The method indices are delta encoded, starting over for the virtual methods.
+        if (method == directMethods) {
+          methodIndex = 0;
+        }
+        methodIndex += reader.readSmallUleb128();
+        reader.readSmallUleb128();
+        int codeOffset = reader.readSmallUleb128();
+        String holder = dexFile.getMethods().get(methodIndex).getDefiningClass();
+        String name = dexFile.getMethods().get(methodIndex).getName();
+        String simpleName = holder.substring(holder.indexOf('$') + 1, holder.length() - 1);
+        offsets.put(simpleName + "." + name, codeOffset);
+      }
+    }
+    return offsets;
+  }
+
+  @Test
+  public void testWithoutProfile() throws Exception {
+    DexBackedDexFile dexFile = compile(null);
+    assertEquals(
+        ImmutableList.of(
+            descriptor(A.class), descriptor(B.class), descriptor(Base.class), descriptor(C.class)),
+        classOrder(dexFile));
+    Map<String, Integer> offsets = codeOffsets(dexFile);
+    assertTrue(offsets.get("A.a1") < offsets.get("B.b2"));
+  }
+
+  @Test
+  public void testWithProfile() throws Exception {
+    DexBackedDexFile dexFile =
+        compile(
+            "# Startup profile\n"
+                + descriptor(C.class) + "\n"
+                + "HSP" + descriptor(B.class) + "->b2()V\n");
+    // The startup classes and the supertype of C come first.
+    assertEquals(
+        ImmutableList.of(
+            descriptor(B.class), descriptor(Base.class), descriptor(C.class), descriptor(A.class)),
+        classOrder(dexFile));
+    // The code of the startup method comes first, followed by the code of the startup classes in
+    // profile order.
+    Map<String, Integer> offsets = codeOffsets(dexFile);
+    int b2 = offsets.get("B.b2");
+    for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+      assertTrue(entry.getKey(), entry.getKey().equals("B.b2") || b2 < entry.getValue());
+    }
+    int lastStartup = max(offsets.get("C.c1"), offsets.get("C.<init>"), offsets.get("B.b1"));
+    assertTrue(offsets.get("C.c1") < offsets.get("B.b1"));
+    assertTrue(lastStartup < offsets.get("A.a1"));
+    assertTrue(lastStartup < offsets.get("Base.base"));
+  }
+
+  @Test
+  public void testWithProfileAndInheritanceDistribution() throws Exception {
+    List<Set<String>> files = compileGenerated("");
+    assertTrue(files.size() > 1);
+    // Take a subclass placed in the last file without a profile.
+    int index = 1;
+    while (!files.get(files.size() - 1).contains("L" + generatedName(index) + ";")) {
+      index += 2;
+      assertTrue(index < GENERATED_CLASSES);
+    }
+    String startupClass = "L" + generatedName(index) + ";";
+    String superClass = "L" + generatedName(index - 1) + ";";
+
+    // With the class in the profile its inheritance group is placed in the first secondary file,
+    // as the main dex file only holds the main dex classes.
+    files = compileGenerated(startupClass + "\n");
+    assertTrue(files.size() > 2);
+    assertTrue(files.get(1).contains(startupClass));
+    assertTrue(files.get(1).contains(superClass));
+  }
+
+  private static int max(int... values) {
+    int result = Integer.MIN_VALUE;
+    for (int value : values) {
+      result = Math.max(result, value);
+    }
+    return result;
+  }
+
+  @Test
+  public void testParse() {
+    DexItemFactory factory = new DexItemFactory();
+    StartupProfile profile =
+        StartupProfile.parse(
+            ImmutableList.of(
+                StringResource.fromString(
+                    "Lp/A;\n\n# comment\nPLp/B;->m(I[Ljava/lang/String;)J\nLp/A;->n()V\n",
+                    Origin.unknown())),
+            factory);
+    assertFalse(profile.isEmpty());
+    assertEquals(0, profile.getClassIndex(factory.createType("Lp/A;")));
+    assertEquals(1, profile.getClassIndex(factory.createType("Lp/B;")));
+    assertEquals(
+        1,
+        profile.getMethodIndex(
+            factory.createMethod(
+                factory.createType("Lp/B;"),
+                factory.createProto(
+                    factory.longType,
+                    factory.intType,
+                    factory.createType("[Ljava/lang/String;")),
+                "m")));
+    assertEquals(
+        StartupProfile.NOT_STARTUP, profile.getClassIndex(factory.createType("Lp/C;")));
+    assertTrue(StartupProfile.parse(ImmutableList.of(), factory).isEmpty());
+  }
+
+  @Test
+  public void testParseError() {
+    DexItemFactory factory = new DexItemFactory();
+    for (String entry : ImmutableList.of("p.A", "Lp/A;->", "Lp/A;->m", "Lp/A;->m(")) {
+      try {
+        StartupProfile.parse(
+            ImmutableList.of(StringResource.fromString("Lp/B;\n" + entry, Origin.unknown())),
+            factory);
+        fail("Expected error for '" + entry + "'");
+      } catch (CompilationError e) {
+        assertTrue(e.getMessage(), e.getMessage().contains(entry));
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class DexItemFactoryInterningTest {
+
+  private static final String[] STRINGS = {
+    "",
+    "\u0000",
+    "a\u0000a",
+    "a",
+    "aa",
+    "a\u007f",
+    "a\u0080",
+    "a\u07ff",
+    "a\u0800",
+    "a\uffff",
+    "a\ud800\udc00a",
+    "Ljava/lang/Object;",
+  };
+
+  @Test
+  public void testHashCodeWithoutEncoding() {
+    for (String string : STRINGS) {
+      DexString dexString = new DexString(string);
+      assertEquals(dexString.computeHashCode(), DexString.computeHashCode(string));
+      assertEquals(
+          dexString.computeHashCode(),
+          DexString.computeHashCode(
+              dexString.size, dexString.content, 0, dexString.content.length));
+    }
+  }
+
+  @Test
+  public void testContentEquals() {
+    for (String string : STRINGS) {
+      DexString dexString = new DexString(string);
+      for (String other : STRINGS) {
+        DexString otherDexString = new DexString(other);
+        boolean expected = string.equals(other);
+        assertEquals(expected, dexString.contentEquals(other));
+        assertEquals(
+            expected,
+            dexString.contentEquals(
+                otherDexString.size, otherDexString.content, 0, otherDexString.content.length));
+      }
+    }
+  }
+
+  @Test
+  public void testLookupWithoutAllocation() {
+    DexItemFactory factory = new DexItemFactory();
+    for (String string : STRINGS) {
+      assertNull(factory.lookupString(string + "$absent"));
+      DexString dexString = factory.createString(string);
+      assertSame(dexString, factory.lookupString(string));
+      assertSame(dexString, factory.createString(string));
+      assertSame(dexString, factory.createString(dexString.size, dexString.content.clone()));
+      // Look up the content at an offset in a larger buffer.
+      byte[] buffer = new byte[dexString.content.length + 4];
+      System.arraycopy(dexString.content, 0, buffer, 2, dexString.content.length);
+      assertSame(
+          dexString, factory.createString(dexString.size, buffer, 2, dexString.content.length));
+    }
+  }
+
+  @Test
+  public void testCreateFromBufferCopiesContent() {
+    DexItemFactory factory = new DexItemFactory();
+    byte[] content = DexString.encodeToMutf8("notYetInterned");
+    byte[] buffer = new byte[content.length + 1];
+    System.arraycopy(content, 0, buffer, 1, content.length);
+    DexString dexString = factory.createString(14, buffer, 1, content.length);
+    buffer[1] = 'N';
+    assertEquals("notYetInterned", dexString.toString());
+    assertSame(dexString, factory.lookupString("notYetInterned"));
+  }
+
+  @Test
+  public void testConcurrentCreation() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    int threads = 8;
+    ExecutorService executor = ThreadUtils.getExecutorService(threads);
+    try {
+      List<Future<List<DexType>>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  List<DexType> types = new ArrayList<>();
+                  for (int i = 0; i < 1000; i++) {
+                    types.add(factory.createType("Lsome/Class" + i + ";"));
+                  }
+                  return types;
+                }));
+      }
+      List<DexType> expected = futures.get(0).get();
+      for (Future<List<DexType>> future : futures) {
+        List<DexType> types = future.get();
+        for (int i = 0; i < types.size(); i++) {
+          assertSame(expected.get(i), types.get(i));
+          assertSame(expected.get(i).descriptor, factory.lookupString("Lsome/Class" + i + ";"));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testStatistics() {
+    String property = "com.android.tools.r8.printInterningStatistics";
+    DexItemFactory factory;
+    System.setProperty(property, "");
+    try {
+      factory = new DexItemFactory();
+    } finally {
+      System.clearProperty(property);
+    }
+    InterningStatistics statistics = factory.getInterningStatistics();
+    assertNotNull(statistics);
+    long hits = statistics.getStrings().getHits();
+    long insertions = statistics.getStrings().getInsertions();
+    factory.createString("statisticsTest");
+    factory.createString("statisticsTest");
+    assertEquals(insertions + 1, statistics.getStrings().getInsertions());
+    assertEquals(hits + 1, statistics.getStrings().getHits());
+    assertEquals(0, statistics.getStrings().getRaces());
+    assertNull(new DexItemFactory().getInterningStatistics());
+    assertTrue(statistics.getTypes().getInsertions() > 0);
+  }
+}
@@ -0,0 +1,140 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.graph.DexEncodedMethod.ClassInlinerEligibility;
+import com.android.tools.r8.graph.DexEncodedMethod.DefaultOptimizationInfoImpl;
+import com.android.tools.r8.graph.ParameterUsagesInfo.ParameterUsage;
+import com.android.tools.r8.ir.code.If;
+import com.android.tools.r8.ir.code.Invoke;
+import com.android.tools.r8.utils.Pair;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.BitSet;
+import org.junit.Test;
+
+public class OptimizationInfoTableTest {
+
+  private static UpdatableOptimizationInfo newInfo() {
+    return DefaultOptimizationInfoImpl.DEFAULT_INSTANCE.mutableCopy();
+  }
+
+  private static UpdatableOptimizationInfo newNeverReturnsNullInfo() {
+    UpdatableOptimizationInfo info = newInfo();
+    info.markNeverReturnsNull();
+    info.markReturnsConstant(42);
+    info.setClassInlinerEligibility(new ClassInlinerEligibility(true));
+    BitSet facts = new BitSet();
+    facts.set(1);
+    info.setNonNullParamOrThrow(facts);
+    return info;
+  }
+
+  @Test
+  public void testDefaultInfoIsShared() {
+    OptimizationInfoTable table = new OptimizationInfoTable();
+    OptimizationInfo defaultInfo = DefaultOptimizationInfoImpl.DEFAULT_INSTANCE;
+    assertTrue(defaultInfo.isShared());
+    assertSame(defaultInfo, table.intern(defaultInfo));
+    assertSame(defaultInfo, table.intern(newInfo()));
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void testEqualInfosAreShared() {
+    OptimizationInfoTable table = new OptimizationInfoTable();
+    UpdatableOptimizationInfo first = newNeverReturnsNullInfo();
+    UpdatableOptimizationInfo second = newNeverReturnsNullInfo();
+    assertFalse(first.isShared());
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    OptimizationInfo interned = table.intern(first);
+    assertSame(first, interned);
+    assertTrue(interned.isShared());
+    assertSame(interned, table.intern(second));
+    assertSame(interned, table.intern(interned));
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  public void testDifferentInfosAreNotShared() {
+    OptimizationInfoTable table = new OptimizationInfoTable();
+    UpdatableOptimizationInfo first = newNeverReturnsNullInfo();
+    UpdatableOptimizationInfo second = newNeverReturnsNullInfo();
+    second.markNeverReturnsNormally();
+    assertNotSame(table.intern(first), table.intern(second));
+    UpdatableOptimizationInfo third = newNeverReturnsNullInfo();
+    third.markForceInline();
+    assertNotSame(table.intern(first), table.intern(third));
+    assertEquals(3, table.size());
+  }
+
+  @Test
+  public void testParameterUsages() {
+    DexItemFactory factory = new DexItemFactory();
+    DexMethod method =
+        factory.createMethod(
+            factory.objectType, factory.createProto(factory.intType), factory.createString("m"));
+    OptimizationInfoTable table = new OptimizationInfoTable();
+    UpdatableOptimizationInfo first = newInfo();
+    first.setParameterUsages(parameterUsages(method));
+    UpdatableOptimizationInfo second = newInfo();
+    second.setParameterUsages(parameterUsages(method));
+    assertSame(table.intern(first), table.intern(second));
+    UpdatableOptimizationInfo third = newInfo();
+    third.setParameterUsages(parameterUsages(factory.objectMethods.getClass));
+    assertNotSame(table.intern(first), table.intern(third));
+  }
+
+  private static ParameterUsagesInfo parameterUsages(DexMethod invokedMethod) {
+    ParameterUsage usage =
+        new ParameterUsage(
+            0,
+            ImmutableSet.of(If.Type.EQ),
+            ImmutableList.of(new Pair<>(Invoke.Type.VIRTUAL, invokedMethod)),
+            false,
+            true,
+            false,
+            false);
+    return new ParameterUsagesInfo(ImmutableList.of(usage));
+  }
+
+  @Test
+  public void testMutableCopyOfSharedInfo() {
+    OptimizationInfoTable table = new OptimizationInfoTable();
+    OptimizationInfo interned = table.intern(newNeverReturnsNullInfo());
+    UpdatableOptimizationInfo copy = interned.mutableCopy();
+    assertFalse(copy.isShared());
+    assertEquals(interned, copy);
+    copy.markForceInline();
+    assertTrue(copy.forceInline());
+    assertFalse(interned.forceInline());
+    assertTrue(copy.neverReturnsNull());
+    assertEquals(42, copy.getReturnedConstant());
+  }
+
+  @Test
+  public void testFlags() {
+    UpdatableOptimizationInfo info = newInfo();
+    info.markCheckNullReceiverBeforeAnySideEffect(true);
+    info.markTriggerClassInitBeforeAnySideEffect(true);
+    assertTrue(info.checksNullReceiverBeforeAnySideEffect());
+    assertTrue(info.triggersClassInitBeforeAnySideEffect());
+    info.markCheckNullReceiverBeforeAnySideEffect(false);
+    assertFalse(info.checksNullReceiverBeforeAnySideEffect());
+    assertTrue(info.triggersClassInitBeforeAnySideEffect());
+    info.markForceInline();
+    info.unsetForceInline();
+    assertFalse(info.forceInline());
+    info.markNeverInline();
+    assertTrue(info.neverInline());
+    assertFalse(info.forceInline());
+  }
+}
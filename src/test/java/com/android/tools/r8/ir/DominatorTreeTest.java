@@ -0,0 +1,171 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
+import com.android.tools.r8.ir.code.Argument;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.If;
+import com.android.tools.r8.ir.code.If.Type;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.code.Return;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableSet;
+import java.util.LinkedList;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DominatorTreeTest {
+
+  private Position position;
+  private BasicBlock block0;
+  private BasicBlock block1;
+  private BasicBlock block2;
+  private BasicBlock block3;
+  private BasicBlock block4;
+  private BasicBlock block5;
+  private IRCode code;
+
+  // Setup block structure with a diamond followed by a loop:
+  //
+  // block0:
+  //   v0 <- argument
+  //   if eqz v0 block2
+  // block1:
+  //   goto block3
+  // block2:
+  //   goto block3
+  // block3:
+  //   goto block4
+  // block4:
+  //   if eqz v0 block3
+  // block5:
+  //   return
+  @Before
+  public void setup() {
+    position = Position.testingPosition();
+    Value value = new Value(0, TypeLatticeElement.INT, null);
+
+    block0 = new BasicBlock();
+    block0.setNumber(0);
+    Instruction argument = new Argument(value);
+    argument.setPosition(position);
+    block0.add(argument);
+    Instruction theIf = new If(Type.EQ, value);
+    theIf.setPosition(position);
+    block0.add(theIf);
+    block0.setFilledForTesting();
+
+    block1 = BasicBlock.createGotoBlock(1, position);
+    block1.setFilledForTesting();
+    block2 = BasicBlock.createGotoBlock(2, position);
+    block2.setFilledForTesting();
+    block3 = BasicBlock.createGotoBlock(3, position);
+    block3.setFilledForTesting();
+
+    theIf = new If(Type.EQ, value);
+    theIf.setPosition(position);
+    block4 = BasicBlock.createIfBlock(4, (If) theIf);
+    block4.setFilledForTesting();
+
+    block5 = new BasicBlock();
+    block5.setNumber(5);
+    Instruction ret = new Return();
+    ret.setPosition(position);
+    block5.add(ret);
+    block5.setFilledForTesting();
+
+    block0.link(block1);
+    block0.link(block2);
+    block1.link(block3);
+    block2.link(block3);
+    block3.link(block4);
+    block4.link(block5);
+    block4.link(block3);
+
+    LinkedList<BasicBlock> blocks = new LinkedList<>();
+    blocks.add(block0);
+    blocks.add(block1);
+    blocks.add(block2);
+    blocks.add(block3);
+    blocks.add(block4);
+    blocks.add(block5);
+    code =
+        new IRCode(
+            new InternalOptions(),
+            null,
+            blocks,
+            new ValueNumberGenerator(),
+            false,
+            false,
+            false,
+            Origin.unknown());
+  }
+
+  @Test
+  public void dominance() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    for (BasicBlock block : code.blocks) {
+      assertTrue(dominatorTree.dominatedBy(block, block0));
+      assertTrue(dominatorTree.dominatedBy(block, block));
+      assertFalse(dominatorTree.strictlyDominatedBy(block, block));
+    }
+    assertFalse(dominatorTree.dominatedBy(block3, block1));
+    assertFalse(dominatorTree.dominatedBy(block3, block2));
+    assertFalse(dominatorTree.dominatedBy(block2, block1));
+    assertTrue(dominatorTree.strictlyDominatedBy(block4, block3));
+    assertTrue(dominatorTree.strictlyDominatedBy(block5, block3));
+    assertTrue(dominatorTree.strictlyDominatedBy(block5, block4));
+    assertFalse(dominatorTree.dominatedBy(block3, block4));
+    assertSame(block0, dominatorTree.immediateDominator(block3));
+    assertSame(block4, dominatorTree.immediateDominator(block5));
+    assertEquals(
+        ImmutableSet.of(block3, block4, block5),
+        ImmutableSet.copyOf(dominatorTree.dominatedBlocks(block3)));
+  }
+
+  @Test
+  public void dominanceFrontier() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    assertEquals(ImmutableSet.of(), dominatorTree.dominanceFrontier(block0));
+    assertEquals(ImmutableSet.of(block3), dominatorTree.dominanceFrontier(block1));
+    assertEquals(ImmutableSet.of(block3), dominatorTree.dominanceFrontier(block2));
+    assertEquals(ImmutableSet.of(block3), dominatorTree.dominanceFrontier(block3));
+    assertEquals(ImmutableSet.of(block3), dominatorTree.dominanceFrontier(block4));
+    assertEquals(ImmutableSet.of(), dominatorTree.dominanceFrontier(block5));
+  }
+
+  @Test
+  public void cachedUntilControlFlowChanges() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    assertSame(dominatorTree, code.getDominatorTree());
+
+    // Insert a new block on the edge from block4 to block5.
+    BasicBlock block6 = BasicBlock.createGotoBlock(6, position);
+    block6.setFilledForTesting();
+    block4.replaceSuccessor(block5, block6);
+    block5.replacePredecessor(block4, block6);
+    block6.getMutablePredecessors().add(block4);
+    block6.getMutableSuccessors().add(block5);
+    code.blocks.add(code.blocks.indexOf(block5), block6);
+
+    DominatorTree newDominatorTree = code.getDominatorTree();
+    assertNotSame(dominatorTree, newDominatorTree);
+    assertSame(block6, newDominatorTree.immediateDominator(block5));
+    assertTrue(newDominatorTree.strictlyDominatedBy(block6, block4));
+    assertSame(newDominatorTree, code.getDominatorTree());
+  }
+}
@@ -0,0 +1,237 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
+import com.android.tools.r8.ir.code.Argument;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.ConstNumber;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.IRCodeAnalysis;
+import com.android.tools.r8.ir.code.If;
+import com.android.tools.r8.ir.code.If.Type;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.InstructionListIterator;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.code.Return;
+import com.android.tools.r8.ir.code.Throw;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.ir.code.ValueNumberGenerator;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IRCodeAnalysisManagerTest {
+
+  private Position position;
+  private Value value;
+  private BasicBlock block0;
+  private BasicBlock block1;
+  private BasicBlock block2;
+  private IRCode code;
+
+  // Setup block structure:
+  //
+  // block0:
+  //   v0 <- argument
+  //   if eqz v0 block2
+  // block1:
+  //   return
+  // block2:
+  //   return
+  @Before
+  public void setup() {
+    position = Position.testingPosition();
+    value = new Value(0, TypeLatticeElement.INT, null);
+
+    block0 = new BasicBlock();
+    block0.setNumber(0);
+    Instruction argument = new Argument(value);
+    argument.setPosition(position);
+    block0.add(argument);
+    Instruction theIf = new If(Type.EQ, value);
+    theIf.setPosition(position);
+    block0.add(theIf);
+    block0.setFilledForTesting();
+
+    block1 = createReturnBlock(1);
+    block2 = createReturnBlock(2);
+
+    block0.link(block1);
+    block0.link(block2);
+
+    LinkedList<BasicBlock> blocks = new LinkedList<>();
+    blocks.add(block0);
+    blocks.add(block1);
+    blocks.add(block2);
+    InternalOptions options = new InternalOptions();
+    options.printIRAnalysisStatistics = true;
+    code =
+        new IRCode(
+            options,
+            null,
+            blocks,
+            new ValueNumberGenerator(),
+            false,
+            false,
+            false,
+            Origin.unknown());
+  }
+
+  private BasicBlock createReturnBlock(int number) {
+    BasicBlock block = new BasicBlock();
+    block.setNumber(number);
+    Instruction ret = new Return();
+    ret.setPosition(position);
+    block.add(ret);
+    block.setFilledForTesting();
+    return block;
+  }
+
+  private int computations(IRCodeAnalysis<?> analysis) {
+    int[] result = {0};
+    code.getAnalysisManager()
+        .forEachAnalysis(
+            (other, requests, computations) -> {
+              if (other == analysis) {
+                result[0] = computations;
+              }
+            });
+    return result[0];
+  }
+
+  @Test
+  public void cachedUntilModified() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    assertSame(dominatorTree, code.getDominatorTree());
+    assertSame(code.getNormalExitBlocks(), code.getNormalExitBlocks());
+    assertEquals(1, computations(IRCodeAnalysis.DOMINATOR_TREE));
+    assertEquals(1, computations(IRCodeAnalysis.NORMAL_EXIT_BLOCKS));
+  }
+
+  @Test
+  public void invalidatedByControlFlowChange() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    code.getNormalExitBlocks();
+
+    // Make block2 the successor of block1 instead of a successor of block0.
+    block0.getMutableSuccessors().remove(block2);
+    block2.getMutablePredecessors().remove(block0);
+    block1.getMutableSuccessors().add(block2);
+    block2.getMutablePredecessors().add(block1);
+
+    DominatorTree newDominatorTree = code.getDominatorTree();
+    assertNotSame(dominatorTree, newDominatorTree);
+    assertSame(block1, newDominatorTree.immediateDominator(block2));
+    code.getNormalExitBlocks();
+    assertEquals(2, computations(IRCodeAnalysis.DOMINATOR_TREE));
+    assertEquals(2, computations(IRCodeAnalysis.NORMAL_EXIT_BLOCKS));
+  }
+
+  @Test
+  public void instructionChangeOnlyInvalidatesInstructionDependentAnalyses() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    List<BasicBlock> normalExits = code.getNormalExitBlocks();
+
+    // Insert a constant before the return in block1.
+    InstructionListIterator iterator = block1.listIterator();
+    Instruction constNumber = new ConstNumber(code.createValue(TypeLatticeElement.INT), 0);
+    constNumber.setPosition(position);
+    iterator.add(constNumber);
+
+    assertNotSame(normalExits, code.getNormalExitBlocks());
+    assertEquals(ImmutableList.of(block1, block2), code.getNormalExitBlocks());
+    assertSame(dominatorTree, code.getDominatorTree());
+    assertEquals(1, computations(IRCodeAnalysis.DOMINATOR_TREE));
+    assertEquals(2, computations(IRCodeAnalysis.NORMAL_EXIT_BLOCKS));
+  }
+
+  @Test
+  public void dominatorTreeInvalidatedByChangedNormalExits() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+
+    // Replace the return in block2 by a throw. The dominator tree has a virtual exit block whose
+    // predecessors are the normal exits.
+    InstructionListIterator iterator = block2.listIterator();
+    iterator.next();
+    Instruction theThrow = new Throw(value);
+    theThrow.setPosition(position);
+    iterator.set(theThrow);
+
+    assertEquals(ImmutableList.of(block1), code.getNormalExitBlocks());
+    assertNotSame(dominatorTree, code.getDominatorTree());
+    assertEquals(2, computations(IRCodeAnalysis.DOMINATOR_TREE));
+  }
+
+  private void replaceExit(BasicBlock block, Instruction exit) {
+    InstructionListIterator iterator = block.listIterator();
+    iterator.next();
+    exit.setPosition(position);
+    iterator.set(exit);
+  }
+
+  @Test
+  public void dominatorTreeInvalidatedBySwappedNormalExits() {
+    replaceExit(block2, new Throw(value));
+    DominatorTree dominatorTree = code.getDominatorTree();
+
+    // Swap the exits of block1 and block2, which keeps the number of normal exits.
+    replaceExit(block1, new Throw(value));
+    replaceExit(block2, new Return());
+
+    assertEquals(ImmutableList.of(block2), code.getNormalExitBlocks());
+    DominatorTree newDominatorTree = code.getDominatorTree();
+    assertNotSame(dominatorTree, newDominatorTree);
+    // The immediate dominator of the virtual exit block is its only predecessor.
+    assertSame(block2, Iterables.get(newDominatorTree.normalExitDominatorBlocks(), 1));
+    assertEquals(2, computations(IRCodeAnalysis.DOMINATOR_TREE));
+  }
+
+  @Test
+  public void dominatorTreeInvalidatedByBlockNumbering() {
+    DominatorTree dominatorTree = code.getDominatorTree();
+    int number = block1.getNumber();
+    block1.setNumber(block2.getNumber());
+    block2.setNumber(number);
+
+    assertNotSame(dominatorTree, code.getDominatorTree());
+    assertEquals(2, computations(IRCodeAnalysis.DOMINATOR_TREE));
+  }
+
+  @Test
+  public void topologicallySortedBlocksInvalidatedByControlFlowChange() {
+    assertEquals(ImmutableList.of(block0, block2, block1), code.topologicallySortedBlocks());
+
+    // Make block2 the successor of block1 instead of a successor of block0. The entry block is
+    // unchanged.
+    block0.getMutableSuccessors().remove(block2);
+    block2.getMutablePredecessors().remove(block0);
+    block1.getMutableSuccessors().add(block2);
+    block2.getMutablePredecessors().add(block1);
+
+    assertEquals(ImmutableList.of(block0, block1, block2), code.topologicallySortedBlocks());
+    assertEquals(2, computations(IRCodeAnalysis.TOPOLOGICALLY_SORTED_BLOCKS));
+  }
+
+  @Test
+  public void splitInvalidatesInstructionDependentAnalyses() {
+    assertEquals(ImmutableList.of(block1, block2), code.getNormalExitBlocks());
+
+    // Move the return of block1 to a new block.
+    BasicBlock returnBlock = block1.listIterator().split(code);
+
+    assertEquals(ImmutableList.of(returnBlock, block2), code.getNormalExitBlocks());
+    assertEquals(2, computations(IRCodeAnalysis.NORMAL_EXIT_BLOCKS));
+  }
+}
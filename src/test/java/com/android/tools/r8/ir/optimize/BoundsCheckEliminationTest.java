@@ -0,0 +1,192 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
+import com.android.tools.r8.ir.code.ArrayGet;
+import com.android.tools.r8.ir.code.ArrayPut;
+import com.android.tools.r8.ir.code.MemberType;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class BoundsCheckEliminationTest extends TestBase {
+
+  static class TestClass {
+
+    @NeverInline
+    static int inBounds(int[] array) {
+      int count = 0;
+      for (int i = 0; i < array.length; i++) {
+        int unused = array[i];
+        count++;
+      }
+      return count;
+    }
+
+    @NeverInline
+    static int inBoundsSwapped(int[] array) {
+      int count = 0;
+      for (int i = 0; array.length > i; i++) {
+        int unused = array[i];
+        count++;
+      }
+      return count;
+    }
+
+    @NeverInline
+    static int inclusiveBound(int[] array) {
+      int count = 0;
+      for (int i = 0; i <= array.length; i++) {
+        int unused = array[i];
+        count++;
+      }
+      return count;
+    }
+
+    @NeverInline
+    static int unknownStart(int[] array, int start) {
+      int count = 0;
+      for (int i = start; i < array.length; i++) {
+        int unused = array[i];
+        count++;
+      }
+      return count;
+    }
+
+    @NeverInline
+    static int otherArray(int[] array, int[] other) {
+      int count = 0;
+      for (int i = 0; i < array.length; i++) {
+        int unused = other[i];
+        count++;
+      }
+      return count;
+    }
+
+    @NeverInline
+    static int afterLoop(int[] array) {
+      int i = 0;
+      for (; i < array.length; i++) {
+        // Nothing.
+      }
+      // The guard i < array.length does not dominate this access.
+      int unused = array[i];
+      return i;
+    }
+
+    public static void main(String[] args) {
+      int[] array = {1, 2, 3};
+      System.out.println(inBounds(array));
+      System.out.println(inBoundsSwapped(array));
+      try {
+        inclusiveBound(array);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        System.out.println("AIOOBE");
+      }
+      try {
+        unknownStart(array, args.length - 1);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        System.out.println("AIOOBE");
+      }
+      try {
+        otherArray(array, new int[2]);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        System.out.println("AIOOBE");
+      }
+      try {
+        afterLoop(array);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        System.out.println("AIOOBE");
+      }
+    }
+  }
+
+  private static final String EXPECTED =
+      StringUtils.lines("3", "3", "AIOOBE", "AIOOBE", "AIOOBE", "AIOOBE");
+
+  private final Backend backend;
+
+  @Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public BoundsCheckEliminationTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static long countArrayGets(ClassSubject clazz, String methodName) {
+    return clazz
+        .uniqueMethodWithName(methodName)
+        .streamInstructions()
+        .filter(InstructionSubject::isArrayGet)
+        .count();
+  }
+
+  private CodeInspector compile(boolean enableBoundsCheckElimination) throws Exception {
+    return testForR8(backend)
+        .addProgramClasses(TestClass.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .noMinification()
+        .addOptionsModification(
+            options -> options.enableBoundsCheckElimination = enableBoundsCheckElimination)
+        .run(TestClass.class)
+        .assertSuccessWithOutput(EXPECTED)
+        .inspector();
+  }
+
+  @Test
+  public void testKnownToBeInBoundsIsNotShared() {
+    Value array = new Value(0, TypeLatticeElement.NULL, null);
+    Value index = new Value(1, TypeLatticeElement.INT, null);
+    Value value = new Value(2, TypeLatticeElement.INT, null);
+    ArrayGet get = new ArrayGet(MemberType.INT, value, array, index);
+    ArrayGet guardedGet = new ArrayGet(MemberType.INT, value, array, index);
+    assertTrue(get.identicalNonValueNonPositionParts(guardedGet));
+    guardedGet.markKnownToBeInBounds();
+    assertFalse(get.identicalNonValueNonPositionParts(guardedGet));
+    assertFalse(guardedGet.identicalNonValueNonPositionParts(get));
+    ArrayPut put = new ArrayPut(MemberType.INT, array, index, value);
+    ArrayPut guardedPut = new ArrayPut(MemberType.INT, array, index, value);
+    assertTrue(put.identicalNonValueNonPositionParts(guardedPut));
+    guardedPut.markKnownToBeInBounds();
+    assertFalse(put.identicalNonValueNonPositionParts(guardedPut));
+    assertFalse(guardedPut.identicalNonValueNonPositionParts(put));
+  }
+
+  @Test
+  public void testWithoutBoundsCheckElimination() throws Exception {
+    ClassSubject clazz = compile(false).clazz(TestClass.class);
+    assertEquals(1, countArrayGets(clazz, "inBounds"));
+    assertEquals(1, countArrayGets(clazz, "inBoundsSwapped"));
+  }
+
+  @Test
+  public void testBoundsCheckElimination() throws Exception {
+    ClassSubject clazz = compile(true).clazz(TestClass.class);
+    // The unused array reads cannot throw, and are removed as dead code.
+    assertEquals(0, countArrayGets(clazz, "inBounds"));
+    assertEquals(0, countArrayGets(clazz, "inBoundsSwapped"));
+    // The array reads may throw, and must be retained.
+    assertEquals(1, countArrayGets(clazz, "inclusiveBound"));
+    assertEquals(1, countArrayGets(clazz, "unknownStart"));
+    assertEquals(1, countArrayGets(clazz, "otherArray"));
+    assertEquals(1, countArrayGets(clazz, "afterLoop"));
+  }
+}
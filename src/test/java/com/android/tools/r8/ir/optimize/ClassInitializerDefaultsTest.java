@@ -0,0 +1,100 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ClassInitializerDefaultsTest extends TestBase {
+
+  static class Tables {
+
+    static final int[] TABLE = {1, 2, 3};
+    static final String NAME = "Tables";
+    static int size = 42;
+
+    @NeverInline
+    static String print() {
+      return NAME + " " + size + " " + TABLE[2];
+    }
+  }
+
+  static class Overwritten {
+
+    static int value;
+
+    static {
+      int[] values = {5};
+      value = values[0];
+      value = 3;
+    }
+
+    @NeverInline
+    static String print() {
+      return "Overwritten " + value;
+    }
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println(Tables.print());
+      System.out.println(Overwritten.print());
+    }
+  }
+
+  private static final String EXPECTED = StringUtils.lines("Tables 42 3", "Overwritten 3");
+
+  private final Backend backend;
+
+  @Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public ClassInitializerDefaultsTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static long countStaticPuts(MethodSubject method) {
+    return method.streamInstructions().filter(InstructionSubject::isStaticPut).count();
+  }
+
+  @Test
+  public void test() throws Exception {
+    CodeInspector inspector =
+        testForR8(backend)
+            .addProgramClasses(TestClass.class, Tables.class, Overwritten.class)
+            .addKeepMainRule(TestClass.class)
+            .enableInliningAnnotations()
+            .noMinification()
+            .run(TestClass.class)
+            .assertSuccessWithOutput(EXPECTED)
+            .inspector();
+
+    // The static puts that follow the array initializer are replaced by initial values.
+    ClassSubject tables = inspector.clazz(Tables.class);
+    assertTrue(tables.isPresent());
+    assertEquals(1, countStaticPuts(tables.clinit()));
+
+    // The put of the constant cannot be hoisted, since the field is already assigned a value
+    // that is read from an array.
+    ClassSubject overwritten = inspector.clazz(Overwritten.class);
+    assertTrue(overwritten.isPresent());
+    assertEquals(2, countStaticPuts(overwritten.clinit()));
+  }
+}
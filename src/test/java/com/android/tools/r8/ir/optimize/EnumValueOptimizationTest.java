@@ -0,0 +1,220 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+@RunWith(Parameterized.class)
+public class EnumValueOptimizationTest extends TestBase {
+
+  enum Color {
+    RED,
+    GREEN,
+    BLUE
+  }
+
+  enum Aliased {
+    FIRST,
+    SECOND;
+
+    static final Aliased ALIAS = FIRST;
+  }
+
+  static class TestClass {
+
+    @NeverInline
+    static int ordinal() {
+      return Color.BLUE.ordinal();
+    }
+
+    @NeverInline
+    static int compareTo() {
+      return Color.RED.compareTo(Color.BLUE);
+    }
+
+    @NeverInline
+    static boolean equals() {
+      return Color.GREEN.equals(Color.GREEN);
+    }
+
+    @NeverInline
+    static String identity() {
+      if (Color.RED == Color.GREEN) {
+        return "same";
+      }
+      return "different";
+    }
+
+    @NeverInline
+    static int unknown(Color color) {
+      return color.ordinal();
+    }
+
+    public static void main(String[] args) {
+      System.out.println(ordinal());
+      System.out.println(compareTo());
+      System.out.println(equals());
+      System.out.println(identity());
+      System.out.println(unknown(args.length == 0 ? Color.GREEN : Color.RED));
+    }
+  }
+
+  static class AliasTestClass {
+
+    @NeverInline
+    static boolean identity() {
+      return Aliased.FIRST == Aliased.ALIAS;
+    }
+
+    @NeverInline
+    static boolean equals() {
+      return Aliased.ALIAS.equals(Aliased.FIRST);
+    }
+
+    @NeverInline
+    static boolean different() {
+      return Aliased.SECOND == Aliased.ALIAS;
+    }
+
+    public static void main(String[] args) {
+      System.out.println(identity());
+      System.out.println(equals());
+      System.out.println(different());
+    }
+  }
+
+  private static final String EXPECTED = StringUtils.lines("2", "-2", "true", "different", "1");
+
+  private static final String ALIAS_EXPECTED = StringUtils.lines("true", "true", "false");
+
+  /**
+   * Rewrites the class initializer of {@link Aliased} such that the instance of FIRST is stored to
+   * both FIRST and ALIAS, as when dex code stores one register to both fields.
+   */
+  private static class AliasingClassAdapter extends ClassVisitor {
+
+    AliasingClassAdapter(ClassVisitor visitor) {
+      super(Opcodes.ASM6, visitor);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access, String name, String desc, String signature, String[] exceptions) {
+      MethodVisitor visitor = super.visitMethod(access, name, desc, signature, exceptions);
+      if (!name.equals("<clinit>")) {
+        return visitor;
+      }
+      return new MethodVisitor(Opcodes.ASM6, visitor) {
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+          if (opcode == Opcodes.PUTSTATIC && name.equals("FIRST")) {
+            super.visitInsn(Opcodes.DUP);
+            super.visitFieldInsn(opcode, owner, "ALIAS", desc);
+          } else if (opcode == Opcodes.PUTSTATIC && name.equals("ALIAS")) {
+            // Drop the value read from FIRST, ALIAS is already assigned.
+            super.visitInsn(Opcodes.POP);
+            return;
+          }
+          super.visitFieldInsn(opcode, owner, name, desc);
+        }
+      };
+    }
+  }
+
+  private static byte[] aliasedWithSharedInstance() throws IOException {
+    ClassReader reader = new ClassReader(ToolHelper.getClassAsBytes(Aliased.class));
+    ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+    reader.accept(new AliasingClassAdapter(writer), 0);
+    return writer.toByteArray();
+  }
+
+  private final Backend backend;
+
+  @Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public EnumValueOptimizationTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static boolean invokesEnumMethod(MethodSubject method) {
+    return method.streamInstructions().anyMatch(InstructionSubject::isInvokeVirtual);
+  }
+
+  private CodeInspector compile(boolean enableEnumValueOptimization) throws Exception {
+    return testForR8(backend)
+        .addProgramClasses(TestClass.class, Color.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .noMinification()
+        .addOptionsModification(
+            options -> options.enableEnumValueOptimization = enableEnumValueOptimization)
+        .run(TestClass.class)
+        .assertSuccessWithOutput(EXPECTED)
+        .inspector();
+  }
+
+  @Test
+  public void testWithoutEnumValueOptimization() throws Exception {
+    ClassSubject clazz = compile(false).clazz(TestClass.class);
+    assertTrue(invokesEnumMethod(clazz.uniqueMethodWithName("ordinal")));
+    assertTrue(invokesEnumMethod(clazz.uniqueMethodWithName("compareTo")));
+    assertTrue(invokesEnumMethod(clazz.uniqueMethodWithName("equals")));
+  }
+
+  @Test
+  public void testEnumValueOptimization() throws Exception {
+    ClassSubject clazz = compile(true).clazz(TestClass.class);
+    assertFalse(invokesEnumMethod(clazz.uniqueMethodWithName("ordinal")));
+    assertFalse(invokesEnumMethod(clazz.uniqueMethodWithName("compareTo")));
+    assertFalse(invokesEnumMethod(clazz.uniqueMethodWithName("equals")));
+    MethodSubject identity = clazz.uniqueMethodWithName("identity");
+    assertEquals(0, identity.streamInstructions().filter(InstructionSubject::isIf).count());
+    assertTrue(invokesEnumMethod(clazz.uniqueMethodWithName("unknown")));
+  }
+
+  @Test
+  public void testAliasedEnumConstant() throws Exception {
+    ClassSubject clazz =
+        testForR8(backend)
+            .addProgramClasses(AliasTestClass.class)
+            .addProgramClassFileData(aliasedWithSharedInstance())
+            .addKeepMainRule(AliasTestClass.class)
+            .enableInliningAnnotations()
+            .noMinification()
+            .run(AliasTestClass.class)
+            .assertSuccessWithOutput(ALIAS_EXPECTED)
+            .inspector()
+            .clazz(AliasTestClass.class);
+    // FIRST and ALIAS are the same constant, which has a known ordinal.
+    assertFalse(invokesEnumMethod(clazz.uniqueMethodWithName("equals")));
+    for (String name : new String[] {"identity", "different"}) {
+      MethodSubject method = clazz.uniqueMethodWithName(name);
+      assertEquals(0, method.streamInstructions().filter(InstructionSubject::isIf).count());
+    }
+  }
+}
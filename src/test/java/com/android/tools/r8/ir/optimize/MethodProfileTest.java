@@ -0,0 +1,195 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.GraphLense;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.HotMethodProfile;
+import com.android.tools.r8.utils.InternalOptions.OutlineOptions;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+public class MethodProfileTest extends TestBase {
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println(hot(new StringBuilder(), "a", args.length > 0));
+      System.out.println(warm1(new StringBuilder(), "b"));
+      System.out.println(warm2(new StringBuilder(), "c"));
+      System.out.println(hotCaller(args.length));
+      System.out.println(caller(args.length));
+    }
+
+    public static String hot(StringBuilder builder, String arg, boolean fail) {
+      if (fail) {
+        throw new IllegalStateException(arg + 42);
+      }
+      builder.append(arg).append(arg).append(arg);
+      return builder.toString();
+    }
+
+    public static String warm1(StringBuilder builder, String arg) {
+      builder.append(arg).append(arg).append(arg);
+      return builder.toString();
+    }
+
+    public static String warm2(StringBuilder builder, String arg) {
+      builder.append(arg).append(arg).append(arg);
+      return builder.toString();
+    }
+
+    public static int hotCaller(int x) {
+      return callee(x);
+    }
+
+    public static int caller(int x) {
+      return callee(x + 1);
+    }
+
+    public static int callee(int x) {
+      int y = x * 3 + 7;
+      int z = y * y - x;
+      return z / 5 + y % 11;
+    }
+  }
+
+  private static final String CLASS_DESCRIPTOR =
+      DescriptorUtils.javaTypeToDescriptor(TestClass.class.getTypeName());
+
+  private static final String PROFILE =
+      "H" + CLASS_DESCRIPTOR + "->hot(Ljava/lang/StringBuilder;Ljava/lang/String;Z)"
+          + "Ljava/lang/String;\n"
+          + CLASS_DESCRIPTOR + "->hotCaller(I)I\n";
+
+  private CodeInspector compile(String profile) throws Exception {
+    R8Command.Builder builder =
+        R8Command.builder()
+            .addClassProgramData(ToolHelper.getClassAsBytes(TestClass.class), Origin.unknown())
+            .addLibraryFiles(ToolHelper.getDefaultAndroidJar())
+            .addProguardConfiguration(
+                ImmutableList.of("-keep class " + TestClass.class.getTypeName() + " { *; }"),
+                Origin.unknown())
+            .setProgramConsumer(DexIndexedConsumer.emptyConsumer());
+    if (profile != null) {
+      Path profileFile = temp.newFile("profile.txt").toPath();
+      Files.write(profileFile, profile.getBytes(StandardCharsets.UTF_8));
+      builder.addMethodProfileFiles(profileFile);
+    }
+    AndroidApp app =
+        ToolHelper.runR8(
+            builder.build(),
+            options -> {
+              options.outline.threshold = 2;
+              options.enableMinification = false;
+              options.inliningInstructionLimit = 3;
+            });
+    return new CodeInspector(app);
+  }
+
+  private static long countAppends(MethodSubject method) {
+    return method
+        .streamInstructions()
+        .filter(InstructionSubject::isInvokeVirtual)
+        .filter(instruction -> instruction.getMethod().name.toString().equals("append"))
+        .count();
+  }
+
+  private static boolean invokesOutline(MethodSubject method) {
+    return method
+        .streamInstructions()
+        .filter(InstructionSubject::isInvokeStatic)
+        .anyMatch(
+            instruction ->
+                instruction.getMethod().holder.toSourceString().equals(OutlineOptions.CLASS_NAME));
+  }
+
+  private static boolean invokesCallee(MethodSubject method) {
+    return method
+        .streamInstructions()
+        .filter(InstructionSubject::isInvokeStatic)
+        .anyMatch(instruction -> instruction.getMethod().name.toString().equals("callee"));
+  }
+
+  private static MethodSubject hot(CodeInspector inspector) throws Exception {
+    Method hot =
+        TestClass.class.getDeclaredMethod("hot", StringBuilder.class, String.class, boolean.class);
+    return inspector.clazz(TestClass.class).method(hot);
+  }
+
+  private static MethodSubject method(CodeInspector inspector, String name) throws Exception {
+    Method method = TestClass.class.getDeclaredMethod(name, int.class);
+    return inspector.clazz(TestClass.class).method(method);
+  }
+
+  @Test
+  public void testWithoutProfile() throws Exception {
+    CodeInspector inspector = compile(null);
+    MethodSubject hot = hot(inspector);
+    // The appends in the hot block are outlined together with the ones in warm1 and warm2, the
+    // appends of the string concatenation in the cold block only occur once.
+    assertTrue(invokesOutline(hot));
+    assertEquals(2, countAppends(hot));
+    assertTrue(invokesCallee(method(inspector, "hotCaller")));
+    assertTrue(invokesCallee(method(inspector, "caller")));
+  }
+
+  @Test
+  public void testWithProfile() throws Exception {
+    CodeInspector inspector = compile(PROFILE);
+    MethodSubject hot = hot(inspector);
+    // The appends in the hot block stay, the cold block is outlined although it only occurs once.
+    assertTrue(invokesOutline(hot));
+    assertEquals(3, countAppends(hot));
+    assertTrue(invokesOutline(inspector.clazz(TestClass.class).uniqueMethodWithName("warm1")));
+    // The callee is only inlined into the hot caller.
+    assertFalse(invokesCallee(method(inspector, "hotCaller")));
+    assertTrue(invokesCallee(method(inspector, "caller")));
+  }
+
+  @Test
+  public void testParse() {
+    DexItemFactory factory = new DexItemFactory();
+    HotMethodProfile profile =
+        HotMethodProfile.parse(
+            ImmutableList.of(
+                StringResource.fromString(
+                    "Lp/A;\nHSPLp/A;->a()V\nSPLp/A;->b()V\nLp/A;->c()V\n", Origin.unknown())),
+            factory);
+    GraphLense lense = GraphLense.getIdentityLense();
+    assertTrue(profile.isHot(method(factory, "a"), lense));
+    assertFalse(profile.isHot(method(factory, "b"), lense));
+    assertTrue(profile.isHot(method(factory, "c"), lense));
+    assertFalse(profile.isHot(method(factory, "d"), lense));
+    assertTrue(
+        HotMethodProfile.parse(
+                ImmutableList.of(StringResource.fromString("Lp/A;\n", Origin.unknown())), factory)
+            .isEmpty());
+  }
+
+  private static DexMethod method(DexItemFactory factory, String name) {
+    return factory.createMethod(
+        factory.createType("Lp/A;"), factory.createProto(factory.voidType), name);
+  }
+}
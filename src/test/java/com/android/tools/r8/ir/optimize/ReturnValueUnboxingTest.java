@@ -0,0 +1,159 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class ReturnValueUnboxingTest extends TestBase {
+
+  static class TestClass {
+
+    @NeverInline
+    private static Integer square(int x) {
+      return x * x;
+    }
+
+    @NeverInline
+    static Long sum(long a, long b) {
+      if (a < 0) {
+        return 0L;
+      }
+      return a + b;
+    }
+
+    @NeverInline
+    private static Integer positiveOrNull(int x) {
+      return x > 0 ? Integer.valueOf(x) : null;
+    }
+
+    static Object lastResult;
+
+    @NeverInline
+    private static Integer cube(int x) {
+      return x * x * x;
+    }
+
+    @NeverInline
+    static void useAsObject(int x) {
+      // The value 8 is in the Integer cache, so both calls return the same instance.
+      Integer small = cube(x);
+      System.out.println(small == cube(x));
+      // The value 1000 is not in the Integer cache, so each call returns a new instance.
+      Integer large = cube(x * 5);
+      System.out.println(large == cube(x * 5));
+      System.out.println(large.equals(cube(x * 5)));
+      lastResult = large;
+      System.out.println(lastResult.getClass().getName());
+    }
+
+    public static void main(String[] args) {
+      int unboxed = square(args.length + 3);
+      System.out.println(unboxed);
+      Integer boxed = square(4);
+      System.out.println(boxed);
+      long sum = sum(-1, 2);
+      System.out.println(sum);
+      System.out.println(sum(1, 2));
+      System.out.println(positiveOrNull(-1));
+      useAsObject(args.length + 2);
+    }
+  }
+
+  private static final String EXPECTED =
+      StringUtils.lines(
+          "9", "16", "0", "3", "null", "true", "false", "true", "java.lang.Integer");
+
+  private final Backend backend;
+
+  @Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public ReturnValueUnboxingTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static String returnType(ClassSubject clazz, String methodName) {
+    return clazz.uniqueMethodWithName(methodName).getMethod().method.proto.returnType.toString();
+  }
+
+  private static long countInvokes(MethodSubject method, String holder, String name) {
+    return method
+        .streamInstructions()
+        .filter(
+            instruction ->
+                instruction.isInvoke()
+                    && instruction.getMethod().holder.toSourceString().equals(holder)
+                    && instruction.getMethod().name.toString().equals(name))
+        .count();
+  }
+
+  private static boolean invokesMethod(MethodSubject method, String holder, String name) {
+    return countInvokes(method, holder, name) > 0;
+  }
+
+  private CodeInspector compile(boolean enableReturnValueUnboxing) throws Exception {
+    return testForR8(backend)
+        .addProgramClasses(TestClass.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .noMinification()
+        .addOptionsModification(
+            options -> options.enableReturnValueUnboxing = enableReturnValueUnboxing)
+        .run(TestClass.class)
+        .assertSuccessWithOutput(EXPECTED)
+        .inspector();
+  }
+
+  @Test
+  public void testWithoutReturnValueUnboxing() throws Exception {
+    ClassSubject clazz = compile(false).clazz(TestClass.class);
+    assertEquals("java.lang.Integer", returnType(clazz, "square"));
+    assertEquals("java.lang.Long", returnType(clazz, "sum"));
+  }
+
+  @Test
+  public void testReturnValueUnboxing() throws Exception {
+    ClassSubject clazz = compile(true).clazz(TestClass.class);
+    assertEquals("int", returnType(clazz, "square"));
+    assertEquals("long", returnType(clazz, "sum"));
+    MethodSubject square = clazz.uniqueMethodWithName("square");
+    assertFalse(invokesMethod(square, "java.lang.Integer", "valueOf"));
+    MethodSubject sum = clazz.uniqueMethodWithName("sum");
+    assertFalse(invokesMethod(sum, "java.lang.Long", "valueOf"));
+
+    // The values that are unboxed by the caller are never boxed.
+    MethodSubject main = clazz.mainMethod();
+    assertFalse(invokesMethod(main, "java.lang.Integer", "intValue"));
+    assertFalse(invokesMethod(main, "java.lang.Long", "longValue"));
+    // The values that are used as objects are boxed at the call site.
+    assertTrue(invokesMethod(main, "java.lang.Integer", "valueOf"));
+    assertTrue(invokesMethod(main, "java.lang.Long", "valueOf"));
+
+    // The results that are used as objects, e.g., in identity comparisons and field stores, are
+    // boxed at the call sites with valueOf, like in the callee before the rewriting.
+    assertEquals("int", returnType(clazz, "cube"));
+    assertFalse(invokesMethod(clazz.uniqueMethodWithName("cube"), "java.lang.Integer", "valueOf"));
+    MethodSubject useAsObject = clazz.uniqueMethodWithName("useAsObject");
+    assertEquals(5, countInvokes(useAsObject, "java.lang.Integer", "valueOf"));
+
+    // The method may return null.
+    assertEquals("java.lang.Integer", returnType(clazz, "positiveOrNull"));
+  }
+}
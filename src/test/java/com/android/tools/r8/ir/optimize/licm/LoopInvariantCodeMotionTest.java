@@ -0,0 +1,182 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize.licm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.Loop;
+import com.android.tools.r8.ir.code.Value;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class LoopInvariantCodeMotionTest extends TestBase {
+
+  static class TestClass {
+
+    final int[] values;
+    final int scale;
+
+    TestClass(int[] values, int scale) {
+      this.values = values;
+      this.scale = scale;
+    }
+
+    @NeverInline
+    static int sum(int[] array, int x) {
+      int sum = 0;
+      for (int i = 0; i < array.length; i++) {
+        sum += array[i] * (x * 3 + 7);
+      }
+      return sum;
+    }
+
+    @NeverInline
+    int scaledSum() {
+      int sum = 0;
+      for (int i = 0; i < values.length; i++) {
+        sum += values[i] * scale;
+      }
+      return sum;
+    }
+
+    @NeverInline
+    static int guarded(int[] array, boolean flag) {
+      int sum = 0;
+      for (int i = 0; i < 10; i++) {
+        if (flag) {
+          // The array may be null, so the array length must not be computed before the loop.
+          sum += array.length;
+        }
+        sum += i;
+      }
+      return sum;
+    }
+
+    static int[] lastCounter;
+
+    @NeverInline
+    static int storeBeforeThrow(int[] array) {
+      int[] counter = new int[1];
+      lastCounter = counter;
+      int sum = 0;
+      int i = 0;
+      do {
+        // The store cannot throw, but it must happen before the array length throws.
+        counter[0] = i + 1;
+        sum += array.length;
+        i++;
+      } while (i < 10);
+      return sum;
+    }
+
+    public static void main(String[] args) {
+      int[] values = {1, 2, 3};
+      System.out.println(sum(values, args.length + 1));
+      System.out.println(new TestClass(values, args.length + 2).scaledSum());
+      System.out.println(guarded(null, args.length > 0));
+      try {
+        sum(null, 1);
+      } catch (NullPointerException e) {
+        System.out.println("NPE");
+      }
+      try {
+        storeBeforeThrow(null);
+      } catch (NullPointerException e) {
+        System.out.println(lastCounter[0]);
+      }
+    }
+  }
+
+  private static final String EXPECTED = StringUtils.lines("60", "12", "45", "NPE", "1");
+
+  private final Backend backend;
+
+  @Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public LoopInvariantCodeMotionTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private R8TestCompileResult compile(boolean enableLoopInvariantCodeMotion) throws Exception {
+    return testForR8(backend)
+        .addProgramClasses(TestClass.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .noMinification()
+        .addOptionsModification(
+            options -> {
+              // Keep the instance of TestClass, such that scaledSum is not inlined into main.
+              options.enableClassInlining = false;
+              options.enableLoopInvariantCodeMotion = enableLoopInvariantCodeMotion;
+            })
+        .compile();
+  }
+
+  private static boolean hasInLoop(
+      ClassSubject clazz, String methodName, Predicate<Instruction> predicate) {
+    IRCode code = clazz.uniqueMethodWithName(methodName).buildIR();
+    List<Loop> loops = code.getLoops();
+    assertEquals(1, loops.size());
+    for (BasicBlock block : loops.get(0).getBlocks()) {
+      for (Instruction instruction : block.getInstructions()) {
+        if (predicate.test(instruction)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isMulByConstant(Instruction instruction) {
+    return instruction.isMul()
+        && instruction.inValues().stream().anyMatch(Value::isConstNumber);
+  }
+
+  @Test
+  public void testWithoutLoopInvariantCodeMotion() throws Exception {
+    R8TestCompileResult result = compile(false);
+    result.run(TestClass.class).assertSuccessWithOutput(EXPECTED);
+    ClassSubject clazz = result.inspector().clazz(TestClass.class);
+    assertTrue(hasInLoop(clazz, "sum", LoopInvariantCodeMotionTest::isMulByConstant));
+    assertTrue(hasInLoop(clazz, "sum", Instruction::isArrayLength));
+    assertTrue(hasInLoop(clazz, "scaledSum", Instruction::isInstanceGet));
+  }
+
+  @Test
+  public void testLoopInvariantCodeMotion() throws Exception {
+    R8TestCompileResult result = compile(true);
+    result.run(TestClass.class).assertSuccessWithOutput(EXPECTED);
+    CodeInspector inspector = result.inspector();
+    ClassSubject clazz = inspector.clazz(TestClass.class);
+    // The arithmetic on x and the length of the array are computed once.
+    assertFalse(hasInLoop(clazz, "sum", LoopInvariantCodeMotionTest::isMulByConstant));
+    assertFalse(hasInLoop(clazz, "sum", Instruction::isArrayLength));
+    // The loads of the final fields and the length of the array are computed once.
+    assertFalse(hasInLoop(clazz, "scaledSum", Instruction::isInstanceGet));
+    assertFalse(hasInLoop(clazz, "scaledSum", Instruction::isArrayLength));
+    // The array length is conditional and may throw, so it stays in the loop.
+    assertTrue(hasInLoop(clazz, "guarded", Instruction::isArrayLength));
+    // The array length may throw and follows a store, so it stays in the loop.
+    assertTrue(hasInLoop(clazz, "storeBeforeThrow", Instruction::isArrayLength));
+  }
+}
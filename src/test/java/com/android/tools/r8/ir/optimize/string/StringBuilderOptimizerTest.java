@@ -0,0 +1,188 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize.string;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject.JumboStringMode;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+class StringBuilderOptimizerTestMain {
+
+  @NeverInline
+  static String constant() {
+    return new StringBuilder().append("Hello").append(", ").append(42).append('!').toString();
+  }
+
+  @NeverInline
+  static int unused(int x) {
+    new StringBuilder().append("x = ").append(x).toString();
+    return x;
+  }
+
+  @NeverInline
+  static String merged(String s) {
+    return new StringBuilder().append("a").append("b").append(s).append("c").append('d').toString();
+  }
+
+  @NeverInline
+  static String presized(String s) {
+    return new StringBuilder().append("This is a rather long prefix: ").append(s).toString();
+  }
+
+  @NeverInline
+  static String loop(int n) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      builder.append("x");
+    }
+    return builder.toString();
+  }
+
+  static StringBuilder lastBuilder;
+
+  @NeverInline
+  static void appendSuffix(StringBuilder builder) {
+    builder.append("-suffix");
+  }
+
+  @NeverInline
+  static String escapingToCall() {
+    StringBuilder builder = new StringBuilder().append("prefix");
+    appendSuffix(builder);
+    return builder.append('!').toString();
+  }
+
+  @NeverInline
+  static String escapingToField() {
+    StringBuilder builder = new StringBuilder().append("a");
+    lastBuilder = builder;
+    builder.append("b");
+    lastBuilder.append("c");
+    return builder.toString();
+  }
+
+  public static void main(String[] args) {
+    System.out.println(constant());
+    System.out.println(unused(args.length));
+    System.out.println(merged("-"));
+    System.out.println(presized("suffix"));
+    System.out.println(loop(3));
+    System.out.println(escapingToCall());
+    System.out.println(escapingToField());
+  }
+}
+
+@RunWith(Parameterized.class)
+public class StringBuilderOptimizerTest extends TestBase {
+
+  private static final Class<?> MAIN = StringBuilderOptimizerTestMain.class;
+  private static final String EXPECTED =
+      StringUtils.lines(
+          "Hello, 42!",
+          "0",
+          "ab-cd",
+          "This is a rather long prefix: suffix",
+          "xxx",
+          "prefix-suffix!",
+          "abc");
+
+  private final Backend backend;
+
+  @Parameterized.Parameters(name = "Backend: {0}")
+  public static Backend[] data() {
+    return Backend.values();
+  }
+
+  public StringBuilderOptimizerTest(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static boolean isStringBuilderMethod(InstructionSubject instruction, String name) {
+    return instruction.isInvoke()
+        && instruction.getMethod().holder.toSourceString().equals("java.lang.StringBuilder")
+        && instruction.getMethod().name.toString().equals(name);
+  }
+
+  private static long countAppends(MethodSubject method) {
+    return method
+        .streamInstructions()
+        .filter(instruction -> isStringBuilderMethod(instruction, "append"))
+        .count();
+  }
+
+  private static long countNewInstances(MethodSubject method) {
+    return method.streamInstructions().filter(InstructionSubject::isNewInstance).count();
+  }
+
+  private CodeInspector compile(boolean enableStringBuilderOptimization) throws Exception {
+    return testForR8(backend)
+        .addProgramClasses(MAIN)
+        .addKeepMainRule(MAIN)
+        .enableInliningAnnotations()
+        .noMinification()
+        .addOptionsModification(
+            options -> options.enableStringBuilderOptimization = enableStringBuilderOptimization)
+        .run(MAIN)
+        .assertSuccessWithOutput(EXPECTED)
+        .inspector();
+  }
+
+  @Test
+  public void testWithoutStringBuilderOptimization() throws Exception {
+    ClassSubject clazz = compile(false).clazz(MAIN);
+    assertEquals(4, countAppends(clazz.uniqueMethodWithName("constant")));
+    assertEquals(2, countAppends(clazz.uniqueMethodWithName("unused")));
+    assertEquals(5, countAppends(clazz.uniqueMethodWithName("merged")));
+  }
+
+  @Test
+  public void testStringBuilderOptimization() throws Exception {
+    ClassSubject clazz = compile(true).clazz(MAIN);
+
+    MethodSubject constant = clazz.uniqueMethodWithName("constant");
+    assertEquals(0, countNewInstances(constant));
+    assertTrue(
+        constant
+            .streamInstructions()
+            .anyMatch(
+                instruction -> instruction.isConstString("Hello, 42!", JumboStringMode.ALLOW)));
+
+    assertEquals(0, countNewInstances(clazz.uniqueMethodWithName("unused")));
+
+    // The appends of "a" and "b", and of "c" and 'd' are merged.
+    assertEquals(3, countAppends(clazz.uniqueMethodWithName("merged")));
+
+    // The builder is created with a capacity that fits the constant prefix.
+    assertTrue(
+        clazz
+            .uniqueMethodWithName("presized")
+            .streamInstructions()
+            .anyMatch(
+                instruction ->
+                    isStringBuilderMethod(instruction, "<init>")
+                        && instruction.getMethod().getArity() == 1));
+
+    // The append in the loop is executed more than once per builder.
+    assertEquals(1, countAppends(clazz.uniqueMethodWithName("loop")));
+
+    // The builders escape, so their content is unknown at the call to toString().
+    MethodSubject escapingToCall = clazz.uniqueMethodWithName("escapingToCall");
+    assertEquals(1, countNewInstances(escapingToCall));
+    assertEquals(2, countAppends(escapingToCall));
+    MethodSubject escapingToField = clazz.uniqueMethodWithName("escapingToField");
+    assertEquals(1, countNewInstances(escapingToField));
+    assertEquals(3, countAppends(escapingToField));
+  }
+}
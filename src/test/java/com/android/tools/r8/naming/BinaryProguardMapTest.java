@@ -0,0 +1,225 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.ConvertProguardMap;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+/** Tests for the binary format of Proguard maps. */
+public class BinaryProguardMapTest extends TestBase {
+
+  private static final String HEADER =
+      StringUtils.lines("# compiler: R8", "# compiler_version: 1.5.0-dev", "# min_api: 15");
+
+  private static final String MAPPING =
+      HEADER
+          + StringUtils.lines(
+              "com.example.Main -> a.a:",
+              "    int field -> a",
+              "    java.lang.String[] names -> b",
+              "    1:1:void main(java.lang.String[]):20:20 -> main",
+              "    2:2:void com.example.Util.check(int):7:7 -> main",
+              "    2:2:void main(java.lang.String[]):21 -> main",
+              "    1:3:void foo():10:12 -> b",
+              "    1:3:void bar():5 -> b",
+              "    4:4:void baz():40:40 -> b",
+              "    70000:70002:int big(long,java.lang.Object):1:3 -> d",
+              "    void unused() -> c",
+              "    void unused(int) -> c",
+              "    java.lang.Object overloaded(int[],char) -> e",
+              "com.example.Util -> a.b:",
+              "    void check(int) -> a",
+              "",
+              "# A comment between the classes.",
+              "com.example.Main$Inner -> a.c:",
+              "com.example.Ünicode -> a.d:",
+              "    void ü() -> a");
+
+  private Path writeMapping(String mapping) throws IOException {
+    Path mappingFile = temp.newFolder().toPath().resolve("mapping.txt");
+    FileUtils.writeTextFile(mappingFile, mapping);
+    return mappingFile;
+  }
+
+  private Path writeBinaryMapping(String mapping) throws IOException {
+    Path binaryFile = temp.newFolder().toPath().resolve("mapping.bin");
+    BinaryProguardMap.fromText(mapping).write(binaryFile);
+    return binaryFile;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ClassNameMapper expected = ClassNameMapper.mapperFromString(MAPPING);
+    BinaryProguardMap binaryMap = BinaryProguardMap.fromText(MAPPING);
+    assertEquals(4, binaryMap.size());
+    assertEquals(HEADER, binaryMap.getHeaderComment());
+    assertEquals(expected, binaryMap.toClassNameMapper());
+    StringWriter writer = new StringWriter();
+    binaryMap.writeText(writer);
+    String text = writer.toString();
+    assertEquals(HEADER + expected.toString(), text);
+    // The text written from the binary map is converted to the same text again.
+    writer = new StringWriter();
+    BinaryProguardMap.fromText(text).writeText(writer);
+    assertEquals(text, writer.toString());
+  }
+
+  @Test
+  public void testMappedFile() throws Exception {
+    Path binaryFile = writeBinaryMapping(MAPPING);
+    assertTrue(BinaryProguardMap.isBinaryProguardMap(binaryFile));
+    assertFalse(BinaryProguardMap.isBinaryProguardMap(writeMapping(MAPPING)));
+    assertFalse(BinaryProguardMap.isBinaryProguardMap(writeMapping("")));
+    ClassNameMapper expected = ClassNameMapper.mapperFromString(MAPPING);
+    BinaryProguardMap binaryMap = BinaryProguardMap.mapFromFile(binaryFile);
+    assertEquals(expected, binaryMap.toClassNameMapper());
+    assertEquals(expected, ClassNameMapper.mapperFromFile(binaryFile));
+  }
+
+  @Test
+  public void testLookup() throws Exception {
+    ClassNameMapper expected = ClassNameMapper.mapperFromString(MAPPING);
+    BinaryProguardMap binaryMap = BinaryProguardMap.fromText(MAPPING);
+    for (String name : ImmutableList.of("a.a", "a.b", "a.c", "a.d")) {
+      assertTrue(binaryMap.hasMapping(name));
+      assertEquals(expected.getClassNaming(name), binaryMap.getClassNaming(name));
+      int classIndex = binaryMap.lookupObfuscatedName(name);
+      String originalName = expected.deobfuscateClassName(name);
+      assertEquals(originalName, binaryMap.getOriginalName(classIndex));
+      assertEquals(classIndex, binaryMap.lookupOriginalName(originalName));
+      assertEquals(name, binaryMap.getObfuscatedName(classIndex));
+    }
+    assertFalse(binaryMap.hasMapping("a.e"));
+    assertNull(binaryMap.getClassNaming("a.e"));
+    assertEquals(-1, binaryMap.lookupObfuscatedName("com.example.Main"));
+    assertEquals(-1, binaryMap.lookupOriginalName("a.a"));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    BinaryProguardMap binaryMap = BinaryProguardMap.fromText(HEADER);
+    assertEquals(0, binaryMap.size());
+    assertFalse(binaryMap.hasMapping("a.a"));
+    StringWriter writer = new StringWriter();
+    binaryMap.writeText(writer);
+    assertEquals(HEADER, writer.toString());
+  }
+
+  @Test
+  public void testSeedMapper() throws Exception {
+    SeedMapper expected = SeedMapper.seedMapperFromFile(writeMapping(MAPPING));
+    SeedMapper seedMapper = SeedMapper.seedMapperFromFile(writeBinaryMapping(MAPPING));
+    DexItemFactory factory = new DexItemFactory();
+    for (String descriptor :
+        ImmutableList.of(
+            "Lcom/example/Main;",
+            "Lcom/example/Util;",
+            "Lcom/example/Main$Inner;",
+            "Lcom/example/Ünicode;",
+            "La/a;")) {
+      DexType type = factory.createType(descriptor);
+      assertEquals(expected.hasMapping(type), seedMapper.hasMapping(type));
+      assertEquals(expected.getClassNaming(type), seedMapper.getClassNaming(type));
+    }
+  }
+
+  @Test
+  public void testIndexedMapper() throws Exception {
+    ClassNameMapper expected = ClassNameMapper.mapperFromString(MAPPING);
+    try (IndexedClassNameMapper mapper =
+        IndexedClassNameMapper.mapperFromFile(writeBinaryMapping(MAPPING))) {
+      assertEquals(4, mapper.size());
+      for (String name : ImmutableList.of("a.a", "a.b", "a.c", "a.d")) {
+        assertTrue(mapper.hasMapping(name));
+        assertEquals(expected.deobfuscateClassName(name), mapper.deobfuscateClassName(name));
+        assertEquals(expected.getClassNaming(name), mapper.getClassNaming(name));
+      }
+      assertFalse(mapper.hasMapping("a.e"));
+      assertEquals("a.e", mapper.deobfuscateClassName("a.e"));
+    }
+  }
+
+  @Test
+  public void testDuplicateObfuscatedName() throws Exception {
+    String mapping = StringUtils.lines("com.example.A -> a.a:", "com.example.B -> a.a:");
+    try {
+      BinaryProguardMap.fromText(mapping);
+      fail("Expected duplicate class mapping to be rejected");
+    } catch (CompilationError e) {
+      assertThat(e.getMessage(), containsString("'a.a'"));
+    }
+  }
+
+  // Fills every slot of the obfuscated name table of the binary map file with the given entry.
+  private static void fillObfuscatedNameTable(Path binaryFile, int entry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(binaryFile));
+    int tableSize = buffer.getInt(24);
+    int tableOffset = buffer.getInt(28);
+    for (int i = 0; i < tableSize; i++) {
+      buffer.putInt(tableOffset + i * Integer.BYTES, entry);
+    }
+    Files.write(binaryFile, buffer.array());
+  }
+
+  @Test
+  public void testCorruptTable() throws Exception {
+    Path binaryFile = writeBinaryMapping(MAPPING);
+    // A table without empty slots, in which the name is not found.
+    fillObfuscatedNameTable(binaryFile, 1);
+    BinaryProguardMap binaryMap = BinaryProguardMap.mapFromFile(binaryFile);
+    assertEquals(0, binaryMap.lookupObfuscatedName("a.a"));
+    try {
+      binaryMap.lookupObfuscatedName("a.e");
+      fail("Expected corrupt table to be rejected");
+    } catch (CompilationError e) {
+      // Expected.
+    }
+    // A table with an entry for a class that does not exist.
+    fillObfuscatedNameTable(binaryFile, binaryMap.size() + 1);
+    try {
+      BinaryProguardMap.mapFromFile(binaryFile).lookupObfuscatedName("a.a");
+      fail("Expected corrupt table to be rejected");
+    } catch (CompilationError e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testConvertAndConsumer() throws Exception {
+    Path textFile = writeMapping(MAPPING);
+    Path dir = temp.newFolder().toPath();
+    ConvertProguardMap.convert(textFile, dir.resolve("mapping.bin"));
+    ConvertProguardMap.convert(dir.resolve("mapping.bin"), dir.resolve("mapping.txt"));
+    String expected = HEADER + ClassNameMapper.mapperFromString(MAPPING).toString();
+    assertEquals(
+        expected, FileUtils.readTextFile(dir.resolve("mapping.txt"), StandardCharsets.UTF_8));
+
+    Path consumerOutput = dir.resolve("output").resolve("mapping.bin");
+    new BinaryProguardMap.FileConsumer(consumerOutput, null).accept(MAPPING, new Reporter());
+    assertEquals(
+        ClassNameMapper.mapperFromString(MAPPING), ClassNameMapper.mapperFromFile(consumerOutput));
+  }
+}
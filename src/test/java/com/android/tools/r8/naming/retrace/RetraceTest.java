@@ -0,0 +1,200 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming.retrace;
+
+import static com.android.tools.r8.naming.retrace.StackTrace.isSameExceptForFileName;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.ForceInline;
+import com.android.tools.r8.R8TestRunResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.IndexedClassNameMapper;
+import com.android.tools.r8.retrace.Retrace;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+/** Tests for retracing stack traces with a lazily parsed mapping file. */
+public class RetraceTest extends TestBase {
+
+  static class Main {
+
+    @ForceInline
+    static void inlinee(int i) {
+      if (i > 0) {
+        throw new RuntimeException("In inlinee");
+      }
+    }
+
+    @ForceInline
+    static void caller(String s) {
+      System.out.println("In caller");
+      inlinee(Integer.parseInt(s));
+    }
+
+    public static void main(String[] args) {
+      System.out.println("In main");
+      caller("1");
+    }
+  }
+
+  private static final String MAPPING =
+      StringUtils.lines(
+          "# compiler: R8",
+          "com.example.Main -> a.a:",
+          "    int field -> a",
+          "    1:1:void main(java.lang.String[]):20:20 -> main",
+          "    2:2:void com.example.Util.check(int):7:7 -> main",
+          "    2:2:void main(java.lang.String[]):21 -> main",
+          "    1:3:void foo():10:12 -> b",
+          "    1:3:void bar():5 -> b",
+          "    4:4:void baz():40:40 -> b",
+          "    void unused() -> c",
+          "    void unused(int) -> c",
+          "com.example.package-info -> a.d:",
+          "com.example.Util -> a.b:",
+          "    void check(int) -> a",
+          "",
+          "com.example.Main$Inner -> a.c:");
+
+  private static final List<String> STACK_TRACE =
+      ImmutableList.of(
+          "Exception in thread \"main\" a.b: Failed in a.a",
+          "\tat a.a.b(SourceFile:2)",
+          "\tat a.a.b(SourceFile:4)",
+          "\tat a.a.main(SourceFile:2)",
+          "\tat a.a.c(Unknown Source)",
+          "\tat a.c.run(SourceFile:9)",
+          "\tat java.lang.Thread.run(Thread.java:748)",
+          "Caused by: a.c",
+          "\t... 3 more");
+
+  private static final List<String> RETRACED_STACK_TRACE =
+      ImmutableList.of(
+          "Exception in thread \"main\" com.example.Util: Failed in a.a",
+          "\tat com.example.Main.foo(Main.java:11)",
+          "\tat com.example.Main.bar(Main.java:5)",
+          "\tat com.example.Main.baz(Main.java:40)",
+          "\tat com.example.Util.check(Util.java:7)",
+          "\tat com.example.Main.main(Main.java:21)",
+          "\tat com.example.Main.unused(Unknown Source)",
+          "\tat com.example.Main$Inner.run(Main.java:9)",
+          "\tat java.lang.Thread.run(Thread.java:748)",
+          "Caused by: com.example.Main$Inner",
+          "\t... 3 more");
+
+  private Path writeMapping(String mapping) throws IOException {
+    Path mappingFile = temp.newFolder().toPath().resolve("mapping.txt");
+    FileUtils.writeTextFile(mappingFile, mapping);
+    return mappingFile;
+  }
+
+  @Test
+  public void testIndexedMapper() throws Exception {
+    ClassNameMapper expected = ClassNameMapper.mapperFromString(MAPPING);
+    try (IndexedClassNameMapper mapper =
+        IndexedClassNameMapper.mapperFromFile(writeMapping(MAPPING))) {
+      assertEquals(3, mapper.size());
+      for (String name : ImmutableList.of("a.a", "a.b", "a.c")) {
+        assertTrue(mapper.hasMapping(name));
+        assertEquals(expected.deobfuscateClassName(name), mapper.deobfuscateClassName(name));
+        assertEquals(expected.getClassNaming(name), mapper.getClassNaming(name));
+      }
+      assertFalse(mapper.hasMapping("a.d"));
+      assertNull(mapper.getClassNaming("a.d"));
+      assertEquals("a.d", mapper.deobfuscateClassName("a.d"));
+    }
+  }
+
+  @Test
+  public void testDuplicateObfuscatedName() throws Exception {
+    String mapping = StringUtils.lines("com.example.A -> a.a:", "com.example.B -> a.a:");
+    try {
+      IndexedClassNameMapper.mapperFromFile(writeMapping(mapping)).close();
+      fail("Expected duplicate class mapping to be rejected");
+    } catch (CompilationError e) {
+      assertThat(e.getMessage(), containsString("'a.a'"));
+    }
+  }
+
+  @Test
+  public void testRetrace() throws Exception {
+    Path mappingFile = writeMapping(MAPPING);
+    for (int cacheSize : new int[] {1, IndexedClassNameMapper.DEFAULT_CACHE_SIZE}) {
+      try (IndexedClassNameMapper mapper =
+          IndexedClassNameMapper.mapperFromFile(mappingFile, cacheSize)) {
+        Retrace retrace = new Retrace(mapper);
+        assertEquals(RETRACED_STACK_TRACE, retrace.retrace(STACK_TRACE));
+        // Retrace again with the classes parsed again or from the cache.
+        assertEquals(RETRACED_STACK_TRACE, retrace.retrace(STACK_TRACE));
+      }
+    }
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    Path inputDir = temp.newFolder().toPath();
+    Path outputDir = temp.newFolder().toPath().resolve("retraced");
+    List<Path> stackTraces =
+        Arrays.asList(inputDir.resolve("first.txt"), inputDir.resolve("second.txt"));
+    for (Path stackTrace : stackTraces) {
+      FileUtils.writeTextFile(stackTrace, STACK_TRACE);
+    }
+    ExecutorService executor = ThreadUtils.getExecutorService(2);
+    try (IndexedClassNameMapper mapper =
+        IndexedClassNameMapper.mapperFromFile(writeMapping(MAPPING))) {
+      new Retrace(mapper).retrace(stackTraces, outputDir, executor);
+    } finally {
+      executor.shutdown();
+    }
+    for (Path stackTrace : stackTraces) {
+      Path retraced = outputDir.resolve(stackTrace.getFileName());
+      assertEquals(RETRACED_STACK_TRACE, FileUtils.readAllLines(retraced));
+    }
+  }
+
+  @Test
+  public void testInlinedFrames() throws Exception {
+    StackTrace expectedStackTrace =
+        testForJvm()
+            .addTestClasspath()
+            .run(Main.class)
+            .assertFailure()
+            .map(StackTrace::extractFromJvm);
+    R8TestRunResult result =
+        testForR8(Backend.CF)
+            .enableInliningAnnotations()
+            .addProgramClasses(Main.class)
+            .addKeepMainRule(Main.class)
+            .addKeepRules("-keepattributes SourceFile,LineNumberTable")
+            .run(Main.class)
+            .assertFailure();
+    // All of the frames are in main after inlining.
+    assertEquals(1, StackTrace.extractFromJvm(result.getStdErr()).size());
+
+    List<String> retraced;
+    try (IndexedClassNameMapper mapper =
+        IndexedClassNameMapper.mapperFromFile(writeMapping(result.proguardMap()))) {
+      retraced = new Retrace(mapper).retrace(StringUtils.splitLines(result.getStdErr()));
+    }
+    assertThat(
+        StackTrace.extractFromJvm(String.join("\n", retraced)),
+        isSameExceptForFileName(expectedStackTrace));
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.shaking.ifrule;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import org.junit.Test;
+
+/**
+ * Tests that -if rules are applied when their condition is satisfied by items that only become
+ * live in a later round of -if rule evaluation.
+ */
+public class IfRuleChainTest extends TestBase {
+
+  @Test
+  public void test() throws Exception {
+    String expectedOutput = StringUtils.lines("A");
+
+    CodeInspector inspector =
+        testForR8(Backend.CF)
+            .addInnerClasses(IfRuleChainTest.class)
+            .addKeepMainRule(TestClass.class)
+            .addKeepRules(
+                // Satisfied in the first round, since A is live.
+                "-if class " + A.class.getTypeName(),
+                "-keep class " + B.class.getTypeName() + " { void m(); }",
+                // Satisfied in the second round, since B.m() is kept by the rule above.
+                "-if class " + B.class.getTypeName() + " { void m(); }",
+                "-keep class " + C.class.getTypeName() + " { void n(); }",
+                // Satisfied in the third round, since C.n() is kept by the rule above.
+                "-if class **$C { void n(); }",
+                "-keep class <1>$D",
+                // Never satisfied.
+                "-if class " + B.class.getTypeName() + " { void n(); }",
+                "-keep class " + E.class.getTypeName())
+            .run(TestClass.class)
+            .assertSuccessWithOutput(expectedOutput)
+            .inspector();
+
+    for (Class<?> clazz : new Class<?>[] {A.class, B.class, C.class, D.class}) {
+      ClassSubject classSubject = inspector.clazz(clazz);
+      assertThat(classSubject, isPresent());
+    }
+    assertThat(inspector.clazz(B.class).uniqueMethodWithName("m"), isPresent());
+    assertThat(inspector.clazz(C.class).uniqueMethodWithName("n"), isPresent());
+    assertThat(inspector.clazz(E.class), not(isPresent()));
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println(new A());
+    }
+  }
+
+  static class A {
+
+    @Override
+    public String toString() {
+      return "A";
+    }
+  }
+
+  static class B {
+
+    void m() {}
+
+    void n() {}
+  }
+
+  static class C {
+
+    void n() {}
+  }
+
+  static class D {}
+
+  static class E {}
+}
@@ -55,6 +55,8 @@ public class OutlineTest extends SmaliTestBase {
     return options -> {
       // Disable inlining to make sure that code looks as expected.
       options.enableInlining = false;
+      // The tests outline sequences of StringBuilder operations, which are otherwise folded.
+      options.enableStringBuilderOptimization = false;
       // Also apply outline options.
       optionsConsumer.accept(options.outline);
     };
@@ -0,0 +1,187 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.OutputMode;
+import com.android.tools.r8.TestBase;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Test;
+
+public class ArchiveBuilderTest extends TestBase {
+
+  private static final int NUMBER_OF_DEX_FILES = 20;
+  private static final int NUMBER_OF_OTHER_FILES = 50;
+
+  private static byte[] content(String name) {
+    return StringUtils.join(Collections.nCopies(100, name), ",").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private Path buildArchive(boolean storeDexFilesUncompressed) throws Exception {
+    Path archive = temp.newFolder().toPath().resolve("archive.zip");
+    ArchiveBuilder builder = new ArchiveBuilder(archive, storeDexFilesUncompressed);
+    KeepingDiagnosticHandler handler = new KeepingDiagnosticHandler();
+    builder.open();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      // Add the files in reverse order to ensure that they are written in a deterministic order.
+      for (int i = NUMBER_OF_DEX_FILES - 1; i >= 0; i--) {
+        int index = i;
+        String name = "classes" + (index == 0 ? "" : index + 1) + ".dex";
+        futures.add(
+            executor.submit(
+                () ->
+                    builder.addIndexedClassFile(
+                        index, name, ByteDataView.of(content(name)), handler)));
+      }
+      for (int i = NUMBER_OF_OTHER_FILES - 1; i >= 0; i--) {
+        String name = "META-INF/resource" + i + ".txt";
+        futures.add(
+            executor.submit(() -> builder.addFile(name, ByteDataView.of(content(name)), handler)));
+      }
+      builder.addDirectory("META-INF", handler);
+      ThreadUtils.awaitFutures(futures);
+    } finally {
+      executor.shutdown();
+    }
+    builder.close(handler);
+    assertTrue(handler.warnings.isEmpty());
+    assertTrue(handler.errors.isEmpty());
+    return archive;
+  }
+
+  private void checkArchive(Path archive, boolean storeDexFilesUncompressed) throws Exception {
+    List<String> expectedNames = new ArrayList<>();
+    for (int i = 0; i < NUMBER_OF_DEX_FILES; i++) {
+      expectedNames.add("classes" + (i == 0 ? "" : i + 1) + ".dex");
+    }
+    List<String> otherNames = new ArrayList<>();
+    otherNames.add("META-INF/");
+    for (int i = 0; i < NUMBER_OF_OTHER_FILES; i++) {
+      otherNames.add("META-INF/resource" + i + ".txt");
+    }
+    Collections.sort(otherNames);
+    expectedNames.addAll(otherNames);
+
+    try (ZipFile zipFile = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+      List<String> names = new ArrayList<>();
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        names.add(entry.getName());
+        assertEquals(0, entry.getTime());
+        if (entry.isDirectory()) {
+          continue;
+        }
+        boolean isStored = entry.getMethod() == ZipEntry.STORED;
+        assertEquals(storeDexFilesUncompressed && ZipUtils.isDexFile(entry.getName()), isStored);
+        assertArrayEquals(
+            content(entry.getName()), ByteStreams.toByteArray(zipFile.getInputStream(entry)));
+      }
+      assertEquals(expectedNames, names);
+    }
+  }
+
+  // Returns the offset of the data of each file entry in the archive, by scanning the local file
+  // headers.
+  private static Map<String, Long> getDataOffsets(Path archive) throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(archive));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    Map<String, Long> offsets = new TreeMap<>();
+    int offset = 0;
+    while (buffer.getInt(offset) == 0x04034b50) {
+      int compressedSize = buffer.getInt(offset + 18);
+      int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 26));
+      int extraLength = Short.toUnsignedInt(buffer.getShort(offset + 28));
+      String name =
+          new String(buffer.array(), offset + 30, nameLength, StandardCharsets.UTF_8);
+      int dataOffset = offset + 30 + nameLength + extraLength;
+      if (!name.endsWith("/")) {
+        offsets.put(name, (long) dataOffset);
+      }
+      offset = dataOffset + compressedSize;
+    }
+    return offsets;
+  }
+
+  private static void checkDexFilesAligned(Path archive) throws Exception {
+    Map<String, Long> offsets = getDataOffsets(archive);
+    int dexFiles = 0;
+    for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+      if (ZipUtils.isDexFile(entry.getKey())) {
+        assertEquals(entry.getKey(), 0, entry.getValue() % 4);
+        dexFiles++;
+      }
+    }
+    assertTrue(dexFiles > 0);
+  }
+
+  @Test
+  public void testCompressed() throws Exception {
+    checkArchive(buildArchive(false), false);
+  }
+
+  @Test
+  public void testDexFilesUncompressed() throws Exception {
+    Path archive = buildArchive(true);
+    checkArchive(archive, true);
+    checkDexFilesAligned(archive);
+  }
+
+  @Test
+  public void testDexFilesUncompressedFromCommand() throws Exception {
+    Path archive = temp.newFolder().toPath().resolve("output.zip");
+    // The option also applies to an output that has been set before it.
+    D8Command.Builder builder =
+        D8Command.builder()
+            .setOutput(archive, OutputMode.DexIndexed)
+            .setStoreDexFilesUncompressed(true);
+    assertTrue(builder.isStoreDexFilesUncompressed());
+    DexIndexedConsumer consumer = (DexIndexedConsumer) builder.getProgramConsumer();
+    KeepingDiagnosticHandler handler = new KeepingDiagnosticHandler();
+    for (int i = 0; i < 3; i++) {
+      String name = "classes" + (i == 0 ? "" : i + 1) + ".dex";
+      consumer.accept(i, ByteDataView.of(content(name)), ImmutableSet.of(), handler);
+    }
+    consumer.finished(handler);
+    assertTrue(handler.errors.isEmpty());
+    try (ZipFile zipFile = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+      assertEquals(3, zipFile.size());
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        assertEquals(ZipEntry.STORED, entry.getMethod());
+        assertArrayEquals(
+            content(entry.getName()), ByteStreams.toByteArray(zipFile.getInputStream(entry)));
+      }
+    }
+    checkDexFilesAligned(archive);
+  }
+
+  @Test
+  public void testDeterministic() throws Exception {
+    assertArrayEquals(
+        Files.readAllBytes(buildArchive(false)),
+        Files.readAllBytes(buildArchive(false)));
+  }
+}
@@ -6,6 +6,7 @@ package com.android.tools.r8.utils.codeinspector;
 
 
 import com.android.tools.r8.cf.code.CfArithmeticBinop;
+import com.android.tools.r8.cf.code.CfArrayLoad;
 import com.android.tools.r8.cf.code.CfArrayStore;
 import com.android.tools.r8.cf.code.CfCheckCast;
 import com.android.tools.r8.cf.code.CfConstClass;
@@ -286,6 +287,11 @@ public class CfInstructionSubject implements InstructionSubject {
     return instruction instanceof CfNewArray;
   }
 
+  @Override
+  public boolean isArrayGet() {
+    return instruction instanceof CfArrayLoad;
+  }
+
   @Override
   public boolean isArrayPut() {
     return instruction instanceof CfArrayStore;
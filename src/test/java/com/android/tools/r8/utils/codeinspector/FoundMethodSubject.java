@@ -4,6 +4,7 @@
 
 package com.android.tools.r8.utils.codeinspector;
 
+import com.android.tools.r8.ClassFileConsumer;
 import com.android.tools.r8.cf.code.CfInstruction;
 import com.android.tools.r8.cf.code.CfPosition;
 import com.android.tools.r8.code.Instruction;
@@ -48,13 +49,18 @@ public class FoundMethodSubject extends MethodSubject {
   @Override
   public IRCode buildIR() {
     DexEncodedMethod method = getMethod();
+    InternalOptions options = new InternalOptions();
+    if (method.getCode().isCfCode()) {
+      // Building IR from class file code depends on the output mode.
+      options.programConsumer = ClassFileConsumer.emptyConsumer();
+    }
     return method
         .getCode()
         .buildIR(
             method,
             new AppInfo(codeInspector.application),
             GraphLense.getIdentityLense(),
-            new InternalOptions(),
+            options,
             Origin.unknown());
   }
 
@@ -84,6 +84,8 @@ public interface InstructionSubject {
 
   boolean isNewArray();
 
+  boolean isArrayGet();
+
   boolean isArrayPut();
 
   boolean isMonitorEnter();
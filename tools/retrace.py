@@ -30,6 +30,11 @@ def parse_arguments():
       '--stacktrace',
       help='Path to stacktrace file.',
       default=None)
+  parser.add_argument(
+      '--r8',
+      help='Use the retrace in r8.jar instead of the Proguard retrace.',
+      default=False,
+      action='store_true')
   return parser.parse_args()
 
 
@@ -49,7 +54,12 @@ def main():
       print('Could not find map file from argument: %s.' % hashOrVersion)
       return 1
 
-  retrace_args = ['java', '-jar', utils.RETRACE_JAR, r8lib_map_path]
+  if args.r8:
+    retrace_args = [
+        'java', '-cp', utils.R8_JAR, 'com.android.tools.r8.retrace.Retrace',
+        r8lib_map_path]
+  else:
+    retrace_args = ['java', '-jar', utils.RETRACE_JAR, r8lib_map_path]
   if args.stacktrace:
     retrace_args.append(args.stacktrace)
 